@@ -2,6 +2,10 @@ package app.ai.lab.tradeEngineLite.Algos.ResultReact;
 
 import app.ai.lab.tradeEngineLite.GraphUtils.CandleGraphTracker;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 enum Side {
     LONG, SHORT
 }
@@ -63,6 +67,34 @@ final class ActiveTrade {
         }
     }
 
+    /** Serialize for a stream checkpoint. */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(side.ordinal());
+        out.writeDouble(entryPrice);
+        out.writeInt(openedOnCandleIndex);
+        out.writeInt(autoExpiryCandles);
+        out.writeDouble(targetPct);
+        out.writeDouble(stopPct);
+        out.writeBoolean(closed);
+        out.writeBoolean(logged);
+        out.writeBoolean(exitPrice != null);
+        out.writeDouble(exitPrice == null ? 0.0 : exitPrice);
+        out.writeInt(closedOnCandleIndex);
+    }
+
+    /** Trade written by {@link #writeTo}. */
+    static ActiveTrade readFrom(DataInput in) throws IOException {
+        ActiveTrade t = new ActiveTrade(Side.values()[in.readByte()], in.readDouble(), in.readInt(),
+                in.readInt(), in.readDouble(), in.readDouble());
+        t.closed = in.readBoolean();
+        t.logged = in.readBoolean();
+        boolean hasExit = in.readBoolean();
+        double exit = in.readDouble();
+        t.exitPrice = hasExit ? exit : null;
+        t.closedOnCandleIndex = in.readInt();
+        return t;
+    }
+
     /** PnL per 1 unit (absolute) */
     double pnlAbs() {
         if (!closed || exitPrice == null)
@@ -3,6 +3,10 @@ package app.ai.lab.tradeEngineLite.Algos.ResultReact;
 import app.ai.lab.tradeEngineLite.GraphUtils.CandleGraphTracker;
 import app.ai.lab.tradeEngineLite.GraphUtils.CandleGraphTracker.Candle;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 abstract class BaseLongStrategy implements LongStrategy {
     protected CandleGraphTracker tracker;
     protected final double longPoint;          // as per level spec when applicable
@@ -41,6 +45,19 @@ abstract class BaseLongStrategy implements LongStrategy {
     @Override public void onNewCandle() { candlesElapsed++; }
     @Override public void cancel() { activeTrade = null; candlesElapsed = entryValidityCandles; }
 
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(candlesElapsed);
+        out.writeBoolean(activeTrade != null);
+        if (activeTrade != null) activeTrade.writeTo(out);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        candlesElapsed = in.readInt();
+        activeTrade = in.readBoolean() ? ActiveTrade.readFrom(in) : null;
+    }
+
     protected Candle prevCandle() {
         int n = tracker.candles.size();
         return (n >= 2) ? tracker.candles.get(n - 2) : null;
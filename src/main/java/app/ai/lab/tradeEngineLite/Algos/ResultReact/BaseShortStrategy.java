@@ -3,6 +3,10 @@ package app.ai.lab.tradeEngineLite.Algos.ResultReact;
 import app.ai.lab.tradeEngineLite.GraphUtils.CandleGraphTracker;
 import app.ai.lab.tradeEngineLite.GraphUtils.CandleGraphTracker.Candle;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 abstract class BaseShortStrategy implements ShortStrategy {
     protected CandleGraphTracker tracker;
     protected final double shortPoint;         // as per level spec when applicable
@@ -28,6 +32,19 @@ abstract class BaseShortStrategy implements ShortStrategy {
     @Override public void onNewCandle() { candlesElapsed++; }
     @Override public void cancel() { activeTrade = null; candlesElapsed = entryValidityCandles; }
 
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(candlesElapsed);
+        out.writeBoolean(activeTrade != null);
+        if (activeTrade != null) activeTrade.writeTo(out);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        candlesElapsed = in.readInt();
+        activeTrade = in.readBoolean() ? ActiveTrade.readFrom(in) : null;
+    }
+
     protected Candle prevCandle() {
         int n = tracker.candles.size();
         return (n >= 2) ? tracker.candles.get(n - 2) : null;
@@ -1,11 +1,15 @@
 package app.ai.lab.tradeEngineLite.Algos.ResultReact;
 
 import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamCheckpoint;
 import app.ai.lab.tradeEngineLite.BackTest.Exchange.OrderManagementService;
 import app.ai.lab.tradeEngineLite.GraphUtils.CandleGraphTracker;
 import app.ai.lab.tradeEngineLite.GraphUtils.CandleGraphTracker.MAType;
 
 import java.awt.Color;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
@@ -20,7 +24,7 @@ import java.util.Map;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
-public class LogicalCore_bt_v3 {
+public class LogicalCore_bt_v3 implements StreamCheckpoint.Participant {
 
     private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
     private static final DateTimeFormatter BASE_FMT = DateTimeFormatter.ofPattern("dd/MM/yy hh:mm a", Locale.ENGLISH);
@@ -221,6 +225,32 @@ public class LogicalCore_bt_v3 {
     }
 
 
+    /** Checkpoint: trading gate, daily candles/indicators and the strategy's active trade. */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(tradingWindowOpened);
+        tracker.writeState(out);
+        out.writeBoolean(shortStrategy != null);
+        if (shortStrategy != null) shortStrategy.writeState(out);
+        out.writeBoolean(longStrategy != null);
+        if (longStrategy != null) longStrategy.writeState(out);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        tradingWindowOpened = in.readBoolean();
+        tracker.readState(in);
+        // the strategy is picked from the QuarterRecord, so a mismatch means another record
+        if (in.readBoolean() != (shortStrategy != null)) {
+            throw new IOException("Checkpoint of " + name + " has a different short strategy");
+        }
+        if (shortStrategy != null) shortStrategy.readState(in);
+        if (in.readBoolean() != (longStrategy != null)) {
+            throw new IOException("Checkpoint of " + name + " has a different long strategy");
+        }
+        if (longStrategy != null) longStrategy.readState(in);
+    }
+
     private ActiveTrade currentActiveTrade() {
         if (shortStrategy != null && shortStrategy.getActiveTrade() != null) return shortStrategy.getActiveTrade();
         if (longStrategy  != null && longStrategy.getActiveTrade()  != null) return longStrategy.getActiveTrade();
@@ -2,6 +2,10 @@ package app.ai.lab.tradeEngineLite.Algos.ResultReact;
 
 import app.ai.lab.tradeEngineLite.GraphUtils.CandleGraphTracker;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 interface LongStrategy {
     /** Called every tick; may open a trade while entry-validity lasts. */
     void onTick(long ts, double price);
@@ -20,4 +24,10 @@ interface LongStrategy {
 
     /** Cancel/disable strategy (if needed). */
     void cancel();
+
+    /** Save entry-window progress and the active trade (stream checkpoint). */
+    void writeState(DataOutput out) throws IOException;
+
+    /** Restore what {@link #writeState} saved. */
+    void readState(DataInput in) throws IOException;
 }
@@ -0,0 +1,629 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.Utils.IntIndexMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * OHLCV bars per token at 1m, 5m, 15m and 1D, rolled up once from the
+ * day zips so daily / intraday-bar strategies do not re-decode every
+ * 1-second snapshot for months.
+ *
+ * Layout:
+ * <pre>
+ *   storeDir/manifest.csv                        fileCode,date,sources,firstTs,lastTs,tokens,filter
+ *   storeDir/&lt;1m|5m|15m|1D&gt;/&lt;fileCode&gt;_&lt;dd-MM-yy&gt;.bars   every token's bars of that day
+ * </pre>
+ * Bar file (big-endian): {@code 'TBAR', u16 version, u16 reserved, i32 seconds, i32 count},
+ * then {@code count} rows sorted by bar start, then token:
+ * {@code u8 kind, i32 token, i64 start, i64 firstTs, i64 lastTs, i32 open, high, low, close,
+ * i64 volume, i64 dayVolume, i64 openInterest, i32 ticks}.
+ *
+ * {@link #rollup} is incremental and idempotent: a day is rebuilt only when
+ * its zips (count, bytes, newest mtime) differ from what the manifest
+ * recorded or its token filter does not cover the requested one, and rebuilding the same zips writes the same bytes. The store
+ * directory is a {@link StreamHistoricalData} root for
+ * {@link StreamHistoricalData#stream_bars}; {@link #streamer} builds one.
+ */
+public final class BarStore {
+
+    public static final String MANIFEST = "manifest.csv";
+    public static final String EXTENSION = ".bars";
+    private static final String MANIFEST_HEADER = "fileCode,date,sources,firstTs,lastTs,tokens,filter";
+    private static final String ALL_TOKENS = "*";
+
+    private static final int MAGIC = 0x54424152; // "TBAR"
+    private static final int VERSION = 1;
+    // IST has no DST, so bar buckets are plain arithmetic on the +05:30 offset
+    private static final long IST_OFFSET_MS = 19_800_000L;
+
+    /** Bar sizes kept by the store; buckets are aligned to IST (1D = IST calendar day). */
+    public enum Resolution {
+        M1("1m", 60), M5("5m", 300), M15("15m", 900), D1("1D", 86_400);
+
+        private final String label;
+        private final long millis;
+
+        Resolution(String label, int seconds) {
+            this.label = label;
+            this.millis = seconds * 1000L;
+        }
+
+        public String getLabel() { return label; }
+
+        public int getSeconds() { return (int) (millis / 1000L); }
+
+        /** Start of the bar containing {@code epochMs}. */
+        public long bucket(long epochMs) {
+            return Math.floorDiv(epochMs + IST_OFFSET_MS, millis) * millis - IST_OFFSET_MS;
+        }
+    }
+
+    /**
+     * Synthetic ticks replayed per bar, spread evenly between the first and
+     * last tick the bar saw. {@link #OLHC} is what {@code stream_zerodha} emits.
+     */
+    public enum IntrabarPath {
+        /** One tick at the close. */
+        CLOSE,
+        OHLC,
+        OLHC,
+        /** Open, the extreme nearer the open, the other extreme, close. */
+        NEAREST;
+
+        int points() {
+            return this == CLOSE ? 1 : 4;
+        }
+
+        int price(Bar b, int k) {
+            switch (this) {
+                case CLOSE: return b.close;
+                case OHLC: return k == 0 ? b.open : k == 1 ? b.high : k == 2 ? b.low : b.close;
+                case OLHC: return k == 0 ? b.open : k == 1 ? b.low : k == 2 ? b.high : b.close;
+                default:
+                    boolean highFirst = (long) b.high - b.open <= (long) b.open - b.low;
+                    if (k == 0) return b.open;
+                    if (k == 3) return b.close;
+                    return (k == 1) == highFirst ? b.high : b.low;
+            }
+        }
+    }
+
+    /** One bar of one token. Prices are in paise (the wire unit). */
+    public static final class Bar {
+        private final boolean index;
+        private final int token;
+        private final long start;
+        private final long firstTs;
+        private final long lastTs;
+        private final int open;
+        private final int high;
+        private final int low;
+        private final int close;
+        private final long volume;
+        private final long dayVolume;
+        private final long openInterest;
+        private final int ticks;
+
+        Bar(boolean index, int token, long start, long firstTs, long lastTs, int open, int high, int low, int close,
+                long volume, long dayVolume, long openInterest, int ticks) {
+            this.index = index;
+            this.token = token;
+            this.start = start;
+            this.firstTs = firstTs;
+            this.lastTs = lastTs;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            this.volume = volume;
+            this.dayVolume = dayVolume;
+            this.openInterest = openInterest;
+            this.ticks = ticks;
+        }
+
+        /** true for an index token (built from index packets; no volume). */
+        public boolean isIndex() { return index; }
+        public int getToken() { return token; }
+        public long getStart() { return start; }
+        /** Timestamp of the first snapshot that fell into the bar. */
+        public long getFirstTs() { return firstTs; }
+        /** Timestamp of the last snapshot that fell into the bar. */
+        public long getLastTs() { return lastTs; }
+        public int getOpen() { return open; }
+        public int getHigh() { return high; }
+        public int getLow() { return low; }
+        public int getClose() { return close; }
+        /** Traded in the bar: growth of the day-cumulative volume since the previous bar. */
+        public long getVolume() { return volume; }
+        /** Day-cumulative volume at the bar's last tick. */
+        public long getDayVolume() { return dayVolume; }
+        public long getOpenInterest() { return openInterest; }
+        public int getTicks() { return ticks; }
+
+        @Override
+        public String toString() {
+            return "Bar{" + token + " @" + start + " O=" + open + " H=" + high + " L=" + low + " C=" + close
+                    + " V=" + volume + '}';
+        }
+    }
+
+    /** One manifest row: one rolled-up day of one fileCode. */
+    public static final class Day {
+        private final String fileCode;
+        private final LocalDate date;
+        private final String sources;
+        private final long firstTs;
+        private final long lastTs;
+        private final int tokens;
+        private final String filter;
+
+        Day(String fileCode, LocalDate date, String sources, long firstTs, long lastTs, int tokens, String filter) {
+            this.fileCode = fileCode;
+            this.date = date;
+            this.sources = sources;
+            this.firstTs = firstTs;
+            this.lastTs = lastTs;
+            this.tokens = tokens;
+            this.filter = filter;
+        }
+
+        public String getFileCode() { return fileCode; }
+        public LocalDate getDate() { return date; }
+        /** {@code zips:bytes:newestMtimeMs} of the zips the day was built from. */
+        public String getSources() { return sources; }
+        public long getFirstTs() { return firstTs; }
+        public long getLastTs() { return lastTs; }
+        public int getTokens() { return tokens; }
+        /** Token filter the day was built with: "*" = every token, else tokens joined by ';'; "" = unknown. */
+        public String getFilter() { return filter; }
+
+        /** true if the day's bars were built for {@code token}; false when the filter is unknown. */
+        public boolean hasToken(int token) {
+            return ALL_TOKENS.equals(filter) || Arrays.binarySearch(filterTokens(filter), token) >= 0;
+        }
+
+        String key() {
+            return fileCode.toUpperCase(java.util.Locale.ROOT) + "|" + date;
+        }
+    }
+
+    private final Path storeDir;
+    private final Map<String, Day> days = new HashMap<>(); // key() -> day
+    private int lastRolledUp;
+    private int lastSkipped;
+
+    private BarStore(Path storeDir) {
+        this.storeDir = storeDir;
+    }
+
+    /** Open an existing store (an empty one if there is no manifest yet). */
+    public static BarStore open(Path storeDir) throws IOException {
+        Objects.requireNonNull(storeDir, "storeDir");
+        BarStore store = new BarStore(storeDir);
+        Path manifest = storeDir.resolve(MANIFEST);
+        if (!Files.isRegularFile(manifest)) return store;
+
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        for (int i = 1; i < lines.size(); i++) { // skip header
+            String line = lines.get(i).trim();
+            if (line.isEmpty()) continue;
+            String[] f = line.split(",");
+            // 6 fields: written before the filter was recorded, so the day is rebuilt on the next rollup
+            if (f.length != 6 && f.length != 7) throw new IOException("Bad manifest line " + (i + 1) + ": " + line);
+            Day d = new Day(f[0], LocalDate.parse(f[1], ColumnarDayFile.DAY), f[2], Long.parseLong(f[3]),
+                    Long.parseLong(f[4]), Integer.parseInt(f[5]), f.length == 7 ? f[6] : "");
+            store.days.put(d.key(), d);
+        }
+        return store;
+    }
+
+    /**
+     * Roll every day of {@code fileCode} zips under {@code rootDir} up into
+     * bars of every {@link Resolution}. Days whose zips did not change since
+     * the last rollup, and whose bars already hold every requested token, are
+     * skipped; the manifest is rewritten after each day, so an interrupted job
+     * keeps the finished days.
+     *
+     * @param tokens only keep bars of these tokens; {@code null} => every token. A day
+     *               rebuilt for more tokens keeps the ones it already had.
+     * @return the updated store
+     */
+    public static BarStore rollup(Path rootDir, String fileCode, String startDate_dd_MM_yy,
+            String endDate_dd_MM_yy, Path storeDir, TokenFilter tokens) throws IOException {
+        BarStore store = open(storeDir);
+        LocalDate start = LocalDate.parse(startDate_dd_MM_yy, ColumnarDayFile.DAY);
+        LocalDate end = LocalDate.parse(endDate_dd_MM_yy, ColumnarDayFile.DAY);
+        store.lastRolledUp = 0;
+        store.lastSkipped = 0;
+
+        for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+            String day = d.format(ColumnarDayFile.DAY);
+            DayRollup rollup = new DayRollup();
+            StreamHistoricalData streamer = new StreamHistoricalData(rootDir, day, day, fileCode, -1);
+
+            List<Path> zips = streamer.candidateZips();
+            if (zips.isEmpty()) continue;
+            String sources = sources(zips);
+            Day known = store.day(fileCode, d);
+            if (known != null && known.sources.equals(sources) && covers(known.filter, tokens)
+                    && store.hasFiles(fileCode, d)) {
+                store.lastSkipped++;
+                continue;
+            }
+            TokenFilter filter = known == null ? tokens : union(known.filter, tokens);
+            streamer.setTokenFilter(filter);
+
+            streamer.stream(rollup);
+            if (rollup.failure != null) throw rollup.failure;
+            rollup.flush();
+            for (Resolution r : Resolution.values()) {
+                Path file = store.file(r, fileCode, d);
+                Files.createDirectories(file.getParent());
+                writeBars(file, r, rollup.bars(r));
+            }
+            Day row = new Day(fileCode, d, sources, rollup.firstTs, rollup.lastTs, rollup.tokens.size(),
+                    filterKey(filter));
+            store.days.put(row.key(), row);
+            store.writeManifest();
+            store.lastRolledUp++;
+        }
+        return store;
+    }
+
+    public Path getStoreDir() {
+        return storeDir;
+    }
+
+    /** Days (re)built by the last {@link #rollup}. */
+    public int getLastRolledUp() {
+        return lastRolledUp;
+    }
+
+    /** Days the last {@link #rollup} found up to date. */
+    public int getLastSkipped() {
+        return lastSkipped;
+    }
+
+    /** All manifest rows, sorted by fileCode, date. */
+    public List<Day> days() {
+        List<Day> out = new ArrayList<>(days.values());
+        out.sort(Comparator.comparing(Day::getFileCode).thenComparing(Day::getDate));
+        return Collections.unmodifiableList(out);
+    }
+
+    /** Manifest row of {@code fileCode} on {@code date}; null if the day was never rolled up. */
+    public Day day(String fileCode, LocalDate date) {
+        return days.get(new Day(fileCode, date, "", 0, 0, 0, "").key());
+    }
+
+    /** Bar file of {@code fileCode} on {@code date} at {@code resolution}. */
+    public Path file(Resolution resolution, String fileCode, LocalDate date) {
+        return storeDir.resolve(resolution.getLabel()).resolve(fileName(fileCode, date));
+    }
+
+    /** Bars of one day, sorted by start, then token; empty if the day is not in the store. */
+    public List<Bar> bars(Resolution resolution, String fileCode, LocalDate date) throws IOException {
+        Path file = file(resolution, fileCode, date);
+        return Files.isRegularFile(file) ? readBars(file) : Collections.emptyList();
+    }
+
+    /**
+     * Streamer over this store; use {@link StreamHistoricalData#stream_bars}
+     * to replay. Days missing from the store are skipped.
+     */
+    public StreamHistoricalData streamer(String fileCode, String startDate_dd_MM_yy, String endDate_dd_MM_yy,
+            long delayMs, StreamHistoricalData.BlockCallback callback) {
+        return new StreamHistoricalData(storeDir, startDate_dd_MM_yy, endDate_dd_MM_yy, fileCode, delayMs, callback);
+    }
+
+    static String fileName(String fileCode, LocalDate day) {
+        return fileCode + "_" + day.format(ColumnarDayFile.DAY) + EXTENSION;
+    }
+
+    // ---------------- Bar files ----------------
+
+    static void writeBars(Path file, Resolution resolution, List<Bar> bars) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeInt(resolution.getSeconds());
+            out.writeInt(bars.size());
+            for (Bar b : bars) {
+                out.writeByte(b.index ? 1 : 0);
+                out.writeInt(b.token);
+                out.writeLong(b.start);
+                out.writeLong(b.firstTs);
+                out.writeLong(b.lastTs);
+                out.writeInt(b.open);
+                out.writeInt(b.high);
+                out.writeInt(b.low);
+                out.writeInt(b.close);
+                out.writeLong(b.volume);
+                out.writeLong(b.dayVolume);
+                out.writeLong(b.openInterest);
+                out.writeInt(b.ticks);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static List<Bar> readBars(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedShort() != VERSION) {
+                throw new IOException("Not a bar file: " + file);
+            }
+            in.readUnsignedShort();
+            in.readInt(); // resolution seconds
+            int n = in.readInt();
+            if (n < 0) throw new IOException("Corrupt bar file: " + file);
+            List<Bar> bars = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                bars.add(new Bar(in.readByte() != 0, in.readInt(), in.readLong(), in.readLong(), in.readLong(),
+                        in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                        in.readLong(), in.readLong(), in.readLong(), in.readInt()));
+            }
+            return bars;
+        }
+    }
+
+    /**
+     * Replay one bar file: every bar start becomes {@link IntrabarPath#points()}
+     * blocks, each carrying one packet per token with a bar at that start.
+     *
+     * @return false if the callback asked to stop
+     */
+    static boolean replay(Path file, TokenFilter filter, IntrabarPath path, StreamHistoricalData.BlockCallback cb)
+            throws IOException {
+        List<Bar> bars = readBars(file);
+        final int points = path.points();
+        int i = 0;
+        while (i < bars.size()) {
+            // one group = every (wanted) token's bar with this start
+            int j = i;
+            long first = Long.MAX_VALUE;
+            long last = Long.MIN_VALUE;
+            while (j < bars.size() && bars.get(j).start == bars.get(i).start) {
+                Bar b = bars.get(j++);
+                if (filter != null && !filter.matches(b.token)) continue;
+                first = Math.min(first, b.firstTs);
+                last = Math.max(last, b.lastTs);
+            }
+            if (first != Long.MAX_VALUE) {
+                for (int k = 0; k < points; k++) {
+                    long ts = points == 1 ? last : first + (last - first) * k / (points - 1);
+                    List<Block.PacketData> packets = new ArrayList<>(j - i);
+                    for (int x = i; x < j; x++) {
+                        Bar b = bars.get(x);
+                        if (filter == null || filter.matches(b.token)) packets.add(packet(b, path.price(b, k), ts));
+                    }
+                    if (!cb.onBlock(new Block(ts, packets))) return false;
+                }
+            }
+            i = j;
+        }
+        return true;
+    }
+
+    private static Block.PacketData packet(Bar b, int pricePaise, long ts) {
+        if (b.index) {
+            Block.IndexPacket ip = new Block.IndexPacket();
+            ip.setToken(b.token);
+            ip.setLastTradedPrice(pricePaise);
+            ip.setExchangeTimestamp(ts / 1000L);
+            return ip;
+        }
+        Block.StockPacket sp = new Block.StockPacket();
+        sp.setInstrumentToken(b.token);
+        sp.setLastTradedPrice(pricePaise);
+        sp.setVolumeTraded(b.dayVolume);
+        sp.setOpenInterest(b.openInterest);
+        sp.setExchangeTimestamp(ts / 1000L);
+        sp.setMarketDepth(Collections.emptyList());
+        return sp;
+    }
+
+    // ---------------- Internals ----------------
+
+    private boolean hasFiles(String fileCode, LocalDate d) {
+        for (Resolution r : Resolution.values()) {
+            if (!Files.isRegularFile(file(r, fileCode, d))) return false;
+        }
+        return true;
+    }
+
+    /** Change signature of a day's zips. */
+    private static String sources(List<Path> zips) throws IOException {
+        long bytes = 0;
+        long newest = 0;
+        for (Path z : zips) {
+            bytes += Files.size(z);
+            newest = Math.max(newest, Files.getLastModifiedTime(z).toMillis());
+        }
+        return zips.size() + ":" + bytes + ":" + newest;
+    }
+
+    private static String filterKey(TokenFilter filter) {
+        if (filter == null) return ALL_TOKENS;
+        StringBuilder sb = new StringBuilder();
+        for (int t : filter.tokens()) {
+            if (sb.length() > 0) sb.append(';');
+            sb.append(t);
+        }
+        return sb.toString();
+    }
+
+    private static int[] filterTokens(String key) {
+        if (key.isEmpty()) return new int[0];
+        String[] parts = key.split(";");
+        int[] out = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) out[i] = Integer.parseInt(parts[i]);
+        return out;
+    }
+
+    /** true if bars built with filter {@code key} hold every token {@code wanted} asks for. */
+    private static boolean covers(String key, TokenFilter wanted) {
+        if (ALL_TOKENS.equals(key)) return true;
+        if (wanted == null || key.isEmpty()) return false;
+        int[] have = filterTokens(key); // sorted: written from TokenFilter.tokens()
+        for (int t : wanted.tokens()) {
+            if (Arrays.binarySearch(have, t) < 0) return false;
+        }
+        return true;
+    }
+
+    /** Filter that keeps what a day built with {@code key} had, plus {@code wanted}. */
+    private static TokenFilter union(String key, TokenFilter wanted) {
+        if (wanted == null || ALL_TOKENS.equals(key)) return null;
+        int[] have = filterTokens(key);
+        int[] want = wanted.tokens();
+        int[] all = Arrays.copyOf(have, have.length + want.length);
+        System.arraycopy(want, 0, all, have.length, want.length);
+        return TokenFilter.of(all);
+    }
+
+    private void writeManifest() throws IOException {
+        Files.createDirectories(storeDir);
+        Path manifest = storeDir.resolve(MANIFEST);
+        Path tmp = storeDir.resolve(MANIFEST + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(MANIFEST_HEADER);
+            w.newLine();
+            for (Day d : days()) {
+                w.write(d.fileCode + "," + d.date.format(ColumnarDayFile.DAY) + "," + d.sources + ","
+                        + d.firstTs + "," + d.lastTs + "," + d.tokens + "," + d.filter);
+                w.newLine();
+            }
+        }
+        Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Open bar of one token at one resolution. */
+    private static final class Builder {
+        final Resolution resolution;
+        boolean open;
+        long start, firstTs, lastTs;
+        int o, h, l, c;
+        long dayVolume, volumeAtPrevClose, openInterest;
+        int ticks;
+
+        Builder(Resolution resolution) {
+            this.resolution = resolution;
+        }
+
+        /** @return the bar this tick closed, or null */
+        Bar add(boolean index, int token, long ts, int price, long volume, long oi) {
+            long bucket = resolution.bucket(ts);
+            Bar closed = null;
+            if (open && bucket != start) closed = close(index, token);
+            if (!open) {
+                open = true;
+                start = bucket;
+                firstTs = ts;
+                o = h = l = price;
+                ticks = 0;
+            }
+            lastTs = ts;
+            if (price > h) h = price;
+            if (price < l) l = price;
+            c = price;
+            dayVolume = volume;
+            openInterest = oi;
+            ticks++;
+            return closed;
+        }
+
+        Bar close(boolean index, int token) {
+            open = false;
+            long traded = Math.max(0, dayVolume - volumeAtPrevClose);
+            volumeAtPrevClose = dayVolume;
+            return new Bar(index, token, start, firstTs, lastTs, o, h, l, c, traded, dayVolume, openInterest, ticks);
+        }
+    }
+
+    /** Folds one day's packets into bars of every resolution. */
+    private static final class DayRollup implements StreamHistoricalData.PacketVisitor {
+        private static final Resolution[] RES = Resolution.values();
+
+        final IntIndexMap tokens = new IntIndexMap(256);
+        final List<Builder[]> builders = new ArrayList<>();
+        final List<Boolean> isIndex = new ArrayList<>();
+        final List<List<Bar>> out = new ArrayList<>();
+        long firstTs = Long.MAX_VALUE;
+        long lastTs = Long.MIN_VALUE;
+        IOException failure;
+
+        DayRollup() {
+            for (int r = 0; r < RES.length; r++) out.add(new ArrayList<>());
+        }
+
+        @Override
+        public void onStockTick(long blockTs, int token, int ltpPaise, int ltq, long volume, long openInterest,
+                long exchangeTs) {
+            add(false, blockTs, token, ltpPaise, volume, openInterest);
+        }
+
+        @Override
+        public void onIndexTick(long blockTs, int token, int ltpPaise, int openPaise, int highPaise, int lowPaise,
+                int closePaise, long exchangeTs) {
+            add(true, blockTs, token, ltpPaise, 0, 0);
+        }
+
+        @Override
+        public void onError(Exception e, Path source) {
+            if (failure == null) failure = new IOException("Failed to read " + source, e);
+        }
+
+        private void add(boolean index, long ts, int token, int price, long volume, long oi) {
+            int slot = tokens.getOrAdd(token);
+            if (slot == builders.size()) {
+                Builder[] b = new Builder[RES.length];
+                for (int r = 0; r < RES.length; r++) b[r] = new Builder(RES[r]);
+                builders.add(b);
+                isIndex.add(index);
+            }
+            if (ts < firstTs) firstTs = ts;
+            if (ts > lastTs) lastTs = ts;
+            Builder[] b = builders.get(slot);
+            for (int r = 0; r < RES.length; r++) {
+                Bar closed = b[r].add(index, token, ts, price, volume, oi);
+                if (closed != null) out.get(r).add(closed);
+            }
+        }
+
+        void flush() {
+            for (int slot = 0; slot < builders.size(); slot++) {
+                Builder[] b = builders.get(slot);
+                for (int r = 0; r < RES.length; r++) {
+                    if (b[r].open) out.get(r).add(b[r].close(isIndex.get(slot), tokens.keyAt(slot)));
+                }
+            }
+            Comparator<Bar> order = Comparator.comparingLong(Bar::getStart).thenComparingInt(Bar::getToken);
+            for (List<Bar> bars : out) bars.sort(order);
+        }
+
+        List<Bar> bars(Resolution r) {
+            return out.get(r.ordinal());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalData.BlockCallback;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link Flow.Publisher} over a historical stream (ZIP, Zerodha or Groww
+ * mode; see {@link StreamHistoricalData#publisher}).
+ *
+ * Cold: every subscription runs the source from the start on its own
+ * producer thread (a new daemon thread, or a task on {@link #setExecutor}
+ * such as a virtual-thread executor). The producer blocks inside the
+ * stream until the subscriber has {@code request}ed more, so a slow
+ * subscriber throttles zip reading / candle emission instead of filling a
+ * buffer, and a fast one can request large batches. Signals are serial and
+ * come from the producer thread.
+ *
+ * The stream's non-fatal per-file errors do not terminate the flow; they go
+ * to {@link #setErrorHandler}. {@code onError} is only signalled for a
+ * failure of the source itself, an interrupted producer or a non-positive
+ * request. {@link #subscribe(BlockCallback, int)} keeps the callback style
+ * on top of the flow.
+ */
+public final class BlockPublisher implements Flow.Publisher<Block> {
+
+    private final MergedHistoricalStream.Source source;
+    private Executor executor; // null => one daemon thread per subscription
+    private BiConsumer<Exception, Path> errorHandler = (e, source) -> {};
+
+    public BlockPublisher(MergedHistoricalStream.Source source) {
+        this.source = Objects.requireNonNull(source, "source");
+    }
+
+    /** Run producers on {@code executor} (e.g. virtual threads); {@code null} starts a thread per subscription. */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /** Receives non-fatal stream errors (bad zip, failed chunk); ignored by default. */
+    public void setErrorHandler(BiConsumer<Exception, Path> errorHandler) {
+        this.errorHandler = Objects.requireNonNull(errorHandler, "errorHandler");
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Block> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        BlockSubscription subscription = new BlockSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        try {
+            if (executor != null) {
+                executor.execute(subscription::run);
+            } else {
+                Thread t = new Thread(subscription::run, "block-publisher");
+                t.setDaemon(true);
+                t.start();
+            }
+        } catch (RuntimeException e) {
+            subscription.cancel();
+            subscriber.onError(e);
+        }
+    }
+
+    /** Consume with a {@link BlockCallback}, requesting {@code batch} blocks at a time. */
+    public void subscribe(BlockCallback callback, int batch) {
+        subscribe(asSubscriber(callback, batch));
+    }
+
+    /**
+     * Adapter from the callback style: {@code onBlock} returning false
+     * cancels, {@code onEnd} runs once on completion, error or cancel.
+     */
+    public static Flow.Subscriber<Block> asSubscriber(BlockCallback callback, int batch) {
+        Objects.requireNonNull(callback, "callback");
+        if (batch <= 0) throw new IllegalArgumentException("batch must be > 0");
+        return new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+            private int left;
+
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+                left = batch;
+                s.request(batch);
+            }
+
+            @Override
+            public void onNext(Block block) {
+                if (!callback.onBlock(block)) {
+                    subscription.cancel();
+                    end();
+                    return;
+                }
+                if (--left == 0) {
+                    left = batch;
+                    subscription.request(batch);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                callback.onError(t instanceof Exception ? (Exception) t : new RuntimeException(t), null);
+                end();
+            }
+
+            @Override
+            public void onComplete() {
+                end();
+            }
+
+            private void end() {
+                try { callback.onEnd(); } catch (Exception ignore) {}
+            }
+        };
+    }
+
+    // ---------------- Subscription ----------------
+
+    /** Demand counter shared by the subscriber (request/cancel) and the producer thread. */
+    private final class BlockSubscription implements Flow.Subscription, BlockCallback {
+        private final Flow.Subscriber<? super Block> subscriber;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition demanded = lock.newCondition();
+        private long demand;
+        private boolean cancelled;
+        private Throwable abortCause; // bad request or interrupted producer
+
+        BlockSubscription(Flow.Subscriber<? super Block> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            lock.lock();
+            try {
+                if (cancelled) return;
+                if (n <= 0) {
+                    abortCause = new IllegalArgumentException("request(" + n + "): demand must be > 0");
+                    cancelled = true;
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n; // saturate at "unbounded"
+                }
+                demanded.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                demanded.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Producer thread: run the source, then send the terminal signal. */
+        void run() {
+            Throwable failure = null;
+            try {
+                source.run(this);
+            } catch (Exception e) {
+                failure = e;
+            }
+            Throwable terminal;
+            lock.lock();
+            try {
+                terminal = abortCause != null ? abortCause : failure;
+                if (cancelled && abortCause == null) return;
+                cancelled = true;
+            } finally {
+                lock.unlock();
+            }
+            if (terminal != null) subscriber.onError(terminal);
+            else subscriber.onComplete();
+        }
+
+        @Override
+        public boolean onBlock(Block block) {
+            lock.lock();
+            try {
+                while (demand == 0 && !cancelled) demanded.await();
+                if (cancelled) return false;
+                if (demand != Long.MAX_VALUE) demand--;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                if (!cancelled) abortCause = ie;
+                cancelled = true;
+                return false;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                subscriber.onNext(block);
+            } catch (RuntimeException e) {
+                // a throwing subscriber is treated as cancelled
+                cancel();
+                errorHandler.accept(e, null);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void onError(Exception e, Path source) {
+            errorHandler.accept(e, source);
+        }
+    }
+}
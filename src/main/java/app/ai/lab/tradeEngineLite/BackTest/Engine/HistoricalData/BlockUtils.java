@@ -8,6 +8,7 @@ import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.StockPack
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -20,9 +21,22 @@ public final class BlockUtils {
 
     /** Rust: parse_bin_to_block(data, time_stamp) -> Option<Block> */
     public static Optional<Block> parseBinToBlock(byte[] buffer, long timeStamp) {
-        List<PacketData> packets = parseBinaryData(buffer);
-        if (packets == null) return Optional.empty();
-        return Optional.of(new Block(timeStamp, packets));
+        BlockView view = new BlockView();
+        if (!view.wrap(buffer, timeStamp)) return Optional.empty();
+        // Unknown packet lengths are skipped by the view (matches Rust behavior)
+        return Optional.of(view.toBlock());
+    }
+
+    /**
+     * Token-filtered decode: peeks the first 4 bytes of every 184/32-byte
+     * packet and skips non-matching ones by length, so only packets for
+     * {@code filter} are materialized. A {@code null} filter decodes everything.
+     * The returned Block may have an empty packet list.
+     */
+    public static Optional<Block> parseBinToBlock(byte[] buffer, long timeStamp, TokenFilter filter) {
+        BlockView view = new BlockView().setFilter(filter);
+        if (!view.wrap(buffer, timeStamp)) return Optional.empty();
+        return Optional.of(view.toBlock());
     }
 
     /** Rust: parse_block_to_bin(block) -> Vec<u8> */
@@ -59,92 +73,48 @@ public final class BlockUtils {
         }
     }
 
-    // ---------------- Parsing ----------------
-
-    private static List<PacketData> parseBinaryData(byte[] buffer) {
-        if (buffer == null || buffer.length < 2) return null;
-
-        int offset = 0;
-        int numPackets = readU16(buffer, offset);
-        offset += 2;
-
-        List<PacketData> packets = new ArrayList<>();
-
-        for (int i = 0; i < numPackets; i++) {
-            if (offset + 2 > buffer.length) return null;
-            int packetLength = readU16(buffer, offset);
-            offset += 2;
-
-            if (offset + packetLength > buffer.length) return null;
+    /**
+     * Zero-copy variant: point {@code reuse} at {@code buffer} instead of
+     * decoding it. Returns the same view for chaining, or {@code null} when the
+     * snapshot is truncated (mirrors {@link #parseBinToBlock(byte[], long)}).
+     */
+    public static BlockView viewBin(ByteBuffer buffer, long timeStamp, BlockView reuse) {
+        BlockView view = (reuse != null) ? reuse : new BlockView();
+        return view.wrap(buffer, timeStamp) ? view : null;
+    }
 
-            if (packetLength == 184) {
-                PacketData pd = parseStockPacket(buffer, offset, packetLength);
-                if (pd != null) packets.add(pd);
-            } else if (packetLength == 32) {
-                PacketData pd = parseIndexPacket(buffer, offset, packetLength);
-                if (pd != null) packets.add(pd);
+    /**
+     * Feed every packet of {@code view} (honouring its token filter) to
+     * {@code visitor} as primitives read straight from the snapshot bytes.
+     *
+     * @return the visitor's {@code onBlockEnd} result (false => stop streaming)
+     */
+    public static boolean visit(BlockView view, StreamHistoricalData.PacketVisitor visitor) {
+        final long ts = view.getTimeStamp();
+        view.rewind();
+        while (view.next()) {
+            if (view.isStock()) {
+                StockPacketView sp = view.stock();
+                visitor.onStockTick(ts,
+                        (int) sp.getInstrumentToken(),
+                        (int) sp.getLastTradedPrice(),
+                        (int) sp.getLastTradedQuantity(),
+                        sp.getVolumeTraded(),
+                        sp.getOpenInterest(),
+                        sp.getExchangeTimestamp());
             } else {
-                // Unknown packet length — ignore (matches Rust behavior of skipping unknowns)
+                IndexPacketView ip = view.index();
+                visitor.onIndexTick(ts,
+                        (int) ip.getToken(),
+                        (int) ip.getLastTradedPrice(),
+                        (int) ip.getOpenPrice(),
+                        (int) ip.getHighPrice(),
+                        (int) ip.getLowPrice(),
+                        (int) ip.getClosePrice(),
+                        ip.getExchangeTimestamp());
             }
-
-            offset += packetLength;
-        }
-
-        return packets;
-    }
-
-    private static PacketData parseStockPacket(byte[] buf, int off, int len) {
-        if (len != 184) return null;
-        int p = off;
-
-        StockPacket sp = new StockPacket();
-        sp.setInstrumentToken(readU32(buf, p)); p += 4;
-        sp.setLastTradedPrice(readU32(buf, p)); p += 4;
-        sp.setLastTradedQuantity(readU32(buf, p)); p += 4;
-        sp.setAvgTradedPrice(readU32(buf, p)); p += 4;
-        sp.setVolumeTraded(readU32(buf, p)); p += 4;
-        sp.setTotalBuyQuantity(readU32(buf, p)); p += 4;
-        sp.setTotalSellQuantity(readU32(buf, p)); p += 4;
-        sp.setOpenPrice(readU32(buf, p)); p += 4;
-        sp.setHighPrice(readU32(buf, p)); p += 4;
-        sp.setLowPrice(readU32(buf, p)); p += 4;
-        sp.setClosePrice(readU32(buf, p)); p += 4;
-        sp.setLastTradedTimestamp(readU32(buf, p)); p += 4;
-        sp.setOpenInterest(readU32(buf, p)); p += 4;
-        sp.setOpenInterestDayHigh(readU32(buf, p)); p += 4;
-        sp.setOpenInterestDayLow(readU32(buf, p)); p += 4;
-        sp.setExchangeTimestamp(readU32(buf, p)); p += 4;
-
-        // Market depth: 10 entries * 12 bytes each
-        List<MarketDepthEntry> md = new ArrayList<>(10);
-        for (int i = 0; i < 10; i++) {
-            int e = p + i * 12;
-            long quantity = readU32(buf, e);
-            long price = readU32(buf, e + 4);
-            int orders = readU16(buf, e + 8);
-            // e+10..e+11 are padding/unused (2 bytes) — ignored (to match Rust)
-            md.add(new MarketDepthEntry(quantity, price, orders));
         }
-        sp.setMarketDepth(md);
-
-        return sp;
-    }
-
-    private static PacketData parseIndexPacket(byte[] buf, int off, int len) {
-        if (len != 32) return null;
-        int p = off;
-
-        IndexPacket ip = new IndexPacket();
-        ip.setToken(readU32(buf, p)); p += 4;
-        ip.setLastTradedPrice(readU32(buf, p)); p += 4;
-        ip.setHighPrice(readU32(buf, p)); p += 4;
-        ip.setLowPrice(readU32(buf, p)); p += 4;
-        ip.setOpenPrice(readU32(buf, p)); p += 4;
-        ip.setClosePrice(readU32(buf, p)); p += 4;
-        ip.setPriceChange(readU32(buf, p)); p += 4;
-        ip.setExchangeTimestamp(readU32(buf, p)); // p += 4;
-
-        return ip;
+        return visitor.onBlockEnd(ts);
     }
 
     // ---------------- Building payloads ----------------
@@ -219,17 +189,6 @@ public final class BlockUtils {
 
     // ---------------- Helpers (big-endian, unsigned) ----------------
 
-    private static int readU16(byte[] b, int off) {
-        return ((b[off] & 0xFF) << 8) | (b[off + 1] & 0xFF);
-    }
-
-    private static long readU32(byte[] b, int off) {
-        return ((long)(b[off] & 0xFF) << 24) |
-               ((long)(b[off + 1] & 0xFF) << 16) |
-               ((long)(b[off + 2] & 0xFF) << 8) |
-               ((long)(b[off + 3] & 0xFF));
-    }
-
     private static void writeU16(DataOutputStream dos, int v) throws Exception {
         dos.writeShort(v & 0xFFFF);
     }
@@ -0,0 +1,221 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.PacketData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reusable zero-copy cursor over one binary snapshot (the payload of a
+ * {@code timestamp_<ms>.bin} entry).
+ *
+ * Wire format (big-endian):
+ * u16 numPackets, then numPackets x { u16 length, payload[length] }.
+ * Length 184 is a stock packet, 32 an index packet; anything else is skipped.
+ *
+ * Usage:
+ * <pre>
+ *   BlockView v = new BlockView();            // once
+ *   if (v.wrap(buffer, ts)) {                  // per snapshot
+ *       while (v.next()) {
+ *           if (v.isStock() && v.token() == myToken) {
+ *               long ltp = v.stock().getLastTradedPrice();
+ *           }
+ *       }
+ *   }
+ * </pre>
+ * Packet views returned by {@link #stock()} / {@link #index()} are owned by
+ * this cursor and re-pointed on every {@link #next()}. Call {@link #toBlock()}
+ * to materialize a regular {@link Block}.
+ */
+public final class BlockView {
+
+    private ByteBuffer buf;
+    private int start;      // absolute offset of the u16 packet count
+    private int end;        // absolute offset just past the last packet
+    private long timeStamp;
+    private int packetCount;
+    private TokenFilter filter; // null => every packet
+
+    // cursor state
+    private int nextHeader;
+    private int visited;
+    private int packetOff = -1;
+    private int packetLen;
+
+    private final StockPacketView stock = new StockPacketView();
+    private final IndexPacketView index = new IndexPacketView();
+
+    // used by toBlock() so materializing never disturbs the caller's cursor
+    private final StockPacketView scratchStock = new StockPacketView();
+    private final IndexPacketView scratchIndex = new IndexPacketView();
+
+    public BlockView() {}
+
+    /**
+     * Restrict {@link #next()} and {@link #toBlock()} to packets whose first
+     * u32 (the token) is in {@code filter}. Non-matching packets are skipped by
+     * length without reading any other field. {@code null} clears the filter.
+     */
+    public BlockView setFilter(TokenFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    public TokenFilter getFilter() { return filter; }
+
+    /** Convenience for {@link #wrap(ByteBuffer, long)} over a heap array. */
+    public boolean wrap(byte[] buffer, long timeStamp) {
+        if (buffer == null) return false;
+        return wrap(ByteBuffer.wrap(buffer), timeStamp);
+    }
+
+    /**
+     * Position this view over the bytes between {@code buffer.position()} and
+     * {@code buffer.limit()}. The buffer's position is not modified.
+     *
+     * @return false if the snapshot is truncated (same cases where
+     *         {@link BlockUtils#parseBinToBlock(byte[], long)} yields empty)
+     */
+    public boolean wrap(ByteBuffer buffer, long timeStamp) {
+        this.buf = null;
+        if (buffer == null || buffer.remaining() < 2) return false;
+
+        ByteBuffer b = buffer.order() == ByteOrder.BIG_ENDIAN
+                ? buffer
+                : buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int s = b.position();
+        int lim = b.limit();
+
+        int count = readU16(b, s);
+        int off = s + 2;
+        for (int i = 0; i < count; i++) {
+            if (off + 2 > lim) return false;
+            int len = readU16(b, off);
+            off += 2;
+            if (off + len > lim) return false;
+            off += len;
+        }
+
+        this.buf = b;
+        this.start = s;
+        this.end = off;
+        this.timeStamp = timeStamp;
+        this.packetCount = count;
+        rewind();
+        return true;
+    }
+
+    public long getTimeStamp() { return timeStamp; }
+
+    /** Number of packets declared in the header (including unknown lengths). */
+    public int getPacketCount() { return packetCount; }
+
+    /** Backing buffer of the current snapshot (read-only use). */
+    public ByteBuffer buffer() { return buf; }
+
+    /** Copy of the raw snapshot bytes (every packet; the filter is not applied). */
+    public byte[] copyBytes() {
+        if (buf == null) throw new IllegalStateException("view is not wrapped");
+        byte[] out = new byte[end - start];
+        buf.get(start, out);
+        return out;
+    }
+
+    /** Restart iteration from the first packet. */
+    public void rewind() {
+        nextHeader = start + 2;
+        visited = 0;
+        packetOff = -1;
+        packetLen = 0;
+    }
+
+    /**
+     * Advance to the next stock or index packet accepted by the filter.
+     *
+     * @return false when the snapshot is exhausted
+     */
+    public boolean next() {
+        while (visited < packetCount) {
+            int len = readU16(buf, nextHeader);
+            int off = nextHeader + 2;
+            nextHeader = off + len;
+            visited++;
+            if ((len == StockPacketView.LENGTH || len == IndexPacketView.LENGTH) && accepts(off)) {
+                packetOff = off;
+                packetLen = len;
+                return true;
+            }
+        }
+        packetOff = -1;
+        packetLen = 0;
+        return false;
+    }
+
+    public boolean isStock() { return packetLen == StockPacketView.LENGTH; }
+    public boolean isIndex() { return packetLen == IndexPacketView.LENGTH; }
+
+    /** Token of the current packet (first u32 for both stock and index packets). */
+    public int token() {
+        requireCurrent();
+        return buf.getInt(packetOff);
+    }
+
+    /** Absolute offset of the current packet payload in {@link #buffer()}. */
+    public int packetOffset() { return packetOff; }
+
+    public StockPacketView stock() {
+        if (!isStock()) throw new IllegalStateException("current packet is not a stock packet");
+        return stock.wrap(buf, packetOff);
+    }
+
+    public IndexPacketView index() {
+        if (!isIndex()) throw new IllegalStateException("current packet is not an index packet");
+        return index.wrap(buf, packetOff);
+    }
+
+    /** Materialize the current packet only. */
+    public PacketData toPacket() {
+        requireCurrent();
+        return isStock() ? scratchStock.wrap(buf, packetOff).toPacket()
+                         : scratchIndex.wrap(buf, packetOff).toPacket();
+    }
+
+    /**
+     * Opt-in materialization: decode every known packet accepted by the filter
+     * into a regular {@link Block}. The iteration cursor is left untouched.
+     */
+    public Block toBlock() {
+        if (buf == null) throw new IllegalStateException("view is not wrapped");
+        List<PacketData> packets = new ArrayList<>(packetCount);
+        int off = start + 2;
+        for (int i = 0; i < packetCount; i++) {
+            int len = readU16(buf, off);
+            off += 2;
+            if (len == StockPacketView.LENGTH && accepts(off)) {
+                packets.add(scratchStock.wrap(buf, off).toPacket());
+            } else if (len == IndexPacketView.LENGTH && accepts(off)) {
+                packets.add(scratchIndex.wrap(buf, off).toPacket());
+            }
+            off += len;
+        }
+        return new Block(timeStamp, packets);
+    }
+
+    // ---------------- Helpers ----------------
+
+    // header peek: token is the first u32 of both packet kinds
+    private boolean accepts(int off) {
+        return filter == null || filter.matches(buf.getInt(off));
+    }
+
+    private void requireCurrent() {
+        if (packetOff < 0) throw new IllegalStateException("no current packet; call next()");
+    }
+
+    private static int readU16(ByteBuffer b, int off) {
+        return b.getShort(off) & 0xFFFF;
+    }
+}
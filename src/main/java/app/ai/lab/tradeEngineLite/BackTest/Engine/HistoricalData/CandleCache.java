@@ -0,0 +1,230 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * On-disk cache of Groww / Zerodha candles keyed by
+ * (source, symbol or token, interval, IST day), in front of
+ * {@link HistoricalCandleFetcherGroww} and {@link HistoricalCandleFetcherZerodha}.
+ *
+ * {@link #candles} works out which days of the requested range are not
+ * cached yet, fetches only those (consecutive missing days in one call, at
+ * most {@code maxDaysPerCall} days each) and throttles only those network
+ * calls. A fully cached range needs no HTTP at all.
+ *
+ * Layout:
+ * <pre>
+ *   cacheDir/&lt;source&gt;/&lt;key&gt;/&lt;interval&gt;m/&lt;yyyy-MM-dd&gt;.csv   timestamp,open,high,low,close,volume,oi
+ * </pre>
+ * A fetched day without candles (weekend, holiday) is stored as an empty
+ * file so it is not asked for again. Days from today (IST) on are fetched
+ * but never cached: their candles may still be incomplete.
+ */
+public final class CandleCache {
+
+    /** Fetch the candles of the inclusive IST day range {@code [from, to]}. */
+    @FunctionalInterface
+    public interface Loader {
+        CandleSeries load(LocalDate from, LocalDate to) throws Exception;
+    }
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+    private static final long IST_OFFSET_MS = 19_800_000L;
+    private static final String EXTENSION = ".csv";
+
+    private final Path cacheDir;
+    private long throttleMs = 10_000;
+    private Clock clock = Clock.system(IST);
+    private final Map<String, Throttle> throttles = new ConcurrentHashMap<>(); // source|key -> throttle
+    private final AtomicLong networkCalls = new AtomicLong();
+
+    public CandleCache(Path cacheDir) {
+        this.cacheDir = Objects.requireNonNull(cacheDir, "cacheDir");
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    /** Minimum gap between two network calls for one (source, key) (default 10 s; 0 disables). */
+    public void setThrottleMs(long throttleMs) {
+        if (throttleMs < 0) throw new IllegalArgumentException("throttleMs must be >= 0");
+        this.throttleMs = throttleMs;
+    }
+
+    /** Clock that decides which days are complete (today and later are not cached). */
+    public void setClock(Clock clock) {
+        this.clock = Objects.requireNonNull(clock, "clock");
+    }
+
+    /** Loader calls made so far (0 on a warm rerun). */
+    public long getNetworkCalls() {
+        return networkCalls.get();
+    }
+
+    /**
+     * Candles of {@code [from, to]} (IST days, inclusive) in time order,
+     * served from the cache where possible.
+     *
+     * @param source         cache namespace, e.g. "groww" or "zerodha"
+     * @param key            symbol or instrument token
+     * @param maxDaysPerCall longest range one {@code loader} call may cover
+     */
+    public CandleSeries candles(String source, String key, int intervalMinutes, LocalDate from, LocalDate to,
+            int maxDaysPerCall, Loader loader) throws Exception {
+        return candles(source, key, intervalMinutes, from, to, maxDaysPerCall, loader, true);
+    }
+
+    /** {@code throttled == false}: the loader is rate-limited elsewhere (see {@link ChunkFetchScheduler}). */
+    CandleSeries candles(String source, String key, int intervalMinutes, LocalDate from, LocalDate to,
+            int maxDaysPerCall, Loader loader, boolean throttled) throws Exception {
+        Objects.requireNonNull(loader, "loader");
+        if (to.isBefore(from)) throw new IllegalArgumentException("to < from");
+        if (maxDaysPerCall <= 0) throw new IllegalArgumentException("maxDaysPerCall must be > 0");
+        Path dir = dir(source, key, intervalMinutes);
+        LocalDate today = LocalDate.now(clock.withZone(IST));
+
+        // days -> candles; cached days are read, missing ones fetched in runs
+        TreeMap<LocalDate, CandleSeries> byDay = new TreeMap<>();
+        for (LocalDate[] run : missingRanges(source, key, intervalMinutes, from, to)) {
+            for (LocalDate f = run[0]; !f.isAfter(run[1]); f = f.plusDays(maxDaysPerCall)) {
+                LocalDate t = f.plusDays(maxDaysPerCall - 1);
+                if (t.isAfter(run[1])) t = run[1];
+                Map<LocalDate, CandleSeries> fetched =
+                        splitByDay(throttled ? fetch(source, key, loader, f, t) : load(loader, f, t), f, t);
+                Files.createDirectories(dir);
+                for (Map.Entry<LocalDate, CandleSeries> e : fetched.entrySet()) {
+                    if (e.getKey().isBefore(today)) write(dir.resolve(e.getKey() + EXTENSION), e.getValue());
+                }
+                byDay.putAll(fetched);
+            }
+        }
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            if (!byDay.containsKey(d)) byDay.put(d, read(dir.resolve(d + EXTENSION)));
+        }
+
+        CandleSeries out = new CandleSeries();
+        for (CandleSeries day : byDay.values()) out.addAll(day, 0, day.size());
+        return out;
+    }
+
+    /** Inclusive runs of consecutive days of {@code [from, to]} that are not cached. */
+    public List<LocalDate[]> missingRanges(String source, String key, int intervalMinutes, LocalDate from,
+            LocalDate to) {
+        Path dir = dir(source, key, intervalMinutes);
+        List<LocalDate[]> runs = new ArrayList<>();
+        LocalDate runStart = null;
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            boolean cached = Files.isRegularFile(dir.resolve(d + EXTENSION));
+            if (!cached && runStart == null) runStart = d;
+            if (cached && runStart != null) {
+                runs.add(new LocalDate[] { runStart, d.minusDays(1) });
+                runStart = null;
+            }
+        }
+        if (runStart != null) runs.add(new LocalDate[] { runStart, to });
+        return runs;
+    }
+
+    // ---------------- Internals ----------------
+
+    private Path dir(String source, String key, int intervalMinutes) {
+        return cacheDir.resolve(safe(source)).resolve(safe(key)).resolve(intervalMinutes + "m");
+    }
+
+    private static String safe(String s) {
+        return Objects.requireNonNull(s).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /** Serializes and spaces the network calls of one (source, key). */
+    private static final class Throttle {
+        // a lock, not synchronized: virtual threads must not pin while they sleep or wait on HTTP
+        final ReentrantLock lock = new ReentrantLock();
+        long lastCallNanos;
+        boolean called;
+    }
+
+    /** One throttled network call; the wait is per (source, key) and only between real calls. */
+    private CandleSeries fetch(String source, String key, Loader loader, LocalDate from, LocalDate to)
+            throws Exception {
+        Throttle throttle = throttles.computeIfAbsent(source + "|" + key, k -> new Throttle());
+        throttle.lock.lockInterruptibly();
+        try {
+            if (throttle.called && throttleMs > 0) {
+                long waitMs = throttleMs - (System.nanoTime() - throttle.lastCallNanos) / 1_000_000L;
+                if (waitMs > 0) Thread.sleep(waitMs);
+            }
+            try {
+                return loader.load(from, to);
+            } finally {
+                throttle.called = true;
+                throttle.lastCallNanos = System.nanoTime();
+                networkCalls.incrementAndGet();
+            }
+        } finally {
+            throttle.lock.unlock();
+        }
+    }
+
+    private CandleSeries load(Loader loader, LocalDate from, LocalDate to) throws Exception {
+        networkCalls.incrementAndGet();
+        return loader.load(from, to);
+    }
+
+    /** Every day of {@code [from, to]} mapped to its candles (empty for days without any). */
+    private static Map<LocalDate, CandleSeries> splitByDay(CandleSeries candles, LocalDate from, LocalDate to) {
+        Map<LocalDate, CandleSeries> out = new TreeMap<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) out.put(d, new CandleSeries(8));
+        if (candles == null) return out;
+        for (int i = 0; i < candles.size(); i++) {
+            // IST has no DST: the day is plain arithmetic on the +05:30 offset
+            LocalDate d = LocalDate.ofEpochDay(Math.floorDiv(candles.epochMs(i) + IST_OFFSET_MS, 86_400_000L));
+            CandleSeries day = out.get(d);
+            if (day != null) day.addAll(candles, i, i + 1);
+        }
+        return out;
+    }
+
+    private static void write(Path file, CandleSeries candles) throws IOException {
+        // unique temp name: several streams may fill the same cache at once
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < candles.size(); i++) {
+                w.write(candles.timestamp(i) + "," + candles.open(i) + "," + candles.high(i) + "," + candles.low(i)
+                        + "," + candles.close(i) + "," + candles.volume(i) + "," + candles.oi(i));
+                w.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static CandleSeries read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        CandleSeries out = new CandleSeries(lines.size());
+        for (String line : lines) {
+            if (line.isEmpty()) continue;
+            String[] f = line.split(",");
+            long ts = f.length == 7 ? CandleSeries.parseTimestamp(f[0].toCharArray(), 0, f[0].length()) : Long.MIN_VALUE;
+            if (ts == Long.MIN_VALUE) throw new IOException("Bad candle line in " + file + ": " + line);
+            out.add(ts, Double.parseDouble(f[1]), Double.parseDouble(f[2]), Double.parseDouble(f[3]),
+                    Double.parseDouble(f[4]), Long.parseLong(f[5]), Long.parseLong(f[6]));
+        }
+        return out;
+    }
+}
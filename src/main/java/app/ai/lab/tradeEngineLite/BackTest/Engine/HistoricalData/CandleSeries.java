@@ -0,0 +1,288 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Candles held column-wise in primitive arrays: epoch ms, open, high, low,
+ * close (rupees), volume and OI. {@link #parseZerodha} and
+ * {@link #parseGroww} fill one straight from the response bytes with a
+ * token-level {@link JsonParser}: no JsonNode tree, no Candle objects, and
+ * timestamps are converted to epoch ms while decoding, so multi-year
+ * 1-minute responses cost a few arrays instead of millions of objects.
+ */
+public final class CandleSeries {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+    // "2024-02-22T09:15:00+0530"
+    private static final DateTimeFormatter CANDLE_TS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+
+    private int size;
+    private long[] epochMs;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private long[] volume;
+    private long[] oi;
+
+    public CandleSeries() {
+        this(64);
+    }
+
+    public CandleSeries(int capacity) {
+        int n = Math.max(1, capacity);
+        epochMs = new long[n];
+        open = new double[n];
+        high = new double[n];
+        low = new double[n];
+        close = new double[n];
+        volume = new long[n];
+        oi = new long[n];
+    }
+
+    public int size() { return size; }
+    public long epochMs(int i) { return epochMs[i]; }
+    public double open(int i) { return open[i]; }
+    public double high(int i) { return high[i]; }
+    public double low(int i) { return low[i]; }
+    public double close(int i) { return close[i]; }
+    public long volume(int i) { return volume[i]; }
+    public long oi(int i) { return oi[i]; }
+
+    public void add(long epochMs, double open, double high, double low, double close, long volume, long oi) {
+        if (size == this.epochMs.length) grow(size * 2);
+        this.epochMs[size] = epochMs;
+        this.open[size] = open;
+        this.high[size] = high;
+        this.low[size] = low;
+        this.close[size] = close;
+        this.volume[size] = volume;
+        this.oi[size] = oi;
+        size++;
+    }
+
+    /** Append rows {@code [from, to)} of {@code other}. */
+    public void addAll(CandleSeries other, int from, int to) {
+        int n = to - from;
+        if (n <= 0) return;
+        if (size + n > epochMs.length) grow(Math.max(size + n, size * 2));
+        System.arraycopy(other.epochMs, from, epochMs, size, n);
+        System.arraycopy(other.open, from, open, size, n);
+        System.arraycopy(other.high, from, high, size, n);
+        System.arraycopy(other.low, from, low, size, n);
+        System.arraycopy(other.close, from, close, size, n);
+        System.arraycopy(other.volume, from, volume, size, n);
+        System.arraycopy(other.oi, from, oi, size, n);
+        size += n;
+    }
+
+    /** Row {@code i} as a Zerodha-style timestamp, e.g. "2024-02-22T09:15:00+0530". */
+    public String timestamp(int i) {
+        return CANDLE_TS.format(java.time.Instant.ofEpochMilli(epochMs[i]).atZone(IST));
+    }
+
+    /** Rows as {@link HistoricalCandleFetcherZerodha.Candle} objects, for the POJO APIs. */
+    public List<HistoricalCandleFetcherZerodha.Candle> toCandles() {
+        List<HistoricalCandleFetcherZerodha.Candle> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            HistoricalCandleFetcherZerodha.Candle c = new HistoricalCandleFetcherZerodha.Candle();
+            c.timestamp = timestamp(i);
+            c.open = open[i];
+            c.high = high[i];
+            c.low = low[i];
+            c.close = close[i];
+            c.volume = volume[i];
+            c.oi = oi[i];
+            out.add(c);
+        }
+        return out;
+    }
+
+    private void grow(int capacity) {
+        epochMs = Arrays.copyOf(epochMs, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+        oi = Arrays.copyOf(oi, capacity);
+    }
+
+    // ---------------- Parsing ----------------
+
+    /**
+     * Zerodha historical response:
+     * {@code {"status":"success","data":{"candles":[["2024-02-22T09:15:00+0530",o,h,l,c,vol,oi],...]}}}.
+     *
+     * @throws IOException on malformed JSON, a non-success status or a candle with fewer than 7 values
+     */
+    public static CandleSeries parseZerodha(InputStream in) throws IOException {
+        try (JsonParser p = JSON.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("Expected a JSON object");
+            String status = null;
+            CandleSeries out = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("status".equals(name)) {
+                    status = p.getValueAsString();
+                } else if ("data".equals(name) && value == JsonToken.START_OBJECT) {
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = p.currentName();
+                        p.nextToken();
+                        if ("candles".equals(field)) out = readRows(p, true);
+                        else p.skipChildren();
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (!"success".equalsIgnoreCase(status)) throw new IOException("API returned status " + status);
+            return out != null ? out : new CandleSeries(1);
+        }
+    }
+
+    /**
+     * Groww chart response: {@code {"candles":[[epochSec,o,h,l,c,vol],...], ...}}.
+     * Rows with fewer than 6 values or no timestamp are skipped; OI is 0.
+     */
+    public static CandleSeries parseGroww(InputStream in) throws IOException {
+        try (JsonParser p = JSON.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("Expected a JSON object");
+            CandleSeries out = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                if ("candles".equals(name)) out = readRows(p, false);
+                else p.skipChildren();
+            }
+            return out != null ? out : new CandleSeries(1);
+        }
+    }
+
+    /** Reads the candle array the parser is positioned on. */
+    private static CandleSeries readRows(JsonParser p, boolean zerodha) throws IOException {
+        CandleSeries out = new CandleSeries(1024);
+        if (p.currentToken() == JsonToken.VALUE_NULL) return out;
+        if (p.currentToken() != JsonToken.START_ARRAY) throw new IOException("Expected the candles array");
+
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                if (zerodha) throw new IOException("Expected a candle array at " + p.getCurrentLocation());
+                p.skipChildren();
+                continue;
+            }
+            int k = 0;
+            long ts = Long.MIN_VALUE;
+            double o = 0, h = 0, l = 0, c = 0;
+            long v = 0, openInterest = 0;
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                JsonToken t = p.currentToken();
+                if (t == JsonToken.START_ARRAY || t == JsonToken.START_OBJECT) {
+                    p.skipChildren();
+                } else {
+                    switch (k) {
+                        case 0: ts = zerodha ? zerodhaTimestamp(p) : growwTimestamp(p); break;
+                        case 1: o = p.getValueAsDouble(); break;
+                        case 2: h = p.getValueAsDouble(); break;
+                        case 3: l = p.getValueAsDouble(); break;
+                        case 4: c = p.getValueAsDouble(); break;
+                        case 5: v = p.getValueAsLong(); break;
+                        case 6: openInterest = p.getValueAsLong(); break;
+                        default: break;
+                    }
+                }
+                k++;
+            }
+            if (zerodha && k != 7) throw new IOException("Expected 7 elements in candle array, got " + k);
+            if (k < 6 || ts == Long.MIN_VALUE) continue;
+            out.add(ts, o, h, l, c, v, zerodha ? openInterest : 0L);
+        }
+        return out;
+    }
+
+    private static long zerodhaTimestamp(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.VALUE_STRING) throw new IOException("Expected a timestamp string");
+        long ms = parseTimestamp(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        return ms != Long.MIN_VALUE ? ms
+                : OffsetDateTime.parse(p.getText(), CANDLE_TS).toInstant().toEpochMilli();
+    }
+
+    private static long growwTimestamp(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NUMBER_INT) return p.getLongValue() * 1000L;
+        if (t == JsonToken.VALUE_STRING) {
+            try {
+                return Long.parseLong(p.getText().trim()) * 1000L;
+            } catch (NumberFormatException e) {
+                return Long.MIN_VALUE;
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * {@code yyyy-MM-ddTHH:mm:ss} followed by {@code +hhmm}, {@code +hh:mm} or
+     * {@code Z}, decoded in place.
+     *
+     * @return epoch ms, or {@code Long.MIN_VALUE} if the text has another shape
+     */
+    static long parseTimestamp(char[] s, int off, int len) {
+        if (len < 20 || s[off + 4] != '-' || s[off + 7] != '-' || s[off + 10] != 'T'
+                || s[off + 13] != ':' || s[off + 16] != ':') {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(s, off, 4), month = digits(s, off + 5, 2), day = digits(s, off + 8, 2);
+        int hour = digits(s, off + 11, 2), minute = digits(s, off + 14, 2), second = digits(s, off + 17, 2);
+        if ((year | month | day | hour | minute | second) < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return Long.MIN_VALUE;
+        }
+        int offsetSec;
+        int z = off + 19;
+        int rest = len - 19;
+        if (rest == 1 && s[z] == 'Z') {
+            offsetSec = 0;
+        } else if ((rest == 5 || rest == 6) && (s[z] == '+' || s[z] == '-')) {
+            int oh = digits(s, z + 1, 2);
+            int om = rest == 5 ? digits(s, z + 3, 2) : (s[z + 3] == ':' ? digits(s, z + 4, 2) : -1);
+            if ((oh | om) < 0) return Long.MIN_VALUE;
+            offsetSec = (oh * 3600 + om * 60) * (s[z] == '-' ? -1 : 1);
+        } else {
+            return Long.MIN_VALUE;
+        }
+        long epochDay = epochDay(year, month, day);
+        return (epochDay * 86_400L + hour * 3_600L + minute * 60L + second - offsetSec) * 1000L;
+    }
+
+    private static int digits(char[] s, int off, int n) {
+        int v = 0;
+        for (int i = 0; i < n; i++) {
+            int d = s[off + i] - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    /** Days since 1970-01-01 of a proleptic Gregorian date (H. Hinnant's days_from_civil). */
+    private static long epochDay(int y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097 + doe - 719_468;
+    }
+}
@@ -0,0 +1,183 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Fetches the chunks of a Groww / Zerodha candle stream concurrently
+ * instead of fetch, emit, sleep, one chunk at a time.
+ *
+ * {@link #run} starts up to {@link #setMaxInFlight maxInFlight} chunk tasks
+ * on virtual threads and hands their results to a {@link Sink} strictly in
+ * chunk order (a reorder buffer of at most maxInFlight chunks), so blocks
+ * still reach the callback chronologically. {@link #call} wraps one network
+ * request: it takes a token from the provider's {@link TokenBucket} and
+ * retries failures with exponential backoff.
+ *
+ * Attach with {@link StreamHistoricalData#setFetchScheduler}.
+ */
+public final class ChunkFetchScheduler {
+
+    /** Receives chunk outcomes in chunk order, on the thread that called {@link #run}. */
+    public interface Sink<T> {
+        /** @return true to continue; false to stop and cancel the remaining chunks */
+        boolean onResult(int chunk, T value);
+
+        /** The chunk failed after every retry. @return true to continue with the next chunk */
+        boolean onFailure(int chunk, Exception error);
+    }
+
+    /**
+     * Token bucket: {@code permitsPerSecond} sustained, up to {@code burst}
+     * at once after an idle period. Callers reserve a token and sleep until
+     * it is due, so waiting callers are served in arrival order.
+     */
+    public static final class TokenBucket {
+        private final double permitsPerNano;
+        private final double burst;
+        private double tokens;
+        private long lastNanos = System.nanoTime();
+
+        public TokenBucket(double permitsPerSecond, int burst) {
+            if (!(permitsPerSecond > 0)) throw new IllegalArgumentException("permitsPerSecond must be > 0");
+            if (burst <= 0) throw new IllegalArgumentException("burst must be > 0");
+            this.permitsPerNano = permitsPerSecond / 1e9;
+            this.burst = burst;
+            this.tokens = burst;
+        }
+
+        /** Take one token, sleeping until one is available. */
+        public void acquire() throws InterruptedException {
+            long waitNanos = reserve();
+            if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastNanos) * permitsPerNano);
+            lastNanos = now;
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerNano);
+        }
+    }
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private int maxInFlight = 4;
+    private int maxAttempts = 3;
+    private long backoffMs = 1_000;
+    private long maxBackoffMs = 30_000;
+    private Predicate<Exception> retryable = e -> true;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    /** Rate-limit network calls of {@code provider}; providers without a limit are not throttled. */
+    public ChunkFetchScheduler limit(String provider, double permitsPerSecond, int burst) {
+        Objects.requireNonNull(provider, "provider");
+        buckets.put(provider, new TokenBucket(permitsPerSecond, burst));
+        return this;
+    }
+
+    /** Chunks fetched ahead of the one being delivered (default 4). */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be > 0");
+        this.maxInFlight = maxInFlight;
+    }
+
+    /** Attempts per network call, the first included (default 3). */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts <= 0) throw new IllegalArgumentException("maxAttempts must be > 0");
+        this.maxAttempts = maxAttempts;
+    }
+
+    /** Wait {@code backoffMs} before the first retry, doubling per retry up to {@code maxBackoffMs}. */
+    public void setBackoff(long backoffMs, long maxBackoffMs) {
+        if (backoffMs < 0 || maxBackoffMs < backoffMs) throw new IllegalArgumentException("bad backoff");
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    /** Which failures are worth a retry (default: all). */
+    public void setRetryable(Predicate<Exception> retryable) {
+        this.retryable = Objects.requireNonNull(retryable, "retryable");
+    }
+
+    /** Network attempts made so far, retries included. */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * One network request of {@code provider}: waits for a token before
+     * every attempt and retries retryable failures with backoff.
+     */
+    public <T> T call(String provider, Callable<T> request) throws Exception {
+        TokenBucket bucket = provider == null ? null : buckets.get(provider);
+        for (int attempt = 1; ; attempt++) {
+            if (bucket != null) bucket.acquire();
+            calls.incrementAndGet();
+            try {
+                return request.call();
+            } catch (InterruptedException ie) {
+                throw ie;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts || !retryable.test(e) || Thread.currentThread().isInterrupted()) throw e;
+                retries.incrementAndGet();
+                Thread.sleep(Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20)));
+            }
+        }
+    }
+
+    /**
+     * Run {@code chunks} concurrently and deliver their outcomes to
+     * {@code sink} in list order. Returns after the last chunk was delivered,
+     * the sink asked to stop, or the caller was interrupted; chunks still
+     * running are then cancelled.
+     *
+     * @return false if the sink stopped the run
+     */
+    public <T> boolean run(List<? extends Callable<T>> chunks, Sink<T> sink) throws InterruptedException {
+        final int n = chunks.size();
+        final List<Future<T>> pending = new ArrayList<>(Collections.nCopies(n, null));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            int submitted = 0;
+            try {
+                for (int next = 0; next < n; next++) {
+                    while (submitted < n && submitted < next + maxInFlight) {
+                        pending.set(submitted, executor.submit(chunks.get(submitted)));
+                        submitted++;
+                    }
+                    Future<T> f = pending.set(next, null);
+                    boolean go;
+                    try {
+                        go = sink.onResult(next, f.get());
+                    } catch (ExecutionException ee) {
+                        Throwable cause = ee.getCause();
+                        go = sink.onFailure(next, cause instanceof Exception ? (Exception) cause : ee);
+                    }
+                    if (!go) return false;
+                }
+                return true;
+            } finally {
+                for (Future<T> f : pending) {
+                    if (f != null) f.cancel(true);
+                }
+            }
+        } // close() waits for cancelled chunks to unwind
+    }
+}
@@ -0,0 +1,625 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.IndexPacket;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.MarketDepthEntry;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.PacketData;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.StockPacket;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.Utils.IntIndexMap;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Columnar day file ({@code <fileCode>_<dd-MM-yy>.tcol}) holding the same
+ * snapshots as one day of {@code timestamp_<ms>.bin} zips, one field per column.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header  : 'TCOL', u16 version, u16 flags, i64 firstTs, i64 lastTs, i32 snapshots, i32 ticks
+ *   columns : one varint run per {@link Column}, back to back
+ *   footer  : u16 count, count x { u8 columnId, i64 offset, i32 length }, i32 footerLength, 'TCOL'
+ * </pre>
+ * Per snapshot: SNAP_TS (zigzag delta vs previous snapshot) and SNAP_TICKS.
+ * Per packet: TOKEN (zigzag delta vs previous packet of the snapshot), KIND
+ * (0 stock, 1 index), LTP (zigzag delta vs the same token's previous LTP) and
+ * EXCH_TS (zigzag, relative to the snapshot's second). Stock packets also get
+ * LTQ, VOLUME and OI (deltas per token) and, if written with depth, DEPTH
+ * (10 x { qty, price - ltp, orders }).
+ *
+ * Nothing else is stored: avg price, total buy/sell and OHLC of stock packets
+ * and OHLC / price change of index packets read back as 0.
+ */
+public final class ColumnarDayFile {
+
+    public static final String EXTENSION = ".tcol";
+
+    private static final int MAGIC = 0x54434F4C; // "TCOL"
+    private static final int VERSION = 1;
+    private static final int FLAG_DEPTH = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private static final int KIND_STOCK = 0;
+    private static final int KIND_INDEX = 1;
+    private static final int DEPTH_LEVELS = StockPacketView.DEPTH_LEVELS;
+
+    static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("dd-MM-yy", Locale.ROOT);
+
+    /** Stored columns; the id is what the footer index records. */
+    public enum Column {
+        SNAP_TS(1), SNAP_TICKS(2), TOKEN(3), KIND(4),
+        LTP(5), LTQ(6), VOLUME(7), OI(8), EXCH_TS(9), DEPTH(10);
+
+        final int id;
+
+        Column(int id) {
+            this.id = id;
+        }
+
+        static Column byId(int id) {
+            for (Column c : values()) {
+                if (c.id == id) return c;
+            }
+            return null;
+        }
+    }
+
+    /** Columns every replay reads to walk snapshots and tokens. */
+    private static final Set<Column> FRAMING =
+            EnumSet.of(Column.SNAP_TS, Column.SNAP_TICKS, Column.TOKEN, Column.KIND);
+
+    private ColumnarDayFile() {}
+
+    /** File name for one day: {@code NIFTY_100_05-09-25.tcol}. */
+    public static String fileName(String fileCode, LocalDate day) {
+        return fileCode + "_" + day.format(DAY) + EXTENSION;
+    }
+
+    /**
+     * Convert the zips of {@code fileCode} under {@code rootDir} into one
+     * columnar file per day in {@code outDir}. Snapshots are read through the
+     * regular {@link StreamHistoricalData} zip loop, so ordering and entry
+     * naming rules are the same. Days without zips are skipped; a zip that
+     * fails to read aborts the conversion instead of writing a partial day.
+     *
+     * @return the files written, in date order
+     */
+    public static List<Path> convert(Path rootDir, String fileCode, String startDate_dd_MM_yy,
+            String endDate_dd_MM_yy, Path outDir, boolean withDepth) throws IOException {
+        LocalDate start = LocalDate.parse(startDate_dd_MM_yy, DAY);
+        LocalDate end = LocalDate.parse(endDate_dd_MM_yy, DAY);
+        Files.createDirectories(outDir);
+
+        List<Path> written = new ArrayList<>();
+        for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+            final Writer writer = new Writer(withDepth);
+            final IOException[] failure = new IOException[1];
+            String day = d.format(DAY);
+            new StreamHistoricalData(rootDir, day, day, fileCode, -1, new StreamHistoricalData.BlockCallback() {
+                @Override
+                public boolean onBlock(Block block) {
+                    throw new IllegalStateException("converter reads views only");
+                }
+
+                @Override
+                public boolean onBlockView(BlockView view) {
+                    writer.add(view);
+                    return true;
+                }
+
+                @Override
+                public void onError(Exception e, Path source) {
+                    if (failure[0] == null) failure[0] = new IOException("Failed to read " + source, e);
+                }
+            }).stream();
+
+            if (failure[0] != null) throw failure[0];
+            if (writer.snapshotCount() == 0) continue;
+
+            Path out = outDir.resolve(fileName(fileCode, d));
+            writer.writeTo(out);
+            written.add(out);
+        }
+        return written;
+    }
+
+    // ---------------- Writer ----------------
+
+    /**
+     * Accumulates snapshots in memory and writes one day file. Snapshots are
+     * expected in timestamp order (out-of-order ones still round-trip, they
+     * just encode larger deltas).
+     */
+    public static final class Writer {
+        private final boolean withDepth;
+        private final ColumnBuffer[] columns = new ColumnBuffer[Column.values().length];
+
+        private final IntIndexMap slots = new IntIndexMap(256);
+        private long[] lastLtp = new long[256];
+        private long[] lastVolume = new long[256];
+        private long[] lastOi = new long[256];
+
+        private long prevTs;
+        private long firstTs = Long.MAX_VALUE;
+        private long lastTs = Long.MIN_VALUE;
+        private int snapshots;
+        private long ticks;
+
+        // open snapshot
+        private boolean open;
+        private long snapshotTs;
+        private int snapshotTicks;
+        private int prevToken;
+
+        public Writer(boolean withDepth) {
+            this.withDepth = withDepth;
+            for (Column c : Column.values()) columns[c.ordinal()] = new ColumnBuffer();
+        }
+
+        /** Append every packet of {@code view} (honouring its token filter) as one snapshot. */
+        public void add(BlockView view) {
+            beginSnapshot(view.getTimeStamp());
+            view.rewind();
+            while (view.next()) addPacket(view);
+            view.rewind();
+            endSnapshot();
+        }
+
+        /**
+         * Start a snapshot stamped {@code ts}; follow with {@link #addPacket}
+         * calls and {@link #endSnapshot()}. Lets a caller route single packets
+         * of one {@link BlockView} to different writers.
+         */
+        public void beginSnapshot(long ts) {
+            if (open) throw new IllegalStateException("snapshot already open");
+            open = true;
+            snapshotTs = ts;
+            snapshotTicks = 0;
+            prevToken = 0;
+            col(Column.SNAP_TS).zigzag(ts - prevTs);
+            prevTs = ts;
+            firstTs = Math.min(firstTs, ts);
+            lastTs = Math.max(lastTs, ts);
+        }
+
+        /** Append the current packet of {@code view} to the open snapshot. */
+        public void addPacket(BlockView view) {
+            if (!open) throw new IllegalStateException("no open snapshot");
+            int token = view.token();
+            col(Column.TOKEN).zigzag((long) token - prevToken);
+            prevToken = token;
+            int slot = slot(token);
+
+            long ltp;
+            long exchangeTs;
+            if (view.isStock()) {
+                StockPacketView sp = view.stock();
+                ltp = sp.getLastTradedPrice();
+                exchangeTs = sp.getExchangeTimestamp();
+                col(Column.KIND).varint(KIND_STOCK);
+                col(Column.LTQ).varint(sp.getLastTradedQuantity());
+                long volume = sp.getVolumeTraded();
+                col(Column.VOLUME).zigzag(volume - lastVolume[slot]);
+                lastVolume[slot] = volume;
+                long oi = sp.getOpenInterest();
+                col(Column.OI).zigzag(oi - lastOi[slot]);
+                lastOi[slot] = oi;
+                if (withDepth) {
+                    ColumnBuffer depth = col(Column.DEPTH);
+                    for (int l = 0; l < DEPTH_LEVELS; l++) {
+                        depth.varint(sp.getDepthQuantity(l));
+                        depth.zigzag(sp.getDepthPrice(l) - ltp);
+                        depth.varint(sp.getDepthOrders(l));
+                    }
+                }
+            } else {
+                IndexPacketView ip = view.index();
+                ltp = ip.getLastTradedPrice();
+                exchangeTs = ip.getExchangeTimestamp();
+                col(Column.KIND).varint(KIND_INDEX);
+            }
+            col(Column.LTP).zigzag(ltp - lastLtp[slot]);
+            lastLtp[slot] = ltp;
+            col(Column.EXCH_TS).zigzag(exchangeTs - snapshotTs / 1000);
+            snapshotTicks++;
+        }
+
+        public void endSnapshot() {
+            if (!open) throw new IllegalStateException("no open snapshot");
+            open = false;
+            col(Column.SNAP_TICKS).varint(snapshotTicks);
+            ticks += snapshotTicks;
+            snapshots++;
+        }
+
+        public int snapshotCount() {
+            return snapshots;
+        }
+
+        public long getFirstTimestamp() { return snapshots == 0 ? 0 : firstTs; }
+        public long getLastTimestamp() { return snapshots == 0 ? 0 : lastTs; }
+
+        /** Write header, columns and footer to {@code file} (via a temp file + move). */
+        public void writeTo(Path file) throws IOException {
+            if (open) throw new IllegalStateException("snapshot still open");
+            if (ticks > Integer.MAX_VALUE) throw new IllegalStateException("too many ticks for one day file: " + ticks);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+            List<Column> stored = new ArrayList<>();
+            for (Column c : Column.values()) {
+                if (c != Column.DEPTH || withDepth) stored.add(c);
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tmp), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeShort(withDepth ? FLAG_DEPTH : 0);
+                out.writeLong(snapshots == 0 ? 0 : firstTs);
+                out.writeLong(snapshots == 0 ? 0 : lastTs);
+                out.writeInt(snapshots);
+                out.writeInt((int) ticks);
+
+                long offset = HEADER_BYTES;
+                long[] offsets = new long[stored.size()];
+                for (int i = 0; i < stored.size(); i++) {
+                    ColumnBuffer cb = col(stored.get(i));
+                    offsets[i] = offset;
+                    out.write(cb.bytes, 0, cb.size);
+                    offset += cb.size;
+                }
+
+                int footerLength = 2 + stored.size() * 13;
+                out.writeShort(stored.size());
+                for (int i = 0; i < stored.size(); i++) {
+                    out.writeByte(stored.get(i).id);
+                    out.writeLong(offsets[i]);
+                    out.writeInt(col(stored.get(i)).size);
+                }
+                out.writeInt(footerLength);
+                out.writeInt(MAGIC);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        private ColumnBuffer col(Column c) {
+            return columns[c.ordinal()];
+        }
+
+        private int slot(int token) {
+            int slot = slots.getOrAdd(token);
+            if (slot == lastLtp.length) {
+                lastLtp = Arrays.copyOf(lastLtp, slot * 2);
+                lastVolume = Arrays.copyOf(lastVolume, slot * 2);
+                lastOi = Arrays.copyOf(lastOi, slot * 2);
+            }
+            return slot;
+        }
+    }
+
+    // ---------------- Reader ----------------
+
+    /**
+     * Memory-maps only the columns a replay asks for, so an LTP-only pass
+     * touches the framing columns plus LTP and nothing else.
+     */
+    public static final class Reader implements Closeable {
+        private final Path file;
+        private final FileChannel channel;
+        private final int flags;
+        private final long firstTs;
+        private final long lastTs;
+        private final int snapshotCount;
+        private final int tickCount;
+        private final long[] offset = new long[Column.values().length];
+        private final int[] length = new int[Column.values().length];
+
+        private Reader(Path file, FileChannel channel) throws IOException {
+            this.file = file;
+            this.channel = channel;
+
+            long size = channel.size();
+            if (size < HEADER_BYTES + 8) throw new IOException("Not a columnar day file (too short): " + file);
+
+            ByteBuffer header = read(0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) throw new IOException("Bad magic in " + file);
+            int version = header.getShort() & 0xFFFF;
+            if (version != VERSION) throw new IOException("Unsupported columnar version " + version + " in " + file);
+            this.flags = header.getShort() & 0xFFFF;
+            this.firstTs = header.getLong();
+            this.lastTs = header.getLong();
+            this.snapshotCount = header.getInt();
+            this.tickCount = header.getInt();
+
+            ByteBuffer trailer = read(size - 8, 8);
+            int footerLength = trailer.getInt();
+            if (trailer.getInt() != MAGIC || footerLength < 2 || footerLength > size - HEADER_BYTES - 8) {
+                throw new IOException("Bad footer in " + file);
+            }
+            ByteBuffer footer = read(size - 8 - footerLength, footerLength);
+            Arrays.fill(offset, -1);
+            int count = footer.getShort() & 0xFFFF;
+            for (int i = 0; i < count; i++) {
+                Column c = Column.byId(footer.get() & 0xFF);
+                long off = footer.getLong();
+                int len = footer.getInt();
+                if (c == null) continue; // newer column; ignore
+                offset[c.ordinal()] = off;
+                length[c.ordinal()] = len;
+            }
+            for (Column c : FRAMING) {
+                if (offset[c.ordinal()] < 0) throw new IOException("Missing column " + c + " in " + file);
+            }
+        }
+
+        public static Reader open(Path file) throws IOException {
+            FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                return new Reader(file, ch);
+            } catch (IOException | RuntimeException e) {
+                ch.close();
+                throw e;
+            }
+        }
+
+        public Path getFile() { return file; }
+        public long getFirstTimestamp() { return firstTs; }
+        public long getLastTimestamp() { return lastTs; }
+        public int getSnapshotCount() { return snapshotCount; }
+        public int getTickCount() { return tickCount; }
+        public boolean hasDepth() { return (flags & FLAG_DEPTH) != 0; }
+
+        public boolean hasColumn(Column c) {
+            return offset[c.ordinal()] >= 0;
+        }
+
+        /** Bytes a replay of {@code columns} (plus the framing columns) will map. */
+        public long bytesFor(Set<Column> columns) {
+            long total = 0;
+            for (Column c : Column.values()) {
+                if ((FRAMING.contains(c) || columns.contains(c)) && hasColumn(c)) total += length[c.ordinal()];
+            }
+            return total;
+        }
+
+        /**
+         * Replay into a {@link StreamHistoricalData.PacketVisitor}. Only
+         * {@code columns} are decoded; fields of columns not requested are
+         * passed as 0. Index OHLC arguments are always 0.
+         *
+         * @return false if the visitor stopped the replay
+         */
+        public boolean replay(Set<Column> columns, TokenFilter filter,
+                StreamHistoricalData.PacketVisitor visitor) throws IOException {
+            return decode(columns, filter, new TickSink() {
+                @Override
+                public void stock(long ts, int token, int ltp, int ltq, long volume, long oi,
+                        long exchangeTs, int[] depth) {
+                    visitor.onStockTick(ts, token, ltp, ltq, volume, oi, exchangeTs);
+                }
+
+                @Override
+                public void index(long ts, int token, int ltp, long exchangeTs) {
+                    visitor.onIndexTick(ts, token, ltp, 0, 0, 0, 0, exchangeTs);
+                }
+
+                @Override
+                public boolean end(long ts) {
+                    return visitor.onBlockEnd(ts);
+                }
+            });
+        }
+
+        /**
+         * Replay every stored column as materialized {@link Block}s. With a
+         * filter, snapshots carrying none of its tokens are not delivered.
+         *
+         * @return false if the callback stopped the replay
+         */
+        public boolean replay(TokenFilter filter, StreamHistoricalData.BlockCallback callback) throws IOException {
+            return decode(EnumSet.allOf(Column.class), filter, new TickSink() {
+                private List<PacketData> packets = new ArrayList<>();
+
+                @Override
+                public void stock(long ts, int token, int ltp, int ltq, long volume, long oi,
+                        long exchangeTs, int[] depth) {
+                    StockPacket sp = new StockPacket();
+                    sp.setInstrumentToken(token & 0xFFFFFFFFL);
+                    sp.setLastTradedPrice(ltp & 0xFFFFFFFFL);
+                    sp.setLastTradedQuantity(ltq & 0xFFFFFFFFL);
+                    sp.setVolumeTraded(volume);
+                    sp.setOpenInterest(oi);
+                    sp.setExchangeTimestamp(exchangeTs);
+                    if (depth == null) {
+                        sp.setMarketDepth(Collections.emptyList());
+                    } else {
+                        List<MarketDepthEntry> md = new ArrayList<>(DEPTH_LEVELS);
+                        for (int l = 0; l < DEPTH_LEVELS; l++) {
+                            md.add(new MarketDepthEntry(depth[l * 3] & 0xFFFFFFFFL,
+                                    depth[l * 3 + 1] & 0xFFFFFFFFL, depth[l * 3 + 2]));
+                        }
+                        sp.setMarketDepth(md);
+                    }
+                    packets.add(sp);
+                }
+
+                @Override
+                public void index(long ts, int token, int ltp, long exchangeTs) {
+                    IndexPacket ip = new IndexPacket();
+                    ip.setToken(token & 0xFFFFFFFFL);
+                    ip.setLastTradedPrice(ltp & 0xFFFFFFFFL);
+                    ip.setExchangeTimestamp(exchangeTs);
+                    packets.add(ip);
+                }
+
+                @Override
+                public boolean end(long ts) {
+                    Block block = new Block(ts, packets);
+                    packets = new ArrayList<>();
+                    return callback.onBlock(block);
+                }
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private boolean decode(Set<Column> columns, TokenFilter filter, TickSink sink) throws IOException {
+            boolean wantDepth = columns.contains(Column.DEPTH) && hasDepth() && hasColumn(Column.DEPTH);
+            boolean wantLtp = columns.contains(Column.LTP) || wantDepth;
+
+            ColumnCursor snapTs = cursor(Column.SNAP_TS);
+            ColumnCursor snapTicks = cursor(Column.SNAP_TICKS);
+            ColumnCursor tokens = cursor(Column.TOKEN);
+            ColumnCursor kinds = cursor(Column.KIND);
+            ColumnCursor ltps = wantLtp ? cursor(Column.LTP) : null;
+            ColumnCursor ltqs = columns.contains(Column.LTQ) ? cursor(Column.LTQ) : null;
+            ColumnCursor volumes = columns.contains(Column.VOLUME) ? cursor(Column.VOLUME) : null;
+            ColumnCursor ois = columns.contains(Column.OI) ? cursor(Column.OI) : null;
+            ColumnCursor exchTs = columns.contains(Column.EXCH_TS) ? cursor(Column.EXCH_TS) : null;
+            ColumnCursor depths = wantDepth ? cursor(Column.DEPTH) : null;
+
+            IntIndexMap slots = new IntIndexMap(256);
+            long[] ltp = new long[256];
+            long[] volume = new long[256];
+            long[] oi = new long[256];
+            int[] depth = wantDepth ? new int[DEPTH_LEVELS * 3] : null;
+
+            long ts = 0;
+            for (int s = 0; s < snapshotCount; s++) {
+                ts += snapTs.zigzag();
+                int count = (int) snapTicks.varint();
+                int prevToken = 0;
+                int emitted = 0;
+                for (int i = 0; i < count; i++) {
+                    int token = (int) (prevToken + tokens.zigzag());
+                    prevToken = token;
+                    boolean stock = kinds.varint() == KIND_STOCK;
+
+                    int slot = slots.getOrAdd(token);
+                    if (slot == ltp.length) {
+                        ltp = Arrays.copyOf(ltp, slot * 2);
+                        volume = Arrays.copyOf(volume, slot * 2);
+                        oi = Arrays.copyOf(oi, slot * 2);
+                    }
+                    // every requested column must advance, even for filtered-out tokens
+                    if (ltps != null) ltp[slot] += ltps.zigzag();
+                    int ltq = 0;
+                    if (stock) {
+                        if (ltqs != null) ltq = (int) ltqs.varint();
+                        if (volumes != null) volume[slot] += volumes.zigzag();
+                        if (ois != null) oi[slot] += ois.zigzag();
+                        if (depths != null) {
+                            for (int l = 0; l < DEPTH_LEVELS; l++) {
+                                depth[l * 3] = (int) depths.varint();
+                                depth[l * 3 + 1] = (int) (ltp[slot] + depths.zigzag());
+                                depth[l * 3 + 2] = (int) depths.varint();
+                            }
+                        }
+                    }
+                    long exchangeTs = exchTs != null ? ts / 1000 + exchTs.zigzag() : 0;
+
+                    if (filter != null && !filter.matches(token)) continue;
+                    emitted++;
+                    if (stock) {
+                        sink.stock(ts, token, (int) ltp[slot], ltq, volume[slot], oi[slot], exchangeTs, depth);
+                    } else {
+                        sink.index(ts, token, (int) ltp[slot], exchangeTs);
+                    }
+                }
+                if ((filter == null || emitted > 0) && !sink.end(ts)) return false;
+            }
+            return true;
+        }
+
+        private ColumnCursor cursor(Column c) throws IOException {
+            int i = c.ordinal();
+            if (offset[i] < 0) throw new IOException("Column " + c + " not stored in " + file);
+            return new ColumnCursor(channel.map(FileChannel.MapMode.READ_ONLY, offset[i], length[i]), c);
+        }
+
+        private ByteBuffer read(long position, int len) throws IOException {
+            ByteBuffer b = ByteBuffer.allocate(len);
+            while (b.hasRemaining()) {
+                if (channel.read(b, position + b.position()) < 0) throw new IOException("Unexpected EOF in " + file);
+            }
+            b.flip();
+            return b;
+        }
+    }
+
+    // ---------------- Internals ----------------
+
+    /** What {@link Reader#decode} feeds; mirrors the visitor/callback split. */
+    private interface TickSink {
+        void stock(long ts, int token, int ltp, int ltq, long volume, long oi, long exchangeTs, int[] depth);
+
+        void index(long ts, int token, int ltp, long exchangeTs);
+
+        /** @return true to continue */
+        boolean end(long ts);
+    }
+
+    /** Growable byte run with unsigned LEB128 varints. */
+    private static final class ColumnBuffer {
+        byte[] bytes = new byte[4096];
+        int size;
+
+        void zigzag(long v) {
+            varint((v << 1) ^ (v >> 63));
+        }
+
+        void varint(long v) {
+            if (size + 10 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            while ((v & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+    }
+
+    private static final class ColumnCursor {
+        private final ByteBuffer buf;
+        private final Column column;
+
+        ColumnCursor(ByteBuffer buf, Column column) {
+            this.buf = buf;
+            this.column = column;
+        }
+
+        long zigzag() throws IOException {
+            long v = varint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        long varint() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (!buf.hasRemaining()) throw new IOException("Column " + column + " ended early");
+                byte b = buf.get();
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw new IOException("Malformed varint in column " + column);
+        }
+    }
+}
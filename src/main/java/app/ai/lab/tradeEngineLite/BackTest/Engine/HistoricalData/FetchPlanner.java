@@ -0,0 +1,319 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces the Groww / Zerodha candle ranges of many backtest contexts so
+ * every candle is fetched once, however many contexts ask for it.
+ *
+ * Contexts first {@link #plan} their (source, key, interval, day range).
+ * On the first request for a key the planner merges that key's overlapping
+ * and adjacent ranges into groups. Each group is fetched once, in
+ * {@code maxDaysPerCall} windows, and every chunk a stream asks for is then
+ * cut from the group's candles. A group is dropped from memory when all the
+ * days planned for it have been served or {@link #release released}. Ranges
+ * that were never planned go straight to the loader.
+ *
+ * Attach with {@link StreamHistoricalData#setFetchPlanner}; the streams of
+ * all contexts share one planner. A stream releases the chunks it did not
+ * read when it ends early; a context that was planned but never streamed
+ * must {@link #release} its range, or call {@link #releaseAll} at the end of
+ * the run.
+ */
+public final class FetchPlanner {
+
+    private static final long IST_OFFSET_MS = 19_800_000L;
+    private static final long DAY_MS = 86_400_000L;
+
+    private final Map<String, List<LocalDate[]>> planned = new ConcurrentHashMap<>(); // source|key|interval
+    private final Map<String, List<Group>> groups = new ConcurrentHashMap<>();
+    private final AtomicLong loaderCalls = new AtomicLong();
+    private final AtomicLong unplannedCalls = new AtomicLong();
+
+    /** A merged day range fetched once and shared by the requests inside it. */
+    private static final class Group {
+        final LocalDate from;
+        final LocalDate to;
+        // a lock, not synchronized: virtual threads must not pin while they wait on HTTP
+        final ReentrantLock lock = new ReentrantLock();
+        long outstandingDays;
+        CandleSeries candles; // null until loaded / after release
+        final List<Failure> failures = new ArrayList<>();
+
+        Group(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /** A loader window that failed; requests overlapping it get its error. */
+    private static final class Failure {
+        final LocalDate from;
+        final LocalDate to;
+        final Exception error;
+
+        Failure(LocalDate from, LocalDate to, Exception error) {
+            this.from = from;
+            this.to = to;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Announce that a stream will ask for {@code [from, to]} (IST days,
+     * inclusive). Must happen before the first request for the same
+     * (source, key, interval).
+     *
+     * @param source e.g. "groww" or "zerodha"
+     * @param key    symbol or instrument token, as passed to the stream
+     */
+    public FetchPlanner plan(String source, String key, int intervalMinutes, LocalDate from, LocalDate to) {
+        Objects.requireNonNull(from, "from");
+        Objects.requireNonNull(to, "to");
+        if (to.isBefore(from)) throw new IllegalArgumentException("to < from");
+        String k = key(source, key, intervalMinutes);
+        if (groups.containsKey(k)) throw new IllegalStateException("already fetching " + k);
+        List<LocalDate[]> ranges = planned.computeIfAbsent(k, x -> new ArrayList<>());
+        synchronized (ranges) {
+            ranges.add(new LocalDate[] { from, to });
+        }
+        return this;
+    }
+
+    /**
+     * The coalesced ranges the planner will fetch for one (source, key,
+     * interval), in day order. Closes the plan of that key, like a request.
+     */
+    public List<LocalDate[]> ranges(String source, String key, int intervalMinutes) {
+        List<LocalDate[]> out = new ArrayList<>();
+        for (Group g : groups(key(source, key, intervalMinutes))) out.add(new LocalDate[] { g.from, g.to });
+        return out;
+    }
+
+    /** Loader calls needed for the planned ranges of one key when one call covers at most {@code maxDaysPerCall} days. */
+    public int plannedCalls(String source, String key, int intervalMinutes, int maxDaysPerCall) {
+        if (maxDaysPerCall <= 0) throw new IllegalArgumentException("maxDaysPerCall must be > 0");
+        int calls = 0;
+        for (LocalDate[] r : ranges(source, key, intervalMinutes)) {
+            calls += (int) ((days(r[0], r[1]) + maxDaysPerCall - 1) / maxDaysPerCall);
+        }
+        return calls;
+    }
+
+    /** Loader calls made so far for planned ranges. */
+    public long getLoaderCalls() {
+        return loaderCalls.get();
+    }
+
+    /** Requests that fell outside every planned range and went straight to the loader. */
+    public long getUnplannedCalls() {
+        return unplannedCalls.get();
+    }
+
+    /**
+     * A context that planned {@code [from, to]} will not read those days (it
+     * stopped early, failed or never ran). Once every planned day of a group
+     * is served or released, its candles are dropped. Days outside every
+     * planned range are ignored. Releasing days another context still reads
+     * costs a refetch, not wrong data.
+     */
+    public void release(String source, String key, int intervalMinutes, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) throw new IllegalArgumentException("to < from");
+        Group g = find(groups(key(source, key, intervalMinutes)), from, to);
+        if (g == null) return;
+        g.lock.lock();
+        try {
+            served(g, days(from, to));
+        } finally {
+            g.lock.unlock();
+        }
+    }
+
+    /** Drop every held group's candles, e.g. when the run that planned them is over. A later request refetches. */
+    public void releaseAll() {
+        for (List<Group> list : groups.values()) {
+            for (Group g : list) {
+                g.lock.lock();
+                try {
+                    g.outstandingDays = 0;
+                    served(g, 0);
+                } finally {
+                    g.lock.unlock();
+                }
+            }
+        }
+    }
+
+    /** Candles currently held in memory across all groups. */
+    public long getHeldCandles() {
+        long n = 0;
+        for (List<Group> list : groups.values()) {
+            for (Group g : list) {
+                g.lock.lock();
+                try {
+                    if (g.candles != null) n += g.candles.size();
+                } finally {
+                    g.lock.unlock();
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Candles of {@code [from, to]} (IST days, inclusive) in time order, cut
+     * from the planned range that contains them. The first request of a
+     * range fetches the whole range through {@code loader}; concurrent
+     * requests wait for it. The days count as served however the call
+     * ends, also on failure or interrupt.
+     *
+     * @throws Exception the loader's failure when a window overlapping {@code [from, to]} failed
+     */
+    public CandleSeries candles(String source, String key, int intervalMinutes, LocalDate from, LocalDate to,
+            int maxDaysPerCall, CandleCache.Loader loader) throws Exception {
+        return candles(source, key, intervalMinutes, from, to, maxDaysPerCall, loader, 0);
+    }
+
+    /** {@code spacingMs}: pause between two loader calls of one range (the loader is not throttled elsewhere). */
+    CandleSeries candles(String source, String key, int intervalMinutes, LocalDate from, LocalDate to,
+            int maxDaysPerCall, CandleCache.Loader loader, long spacingMs) throws Exception {
+        Objects.requireNonNull(loader, "loader");
+        if (to.isBefore(from)) throw new IllegalArgumentException("to < from");
+        if (maxDaysPerCall <= 0) throw new IllegalArgumentException("maxDaysPerCall must be > 0");
+
+        Group g = find(groups(key(source, key, intervalMinutes)), from, to);
+        if (g == null) {
+            unplannedCalls.incrementAndGet();
+            return loader.load(from, to);
+        }
+
+        try {
+            g.lock.lockInterruptibly();
+        } catch (InterruptedException ie) {
+            release(source, key, intervalMinutes, from, to);
+            throw ie;
+        }
+        try {
+            if (g.candles == null) load(g, maxDaysPerCall, loader, spacingMs);
+            for (Failure f : g.failures) {
+                if (!f.to.isBefore(from) && !f.from.isAfter(to)) throw f.error;
+            }
+            return slice(g.candles, from, to);
+        } finally {
+            try {
+                served(g, days(from, to));
+            } finally {
+                g.lock.unlock();
+            }
+        }
+    }
+
+    // ---------------- Internals ----------------
+
+    private static String key(String source, String key, int intervalMinutes) {
+        return Objects.requireNonNull(source, "source") + "|" + Objects.requireNonNull(key, "key") + "|"
+                + intervalMinutes;
+    }
+
+    private static long days(LocalDate from, LocalDate to) {
+        return ChronoUnit.DAYS.between(from, to) + 1;
+    }
+
+    /** Groups of one key, merged from its planned ranges on first use. */
+    private List<Group> groups(String k) {
+        return groups.computeIfAbsent(k, x -> {
+            List<LocalDate[]> ranges = planned.getOrDefault(k, List.of());
+            List<LocalDate[]> sorted;
+            synchronized (ranges) {
+                sorted = new ArrayList<>(ranges);
+            }
+            sorted.sort(Comparator.comparing((LocalDate[] r) -> r[0]));
+
+            List<Group> out = new ArrayList<>();
+            Group cur = null;
+            for (LocalDate[] r : sorted) {
+                // overlapping or adjacent ranges share one fetch
+                if (cur == null || r[0].isAfter(cur.to.plusDays(1))) {
+                    cur = new Group(r[0], r[1]);
+                    out.add(cur);
+                } else if (r[1].isAfter(cur.to)) {
+                    Group wider = new Group(cur.from, r[1]);
+                    wider.outstandingDays = cur.outstandingDays;
+                    out.set(out.size() - 1, wider);
+                    cur = wider;
+                }
+                cur.outstandingDays += days(r[0], r[1]);
+            }
+            return List.copyOf(out);
+        });
+    }
+
+    /** Count {@code days} of {@code g} as done; with none outstanding let the candles go. Caller holds the lock. */
+    private static void served(Group g, long days) {
+        g.outstandingDays -= days;
+        if (g.outstandingDays <= 0) {
+            g.candles = null;
+            g.failures.clear();
+        }
+    }
+
+    private static Group find(List<Group> groups, LocalDate from, LocalDate to) {
+        for (Group g : groups) {
+            if (!from.isBefore(g.from) && !to.isAfter(g.to)) return g;
+        }
+        return null;
+    }
+
+    /** Fetch the whole group in {@code maxDaysPerCall} windows; failed windows are kept per range. */
+    private void load(Group g, int maxDaysPerCall, CandleCache.Loader loader, long spacingMs)
+            throws InterruptedException {
+        CandleSeries all = new CandleSeries();
+        g.failures.clear();
+        for (LocalDate f = g.from; !f.isAfter(g.to); f = f.plusDays(maxDaysPerCall)) {
+            LocalDate t = f.plusDays(maxDaysPerCall - 1);
+            if (t.isAfter(g.to)) t = g.to;
+            if (spacingMs > 0 && f.isAfter(g.from)) Thread.sleep(spacingMs);
+            loaderCalls.incrementAndGet();
+            try {
+                CandleSeries s = loader.load(f, t);
+                if (s != null) all.addAll(s, 0, s.size());
+            } catch (InterruptedException ie) {
+                throw ie;
+            } catch (Exception e) {
+                g.failures.add(new Failure(f, t, e));
+            }
+        }
+        g.candles = all;
+    }
+
+    /** Candles of {@code s} whose IST day lies in {@code [from, to]}; {@code s} is in time order. */
+    private static CandleSeries slice(CandleSeries s, LocalDate from, LocalDate to) {
+        // IST has no DST: day boundaries are plain arithmetic on the +05:30 offset
+        long lo = from.toEpochDay() * DAY_MS - IST_OFFSET_MS;
+        long hi = (to.toEpochDay() + 1) * DAY_MS - IST_OFFSET_MS;
+        int a = lowerBound(s, lo);
+        int b = lowerBound(s, hi);
+        CandleSeries out = new CandleSeries(Math.max(b - a, 8));
+        out.addAll(s, a, b);
+        return out;
+    }
+
+    private static int lowerBound(CandleSeries s, long epochMs) {
+        int lo = 0, hi = s.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (s.epochMs(mid) < epochMs) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,154 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP transport shared by the historical candle fetchers: one
+ * {@link HttpClient} (HTTP/2 where the server offers it, pooled keep-alive
+ * connections otherwise), gzip-negotiated responses and a cap on concurrent
+ * requests per host.
+ *
+ * Fetchers use {@link #shared()} unless one is passed in, so the
+ * per-stream fetchers built by {@link StreamHistoricalData} reuse the same
+ * connections instead of opening new ones for every stream call.
+ */
+public final class FetchTransport {
+
+    /** Non-2xx response; the body is kept for the error message. */
+    public static final class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+        private final String body;
+
+        public HttpStatusException(int status, String url, String body) {
+            super("HTTP " + status + " from " + url + (body.isEmpty() ? "" : ": " + body));
+            this.status = status;
+            this.body = body;
+        }
+
+        public int getStatus() { return status; }
+        public String getBody() { return body; }
+    }
+
+    private static final Object SHARED_LOCK = new Object();
+    private static volatile FetchTransport shared;
+
+    private final HttpClient client;
+    private final Map<String, Semaphore> hostLimits = new ConcurrentHashMap<>();
+    private volatile int defaultMaxPerHost = 8;
+    private volatile Duration requestTimeout = Duration.ofSeconds(60);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong gzipResponses = new AtomicLong();
+
+    public FetchTransport() {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build());
+    }
+
+    public FetchTransport(HttpClient client) {
+        this.client = Objects.requireNonNull(client, "client");
+    }
+
+    /** Process-wide transport used by fetchers built without one. */
+    public static FetchTransport shared() {
+        FetchTransport t = shared;
+        if (t == null) {
+            synchronized (SHARED_LOCK) {
+                if (shared == null) shared = new FetchTransport();
+                t = shared;
+            }
+        }
+        return t;
+    }
+
+    /** At most {@code maxConcurrent} requests in flight to {@code host} (a later call replaces the limit). */
+    public FetchTransport limitHost(String host, int maxConcurrent) {
+        Objects.requireNonNull(host, "host");
+        if (maxConcurrent <= 0) throw new IllegalArgumentException("maxConcurrent must be > 0");
+        hostLimits.put(host.toLowerCase(java.util.Locale.ROOT), new Semaphore(maxConcurrent, true));
+        return this;
+    }
+
+    /** Limit for hosts without {@link #limitHost} (default 8); applies to hosts first seen afterwards. */
+    public void setDefaultMaxPerHost(int maxConcurrent) {
+        if (maxConcurrent <= 0) throw new IllegalArgumentException("maxConcurrent must be > 0");
+        this.defaultMaxPerHost = maxConcurrent;
+    }
+
+    /** Time allowed for one response (default 60 s). */
+    public void setRequestTimeout(Duration timeout) {
+        this.requestTimeout = Objects.requireNonNull(timeout, "timeout");
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /** Responses that arrived gzip-compressed. */
+    public long getGzipResponses() {
+        return gzipResponses.get();
+    }
+
+    /**
+     * GET {@code url} with {@code headers} and return the (decompressed) body.
+     *
+     * @throws HttpStatusException on a non-2xx status
+     */
+    public byte[] get(String url, Map<String, String> headers) throws IOException, InterruptedException {
+        URI uri = URI.create(url);
+        HttpRequest.Builder b = HttpRequest.newBuilder(uri).GET().timeout(requestTimeout)
+                .header("Accept-Encoding", "gzip");
+        if (headers != null) headers.forEach(b::header);
+        // HTTP/2 is negotiated via TLS ALPN; on plain http the h2c upgrade
+        // attempt defeats keep-alive with HTTP/1.1-only servers
+        if ("http".equalsIgnoreCase(uri.getScheme())) b.version(HttpClient.Version.HTTP_1_1);
+
+        Semaphore permits = hostLimits.computeIfAbsent(
+                uri.getHost() == null ? "" : uri.getHost().toLowerCase(java.util.Locale.ROOT),
+                h -> new Semaphore(defaultMaxPerHost, true));
+        permits.acquire();
+        HttpResponse<InputStream> resp;
+        byte[] body;
+        try {
+            requests.incrementAndGet();
+            resp = client.send(b.build(), HttpResponse.BodyHandlers.ofInputStream());
+            boolean gzip = resp.headers().firstValue("Content-Encoding")
+                    .map(v -> v.toLowerCase(java.util.Locale.ROOT).contains("gzip")).orElse(false);
+            if (gzip) gzipResponses.incrementAndGet();
+            // drain the raw body first: a connection goes back to the pool only at end of stream
+            try (InputStream in = resp.body()) {
+                body = in.readAllBytes();
+            }
+            if (gzip) {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    body = in.readAllBytes();
+                }
+            }
+        } finally {
+            permits.release();
+        }
+
+        if (resp.statusCode() / 100 != 2) {
+            String text = new String(body, 0, Math.min(body.length, 512), java.nio.charset.StandardCharsets.UTF_8);
+            throw new HttpStatusException(resp.statusCode(), url, text);
+        }
+        return body;
+    }
+}
@@ -4,12 +4,10 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import org.springframework.http.*;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.nio.charset.StandardCharsets;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
@@ -45,10 +43,18 @@ public class HistoricalCandleFetcherGroww {
     private static final DateTimeFormatter ZERODHA_TS_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ")
             .withZone(IST);
 
-    private final RestTemplate restTemplate;
+    // lenient like Spring's default mapper: the chart API adds fields over time
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final FetchTransport transport;
 
     public HistoricalCandleFetcherGroww() {
-        this.restTemplate = new RestTemplate();
+        this(FetchTransport.shared());
+    }
+
+    public HistoricalCandleFetcherGroww(FetchTransport transport) {
+        this.transport = Objects.requireNonNull(transport, "transport");
     }
 
     // ===================== Public API =====================
@@ -76,25 +82,33 @@ public class HistoricalCandleFetcherGroww {
 
         System.out.println("url=" + url);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-        headers.set("User-Agent",
-                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
-                        + "(KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
-        headers.set("Origin", "https://groww.in");
-        headers.set("Referer", "https://groww.in/charts/stocks");
+        ApiResponse body = MAPPER.readValue(transport.get(url, browserHeaders()), ApiResponse.class);
+        if (body == null) {
+            throw new RuntimeException("Groww API error: empty body");
+        }
 
-        ResponseEntity<ApiResponse> resp = restTemplate.exchange(
-                url, HttpMethod.GET, new HttpEntity<>(headers), ApiResponse.class);
+        System.out.println("resp=" + (body.candles != null ? body.candles.size() : 0));
 
-        ApiResponse body = resp.getBody();
+        return (body.candles != null) ? body.candles : Collections.emptyList();
+    }
 
-        System.out.println("resp=" + resp.getBody().candles.size());
+    /**
+     * Same request as {@link #fetchCandles}, decoded straight into a
+     * {@link CandleSeries} (no JsonNode tree or per-candle objects).
+     */
+    public CandleSeries fetchSeries(String stockCode, String startIst, String endIst, int intervalInMinutes)
+            throws Exception {
+        Objects.requireNonNull(stockCode, "stockCode");
+        long startMs = parseStartIstToEpochMillis(startIst);
+        long endMs   = parseEndIstToEpochMillis(endIst);
 
-        if (resp.getStatusCode().is2xxSuccessful() && body != null) {
-            return (body.candles != null) ? body.candles : Collections.emptyList();
-        }
-        throw new RuntimeException("Groww API error: HTTP " + resp.getStatusCodeValue());
+        if (intervalInMinutes <= 0)
+            throw new IllegalArgumentException("intervalInMinutes must be > 0");
+        if (endMs < startMs)
+            throw new IllegalArgumentException("endIst must be >= startIst");
+
+        byte[] body = transport.get(buildUrl(stockCode, startMs, endMs, intervalInMinutes), browserHeaders());
+        return CandleSeries.parseGroww(new ByteArrayInputStream(body));
     }
 
     /**
@@ -113,14 +127,13 @@ public class HistoricalCandleFetcherGroww {
 
         String url = buildUrl(stockCode, startOfDayMs, endMs, 1440);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-        headers.set("User-Agent", "java");
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Accept", "application/json");
+        headers.put("User-Agent", "java");
 
-        ResponseEntity<ApiResponse> resp = restTemplate.exchange(
-                url, HttpMethod.GET, new HttpEntity<>(headers), ApiResponse.class);
-        ApiResponse body = resp.getBody();
-        if (!resp.getStatusCode().is2xxSuccessful() || body == null || body.candles == null) {
+        // a non-2xx status throws FetchTransport.HttpStatusException, as RestTemplate did
+        ApiResponse body = MAPPER.readValue(transport.get(url, headers), ApiResponse.class);
+        if (body == null || body.candles == null) {
             return Optional.empty();
         }
 
@@ -357,6 +370,17 @@ public class HistoricalCandleFetcherGroww {
         return v;
     }
 
+    private static Map<String, String> browserHeaders() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Accept", "application/json");
+        headers.put("User-Agent",
+                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+                        + "(KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
+        headers.put("Origin", "https://groww.in");
+        headers.put("Referer", "https://groww.in/charts/stocks");
+        return headers;
+    }
+
     private static String buildUrl(String stockCode, long startMs, long endMs, int intervalInMinutes) {
         String encoded = URLEncoder.encode(stockCode, StandardCharsets.UTF_8);
         return "https://groww.in/v1/api/charting_service/v2/chart/delayed/exchange/NSE/segment/CASH/" + encoded
@@ -4,55 +4,80 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import org.springframework.http.*;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class HistoricalCandleFetcherZerodha {
 
+    private static final String KITE_BASE_URL = "https://kite.zerodha.com";
+    // lenient like Spring's default mapper: Kite adds fields over time
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
     private final String enctoken;
     private final String userId;
-    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final FetchTransport transport;
 
     public HistoricalCandleFetcherZerodha(String enctoken) {
+        this(enctoken, KITE_BASE_URL);
+    }
+
+    /** @param baseUrl scheme + host (+ port) serving {@code /oms/instruments/historical}, e.g. a local stub */
+    public HistoricalCandleFetcherZerodha(String enctoken, String baseUrl) {
+        this(enctoken, baseUrl, FetchTransport.shared());
+    }
+
+    /** {@code null} baseUrl / transport fall back to the Kite API / {@link FetchTransport#shared()}. */
+    public HistoricalCandleFetcherZerodha(String enctoken, String baseUrl, FetchTransport transport) {
         // Hardcoded for now; ideally should come from properties or constructor injection
         this.enctoken = enctoken;
         this.userId = "OOJ378";
-        this.restTemplate = new RestTemplate();
+        this.baseUrl = baseUrl != null ? baseUrl : KITE_BASE_URL;
+        this.transport = transport != null ? transport : FetchTransport.shared();
     }
 
     public List<Candle> fetchCandles(int instrumentId, int timeFrameMinutes, String from, String to) throws Exception {
-        String url = String.format(
-            "https://kite.zerodha.com/oms/instruments/historical/%d/%sminute?user_id=%s&oi=1&from=%s&to=%s",
+        byte[] bytes = transport.get(url(instrumentId, timeFrameMinutes, from, to), headers());
+
+        ZerodhaResponse body = MAPPER.readValue(bytes, ZerodhaResponse.class);
+        if (body == null || !"success".equalsIgnoreCase(body.status)) {
+            throw new Exception("API returned error or null body.");
+        }
+
+        return body.data.candles;
+    }
+
+    /**
+     * Same request as {@link #fetchCandles}, decoded straight into a
+     * {@link CandleSeries} (no per-candle objects, timestamps as epoch ms).
+     */
+    public CandleSeries fetchSeries(int instrumentId, int timeFrameMinutes, String from, String to) throws Exception {
+        byte[] bytes = transport.get(url(instrumentId, timeFrameMinutes, from, to), headers());
+        return CandleSeries.parseZerodha(new ByteArrayInputStream(bytes));
+    }
+
+    private String url(int instrumentId, int timeFrameMinutes, String from, String to) {
+        return String.format(
+            "%s/oms/instruments/historical/%d/%sminute?user_id=%s&oi=1&from=%s&to=%s",
+            baseUrl,
             instrumentId,
             (timeFrameMinutes == 1 ? "" : timeFrameMinutes),
             userId,
             from,
             to
         );
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("authorization", "enctoken " + enctoken);
-        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
-        ResponseEntity<ZerodhaResponse> response = restTemplate.exchange(
-            url,
-            HttpMethod.GET,
-            entity,
-            ZerodhaResponse.class
-        );
-
-        ZerodhaResponse body = response.getBody();
-        if (body == null || !"success".equalsIgnoreCase(body.status)) {
-            throw new Exception("API returned error or null body.");
-        }
-
-        return body.data.candles;
+    private Map<String, String> headers() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("authorization", "enctoken " + enctoken);
+        headers.put("Accept", "application/json");
+        return headers;
     }
 
     // ------------------ Inner Model Classes ------------------
@@ -0,0 +1,183 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.HistoricalDataSource.Request;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalData.BlockCallback;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Streams one instrument over a date range from several
+ * {@link HistoricalDataSource} tiers, e.g. bar store, day zips, candle
+ * cache, Zerodha, Groww, instead of a hard-coded crossover date.
+ *
+ * {@link #plan} gives each trading day to the cheapest tier (lowest
+ * {@link HistoricalDataSource#costPerDay}, then the one added first) that
+ * supports the requested interval and covers the day. Consecutive days of
+ * one tier form a {@link Segment}; non-trading days join the segment they
+ * fall in or the one before them, so weekends do not split a range or cost
+ * an API call. {@link #stream} streams the segments in date order into one
+ * callback and returns them as the report of which tier served what.
+ */
+public final class HistoricalDataRouter {
+
+    /** A run of days served by one tier; {@code source == null} when no tier covers it. */
+    public static final class Segment {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final HistoricalDataSource source;
+
+        Segment(LocalDate from, LocalDate to, HistoricalDataSource source) {
+            this.from = from;
+            this.to = to;
+            this.source = source;
+        }
+
+        public LocalDate getFrom() { return from; }
+        public LocalDate getTo() { return to; }
+        /** Name of the serving tier; null for a gap. */
+        public String getSource() { return source == null ? null : source.name(); }
+
+        @Override
+        public String toString() {
+            return from + ".." + to + " <- " + (source == null ? "(none)" : source.name());
+        }
+    }
+
+    private final List<HistoricalDataSource> sources = new ArrayList<>();
+    private Predicate<LocalDate> tradingDay =
+            d -> d.getDayOfWeek() != DayOfWeek.SATURDAY && d.getDayOfWeek() != DayOfWeek.SUNDAY;
+
+    /** Add a tier; among tiers of equal cost the one added first wins. */
+    public HistoricalDataRouter add(HistoricalDataSource source) {
+        sources.add(Objects.requireNonNull(source, "source"));
+        return this;
+    }
+
+    /** Days worth routing on their own (default Monday to Friday). */
+    public void setTradingDays(Predicate<LocalDate> tradingDay) {
+        this.tradingDay = Objects.requireNonNull(tradingDay, "tradingDay");
+    }
+
+    /**
+     * Which tier serves which part of {@code [from, to]}, in date order.
+     * Trading days no tier covers become gap segments.
+     */
+    public List<Segment> plan(Request request, LocalDate from, LocalDate to) throws IOException {
+        Objects.requireNonNull(request, "request");
+        if (to.isBefore(from)) throw new IllegalArgumentException("to < from");
+
+        // tiers that can serve the interval, cheapest first (stable: ties keep insertion order)
+        List<HistoricalDataSource> tiers = new ArrayList<>();
+        for (HistoricalDataSource s : sources) {
+            if (s.supports(request.getIntervalMinutes())) tiers.add(s);
+        }
+        tiers.sort((a, b) -> Double.compare(a.costPerDay(), b.costPerDay()));
+        List<Set<LocalDate>> coverage = new ArrayList<>(tiers.size());
+        for (HistoricalDataSource s : tiers) coverage.add(s.coverage(request, from, to));
+
+        List<Segment> out = new ArrayList<>();
+        LocalDate runFrom = from;
+        int runTier = -2; // -2: no trading day seen yet, -1: gap
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            if (!tradingDay.test(d)) continue;
+            int tier = -1;
+            for (int i = 0; i < tiers.size(); i++) {
+                if (coverage.get(i).contains(d)) {
+                    tier = i;
+                    break;
+                }
+            }
+            if (runTier == -2) {
+                runTier = tier;
+            } else if (tier != runTier) {
+                // the days since the last trading day stay with the run before
+                out.add(segment(runFrom, d.minusDays(1), runTier, tiers));
+                runFrom = d;
+                runTier = tier;
+            }
+        }
+        if (runTier != -2) out.add(segment(runFrom, to, runTier, tiers));
+        return Collections.unmodifiableList(out);
+    }
+
+    /**
+     * Stream {@code [from, to]} for {@code request} tier by tier into
+     * {@code callback}. Gaps and tier failures go to {@code onError} and the
+     * next segment follows; {@code onEnd} is called once at the end.
+     *
+     * @return the segments, as {@link #plan} routed them
+     */
+    public List<Segment> stream(Request request, LocalDate from, LocalDate to, BlockCallback callback) {
+        Objects.requireNonNull(callback, "callback");
+        List<Segment> segments = Collections.emptyList();
+        try {
+            segments = plan(request, from, to);
+            Stitcher stitched = new Stitcher(callback);
+            for (Segment seg : segments) {
+                if (stitched.stopped) break;
+                if (seg.source == null) {
+                    callback.onError(new IOException("no source covers " + request + " " + seg.from + ".." + seg.to),
+                            null);
+                    continue;
+                }
+                try {
+                    seg.source.stream(request, seg.from, seg.to, stitched);
+                } catch (Exception e) {
+                    callback.onError(e, null);
+                }
+                if (Thread.currentThread().isInterrupted()) break;
+            }
+        } catch (IOException e) {
+            callback.onError(e, null);
+        } finally {
+            try { callback.onEnd(); } catch (Exception ignore) {}
+        }
+        return segments;
+    }
+
+    // ---------------- Internals ----------------
+
+    private static Segment segment(LocalDate from, LocalDate to, int tier, List<HistoricalDataSource> tiers) {
+        return new Segment(from, to, tier < 0 ? null : tiers.get(tier));
+    }
+
+    /** Forwards blocks and errors of every segment; swallows their onEnd and stops after a false. */
+    static final class Stitcher implements BlockCallback {
+        private final BlockCallback callback;
+        private boolean stopped;
+
+        Stitcher(BlockCallback callback) {
+            this.callback = callback;
+        }
+
+        boolean isStopped() { return stopped; }
+
+        @Override
+        public boolean onBlock(Block block) {
+            if (stopped) return false;
+            if (!callback.onBlock(block)) stopped = true;
+            return !stopped;
+        }
+
+        @Override
+        public boolean onBlockView(BlockView view) {
+            if (stopped) return false;
+            if (!callback.onBlockView(view)) stopped = true;
+            return !stopped;
+        }
+
+        @Override
+        public void onError(Exception e, Path source) {
+            callback.onError(e, source);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalData.BlockCallback;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * One tier of historical data for a single instrument: the day zips, a
+ * {@link BarStore}, the {@link CandleCache}, or the Zerodha / Groww APIs.
+ * {@link HistoricalDataRouter} asks every tier which days it can serve and
+ * streams each sub-range from the cheapest tier that has it.
+ *
+ * {@link #stream} must deliver blocks in timestamp order and call
+ * {@code onEnd} at most once; the router forwards neither {@code onEnd} nor
+ * blocks after the callback asked to stop.
+ */
+public interface HistoricalDataSource {
+
+    /** What to stream: one instrument at one bar size. */
+    final class Request {
+        private final String symbol;
+        private final int token;
+        private final int intervalMinutes;
+        private final boolean index;
+
+        /**
+         * @param symbol          Groww symbol (also the Groww cache key)
+         * @param token           Zerodha instrument token (zip / bar packets, Zerodha cache key)
+         * @param intervalMinutes bar size the strategy needs; 0 = raw ticks only
+         * @param index           true -> index packets for candle tiers
+         */
+        public Request(String symbol, int token, int intervalMinutes, boolean index) {
+            if (intervalMinutes < 0) throw new IllegalArgumentException("intervalMinutes must be >= 0");
+            this.symbol = Objects.requireNonNull(symbol, "symbol");
+            this.token = token;
+            this.intervalMinutes = intervalMinutes;
+            this.index = index;
+        }
+
+        public String getSymbol() { return symbol; }
+        public int getToken() { return token; }
+        public int getIntervalMinutes() { return intervalMinutes; }
+        public boolean isIndex() { return index; }
+
+        @Override
+        public String toString() {
+            return symbol + "/" + token + "@" + intervalMinutes + "m";
+        }
+    }
+
+    /** Name used in routing reports, e.g. "zip" or "groww". */
+    String name();
+
+    /** Relative cost of streaming one day from this tier; the router prefers lower. */
+    double costPerDay();
+
+    /** true if this tier has data at least as fine as {@code intervalMinutes}. */
+    boolean supports(int intervalMinutes);
+
+    /** Days of {@code [from, to]} this tier can serve for {@code request}. */
+    Set<LocalDate> coverage(Request request, LocalDate from, LocalDate to) throws IOException;
+
+    /** Stream {@code [from, to]} (IST days, inclusive) for {@code request} in time order. */
+    void stream(Request request, LocalDate from, LocalDate to, BlockCallback callback) throws Exception;
+
+    // ---------------- Tiers ----------------
+
+    /** Day zips of {@code fileCode}, replayed as raw ticks of the request's token. */
+    final class Zips implements HistoricalDataSource {
+        private final Path rootDir;
+        private final String fileCode;
+        private final String startTime;
+        private final String endTime;
+        private double costPerDay = 10;
+
+        /** {@code startTime} / {@code endTime} as for {@link StreamHistoricalData#stream(String, String)}; null = whole day. */
+        public Zips(Path rootDir, String fileCode, String startTime, String endTime) {
+            this.rootDir = Objects.requireNonNull(rootDir, "rootDir");
+            this.fileCode = Objects.requireNonNull(fileCode, "fileCode");
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        public void setCostPerDay(double costPerDay) { this.costPerDay = costPerDay; }
+
+        @Override public String name() { return "zip"; }
+        @Override public double costPerDay() { return costPerDay; }
+        @Override public boolean supports(int intervalMinutes) { return true; }
+
+        @Override
+        public Set<LocalDate> coverage(Request request, LocalDate from, LocalDate to) throws IOException {
+            Set<LocalDate> days = new TreeSet<>();
+            for (Path zip : streamer(from, to, null).candidateZips()) {
+                LocalDate d = StreamHistoricalData.zipDate(zip);
+                if (d != null) days.add(d);
+            }
+            return days;
+        }
+
+        @Override
+        public void stream(Request request, LocalDate from, LocalDate to, BlockCallback callback) {
+            StreamHistoricalData s = streamer(from, to, callback);
+            s.setTokenFilter(TokenFilter.of(request.getToken()));
+            if (startTime == null && endTime == null) s.stream();
+            else s.stream(startTime, endTime);
+        }
+
+        private StreamHistoricalData streamer(LocalDate from, LocalDate to, BlockCallback callback) {
+            return callback == null
+                    ? new StreamHistoricalData(rootDir, day(from), day(to), fileCode, -1)
+                    : new StreamHistoricalData(rootDir, day(from), day(to), fileCode, -1, callback);
+        }
+    }
+
+    /**
+     * Rolled-up bars of a {@link BarStore}, at the largest stored size not
+     * coarser than the request. A day counts only if it was rolled up for the
+     * request's token (see {@link BarStore.Day#hasToken}).
+     */
+    final class Bars implements HistoricalDataSource {
+        private final BarStore store;
+        private final String fileCode;
+        private final BarStore.IntrabarPath path;
+        private double costPerDay = 1;
+
+        public Bars(BarStore store, String fileCode, BarStore.IntrabarPath path) {
+            this.store = Objects.requireNonNull(store, "store");
+            this.fileCode = Objects.requireNonNull(fileCode, "fileCode");
+            this.path = Objects.requireNonNull(path, "path");
+        }
+
+        public void setCostPerDay(double costPerDay) { this.costPerDay = costPerDay; }
+
+        @Override public String name() { return "bars"; }
+        @Override public double costPerDay() { return costPerDay; }
+        @Override public boolean supports(int intervalMinutes) { return resolution(intervalMinutes) != null; }
+
+        @Override
+        public Set<LocalDate> coverage(Request request, LocalDate from, LocalDate to) {
+            BarStore.Resolution r = resolution(request.getIntervalMinutes());
+            Set<LocalDate> days = new TreeSet<>();
+            if (r == null) return days;
+            for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+                BarStore.Day day = store.day(fileCode, d);
+                if (day != null && day.hasToken(request.getToken()) && Files.isRegularFile(store.file(r, fileCode, d))) {
+                    days.add(d);
+                }
+            }
+            return days;
+        }
+
+        @Override
+        public void stream(Request request, LocalDate from, LocalDate to, BlockCallback callback) {
+            StreamHistoricalData s = store.streamer(fileCode, day(from), day(to), -1, callback);
+            s.setTokenFilter(TokenFilter.of(request.getToken()));
+            s.stream_bars(resolution(request.getIntervalMinutes()), path);
+        }
+
+        private static BarStore.Resolution resolution(int intervalMinutes) {
+            BarStore.Resolution best = null;
+            for (BarStore.Resolution r : BarStore.Resolution.values()) {
+                if (intervalMinutes > 0 && (intervalMinutes * 60L) % r.getSeconds() == 0) {
+                    best = r;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Candles already in a {@link CandleCache} for {@code provider} ("groww"
+     * or "zerodha"); only fully cached days are offered. {@link #stream} reads
+     * only the cached days of its range, run by run, so the weekends and
+     * holidays a router folds into a segment never turn into an HTTP call.
+     */
+    final class Cached implements HistoricalDataSource {
+        private final CandleCache cache;
+        private final String provider;
+        private double costPerDay = 2;
+
+        public Cached(CandleCache cache, String provider) {
+            this.cache = Objects.requireNonNull(cache, "cache");
+            if (!"groww".equals(provider) && !"zerodha".equals(provider)) {
+                throw new IllegalArgumentException("provider must be groww or zerodha: " + provider);
+            }
+            this.provider = provider;
+        }
+
+        public void setCostPerDay(double costPerDay) { this.costPerDay = costPerDay; }
+
+        @Override public String name() { return "cache:" + provider; }
+        @Override public double costPerDay() { return costPerDay; }
+        @Override public boolean supports(int intervalMinutes) { return intervalMinutes > 0; }
+
+        @Override
+        public Set<LocalDate> coverage(Request request, LocalDate from, LocalDate to) {
+            Set<LocalDate> days = new TreeSet<>();
+            for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) days.add(d);
+            for (LocalDate[] run : cache.missingRanges(provider, key(provider, request),
+                    request.getIntervalMinutes(), from, to)) {
+                for (LocalDate d = run[0]; !d.isAfter(run[1]); d = d.plusDays(1)) days.remove(d);
+            }
+            return days;
+        }
+
+        @Override
+        public void stream(Request request, LocalDate from, LocalDate to, BlockCallback callback) {
+            HistoricalDataRouter.Stitcher runs = new HistoricalDataRouter.Stitcher(callback);
+            try {
+                LocalDate runFrom = null;
+                LocalDate prev = null;
+                for (LocalDate d : coverage(request, from, to)) { // sorted
+                    if (runFrom != null && !d.equals(prev.plusDays(1))) {
+                        if (!streamRun(request, runFrom, prev, runs)) return;
+                        runFrom = null;
+                    }
+                    if (runFrom == null) runFrom = d;
+                    prev = d;
+                }
+                if (runFrom != null) streamRun(request, runFrom, prev, runs);
+            } finally {
+                callback.onEnd();
+            }
+        }
+
+        /** One run of cached days; every chunk is a cache hit. @return false once the callback stopped */
+        private boolean streamRun(Request request, LocalDate from, LocalDate to,
+                HistoricalDataRouter.Stitcher runs) {
+            StreamHistoricalData s = new StreamHistoricalData(Path.of("."), day(from), day(to), request.getSymbol(),
+                    -1, runs);
+            s.setCandleCache(cache);
+            if ("groww".equals(provider)) {
+                s.stream_groww(request.getSymbol(), request.getToken(), request.getIntervalMinutes(), request.isIndex());
+            } else {
+                // only cached days are asked for, so the (empty) enctoken is never sent
+                s.stream_zerodha("", request.getToken(), request.getIntervalMinutes(), request.isIndex());
+            }
+            return !runs.isStopped() && !Thread.currentThread().isInterrupted();
+        }
+    }
+
+    /** Zerodha historical candles over HTTP. */
+    final class Zerodha extends Remote {
+        private final String enctoken;
+
+        public Zerodha(String enctoken) {
+            super("zerodha", 50);
+            this.enctoken = Objects.requireNonNull(enctoken, "enctoken");
+        }
+
+        @Override
+        void stream(StreamHistoricalData s, Request request) {
+            s.stream_zerodha(enctoken, request.getToken(), request.getIntervalMinutes(), request.isIndex());
+        }
+    }
+
+    /** Groww chart candles over HTTP. */
+    final class Groww extends Remote {
+        public Groww() {
+            super("groww", 100);
+        }
+
+        @Override
+        void stream(StreamHistoricalData s, Request request) {
+            s.stream_groww(request.getSymbol(), request.getToken(), request.getIntervalMinutes(), request.isIndex());
+        }
+    }
+
+    /**
+     * Candle API tier: covers every day up to today (IST). {@link #setStreamSetup}
+     * configures each streamer it builds, e.g. to attach a {@link CandleCache},
+     * {@link ChunkFetchScheduler} or {@link FetchPlanner}.
+     */
+    abstract class Remote implements HistoricalDataSource {
+        private final String name;
+        private double costPerDay;
+        private Clock clock = Clock.system(ZoneId.of("Asia/Kolkata"));
+        private Consumer<StreamHistoricalData> setup = s -> { };
+
+        Remote(String name, double costPerDay) {
+            this.name = name;
+            this.costPerDay = costPerDay;
+        }
+
+        public void setCostPerDay(double costPerDay) { this.costPerDay = costPerDay; }
+
+        public void setStreamSetup(Consumer<StreamHistoricalData> setup) {
+            this.setup = Objects.requireNonNull(setup, "setup");
+        }
+
+        /** Clock that decides what "today" is. */
+        public void setClock(Clock clock) { this.clock = Objects.requireNonNull(clock, "clock"); }
+
+        @Override public String name() { return name; }
+        @Override public double costPerDay() { return costPerDay; }
+        @Override public boolean supports(int intervalMinutes) { return intervalMinutes > 0; }
+
+        @Override
+        public Set<LocalDate> coverage(Request request, LocalDate from, LocalDate to) {
+            LocalDate today = LocalDate.now(clock);
+            Set<LocalDate> days = new TreeSet<>();
+            for (LocalDate d = from; !d.isAfter(to) && !d.isAfter(today); d = d.plusDays(1)) days.add(d);
+            return days;
+        }
+
+        @Override
+        public void stream(Request request, LocalDate from, LocalDate to, BlockCallback callback) {
+            StreamHistoricalData s = new StreamHistoricalData(Path.of("."), day(from), day(to), request.getSymbol(),
+                    -1, callback);
+            setup.accept(s);
+            stream(s, request);
+        }
+
+        abstract void stream(StreamHistoricalData s, Request request);
+    }
+
+    private static String key(String provider, Request request) {
+        return "groww".equals(provider) ? request.getSymbol() : String.valueOf(request.getToken());
+    }
+
+    private static String day(LocalDate d) {
+        return d.format(ColumnarDayFile.DAY);
+    }
+}
@@ -0,0 +1,54 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.IndexPacket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight view over one 32-byte index packet inside a snapshot buffer.
+ * Fields are read on demand as big-endian u32; see {@link StockPacketView}
+ * for the lifetime rules.
+ */
+public final class IndexPacketView {
+
+    public static final int LENGTH = 32;
+
+    private ByteBuffer buf;
+    private int off;
+
+    public IndexPacketView() {}
+
+    /** Point this view at the packet starting at absolute {@code offset} of {@code buf}. */
+    public IndexPacketView wrap(ByteBuffer buf, int offset) {
+        this.buf = buf;
+        this.off = offset;
+        return this;
+    }
+
+    public long getToken()             { return u32(0); }
+    public long getLastTradedPrice()   { return u32(4); }
+    public long getHighPrice()         { return u32(8); }
+    public long getLowPrice()          { return u32(12); }
+    public long getOpenPrice()         { return u32(16); }
+    public long getClosePrice()        { return u32(20); }
+    public long getPriceChange()       { return u32(24); }
+    public long getExchangeTimestamp() { return u32(28); }
+
+    /** Copy this packet into a standalone {@link IndexPacket}. */
+    public IndexPacket toPacket() {
+        IndexPacket ip = new IndexPacket();
+        ip.setToken(getToken());
+        ip.setLastTradedPrice(getLastTradedPrice());
+        ip.setHighPrice(getHighPrice());
+        ip.setLowPrice(getLowPrice());
+        ip.setOpenPrice(getOpenPrice());
+        ip.setClosePrice(getClosePrice());
+        ip.setPriceChange(getPriceChange());
+        ip.setExchangeTimestamp(getExchangeTimestamp());
+        return ip;
+    }
+
+    private long u32(int rel) {
+        return buf.getInt(off + rel) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,268 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalData.BlockCallback;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs several historical streams at once (e.g. NIFTY and NIFTY_100 zips, or
+ * a Groww / Zerodha candle stream next to the ticks) and delivers their
+ * blocks to one callback on a single clock.
+ *
+ * Each source runs on its own thread into a bounded queue of
+ * {@link #setReadAhead(int)} blocks. The caller's thread k-way merges the
+ * queue heads with a primitive min-heap on {@code (timestamp, source index)}:
+ * equal timestamps go to the source added first, and blocks of one source
+ * keep their own order. Every source must therefore emit in timestamp order.
+ *
+ * ZIP snapshots arrive at {@link BlockCallback#onBlockView} (raw bytes are
+ * copied across threads, not decoded); candle streams arrive at
+ * {@link BlockCallback#onBlock}. Source errors are forwarded to
+ * {@code onError} in stream order, {@code onEnd} is called once.
+ */
+public final class MergedHistoricalStream {
+
+    /** One input stream; must call the given callback from its own thread, in timestamp order. */
+    public interface Source {
+        void run(BlockCallback callback) throws Exception;
+    }
+
+    private static final int DEFAULT_READ_AHEAD = 64;
+
+    private final BlockCallback callback;
+    private final List<Source> sources = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private int readAhead = DEFAULT_READ_AHEAD;
+
+    public MergedHistoricalStream(BlockCallback callback) {
+        this.callback = Objects.requireNonNull(callback, "callback");
+    }
+
+    /** Add a source; its position is the tie-break for equal timestamps (earlier wins). */
+    public MergedHistoricalStream add(String name, Source source) {
+        Objects.requireNonNull(source, "source");
+        names.add(name == null ? "source-" + sources.size() : name);
+        sources.add(source);
+        return this;
+    }
+
+    /** ZIP archives of {@code fileCode}, streamed with {@link StreamHistoricalData#stream(String, String)}. */
+    public MergedHistoricalStream addZips(Path rootDir, String startDate_dd_MM_yy, String endDate_dd_MM_yy,
+            String fileCode, TokenFilter filter, String startTime, String endTime) {
+        return add(fileCode, cb -> {
+            StreamHistoricalData s = new StreamHistoricalData(rootDir, startDate_dd_MM_yy, endDate_dd_MM_yy,
+                    fileCode, -1, cb);
+            s.setTokenFilter(filter);
+            if (startTime == null && endTime == null) s.stream();
+            else s.stream(startTime, endTime);
+        });
+    }
+
+    /** Blocks buffered per source ahead of the merge (default 64). */
+    public void setReadAhead(int blocks) {
+        if (blocks <= 0) throw new IllegalArgumentException("readAhead must be > 0");
+        this.readAhead = blocks;
+    }
+
+    public int getReadAhead() { return readAhead; }
+
+    /** Run every source and merge them on the current thread. */
+    public void stream() {
+        final int n = sources.size();
+        if (n == 0) {
+            try { callback.onEnd(); } catch (Exception ignore) {}
+            return;
+        }
+
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final BlockingQueue<Object>[] queues = new BlockingQueue[n];
+        final int[] started = { 0 };
+        final ExecutorService pool = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, "merge-" + names.get(started[0]++));
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < n; i++) {
+            final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(readAhead);
+            final Source source = sources.get(i);
+            queues[i] = queue;
+            pool.execute(() -> {
+                try {
+                    source.run(new Feeder(queue, stop));
+                } catch (Exception e) {
+                    if (!stop.get()) put(queue, new Failure(e, null), stop);
+                } finally {
+                    put(queue, END, stop);
+                }
+            });
+        }
+
+        // heap of source indices ordered by (headTs, index)
+        final long[] headTs = new long[n];
+        final Object[] head = new Object[n];
+        final int[] heap = new int[n];
+        int size = 0;
+        final BlockView view = new BlockView();
+        try {
+            for (int i = 0; i < n; i++) {
+                if (advance(i, queues[i], headTs, head)) size = siftUp(heap, size, i, headTs);
+            }
+            while (size > 0) {
+                int src = heap[0];
+                Chunk chunk = (Chunk) head[src];
+                boolean keep;
+                if (chunk.bytes != null) {
+                    keep = !view.setFilter(chunk.filter).wrap(chunk.bytes, chunk.timeStamp)
+                            || callback.onBlockView(view);
+                } else {
+                    keep = callback.onBlock(chunk.block);
+                }
+                if (!keep) break;
+
+                if (!advance(src, queues[src], headTs, head)) {
+                    heap[0] = heap[--size];
+                }
+                siftDown(heap, size, headTs);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stop.set(true);
+            pool.shutdownNow();
+            try { callback.onEnd(); } catch (Exception ignore) {}
+        }
+    }
+
+    // ---------------- Internals ----------------
+
+    private static final Object END = new Object();
+
+    /** One buffered block: raw snapshot bytes (ZIP modes) or a decoded Block. */
+    private static final class Chunk {
+        final long timeStamp;
+        final byte[] bytes;
+        final TokenFilter filter;
+        final Block block;
+
+        Chunk(long timeStamp, byte[] bytes, TokenFilter filter, Block block) {
+            this.timeStamp = timeStamp;
+            this.bytes = bytes;
+            this.filter = filter;
+            this.block = block;
+        }
+    }
+
+    private static final class Failure {
+        final Exception error;
+        final Path source;
+
+        Failure(Exception error, Path source) {
+            this.error = error;
+            this.source = source;
+        }
+    }
+
+    /** Callback handed to a source: copies each block into its queue. */
+    private static final class Feeder implements BlockCallback {
+        private final BlockingQueue<Object> queue;
+        private final AtomicBoolean stop;
+
+        Feeder(BlockingQueue<Object> queue, AtomicBoolean stop) {
+            this.queue = queue;
+            this.stop = stop;
+        }
+
+        @Override
+        public boolean onBlock(Block block) {
+            return put(queue, new Chunk(block.getTimeStamp(), null, null, block), stop);
+        }
+
+        @Override
+        public boolean onBlockView(BlockView view) {
+            return put(queue, new Chunk(view.getTimeStamp(), view.copyBytes(), view.getFilter(), null), stop);
+        }
+
+        @Override
+        public void onError(Exception e, Path source) {
+            put(queue, new Failure(e, source), stop);
+        }
+    }
+
+    /**
+     * Load the next block of source {@code src} into {@code head}, forwarding
+     * any errors queued before it.
+     *
+     * @return false once the source has ended
+     */
+    private boolean advance(int src, BlockingQueue<Object> queue, long[] headTs, Object[] head)
+            throws InterruptedException {
+        while (true) {
+            Object item = queue.take();
+            if (item == END) {
+                head[src] = null;
+                return false;
+            }
+            if (item instanceof Failure) {
+                Failure f = (Failure) item;
+                callback.onError(f.error, f.source);
+                continue;
+            }
+            head[src] = item;
+            headTs[src] = ((Chunk) item).timeStamp;
+            return true;
+        }
+    }
+
+    private static boolean less(int a, int b, long[] headTs) {
+        return headTs[a] < headTs[b] || (headTs[a] == headTs[b] && a < b);
+    }
+
+    private static int siftUp(int[] heap, int size, int src, long[] headTs) {
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(src, heap[parent], headTs)) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = src;
+        return size + 1;
+    }
+
+    private static void siftDown(int[] heap, int size, long[] headTs) {
+        if (size == 0) return;
+        int src = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && less(heap[child + 1], heap[child], headTs)) child++;
+            if (!less(heap[child], src, headTs)) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = src;
+    }
+
+    /** Blocking put that gives up once {@code stop} is set. @return false if stopped */
+    private static boolean put(BlockingQueue<Object> queue, Object item, AtomicBoolean stop) {
+        try {
+            while (!stop.get()) {
+                if (queue.offer(item, 50, TimeUnit.MILLISECONDS)) return true;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,200 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Inflates the entries of one zip on several threads and hands them back in
+ * entry order, for {@link StreamHistoricalData#setEntryWorkers(int)}.
+ *
+ * Each worker opens its own reader on the zip, claims the next entry
+ * sequence number and inflates it into a ring of {@code capacity} slots
+ * keyed by {@code seq % capacity}. A worker never runs more than
+ * {@code capacity} entries ahead of the delivery point, so memory stays
+ * bounded however slow the consumer is. Workers also pre-check each snapshot
+ * (truncation, token filter) so the caller's thread only wraps and delivers.
+ */
+final class ParallelEntryReader implements Closeable {
+
+    /** Positional reader over one zip, used by a single worker. */
+    interface EntryReader extends Closeable {
+        /** Payload of entry {@code seq}; may be reused by the next call. */
+        ByteBuffer read(int seq) throws IOException;
+    }
+
+    interface ReaderFactory {
+        EntryReader open() throws IOException;
+    }
+
+    interface Delivery {
+        /** @return false to stop */
+        boolean deliver(long epochMs, byte[] payload);
+    }
+
+    // slot marker for entries the worker found unusable or without wanted packets
+    private static final byte[] SKIP = new byte[0];
+
+    private final int workers;
+    private final int capacity;
+    private final TokenFilter filter;
+    private final ExecutorService pool;
+
+    ParallelEntryReader(int workers, int capacity, TokenFilter filter) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be >= 1");
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        this.workers = workers;
+        this.capacity = capacity;
+        this.filter = filter;
+        AtomicInteger ids = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "zip-inflate-" + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Read entries {@code 0..timestamps.length-1} of one zip and deliver them in
+     * order on the calling thread.
+     *
+     * @return false if {@code delivery} asked to stop
+     * @throws IOException the first error raised by a worker
+     */
+    boolean run(long[] timestamps, ReaderFactory factory, Delivery delivery)
+            throws IOException, InterruptedException {
+        final int count = timestamps.length;
+        if (count == 0) return true;
+        final Ring ring = new Ring(capacity);
+        final AtomicInteger nextSeq = new AtomicInteger();
+
+        List<Future<?>> running = new ArrayList<>();
+        for (int w = 0; w < Math.min(workers, count); w++) {
+            running.add(pool.submit(() -> {
+                BlockView view = new BlockView().setFilter(filter);
+                try (EntryReader reader = factory.open()) {
+                    int seq;
+                    while ((seq = nextSeq.getAndIncrement()) < count) {
+                        if (!ring.awaitRoom(seq)) return;
+                        ByteBuffer buf = reader.read(seq);
+                        byte[] payload = new byte[buf.remaining()];
+                        buf.get(payload);
+                        boolean wanted = view.wrap(payload, timestamps[seq]) && (filter == null || view.next());
+                        ring.put(seq, wanted ? payload : SKIP);
+                    }
+                } catch (Exception e) {
+                    ring.fail(e);
+                }
+            }));
+        }
+
+        try {
+            for (int seq = 0; seq < count; seq++) {
+                byte[] payload = ring.take(seq);
+                if (payload != SKIP && !delivery.deliver(timestamps[seq], payload)) return false;
+            }
+            return true;
+        } finally {
+            ring.stop();
+            for (Future<?> f : running) {
+                try {
+                    f.get();
+                } catch (ExecutionException ignore) {
+                    // reported through ring.fail
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /** Reorder buffer: slot {@code seq % capacity} holds entry {@code seq} until delivered. */
+    private static final class Ring {
+        private final byte[][] slots;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition filled = lock.newCondition();
+        private final Condition freed = lock.newCondition();
+        private int delivered; // next seq to deliver
+        private boolean stopped;
+        private Exception error;
+
+        Ring(int capacity) {
+            this.slots = new byte[capacity][];
+        }
+
+        /** Block until {@code seq} fits in the window; @return false once stopped */
+        boolean awaitRoom(int seq) throws InterruptedException {
+            lock.lock();
+            try {
+                while (seq >= delivered + slots.length && !stopped) freed.await();
+                return !stopped;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(int seq, byte[] payload) {
+            lock.lock();
+            try {
+                slots[seq % slots.length] = payload;
+                filled.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        byte[] take(int seq) throws IOException, InterruptedException {
+            lock.lock();
+            try {
+                int slot = seq % slots.length;
+                while (slots[slot] == null) {
+                    if (error != null) {
+                        throw error instanceof IOException ? (IOException) error : new IOException(error);
+                    }
+                    filled.await();
+                }
+                byte[] payload = slots[slot];
+                slots[slot] = null;
+                delivered = seq + 1;
+                freed.signalAll();
+                return payload;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void fail(Exception e) {
+            lock.lock();
+            try {
+                if (error == null) error = e;
+                stopped = true;
+                filled.signal();
+                freed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void stop() {
+            lock.lock();
+            try {
+                stopped = true;
+                freed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
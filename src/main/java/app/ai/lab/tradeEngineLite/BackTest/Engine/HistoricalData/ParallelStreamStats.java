@@ -0,0 +1,83 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for one {@link StreamHistoricalData#streamParallelAcrossZips} run.
+ *
+ * Producer stall is time inflating threads spent blocked on a full queue
+ * (the consumer is the bottleneck); dispatcher stall is time the dispatcher
+ * waited on an empty queue (inflate / disk is the bottleneck).
+ */
+public final class ParallelStreamStats {
+
+    private final int window;
+    private final int queueCapacity;
+
+    private final LongAdder producerStallNanos = new LongAdder();
+    private final LongAdder producerStalls = new LongAdder();
+    private final LongAdder zipsRead = new LongAdder();
+
+    // dispatcher thread only
+    private long dispatcherStallNanos;
+    private long dispatcherStalls;
+    private long depthSamples;
+    private long depthSum;
+    private int maxQueueDepth;
+
+    ParallelStreamStats(int window, int queueCapacity) {
+        this.window = window;
+        this.queueCapacity = queueCapacity;
+    }
+
+    void producerStalled(long nanos) {
+        producerStalls.increment();
+        producerStallNanos.add(nanos);
+    }
+
+    void zipRead() {
+        zipsRead.increment();
+    }
+
+    void dispatcherStalled(long nanos) {
+        dispatcherStalls++;
+        dispatcherStallNanos += nanos;
+    }
+
+    /** Sampled by the dispatcher before every take. */
+    void queueDepth(int depth) {
+        depthSamples++;
+        depthSum += depth;
+        if (depth > maxQueueDepth) maxQueueDepth = depth;
+    }
+
+    /** Zips inflating or buffered ahead of the dispatcher at most. */
+    public int getWindow() { return window; }
+
+    /** Snapshots buffered per in-flight zip at most. */
+    public int getQueueCapacity() { return queueCapacity; }
+
+    public long getZipsRead() { return zipsRead.sum(); }
+    public long getProducerStallNanos() { return producerStallNanos.sum(); }
+    public long getProducerStalls() { return producerStalls.sum(); }
+    public long getDispatcherStallNanos() { return dispatcherStallNanos; }
+    public long getDispatcherStalls() { return dispatcherStalls; }
+    public int getMaxQueueDepth() { return maxQueueDepth; }
+
+    /** Mean depth of the queue being drained, sampled per dispatched item. */
+    public double getAvgQueueDepth() {
+        return depthSamples == 0 ? 0 : (double) depthSum / depthSamples;
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelStreamStats{window=" + window
+                + ", queueCapacity=" + queueCapacity
+                + ", zipsRead=" + getZipsRead()
+                + ", maxQueueDepth=" + maxQueueDepth
+                + ", avgQueueDepth=" + String.format(java.util.Locale.ROOT, "%.1f", getAvgQueueDepth())
+                + ", producerStallMs=" + getProducerStallNanos() / 1_000_000
+                + ", dispatcherStallMs=" + dispatcherStallNanos / 1_000_000
+                + '}';
+    }
+}
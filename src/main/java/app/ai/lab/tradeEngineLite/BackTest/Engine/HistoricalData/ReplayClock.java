@@ -0,0 +1,177 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a replay from block timestamps instead of sleeping a fixed delay
+ * after every block.
+ *
+ * The first event anchors event time to {@link System#nanoTime()}; every
+ * later event is due at {@code anchor + (eventMs - anchorEventMs) / speed}.
+ * Deadlines are absolute, so park overshoot on one block is absorbed by the
+ * next one instead of accumulating (drift correction). When the consumer
+ * falls behind, late events are released immediately until the schedule is
+ * met again (catch-up); beyond {@link #setMaxLagMs(long)} the clock rebases
+ * on the current event rather than bursting through a long backlog.
+ *
+ * Gaps larger than {@link #setMaxGapMs(long)} of event time (overnight,
+ * between sessions) and timestamps going backwards also rebase, so a
+ * multi-day replay does not wait for the market to reopen.
+ *
+ * {@link #fixedDelay(long)} keeps the old "one block every N ms" pacing on
+ * the same drift-free schedule. Single-threaded: one clock per stream.
+ */
+public final class ReplayClock {
+
+    // last stretch before a deadline is spun instead of parked, for sub-ms accuracy
+    private static final long SPIN_NANOS = 50_000L;
+
+    private final boolean fixed;
+    private final double speed;       // event ms per wall ms (event-time mode)
+    private final long fixedDelayNanos;
+    private long maxGapMs = 60_000L;
+    private long maxLagNanos = Long.MAX_VALUE;
+
+    // schedule
+    private boolean anchored;
+    private long anchorNanos;
+    private long anchorEventMs;
+    private long lastEventMs;
+    private long fixedIndex;
+
+    // lag stats
+    private long events;
+    private long lateEvents;
+    private long rebases;
+    private long lastLagNanos;
+    private long maxLagSeenNanos;
+    private long totalLagNanos;
+
+    private ReplayClock(boolean fixed, double speed, long fixedDelayNanos) {
+        this.fixed = fixed;
+        this.speed = speed;
+        this.fixedDelayNanos = fixedDelayNanos;
+    }
+
+    /** Replay at {@code speed} x real time (1.0 = wall clock, 10.0 = ten times faster). */
+    public static ReplayClock atSpeed(double speed) {
+        if (!(speed > 0) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("speed must be a positive finite number");
+        }
+        return new ReplayClock(false, speed, 0);
+    }
+
+    /** One block every {@code delayMs}, whatever the timestamps say. */
+    public static ReplayClock fixedDelay(long delayMs) {
+        if (delayMs < 0) throw new IllegalArgumentException("delayMs must be >= 0");
+        return new ReplayClock(true, 0, delayMs * 1_000_000L);
+    }
+
+    /** Event-time gaps above this are skipped instead of waited for (default 60 s). */
+    public void setMaxGapMs(long maxGapMs) {
+        if (maxGapMs <= 0) throw new IllegalArgumentException("maxGapMs must be > 0");
+        this.maxGapMs = maxGapMs;
+    }
+
+    /** Rebase instead of catching up once this far behind (default: always catch up). */
+    public void setMaxLagMs(long maxLagMs) {
+        if (maxLagMs <= 0) throw new IllegalArgumentException("maxLagMs must be > 0");
+        this.maxLagNanos = maxLagMs * 1_000_000L;
+    }
+
+    /** Speed multiplier; 0 in {@link #fixedDelay} mode. */
+    public double getSpeed() { return speed; }
+
+    /** Forget the schedule and stats; the next event anchors again. */
+    public void reset() {
+        anchored = false;
+        fixedIndex = 0;
+        events = 0;
+        lateEvents = 0;
+        rebases = 0;
+        lastLagNanos = 0;
+        maxLagSeenNanos = 0;
+        totalLagNanos = 0;
+    }
+
+    /**
+     * Block until the event stamped {@code eventMs} is due.
+     *
+     * @return false if the thread was interrupted (the stream should stop)
+     */
+    public boolean await(long eventMs) {
+        long now = System.nanoTime();
+        if (!anchored) {
+            anchor(now, eventMs);
+        } else if (!fixed && (eventMs < lastEventMs || eventMs - lastEventMs > maxGapMs)) {
+            // skip the gap: this event is due when the previous one was
+            anchorNanos = Math.max(now, dueNanos(lastEventMs));
+            anchorEventMs = eventMs;
+            rebases++;
+        }
+        lastEventMs = eventMs;
+
+        long due = fixed ? anchorNanos + fixedIndex++ * fixedDelayNanos : dueNanos(eventMs);
+        long remaining = due - now;
+        while (remaining > 0) {
+            if (remaining > SPIN_NANOS) LockSupport.parkNanos(remaining - SPIN_NANOS);
+            else Thread.onSpinWait();
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            remaining = due - System.nanoTime();
+        }
+
+        long lag = -remaining;
+        events++;
+        lastLagNanos = lag;
+        totalLagNanos += lag;
+        if (lag > maxLagSeenNanos) maxLagSeenNanos = lag;
+        if (lag > 1_000_000L) lateEvents++;
+        if (lag > maxLagNanos) {
+            anchor(System.nanoTime(), eventMs);
+            fixedIndex = 1; // this event used slot 0
+            rebases++;
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    // ---------------- Lag ----------------
+
+    /** Events released so far. */
+    public long getEvents() { return events; }
+
+    /** Events released more than 1 ms after their deadline. */
+    public long getLateEvents() { return lateEvents; }
+
+    /** Schedule rebases (gaps, backwards time, {@link #setMaxLagMs} exceeded). */
+    public long getRebases() { return rebases; }
+
+    /** How late the last event was released. */
+    public long getLastLagNanos() { return lastLagNanos; }
+
+    public long getMaxLagNanos() { return maxLagSeenNanos; }
+
+    public long getMeanLagNanos() { return events == 0 ? 0 : totalLagNanos / events; }
+
+    @Override
+    public String toString() {
+        return "ReplayClock{" + (fixed ? "fixedDelayMs=" + fixedDelayNanos / 1_000_000L : "speed=" + speed)
+                + ", events=" + events + ", late=" + lateEvents + ", rebases=" + rebases
+                + ", meanLagUs=" + getMeanLagNanos() / 1_000 + ", maxLagUs=" + maxLagSeenNanos / 1_000 + '}';
+    }
+
+    // ---------------- Internals ----------------
+
+    private void anchor(long nowNanos, long eventMs) {
+        anchored = true;
+        anchorNanos = nowNanos;
+        anchorEventMs = eventMs;
+        fixedIndex = 0;
+    }
+
+    private long dueNanos(long eventMs) {
+        return anchorNanos + (long) ((eventMs - anchorEventMs) * 1_000_000.0 / speed);
+    }
+}
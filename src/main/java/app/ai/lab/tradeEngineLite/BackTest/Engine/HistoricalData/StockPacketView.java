@@ -0,0 +1,112 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.MarketDepthEntry;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.StockPacket;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flyweight view over one 184-byte stock packet inside a snapshot buffer.
+ *
+ * Nothing is decoded up front: every getter reads its big-endian u32 straight
+ * from the backing {@link ByteBuffer} (heap or direct). Market depth is only
+ * touched when one of the depth getters is called. The view is re-pointed by
+ * {@link BlockView} as it walks a snapshot, so it must not be retained past the
+ * callback that received it — use {@link #toPacket()} to keep a copy.
+ *
+ * Layout (offsets relative to packet start):
+ * 0..63   16 x u32 fields (token .. exchangeTimestamp)
+ * 64..183 10 x depth entries of 12 bytes: u32 qty, u32 price, u16 orders, u16 pad
+ */
+public final class StockPacketView {
+
+    public static final int LENGTH = 184;
+    public static final int DEPTH_LEVELS = 10;
+
+    private static final int DEPTH_OFFSET = 64;
+    private static final int DEPTH_STRIDE = 12;
+
+    private ByteBuffer buf;
+    private int off;
+
+    public StockPacketView() {}
+
+    /** Point this view at the packet starting at absolute {@code offset} of {@code buf}. */
+    public StockPacketView wrap(ByteBuffer buf, int offset) {
+        this.buf = buf;
+        this.off = offset;
+        return this;
+    }
+
+    public long getInstrumentToken()     { return u32(0); }
+    public long getLastTradedPrice()     { return u32(4); }
+    public long getLastTradedQuantity()  { return u32(8); }
+    public long getAvgTradedPrice()      { return u32(12); }
+    public long getVolumeTraded()        { return u32(16); }
+    public long getTotalBuyQuantity()    { return u32(20); }
+    public long getTotalSellQuantity()   { return u32(24); }
+    public long getOpenPrice()           { return u32(28); }
+    public long getHighPrice()           { return u32(32); }
+    public long getLowPrice()            { return u32(36); }
+    public long getClosePrice()          { return u32(40); }
+    public long getLastTradedTimestamp() { return u32(44); }
+    public long getOpenInterest()        { return u32(48); }
+    public long getOpenInterestDayHigh() { return u32(52); }
+    public long getOpenInterestDayLow()  { return u32(56); }
+    public long getExchangeTimestamp()   { return u32(60); }
+
+    // ----- Market depth (decoded only when touched)
+
+    public long getDepthQuantity(int level) { return u32(depthOffset(level)); }
+    public long getDepthPrice(int level)    { return u32(depthOffset(level) + 4); }
+    public int getDepthOrders(int level)    { return buf.getShort(off + depthOffset(level) + 8) & 0xFFFF; }
+
+    /** Allocates: builds the 10-entry depth list the same way {@link BlockUtils} does. */
+    public List<MarketDepthEntry> getMarketDepth() {
+        List<MarketDepthEntry> md = new ArrayList<>(DEPTH_LEVELS);
+        for (int i = 0; i < DEPTH_LEVELS; i++) {
+            md.add(new MarketDepthEntry(getDepthQuantity(i), getDepthPrice(i), getDepthOrders(i)));
+        }
+        return md;
+    }
+
+    // ----- Opt-in materialization
+
+    /** Copy this packet into a standalone {@link StockPacket}. */
+    public StockPacket toPacket() {
+        StockPacket sp = new StockPacket();
+        sp.setInstrumentToken(getInstrumentToken());
+        sp.setLastTradedPrice(getLastTradedPrice());
+        sp.setLastTradedQuantity(getLastTradedQuantity());
+        sp.setAvgTradedPrice(getAvgTradedPrice());
+        sp.setVolumeTraded(getVolumeTraded());
+        sp.setTotalBuyQuantity(getTotalBuyQuantity());
+        sp.setTotalSellQuantity(getTotalSellQuantity());
+        sp.setOpenPrice(getOpenPrice());
+        sp.setHighPrice(getHighPrice());
+        sp.setLowPrice(getLowPrice());
+        sp.setClosePrice(getClosePrice());
+        sp.setLastTradedTimestamp(getLastTradedTimestamp());
+        sp.setOpenInterest(getOpenInterest());
+        sp.setOpenInterestDayHigh(getOpenInterestDayHigh());
+        sp.setOpenInterestDayLow(getOpenInterestDayLow());
+        sp.setExchangeTimestamp(getExchangeTimestamp());
+        sp.setMarketDepth(getMarketDepth());
+        return sp;
+    }
+
+    // ---------------- Helpers ----------------
+
+    private static int depthOffset(int level) {
+        if (level < 0 || level >= DEPTH_LEVELS) {
+            throw new IndexOutOfBoundsException("depth level " + level);
+        }
+        return DEPTH_OFFSET + level * DEPTH_STRIDE;
+    }
+
+    private long u32(int rel) {
+        return buf.getInt(off + rel) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,229 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resumable position of a sequential ZIP stream plus the state of the
+ * consumers fed by it, so a multi-month replay that died or was stopped can
+ * continue from the last checkpoint instead of the first zip.
+ *
+ * Consumers that keep state across snapshots (candle trackers, strategies,
+ * the exchange order book) {@link #register register} as a
+ * {@link Participant}. While {@link StreamHistoricalData#setCheckpoint
+ * attached} to a stream, the cursor advances after every delivered snapshot
+ * and a checkpoint is written every {@link #setEveryBlocks N} snapshots or
+ * {@link #setEveryMs M} ms, and once more when the stream ends (normally,
+ * on a callback returning false or on interrupt). {@link #resume()} restores
+ * every participant and makes the next stream skip what was delivered.
+ *
+ * File layout (big-endian), written to a temp file and moved into place:
+ * <pre>
+ *   'SCKP', u16 version, u16 reserved, utf zip, i32 entry, i64 timestamp, i64 blocks,
+ *   i32 count, count x { utf name, i32 length, length x u8 state }
+ * </pre>
+ */
+public final class StreamCheckpoint {
+
+    /** A consumer whose state is saved with the cursor. */
+    public interface Participant {
+        void writeState(DataOutput out) throws IOException;
+
+        /** Replace the current state with one written by {@link #writeState}. */
+        void readState(DataInput in) throws IOException;
+    }
+
+    /** Last snapshot delivered: zip file name, its ordinal inside the zip, and its timestamp. */
+    public static final class Cursor {
+        private final String zip;
+        private final int entry;
+        private final long timestamp;
+        private final long blocks;
+
+        Cursor(String zip, int entry, long timestamp, long blocks) {
+            this.zip = zip;
+            this.entry = entry;
+            this.timestamp = timestamp;
+            this.blocks = blocks;
+        }
+
+        public String getZip() { return zip; }
+
+        /** 0-based ordinal of the snapshot among those delivered from {@link #getZip()}. */
+        public int getEntry() { return entry; }
+
+        public long getTimestamp() { return timestamp; }
+
+        /** Snapshots delivered since the first run started. */
+        public long getBlocks() { return blocks; }
+
+        @Override
+        public String toString() {
+            return "Cursor{zip=" + zip + ", entry=" + entry + ", ts=" + timestamp + ", blocks=" + blocks + '}';
+        }
+    }
+
+    private static final int MAGIC = 0x53434B50; // "SCKP"
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final Map<String, Participant> participants = new LinkedHashMap<>();
+    private long everyBlocks = 10_000;
+    private long everyMs = 60_000;
+
+    private Cursor resumeFrom;   // set by resume(), read by the stream
+    private String zip;
+    private int entry = -1;
+    private long timestamp;
+    private long blocks;
+    private long blocksAtSave;
+    private long lastSaveNanos = System.nanoTime();
+    private long saves;
+
+    public StreamCheckpoint(Path file) {
+        this.file = Objects.requireNonNull(file, "file");
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** Save and restore {@code participant} under {@code name} (unique per checkpoint). */
+    public StreamCheckpoint register(String name, Participant participant) {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(participant, "participant");
+        if (participants.putIfAbsent(name, participant) != null) {
+            throw new IllegalArgumentException("Participant already registered: " + name);
+        }
+        return this;
+    }
+
+    /** Checkpoint every {@code blocks} delivered snapshots (default 10 000; 0 disables). */
+    public void setEveryBlocks(long blocks) {
+        if (blocks < 0) throw new IllegalArgumentException("blocks must be >= 0");
+        this.everyBlocks = blocks;
+    }
+
+    /** Checkpoint at least every {@code ms} of wall time while snapshots flow (default 60 s; 0 disables). */
+    public void setEveryMs(long ms) {
+        if (ms < 0) throw new IllegalArgumentException("ms must be >= 0");
+        this.everyMs = ms;
+    }
+
+    /**
+     * Load the checkpoint file, restore every registered participant and
+     * remember the cursor for the next stream.
+     *
+     * @return the restored cursor, or null if there is no checkpoint yet
+     * @throws IOException if the file is unreadable or lacks a registered participant
+     */
+    public Cursor resume() throws IOException {
+        if (!Files.exists(file)) return null;
+        Map<String, byte[]> states = new HashMap<>();
+        Cursor cursor;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedShort() != VERSION) {
+                throw new IOException("Not a stream checkpoint: " + file);
+            }
+            in.readUnsignedShort();
+            String z = in.readUTF();
+            cursor = new Cursor(z.isEmpty() ? null : z, in.readInt(), in.readLong(), in.readLong());
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String name = in.readUTF();
+                byte[] state = new byte[in.readInt()];
+                in.readFully(state);
+                states.put(name, state);
+            }
+        }
+        for (Map.Entry<String, Participant> e : participants.entrySet()) {
+            byte[] state = states.get(e.getKey());
+            if (state == null) throw new IOException("No state for participant " + e.getKey() + " in " + file);
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(state))) {
+                e.getValue().readState(in);
+            }
+        }
+        resumeFrom = cursor;
+        zip = cursor.zip;
+        entry = cursor.entry;
+        timestamp = cursor.timestamp;
+        blocks = blocksAtSave = cursor.blocks;
+        return cursor;
+    }
+
+    /** Cursor restored by {@link #resume()}; the stream skips everything up to it. */
+    public Cursor getResumeCursor() {
+        return resumeFrom;
+    }
+
+    /** Current position (what the next save would write). */
+    public Cursor getCursor() {
+        return new Cursor(zip, entry, timestamp, blocks);
+    }
+
+    /** Checkpoints written by this instance. */
+    public long getSaves() {
+        return saves;
+    }
+
+    /** Write the current cursor and every participant's state now. */
+    public void save() throws IOException {
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeUTF(zip == null ? "" : zip);
+            out.writeInt(entry);
+            out.writeLong(timestamp);
+            out.writeLong(blocks);
+            out.writeInt(participants.size());
+            for (Map.Entry<String, Participant> e : participants.entrySet()) {
+                state.reset();
+                DataOutputStream s = new DataOutputStream(state);
+                e.getValue().writeState(s);
+                s.flush();
+                out.writeUTF(e.getKey());
+                out.writeInt(state.size());
+                state.writeTo(out);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        blocksAtSave = blocks;
+        lastSaveNanos = System.nanoTime();
+        saves++;
+    }
+
+    // ---------------- Stream side ----------------
+
+    /** Called after the snapshot stamped {@code ts} of {@code zipName} was delivered. */
+    void advance(String zipName, long ts) throws IOException {
+        entry = zipName.equals(zip) ? entry + 1 : 0;
+        zip = zipName;
+        timestamp = ts;
+        blocks++;
+        if ((everyBlocks > 0 && blocks - blocksAtSave >= everyBlocks)
+                || (everyMs > 0 && System.nanoTime() - lastSaveNanos >= everyMs * 1_000_000L)) {
+            save();
+        }
+    }
+
+    /** Final checkpoint when the stream ends; skipped if nothing was delivered since the last one. */
+    void finish() throws IOException {
+        if (blocks != blocksAtSave) save();
+    }
+}
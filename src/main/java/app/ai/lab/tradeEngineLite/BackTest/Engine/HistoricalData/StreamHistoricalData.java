@@ -3,6 +3,7 @@ package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -28,6 +29,51 @@ public class StreamHistoricalData {
         /** @return true to continue streaming; false to stop immediately */
         boolean onBlock(Block block);
 
+        /**
+         * Zero-copy entry point used by the ZIP stream modes. The view is reused
+         * for every snapshot and is only valid during this call. The default
+         * materializes a {@link Block} and forwards to {@link #onBlock(Block)};
+         * override to read packet fields on demand without per-packet allocation.
+         *
+         * @return true to continue streaming; false to stop immediately
+         */
+        default boolean onBlockView(BlockView view) {
+            return onBlock(view.toBlock());
+        }
+
+        /** Non-fatal errors (we continue to next file/entry). */
+        default void onError(Exception e, Path source) {
+        }
+
+        /** Called when streaming finishes (normal or early stop). */
+        default void onEnd() {
+        }
+    }
+
+    /**
+     * Allocation-free alternative to {@link BlockCallback}: the ZIP stream modes
+     * call it straight from the raw snapshot bytes with primitive arguments only.
+     * Prices are in paise (the wire unit); u32 quantities are passed as int.
+     */
+    public interface PacketVisitor {
+        /** One 184-byte stock packet of the snapshot stamped {@code blockTs}. */
+        void onStockTick(long blockTs, int token, int ltpPaise, int ltq, long volume,
+                long openInterest, long exchangeTs);
+
+        /** One 32-byte index packet of the snapshot stamped {@code blockTs}. */
+        default void onIndexTick(long blockTs, int token, int ltpPaise, int openPaise, int highPaise,
+                int lowPaise, int closePaise, long exchangeTs) {
+        }
+
+        /**
+         * Called after the last packet of a snapshot.
+         *
+         * @return true to continue streaming; false to stop immediately
+         */
+        default boolean onBlockEnd(long blockTs) {
+            return true;
+        }
+
         /** Non-fatal errors (we continue to next file/entry). */
         default void onError(Exception e, Path source) {
         }
@@ -44,6 +90,10 @@ public class StreamHistoricalData {
     private static final ZoneId DEFAULT_ZONE = ZoneId.of("Asia/Kolkata");
     private static final Pattern ZIP_DATE_TAIL = Pattern.compile("_(\\d{2}-\\d{2}-\\d{2})\\.zip$",
             Pattern.CASE_INSENSITIVE);
+    // stream order of the day zips: by date, then name
+    private static final Comparator<String> ZIP_ORDER = Comparator
+            .comparing(StreamHistoricalData::extractDate)
+            .thenComparing(String.CASE_INSENSITIVE_ORDER);
 
 
     private static final int  MAX_ZERODHA_DAYS_PER_CALL = 60;     // inclusive window (e.g., 60 = from..to spans 60 days)
@@ -56,8 +106,26 @@ public class StreamHistoricalData {
     private final LocalDate startDate;
     private final LocalDate endDate;
     private final String fileCode; // "NIFTY_100" or "SENSEX" or "NIFTY"
-    private final long delayMs; // -1 => no delay
+    private ReplayClock replayClock; // null => no delay (delayMs -1)
     private final BlockCallback callback;
+    private TokenFilter tokenFilter; // null => decode every packet
+    private int parallelWindow;        // <= 0 => derived from cores / heap
+    private int parallelQueueCapacity; // <= 0 => derived from heap
+    private volatile ParallelStreamStats lastParallelStats;
+    private boolean useZipIndex = true;
+    private TickCache tickCache; // null => always read the zips
+    private CandleCache candleCache; // null => every Groww / Zerodha chunk is fetched
+    private ChunkFetchScheduler fetchScheduler; // null => Groww / Zerodha chunks are fetched one by one
+    private FetchPlanner fetchPlanner; // null => every stream fetches its own range
+    private String zerodhaBaseUrl; // null => the Kite API
+    private FetchTransport fetchTransport; // null => FetchTransport.shared()
+    private int entryWorkers;          // <= 1 => inflate entries on the streaming thread
+    private int entryReorderCapacity;  // <= 0 => 4 x entryWorkers
+    private StreamCheckpoint checkpoint; // null => no checkpoints
+
+    private static final BlockCallback VISITOR_ONLY = block -> {
+        throw new IllegalStateException("no BlockCallback");
+    };
 
     public StreamHistoricalData(Path rootDir,
             String startDate_dd_MM_yy,
@@ -77,66 +145,161 @@ public class StreamHistoricalData {
             throw new IllegalArgumentException("endDate < startDate");
         }
         this.fileCode = fileCode;
-        this.delayMs = delayMs;
         this.callback = callback;
+        this.replayClock = delayMs >= 0 ? ReplayClock.fixedDelay(delayMs) : null;
     }
 
-    /** Run the stream on the current thread. */
-    public void stream() {
-        List<Path> zips = listCandidateZips();
-        zips.sort(Comparator
-                .comparing((Path p) -> extractDate(p.getFileName().toString()))
-                .thenComparing(p -> p.getFileName().toString(), String.CASE_INSENSITIVE_ORDER));
-
-        outer: for (Path zipPath : zips) {
-            try (ZipFile zf = new ZipFile(zipPath.toFile())) {
-                List<BinEntry> bins = new ArrayList<>();
-                Enumeration<? extends ZipEntry> en = zf.entries();
-                while (en.hasMoreElements()) {
-                    ZipEntry ze = en.nextElement();
-                    if (ze.isDirectory())
-                        continue;
-                    String name = ze.getName();
-                    if (!name.toLowerCase(Locale.ROOT).endsWith(".bin"))
-                        continue;
+    /**
+     * Visitor-only streamer: no {@link BlockCallback}, so only the
+     * {@link PacketVisitor} overloads may be used.
+     */
+    public StreamHistoricalData(Path rootDir,
+            String startDate_dd_MM_yy,
+            String endDate_dd_MM_yy,
+            String fileCode,
+            long delayMs) {
+        this(rootDir, startDate_dd_MM_yy, endDate_dd_MM_yy, fileCode, delayMs, VISITOR_ONLY);
+    }
 
-                    long ts = extractTimestampFromEntry(ze, zipPath); // <-- strict + fallback
-                    bins.add(new BinEntry(ze, ts));
-                }
+    /**
+     * Expose one stream mode as a {@link java.util.concurrent.Flow.Publisher}
+     * with {@code request(n)} backpressure. {@code mode} configures and runs
+     * the streamer the publisher creates for each subscription, e.g.
+     * {@code s -> s.stream("09:15 am", "03:30 pm")} or
+     * {@code s -> s.stream_groww("INFY", token, 1, false)}.
+     */
+    public static BlockPublisher publisher(Path rootDir,
+            String startDate_dd_MM_yy,
+            String endDate_dd_MM_yy,
+            String fileCode,
+            java.util.function.Consumer<StreamHistoricalData> mode) {
+        Objects.requireNonNull(mode, "mode");
+        return new BlockPublisher(cb -> mode.accept(
+                new StreamHistoricalData(rootDir, startDate_dd_MM_yy, endDate_dd_MM_yy, fileCode, -1, cb)));
+    }
 
-                bins.sort(Comparator.comparingLong(b -> b.epochMs));
+    /**
+     * Only decode packets for these tokens in the ZIP modes. Other packets are
+     * skipped by length after a 4-byte header peek, and snapshots that carry
+     * none of the tokens are not delivered at all. {@code null} disables it.
+     */
+    public void setTokenFilter(TokenFilter tokenFilter) {
+        this.tokenFilter = tokenFilter;
+    }
 
-                for (BinEntry be : bins) {
-                    byte[] payload;
-                    try (InputStream is = zf.getInputStream(be.entry)) {
-                        payload = readAllBytes(is);
-                    }
+    /**
+     * Use (and build on first open) the {@link ZipEntryIndex} sidecar next to
+     * each zip. On by default; turn off to always enumerate with ZipFile.
+     */
+    public void setUseZipIndex(boolean useZipIndex) {
+        this.useZipIndex = useZipIndex;
+    }
 
-                    Optional<Block> maybe = BlockUtils.parseBinToBlock(payload, be.epochMs);
-                    if (maybe.isPresent()) {
-                        boolean keepGoing = callback.onBlock(maybe.get());
-                        if (!keepGoing)
-                            break outer;
-
-                        if (delayMs >= 0) {
-                            try {
-                                Thread.sleep(delayMs);
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                                break outer;
-                            }
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                callback.onError(e, zipPath);
-            }
-        }
+    /**
+     * Serve the ZIP modes from {@code cache}: the first run over a zip stores
+     * its inflated (token-filtered) snapshots, later runs replay them from a
+     * memory map. {@code null} disables caching.
+     */
+    public void setTickCache(TickCache tickCache) {
+        this.tickCache = tickCache;
+    }
 
-        try {
-            callback.onEnd();
-        } catch (Exception ignore) {
-        }
+    /**
+     * Serve {@link #stream_groww} / {@link #stream_zerodha} from {@code cache}:
+     * only days it lacks are fetched, and only those calls are throttled.
+     * {@code null} fetches every chunk and sleeps between chunks.
+     */
+    public void setCandleCache(CandleCache candleCache) {
+        this.candleCache = candleCache;
+    }
+
+    /**
+     * Fetch the chunks of {@link #stream_groww} / {@link #stream_zerodha}
+     * concurrently through {@code scheduler} (rate-limited per provider,
+     * "groww" / "zerodha", and retried); blocks are still delivered in
+     * chronological order and no fixed sleep is added between chunks.
+     * {@code null} fetches chunk after chunk.
+     */
+    public void setFetchScheduler(ChunkFetchScheduler scheduler) {
+        this.fetchScheduler = scheduler;
+    }
+
+    /**
+     * Share Groww / Zerodha fetches with other streams: chunks inside a range
+     * planned on {@code planner} are cut from one fetch of the coalesced range
+     * instead of being fetched per stream. The candle cache and fetch
+     * scheduler, if set, still apply to the planner's fetches.
+     */
+    public void setFetchPlanner(FetchPlanner planner) {
+        this.fetchPlanner = planner;
+    }
+
+    /**
+     * HTTP transport of the Groww / Zerodha fetchers (connection pool,
+     * per-host concurrency cap). {@code null} uses {@link FetchTransport#shared()}.
+     */
+    public void setFetchTransport(FetchTransport transport) {
+        this.fetchTransport = transport;
+    }
+
+    /** Point {@link #stream_zerodha} at another host, e.g. a stub server in tests. */
+    void setZerodhaBaseUrl(String baseUrl) {
+        this.zerodhaBaseUrl = baseUrl;
+    }
+
+    /**
+     * Inflate the entries of each zip on {@code workers} threads in
+     * {@link #stream()} / {@link #stream(String, String)}; snapshots are still
+     * delivered on the calling thread in exact timestamp order. Helps single-
+     * and few-day runs that {@link #streamParallelAcrossZips} cannot split.
+     * {@code <= 1} (the default) keeps inflating on the streaming thread.
+     */
+    public void setEntryWorkers(int workers) {
+        this.entryWorkers = workers;
+    }
+
+    /** Max entries inflated ahead of delivery with {@link #setEntryWorkers}; {@code <= 0} => 4 per worker. */
+    public void setEntryReorderCapacity(int entries) {
+        this.entryReorderCapacity = entries;
+    }
+
+    /**
+     * Pace every stream mode with {@code clock}, e.g.
+     * {@link ReplayClock#atSpeed(double) atSpeed(10)} to replay at ten times
+     * real time from the block timestamps. Replaces the constructor's fixed
+     * {@code delayMs}; {@code null} streams as fast as possible. The clock is
+     * reset when a stream starts, so its lag counters describe the last run.
+     */
+    public void setReplayClock(ReplayClock clock) {
+        this.replayClock = clock;
+    }
+
+    public ReplayClock getReplayClock() {
+        return replayClock;
+    }
+
+    /**
+     * Track the sequential ZIP modes ({@link #stream()}, {@link #stream(String, String)}
+     * and their visitor overloads) in {@code checkpoint}: its cursor advances
+     * after every delivered snapshot and it saves periodically and at the end.
+     * After {@link StreamCheckpoint#resume()} the stream skips zips and entries
+     * up to the restored cursor. {@code null} disables it.
+     */
+    public void setCheckpoint(StreamCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /** Run the stream on the current thread. */
+    public void stream() {
+        streamZips(null, null, callbackSink());
+    }
+
+    /**
+     * Same as {@link #stream()}, but every packet is handed to {@code visitor}
+     * as primitives read from the raw bytes; no Block or packet objects exist.
+     */
+    public void stream(PacketVisitor visitor) {
+        streamZips(null, null, visitorSink(visitor));
     }
 
     /**
@@ -149,90 +312,18 @@ public class StreamHistoricalData {
      * @param isIndex true -> emit IndexPacket; false -> emit StockPacket
      */
     public void stream_zerodha(String enctoken, int instrumentId, int timeFrameMinutes, boolean isIndex) {
-        final HistoricalCandleFetcherZerodha api = new HistoricalCandleFetcherZerodha(enctoken);
-    
-        // Walk the overall [startDate, endDate] range in inclusive 60-day chunks.
-        java.time.LocalDate cursor = startDate;
-        try {
-            while (!cursor.isAfter(endDate)) {
-                // Inclusive chunk end; cap at endDate.
-                java.time.LocalDate chunkEnd = cursor.plusDays(MAX_ZERODHA_DAYS_PER_CALL - 1);
-                if (chunkEnd.isAfter(endDate)) chunkEnd = endDate;
-            
-                final String from = cursor.toString();    // yyyy-MM-dd
-                final String to   = chunkEnd.toString();  // yyyy-MM-dd
-            
-                try {
-                    final java.util.List<HistoricalCandleFetcherZerodha.Candle> candles =
-                            api.fetchCandles(instrumentId, timeFrameMinutes, from, to);
-                
-                    // Emit in chronological order (chunk order + candle order).
-                    for (HistoricalCandleFetcherZerodha.Candle c : candles) {
-                        final long baseMs    = parseZerodhaTsToEpochMs(c.timestamp);
-                        final long epochSec  = baseMs / 1000L;
-                        final double[] ticks = new double[] { c.open, c.low, c.high, c.close };
-                    
-                        for (int i = 0; i < ticks.length; i++) {
-                            final long priceU32 = toU32Price(ticks[i]);
-                        
-                            Block.PacketData pd;
-                            if (isIndex) {
-                                Block.IndexPacket ip = new Block.IndexPacket();
-                                ip.setToken(instrumentId);
-                                ip.setLastTradedPrice(priceU32);
-                                ip.setExchangeTimestamp(epochSec);
-                                pd = ip;
-                            } else {
-                                Block.StockPacket sp = new Block.StockPacket();
-                                sp.setInstrumentToken(instrumentId);
-                                sp.setLastTradedPrice(priceU32);
-                                sp.setExchangeTimestamp(epochSec);
-                                sp.setVolumeTraded(c.volume);
-                                sp.setOpenInterest(c.oi);
-                                sp.setMarketDepth(java.util.Collections.emptyList());
-                                pd = sp;
-                            }
-                        
-                            Block block = new Block(baseMs + i, java.util.Collections.singletonList(pd));
-                            boolean keep = callback.onBlock(block);
-                            if (!keep) {
-                                try { callback.onEnd(); } catch (Exception ignore) {}
-                                return;
-                            }
-                        
-                            if (delayMs >= 0) {
-                                try {
-                                    Thread.sleep(delayMs);
-                                } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                    try { callback.onEnd(); } catch (Exception ignore) {}
-                                    return;
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    // Non-fatal: report and continue to next chunk.
-                    callback.onError(e, rootDir);
-                }
-            
-                // Pause 10s between chunks (but not after the final one).
-                if (chunkEnd.isBefore(endDate)) {
-                    try {
-                        Thread.sleep(CHUNK_THROTTLE_MS);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        try { callback.onEnd(); } catch (Exception ignore) {}
-                        return;
-                    }
-                }
-            
-                // Next chunk starts the day after this chunk's end (no overlap, no gaps).
-                cursor = chunkEnd.plusDays(1);
-            }
-        } finally {
-            try { callback.onEnd(); } catch (Exception ignore) {}
-        }
+        requireCallback();
+        resetClock();
+        final HistoricalCandleFetcherZerodha api =
+                new HistoricalCandleFetcherZerodha(enctoken, zerodhaBaseUrl, fetchTransport);
+
+        streamCandleChunks("zerodha", String.valueOf(instrumentId), timeFrameMinutes, MAX_ZERODHA_DAYS_PER_CALL,
+                (f, t) -> api.fetchSeries(instrumentId, timeFrameMinutes, f.toString(), t.toString()),
+                (s, i) -> {
+                    // intraday: 4 ticks spaced by +i ms for determinism
+                    final long baseMs = s.epochMs(i);
+                    return emitCandle(s, i, instrumentId, isIndex, new long[] { baseMs, baseMs + 1, baseMs + 2, baseMs + 3 });
+                });
     }
 
 
@@ -246,116 +337,185 @@ public class StreamHistoricalData {
      * @param isIndex          true -> emit IndexPacket; false -> emit StockPacket
      */
     public void stream_groww(String stockSymbol, int instrumentId, int timeFrameMinutes, boolean isIndex) {
-        final HistoricalCandleFetcherGroww api = new HistoricalCandleFetcherGroww();
+        requireCallback();
+        resetClock();
+        final HistoricalCandleFetcherGroww api = new HistoricalCandleFetcherGroww(
+                fetchTransport != null ? fetchTransport : FetchTransport.shared());
+        final int chunkDays = timeFrameMinutes == 1440 ? MAX_ZERODHA_DAYS_PER_CALL * 3 : MAX_ZERODHA_DAYS_PER_CALL;
+
+        streamCandleChunks("groww", stockSymbol, timeFrameMinutes, chunkDays,
+                (f, t) -> api.fetchSeries(stockSymbol, f.toString(), t.toString(), timeFrameMinutes),
+                (s, i) -> {
+                    final long baseMs = s.epochMs(i);
+
+                    // for daily candles, place the 4 ticks at 09:15, 11:00, 14:00, 15:30 IST
+                    final long[] tickTimesMs;
+                    if (timeFrameMinutes == 1440) {
+                        java.time.LocalDate day = java.time.Instant.ofEpochMilli(baseMs)
+                                .atZone(DEFAULT_ZONE)
+                                .toLocalDate();
+
+                        tickTimesMs = new long[] {
+                                java.time.ZonedDateTime.of(day, java.time.LocalTime.of(9, 15),  DEFAULT_ZONE).toInstant().toEpochMilli(),
+                                java.time.ZonedDateTime.of(day, java.time.LocalTime.of(11, 0),  DEFAULT_ZONE).toInstant().toEpochMilli(),
+                                java.time.ZonedDateTime.of(day, java.time.LocalTime.of(14, 0),  DEFAULT_ZONE).toInstant().toEpochMilli(),
+                                java.time.ZonedDateTime.of(day, java.time.LocalTime.of(15, 30), DEFAULT_ZONE).toInstant().toEpochMilli()
+                        };
+                    } else {
+                        // intraday: keep previous behavior (4 ticks spaced by +i ms for determinism)
+                        tickTimesMs = new long[] { baseMs, baseMs + 1, baseMs + 2, baseMs + 3 };
+                    }
+                    return emitCandle(s, i, instrumentId, isIndex, tickTimesMs); // Groww has no OI (0)
+                });
+    }
+
     
-        java.time.LocalDate cursor = startDate;
+    // ---- helpers (keep inside StreamHistoricalData) ----
+
+    /** Emits the blocks of candle {@code i}; returns false to stop the stream. */
+    private interface CandleEmitter {
+        boolean emit(CandleSeries series, int i);
+    }
+
+    /**
+     * Walk [startDate, endDate] in inclusive {@code chunkDays}-day chunks and
+     * emit every chunk's candles in chronological order (chunk order + candle
+     * order). Chunks are fetched one after another, with a pause between them
+     * unless a {@link CandleCache} throttles its own calls, or concurrently
+     * through the {@link ChunkFetchScheduler} when one is set. With a
+     * {@link FetchPlanner} the chunks are cut from its shared fetches, and the
+     * chunks never asked for (the callback stopped, interrupt) are released
+     * back to it. A failed chunk is reported to {@code onError} and skipped.
+     */
+    private void streamCandleChunks(String source, String key, int timeFrameMinutes, int chunkDays,
+            CandleCache.Loader api, CandleEmitter emitter) {
+        // Next chunk starts the day after the previous chunk's end (no overlap, no gaps).
+        final java.util.List<LocalDate[]> chunks = new ArrayList<>();
+        for (LocalDate cursor = startDate; !cursor.isAfter(endDate); ) {
+            LocalDate chunkEnd = cursor.plusDays(chunkDays - 1);
+            if (chunkEnd.isAfter(endDate)) chunkEnd = endDate;
+            chunks.add(new LocalDate[] { cursor, chunkEnd });
+            cursor = chunkEnd.plusDays(1);
+        }
+
+        // one chunk's candles: from the planner, the cache or the network, throttled by whichever applies
+        final CandleCache.Loader net = fetchScheduler == null
+                ? api
+                : (f, t) -> fetchScheduler.call(source, () -> api.load(f, t));
+        final CandleCache.Loader cached = candleCache == null
+                ? net
+                : (f, t) -> candleCache.candles(source, key, timeFrameMinutes, f, t, chunkDays, net, fetchScheduler == null);
+        final CandleCache.Loader load;
+        final boolean pauseBetweenChunks;
+        // chunk starts the planner has counted (it counts every call, however it ends)
+        final java.util.Set<LocalDate> requested = java.util.concurrent.ConcurrentHashMap.newKeySet();
+        if (fetchPlanner != null) {
+            final long spacingMs = candleCache == null && fetchScheduler == null ? CHUNK_THROTTLE_MS : 0;
+            load = (f, t) -> {
+                requested.add(f);
+                return fetchPlanner.candles(source, key, timeFrameMinutes, f, t, chunkDays, cached, spacingMs);
+            };
+            pauseBetweenChunks = false; // the planner spaces its own calls
+        } else {
+            load = cached;
+            pauseBetweenChunks = candleCache == null && fetchScheduler == null;
+        }
+
         try {
-            while (!cursor.isAfter(endDate)) {
-                java.time.LocalDate chunkEnd = cursor.plusDays(MAX_ZERODHA_DAYS_PER_CALL - 1);
-                if (timeFrameMinutes == 1440) {
-                    chunkEnd = cursor.plusDays(MAX_ZERODHA_DAYS_PER_CALL*3 - 1);
+            if (fetchScheduler != null) {
+                java.util.List<java.util.concurrent.Callable<CandleSeries>> tasks = new ArrayList<>(chunks.size());
+                for (LocalDate[] c : chunks) {
+                    tasks.add(() -> load.load(c[0], c[1]));
                 }
-                if (chunkEnd.isAfter(endDate)) chunkEnd = endDate;
-            
-                final String fromIst = cursor.toString();   // yyyy-MM-dd
-                final String toIst   = chunkEnd.toString(); // yyyy-MM-dd
-            
-                try {
-                    final java.util.List<HistoricalCandleFetcherZerodha.Candle> candles =
-                            api.fetchCandlesAsZerodhaPojo(stockSymbol, fromIst, toIst, timeFrameMinutes);
-                
-                    for (HistoricalCandleFetcherZerodha.Candle c : candles) {
-                        final long baseMs   = parseZerodhaTsToEpochMs(c.timestamp); // "yyyy-MM-dd'T'HH:mm:ss+0530"
-                    
-                        // --- NEW: for daily candles, place the 4 ticks at 09:15, 11:00, 14:00, 15:30 IST ---
-                        final long[] tickTimesMs;
-                        if (timeFrameMinutes == 1440) {
-                            java.time.LocalDate day = java.time.Instant.ofEpochMilli(baseMs)
-                                    .atZone(DEFAULT_ZONE)
-                                    .toLocalDate();
-                        
-                            tickTimesMs = new long[] {
-                                    java.time.ZonedDateTime.of(day, java.time.LocalTime.of(9, 15),  DEFAULT_ZONE).toInstant().toEpochMilli(),
-                                    java.time.ZonedDateTime.of(day, java.time.LocalTime.of(11, 0),  DEFAULT_ZONE).toInstant().toEpochMilli(),
-                                    java.time.ZonedDateTime.of(day, java.time.LocalTime.of(14, 0),  DEFAULT_ZONE).toInstant().toEpochMilli(),
-                                    java.time.ZonedDateTime.of(day, java.time.LocalTime.of(15, 30), DEFAULT_ZONE).toInstant().toEpochMilli()
-                            };
-                        } else {
-                            // intraday: keep previous behavior (4 ticks spaced by +i ms for determinism)
-                            tickTimesMs = new long[] { baseMs, baseMs + 1, baseMs + 2, baseMs + 3 };
-                        }
-                    
-                        final double[] ticks = new double[] { c.open, c.low, c.high, c.close };
-                    
-                        for (int i = 0; i < ticks.length; i++) {
-                            final long tsMs    = tickTimesMs[i];
-                            final long epochSec = tsMs / 1000L;
-                            final long priceU32 = toU32Price(ticks[i]);
-                        
-                            Block.PacketData pd;
-                            if (isIndex) {
-                                Block.IndexPacket ip = new Block.IndexPacket();
-                                ip.setToken(instrumentId);
-                                ip.setLastTradedPrice(priceU32);
-                                ip.setExchangeTimestamp(epochSec);
-                                pd = ip;
-                            } else {
-                                Block.StockPacket sp = new Block.StockPacket();
-                                sp.setInstrumentToken(instrumentId);
-                                sp.setLastTradedPrice(priceU32);
-                                sp.setExchangeTimestamp(epochSec);
-                                sp.setVolumeTraded(c.volume);
-                                sp.setOpenInterest(c.oi); // 0L via adapter
-                                sp.setMarketDepth(java.util.Collections.emptyList());
-                                pd = sp;
-                            }
-                        
-                            Block block = new Block(tsMs, java.util.Collections.singletonList(pd));
-                            boolean keep = callback.onBlock(block);
-                            if (!keep) {
-                                try { callback.onEnd(); } catch (Exception ignore) {}
-                                return;
-                            }
-                        
-                            if (delayMs >= 0) {
-                                try { Thread.sleep(delayMs); }
-                                catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                    try { callback.onEnd(); } catch (Exception ignore) {}
-                                    return;
-                                }
-                            }
+                fetchScheduler.run(tasks, new ChunkFetchScheduler.Sink<CandleSeries>() {
+                    @Override
+                    public boolean onResult(int chunk, CandleSeries candles) {
+                        for (int i = 0; i < candles.size(); i++) {
+                            if (!emitter.emit(candles, i)) return false;
                         }
+                        return true;
+                    }
+
+                    @Override
+                    public boolean onFailure(int chunk, Exception error) {
+                        // Non-fatal: report and continue to next chunk.
+                        callback.onError(error, rootDir);
+                        return true;
                     }
+                });
+                return;
+            }
+
+            for (int i = 0; i < chunks.size(); i++) {
+                final LocalDate[] c = chunks.get(i);
+                try {
+                    final CandleSeries candles = load.load(c[0], c[1]);
+                    for (int k = 0; k < candles.size(); k++) {
+                        if (!emitter.emit(candles, k)) return;
+                    }
+                } catch (InterruptedException ie) {
+                    // interrupted while the cache throttled a call
+                    Thread.currentThread().interrupt();
+                    return;
                 } catch (Exception e) {
                     // Non-fatal: report and continue to next chunk.
                     callback.onError(e, rootDir);
                 }
-            
-                if (chunkEnd.isBefore(endDate)) {
-                    try { Thread.sleep(CHUNK_THROTTLE_MS); }
-                    catch (InterruptedException ie) {
+
+                // Pause 10s between chunks (but not after the final one); the cache / planner throttle their own calls.
+                if (pauseBetweenChunks && i < chunks.size() - 1) {
+                    try {
+                        Thread.sleep(CHUNK_THROTTLE_MS);
+                    } catch (InterruptedException ie) {
                         Thread.currentThread().interrupt();
-                        try { callback.onEnd(); } catch (Exception ignore) {}
                         return;
                     }
                 }
-            
-                cursor = chunkEnd.plusDays(1);
             }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
         } finally {
+            if (fetchPlanner != null) {
+                // the scheduler has unwound its chunks by now: whatever was not asked for never will be
+                for (LocalDate[] c : chunks) {
+                    if (!requested.contains(c[0])) fetchPlanner.release(source, key, timeFrameMinutes, c[0], c[1]);
+                }
+            }
             try { callback.onEnd(); } catch (Exception ignore) {}
         }
     }
 
-    
-    // ---- helpers (keep inside StreamHistoricalData) ----
-    
-    // Zerodha timestamps look like "2025-09-05T09:15:00+0530" (offset without colon).
-    private static long parseZerodhaTsToEpochMs(String ts) {
-        java.time.format.DateTimeFormatter F =
-                java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
-        return java.time.ZonedDateTime.parse(ts, F).toInstant().toEpochMilli();
+    /** Deliver candle {@code c} of {@code s} as 4 single-packet Blocks (O, L, H, C) at {@code tickTimesMs}. */
+    private boolean emitCandle(CandleSeries s, int c, int instrumentId, boolean isIndex, long[] tickTimesMs) {
+        final double[] ticks = new double[] { s.open(c), s.low(c), s.high(c), s.close(c) };
+
+        for (int i = 0; i < ticks.length; i++) {
+            final long tsMs     = tickTimesMs[i];
+            final long epochSec = tsMs / 1000L;
+            final long priceU32 = toU32Price(ticks[i]);
+
+            Block.PacketData pd;
+            if (isIndex) {
+                Block.IndexPacket ip = new Block.IndexPacket();
+                ip.setToken(instrumentId);
+                ip.setLastTradedPrice(priceU32);
+                ip.setExchangeTimestamp(epochSec);
+                pd = ip;
+            } else {
+                Block.StockPacket sp = new Block.StockPacket();
+                sp.setInstrumentToken(instrumentId);
+                sp.setLastTradedPrice(priceU32);
+                sp.setExchangeTimestamp(epochSec);
+                sp.setVolumeTraded(s.volume(c));
+                sp.setOpenInterest(s.oi(c));
+                sp.setMarketDepth(java.util.Collections.emptyList());
+                pd = sp;
+            }
+
+            Block block = new Block(tsMs, java.util.Collections.singletonList(pd));
+            if (!pause(block.getTimeStamp()) || !callback.onBlock(block)) return false;
+        }
+        return true;
     }
     
     // Use paise as the wire unit by default (×100). Adjust if your payload expects a different scale.
@@ -370,165 +530,731 @@ public class StreamHistoricalData {
     public void stream(String startTime, String endTime) {
         LocalTime start = parseTimeFlexible(startTime);
         LocalTime end = parseTimeFlexible(endTime);
+        streamZips(start, end, callbackSink());
+    }
+
+    /** Time-filtered {@link #stream(PacketVisitor)}. */
+    public void stream(String startTime, String endTime, PacketVisitor visitor) {
+        LocalTime start = parseTimeFlexible(startTime);
+        LocalTime end = parseTimeFlexible(endTime);
+        streamZips(start, end, visitorSink(visitor));
+    }
+
+    /** Shared sequential ZIP loop; {@code start}/{@code end} null => whole day. */
+    private void streamZips(LocalTime start, LocalTime end, SnapshotSink sink) {
         ZoneId zone = DEFAULT_ZONE;
+        resetClock();
+
+        List<Path> zips = listCandidateZips(sink);
+        zips.sort(Comparator.comparing(p -> p.getFileName().toString(), ZIP_ORDER));
 
-        List<Path> zips = listCandidateZips();
-        zips.sort(Comparator
-                .comparing((Path p) -> extractDate(p.getFileName().toString()))
-                .thenComparing(p -> p.getFileName().toString(), String.CASE_INSENSITIVE_ORDER));
-
-        outer:
-        for (Path zipPath : zips) {
-            try (ZipFile zf = new ZipFile(zipPath.toFile())) {
-                List<BinEntry> bins = new ArrayList<>();
-                Enumeration<? extends ZipEntry> en = zf.entries();
-                while (en.hasMoreElements()) {
-                    ZipEntry ze = en.nextElement();
-                    if (ze.isDirectory()) continue;
-                    String name = ze.getName();
-                    if (!name.toLowerCase(Locale.ROOT).endsWith(".bin")) continue;
-
-                    long ts = extractTimestampFromEntry(ze, zipPath);
-                    // --- NEW: filter by time-of-day window before reading payload ---
-                    if (!isWithinWindow(ts, start, end, zone)) continue;
-
-                    bins.add(new BinEntry(ze, ts));
+        // resume: skip whole zips before the cursor's zip and its entries up to the cursor
+        final StreamCheckpoint.Cursor resumeFrom = checkpoint != null ? checkpoint.getResumeCursor() : null;
+        final String[] currentZip = new String[1];
+        if (checkpoint != null) sink = checkpointing(sink, currentZip);
+        final SnapshotSink out = sink;
+
+        final BlockView view = new BlockView().setFilter(tokenFilter);
+        final EntryBuffer entryBuffer = new EntryBuffer();
+        final ParallelEntryReader entryReader = entryWorkers > 1
+                ? new ParallelEntryReader(entryWorkers,
+                        entryReorderCapacity > 0 ? entryReorderCapacity : 4 * entryWorkers, tokenFilter)
+                : null;
+        // workers already dropped truncated / unwanted snapshots
+        final ParallelEntryReader.Delivery deliver = (epochMs, payload) ->
+                !view.wrap(payload, epochMs) || (pause(epochMs) && out.onSnapshot(view));
+
+        try {
+            outer:
+            for (Path zipPath : zips) {
+                final String zipName = zipPath.getFileName().toString();
+                long after = Long.MIN_VALUE; // deliver entries stamped after this
+                if (resumeFrom != null && resumeFrom.getZip() != null) {
+                    int cmp = ZIP_ORDER.compare(zipName, resumeFrom.getZip());
+                    if (cmp < 0) continue;
+                    if (cmp == 0) after = resumeFrom.getTimestamp();
                 }
+                currentZip[0] = zipName;
 
-                bins.sort(Comparator.comparingLong(b -> b.epochMs));
+                if (tickCache != null) {
+                    try {
+                        // first run fills the cache from the zip; later runs replay the map
+                        TickCache.Cursor cursor = tickCache.open(zipPath, tokenFilter, w -> readEntries(zipPath, w::add));
+                        while (cursor.next()) {
+                            long ts = cursor.timestamp();
+                            if (ts <= after || !isWithinWindow(ts, start, end, zone)) continue;
+                            if (view.wrap(cursor.payload(), ts) && hasWantedPackets(view)) {
+                                if (!pause(ts) || !out.onSnapshot(view)) break outer;
+                            }
+                        }
+                    } catch (Exception e) {
+                        out.onError(e, zipPath);
+                    }
+                    continue;
+                }
+
+                ZipEntryIndex index = loadZipIndex(zipPath);
+                if (index != null && entryReader != null) {
+                    try {
+                        int[] entries = entriesAfter(index, windowEntries(index, start, end, zone), after);
+                        long[] ts = new long[entries.length];
+                        for (int i = 0; i < entries.length; i++) ts[i] = index.timestamp(entries[i]);
+                        boolean keepGoing = entryReader.run(ts, () -> {
+                            ZipEntryIndex.Reader reader = index.openReader();
+                            return new ParallelEntryReader.EntryReader() {
+                                @Override
+                                public ByteBuffer read(int seq) throws IOException {
+                                    return reader.read(entries[seq]);
+                                }
 
-                for (BinEntry be : bins) {
-                    byte[] payload;
-                    try (InputStream is = zf.getInputStream(be.entry)) {
-                        payload = readAllBytes(is);
+                                @Override
+                                public void close() throws IOException {
+                                    reader.close();
+                                }
+                            };
+                        }, deliver);
+                        if (!keepGoing) break outer;
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    } catch (Exception e) {
+                        out.onError(e, zipPath);
+                    }
+                    continue;
+                }
+                if (index != null) {
+                    try (ZipEntryIndex.Reader reader = index.openReader()) {
+                        // binary-search the time window instead of scanning every entry
+                        for (long[] range : windowRanges(index, start, end, zone)) {
+                            int to = range[1] == Long.MAX_VALUE ? index.size() : index.lowerBound(range[1] + 1);
+                            for (int i = index.lowerBound(Math.max(range[0], after + 1)); i < to; i++) {
+                                if (view.wrap(reader.read(i), index.timestamp(i)) && hasWantedPackets(view)) {
+                                    if (!pause(index.timestamp(i)) || !out.onSnapshot(view)) break outer;
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        out.onError(e, zipPath);
+                    }
+                    continue;
+                }
+
+                try (ZipFile zf = new ZipFile(zipPath.toFile())) {
+                    List<BinEntry> bins = new ArrayList<>();
+                    Enumeration<? extends ZipEntry> en = zf.entries();
+                    while (en.hasMoreElements()) {
+                        ZipEntry ze = en.nextElement();
+                        if (ze.isDirectory()) continue;
+                        String name = ze.getName();
+                        if (!name.toLowerCase(Locale.ROOT).endsWith(".bin")) continue;
+
+                        long ts = extractTimestampFromEntry(ze, zipPath); // <-- strict + fallback
+                        // filter by time-of-day window (and resume cursor) before reading payload
+                        if (ts <= after || !isWithinWindow(ts, start, end, zone)) continue;
+
+                        bins.add(new BinEntry(ze, ts));
                     }
 
-                    Optional<Block> maybe = BlockUtils.parseBinToBlock(payload, be.epochMs);
-                    if (maybe.isPresent()) {
-                        boolean keepGoing = callback.onBlock(maybe.get());
+                    bins.sort(Comparator.comparingLong(b -> b.epochMs));
+
+                    if (entryReader != null) {
+                        long[] ts = new long[bins.size()];
+                        for (int i = 0; i < ts.length; i++) ts[i] = bins.get(i).epochMs;
+                        // one ZipFile per worker, entries looked up by name
+                        boolean keepGoing = entryReader.run(ts, () -> {
+                            ZipFile own = new ZipFile(zipPath.toFile());
+                            EntryBuffer buffer = new EntryBuffer();
+                            return new ParallelEntryReader.EntryReader() {
+                                @Override
+                                public ByteBuffer read(int seq) throws IOException {
+                                    ZipEntry ze = bins.get(seq).entry;
+                                    try (InputStream is = own.getInputStream(own.getEntry(ze.getName()))) {
+                                        return buffer.read(is, ze.getSize());
+                                    }
+                                }
+
+                                @Override
+                                public void close() throws IOException {
+                                    own.close();
+                                }
+                            };
+                        }, deliver);
                         if (!keepGoing) break outer;
+                        continue;
+                    }
 
-                        if (delayMs >= 0) {
-                            try { Thread.sleep(delayMs); }
-                            catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                                break outer;
-                            }
+                    for (BinEntry be : bins) {
+                        ByteBuffer payload;
+                        try (InputStream is = zf.getInputStream(be.entry)) {
+                            payload = entryBuffer.read(is, be.entry.getSize());
+                        }
+
+                        if (view.wrap(payload, be.epochMs) && hasWantedPackets(view)) {
+                            if (!pause(be.epochMs)) break outer;
+
+                            boolean keepGoing = out.onSnapshot(view);
+                            if (!keepGoing) break outer;
                         }
                     }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    out.onError(e, zipPath);
                 }
-            } catch (Exception e) {
-                callback.onError(e, zipPath);
             }
+        } finally {
+            if (entryReader != null) entryReader.close();
         }
 
-        try { callback.onEnd(); } catch (Exception ignore) {}
+        try { out.onEnd(); } catch (Exception ignore) {}
     }
 
-    // Add to StreamHistoricalData
+    /**
+     * Inflate zips on {@code workers} threads while a single dispatcher delivers
+     * snapshots to the callback in strict chronological order.
+     *
+     * At most {@link #setParallelWindow window} zips are in flight at once, and
+     * each buffers at most {@link #setParallelQueueCapacity capacity} snapshots;
+     * producers block when their queue is full. Both default from cores and
+     * max heap. Counters of the run are available from {@link #getLastParallelStats()}.
+     */
     public void streamParallelAcrossZips(int workers) {
-        final List<Path> zips = listCandidateZips();
-        zips.sort(Comparator
-                .comparing((Path p) -> extractDate(p.getFileName().toString()))
-                .thenComparing(p -> p.getFileName().toString(), String.CASE_INSENSITIVE_ORDER));
+        streamParallelAcrossZips(workers, callbackSink());
+    }
+
+    /** {@link #streamParallelAcrossZips(int)} feeding a {@link PacketVisitor}. */
+    public void streamParallelAcrossZips(int workers, PacketVisitor visitor) {
+        streamParallelAcrossZips(workers, visitorSink(visitor));
+    }
+
+    /** Max zips inflating or buffered ahead of the dispatcher; {@code <= 0} => derive from cores/heap. */
+    public void setParallelWindow(int zips) {
+        this.parallelWindow = zips;
+    }
+
+    /** Max snapshots buffered per in-flight zip; {@code <= 0} => derive from heap. */
+    public void setParallelQueueCapacity(int snapshots) {
+        this.parallelQueueCapacity = snapshots;
+    }
+
+    /** Stats of the last {@code streamParallelAcrossZips} run, or null. */
+    public ParallelStreamStats getLastParallelStats() {
+        return lastParallelStats;
+    }
+
+    private void streamParallelAcrossZips(int workers, SnapshotSink sink) {
+        resetClock();
+        final List<Path> zips = listCandidateZips(sink);
+        zips.sort(Comparator.comparing(p -> p.getFileName().toString(), ZIP_ORDER));
 
         final int n = zips.size();
+        final int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        final int capacity = parallelQueueCapacity > 0 ? parallelQueueCapacity : defaultQueueCapacity();
+        final int window = Math.min(Math.max(1, n),
+                parallelWindow > 0 ? parallelWindow : defaultWindow(threads, capacity));
+        final ParallelStreamStats stats = new ParallelStreamStats(window, capacity);
+        lastParallelStats = stats;
+
         if (n == 0) {
-            callback.onEnd();
+            sink.onEnd();
             return;
         }
 
         final java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors
-                .newFixedThreadPool(Math.max(1, workers));
+                .newFixedThreadPool(Math.min(threads, window));
         final java.util.concurrent.atomic.AtomicBoolean stop = new java.util.concurrent.atomic.AtomicBoolean(false);
 
-        // one queue per zip; producers fill, dispatcher drains in zip order
+        // one bounded queue per in-flight zip; producers fill, dispatcher drains in zip order
         final Object END = new Object();
         final java.util.concurrent.BlockingQueue<Object>[] queues = new java.util.concurrent.BlockingQueue[n];
-        for (int i = 0; i < n; i++)
-            queues[i] = new java.util.concurrent.LinkedBlockingQueue<>();
 
-        // producer task per zip
-        for (int i = 0; i < n; i++) {
-            final int zipIdx = i;
-            final Path zipPath = zips.get(i);
+        // producer task per zip, submitted only once it enters the window
+        final java.util.function.IntConsumer submit = zipIdx -> {
+            final Path zipPath = zips.get(zipIdx);
+            final java.util.concurrent.BlockingQueue<Object> queue =
+                    new java.util.concurrent.ArrayBlockingQueue<>(capacity);
+            queues[zipIdx] = queue;
             pool.submit(() -> {
-                try (java.util.zip.ZipFile zf = new java.util.zip.ZipFile(zipPath.toFile())) {
-                    // collect and sort .bin entries by strict timestamp
-                    java.util.List<java.util.zip.ZipEntry> entries = new java.util.ArrayList<>();
-                    for (java.util.Enumeration<? extends java.util.zip.ZipEntry> en = zf.entries(); en
-                            .hasMoreElements();) {
-                        var ze = en.nextElement();
-                        if (ze.isDirectory())
-                            continue;
-                        if (!ze.getName().toLowerCase(java.util.Locale.ROOT).endsWith(".bin"))
-                            continue;
-                        entries.add(ze);
-                    }
-                    entries.sort(java.util.Comparator.comparingLong(e -> extractTimestampFromEntry(e, zipPath)));
-
-                    for (java.util.zip.ZipEntry be : entries) {
-                        if (stop.get())
-                            break;
-                        byte[] payload;
-                        try (java.io.InputStream is = zf.getInputStream(be)) {
-                            payload = readAllBytes(is);
+                ZipEntryIndex index = tickCache == null ? loadZipIndex(zipPath) : null;
+                try (java.util.zip.ZipFile zf = tickCache == null && index == null
+                        ? new java.util.zip.ZipFile(zipPath.toFile()) : null) {
+                    if (tickCache != null) {
+                        TickCache.Cursor cursor = tickCache.open(zipPath, tokenFilter,
+                                w -> readEntries(zipPath, w::add));
+                        while (cursor.next() && !stop.get()) {
+                            ByteBuffer buf = cursor.payload();
+                            byte[] payload = new byte[buf.remaining()];
+                            buf.get(payload);
+                            if (!putBounded(queue, new Snapshot(cursor.timestamp(), payload), stop, stats))
+                                break;
+                        }
+                    } else if (index != null) {
+                        // sorted entries + raw offsets from the sidecar: no directory scan
+                        try (ZipEntryIndex.Reader reader = index.openReader()) {
+                            for (int e = 0; e < index.size() && !stop.get(); e++) {
+                                ByteBuffer buf = reader.read(e);
+                                byte[] payload = new byte[buf.remaining()];
+                                buf.get(payload);
+                                if (!putBounded(queue, new Snapshot(index.timestamp(e), payload), stop, stats))
+                                    break;
+                            }
+                        }
+                    } else {
+                        // collect .bin entries, parse each timestamp once, then sort
+                        java.util.List<BinEntry> entries = new java.util.ArrayList<>();
+                        for (java.util.Enumeration<? extends java.util.zip.ZipEntry> en = zf.entries(); en
+                                .hasMoreElements();) {
+                            var ze = en.nextElement();
+                            if (ze.isDirectory())
+                                continue;
+                            if (!ze.getName().toLowerCase(java.util.Locale.ROOT).endsWith(".bin"))
+                                continue;
+                            entries.add(new BinEntry(ze, extractTimestampFromEntry(ze, zipPath)));
+                        }
+                        entries.sort(java.util.Comparator.comparingLong(b -> b.epochMs));
+
+                        for (BinEntry be : entries) {
+                            if (stop.get())
+                                break;
+                            byte[] payload;
+                            try (java.io.InputStream is = zf.getInputStream(be.entry)) {
+                                payload = readAllBytes(is);
+                            }
+                            // raw bytes only; the dispatcher wraps them in a reusable view
+                            if (!putBounded(queue, new Snapshot(be.epochMs, payload), stop, stats))
+                                break;
                         }
-                        long ts = extractTimestampFromEntry(be, zipPath);
-                        var maybe = BlockUtils.parseBinToBlock(payload, ts);
-                        // even on parse failure we just skip (like single-thread version)
-                        maybe.ifPresent(block -> queues[zipIdx].offer(block));
                     }
+                    stats.zipRead();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
                 } catch (Exception e) {
-                    callback.onError(e, zipPath);
+                    sink.onError(e, zipPath);
                 } finally {
                     // signal end of this zip
-                    queues[zipIdx].offer(END);
+                    try {
+                        putBounded(queue, END, stop, stats);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
                 }
             });
-        }
+        };
+        for (int i = 0; i < window; i++)
+            submit.accept(i);
 
         // single-threaded dispatcher: drains queues in sorted zip order, preserving
         // determinism
+        final BlockView view = new BlockView().setFilter(tokenFilter);
         try {
             for (int i = 0; i < n && !stop.get(); i++) {
+                final java.util.concurrent.BlockingQueue<Object> queue = queues[i];
                 while (!stop.get()) {
-                    Object item = queues[i].take(); // blocks until block or END
+                    stats.queueDepth(queue.size());
+                    Object item = queue.poll();
+                    if (item == null) {
+                        long waitStart = System.nanoTime();
+                        item = queue.take(); // blocks until block or END
+                        stats.dispatcherStalled(System.nanoTime() - waitStart);
+                    }
                     if (item == END)
                         break;
-                    Block b = (Block) item;
-                    boolean keep = callback.onBlock(b);
-                    if (!keep) {
+                    Snapshot snap = (Snapshot) item;
+                    // on parse failure we just skip (like single-thread version)
+                    if (!view.wrap(snap.payload, snap.epochMs) || !hasWantedPackets(view))
+                        continue;
+                    if (!pause(snap.epochMs) || !sink.onSnapshot(view)) {
                         stop.set(true);
                         break;
                     }
-                    if (delayMs >= 0) {
-                        try {
-                            Thread.sleep(delayMs);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            stop.set(true);
-                            break;
-                        }
-                    }
                 }
+                // zip i is done: release its queue and admit the next zip into the window
+                queues[i] = null;
+                if (!stop.get() && i + window < n)
+                    submit.accept(i + window);
             }
         } catch (InterruptedException ie) {
             Thread.currentThread().interrupt();
         } finally {
+            stop.set(true);
             pool.shutdownNow();
             try {
-                callback.onEnd();
+                sink.onEnd();
             } catch (Exception ignore) {
             }
         }
     }
 
+    /**
+     * Replay pre-converted {@link ColumnarDayFile}s
+     * ({@code <fileCode>_<dd-MM-yy>.tcol} under rootDir, see
+     * {@link ColumnarDayFile#convert}) as Blocks. Days without a file are
+     * skipped. Only the columnar fields are populated.
+     */
+    public void stream_columnar() {
+        final BlockCallback cb = requireCallback();
+        resetClock();
+        final BlockCallback paced = block -> pause(block.getTimeStamp()) && cb.onBlock(block);
+        try {
+            for (Path file : listColumnarFiles()) {
+                try (ColumnarDayFile.Reader reader = ColumnarDayFile.Reader.open(file)) {
+                    if (!reader.replay(tokenFilter, paced)) break;
+                } catch (Exception e) {
+                    cb.onError(e, file);
+                }
+            }
+        } finally {
+            try { cb.onEnd(); } catch (Exception ignore) {}
+        }
+    }
+
+    /** {@link #stream_columnar()} feeding a {@link PacketVisitor}; every column but depth is read. */
+    public void stream_columnar(PacketVisitor visitor) {
+        stream_columnar(EnumSet.complementOf(EnumSet.of(ColumnarDayFile.Column.DEPTH)), visitor);
+    }
+
+    /**
+     * Columnar replay that only maps and decodes {@code columns}, e.g.
+     * {@code EnumSet.of(Column.LTP)} for an LTP-only pass. Fields of other
+     * columns are passed to the visitor as 0.
+     */
+    public void stream_columnar(Set<ColumnarDayFile.Column> columns, PacketVisitor visitor) {
+        Objects.requireNonNull(columns, "columns");
+        Objects.requireNonNull(visitor, "visitor");
+        resetClock();
+        // the clock is consulted before the first packet of each block
+        final PacketVisitor paced = new PacketVisitor() {
+            private boolean due;
+            private boolean interrupted;
+
+            private void awaitBlock(long blockTs) {
+                if (!due) {
+                    due = true;
+                    interrupted = !pause(blockTs);
+                }
+            }
+
+            @Override
+            public void onStockTick(long blockTs, int token, int ltpPaise, int ltq, long volume,
+                    long openInterest, long exchangeTs) {
+                awaitBlock(blockTs);
+                visitor.onStockTick(blockTs, token, ltpPaise, ltq, volume, openInterest, exchangeTs);
+            }
+
+            @Override
+            public void onIndexTick(long blockTs, int token, int ltpPaise, int openPaise, int highPaise,
+                    int lowPaise, int closePaise, long exchangeTs) {
+                awaitBlock(blockTs);
+                visitor.onIndexTick(blockTs, token, ltpPaise, openPaise, highPaise, lowPaise, closePaise, exchangeTs);
+            }
+
+            @Override
+            public boolean onBlockEnd(long blockTs) {
+                awaitBlock(blockTs);
+                due = false;
+                return visitor.onBlockEnd(blockTs) && !interrupted;
+            }
+        };
+        try {
+            for (Path file : listColumnarFiles()) {
+                try (ColumnarDayFile.Reader reader = ColumnarDayFile.Reader.open(file)) {
+                    if (!reader.replay(columns, tokenFilter, paced)) break;
+                } catch (Exception e) {
+                    visitor.onError(e, file);
+                }
+            }
+        } finally {
+            try { visitor.onEnd(); } catch (Exception ignore) {}
+        }
+    }
+
+    /**
+     * Replay bars of a {@link BarStore} (rootDir = the store dir) as synthetic
+     * ticks: {@code path} picks the prices of each bar, spread between the
+     * first and last snapshot the bar was built from. Each Block carries every
+     * token's bar of that start; stock packets carry the day volume and OI,
+     * index packets only the LTP. Days missing from the store are skipped.
+     */
+    public void stream_bars(BarStore.Resolution resolution, BarStore.IntrabarPath path) {
+        Objects.requireNonNull(resolution, "resolution");
+        Objects.requireNonNull(path, "path");
+        final BlockCallback cb = requireCallback();
+        resetClock();
+        final BlockCallback paced = block -> pause(block.getTimeStamp()) && cb.onBlock(block);
+        try {
+            Path dir = rootDir.resolve(resolution.getLabel());
+            for (LocalDate d = startDate; !d.isAfter(endDate); d = d.plusDays(1)) {
+                Path file = dir.resolve(BarStore.fileName(fileCode, d));
+                if (!Files.isRegularFile(file)) continue;
+                try {
+                    if (!BarStore.replay(file, tokenFilter, path, paced)) break;
+                } catch (Exception e) {
+                    cb.onError(e, file);
+                }
+            }
+        } finally {
+            try { cb.onEnd(); } catch (Exception ignore) {}
+        }
+    }
+
     // ---------- internals ----------
 
-    private List<Path> listCandidateZips() {
+    /**
+     * Hold the snapshot stamped {@code epochMs} until the replay clock says it
+     * is due; called before the snapshot is delivered.
+     *
+     * @return false if interrupted (the stream should stop)
+     */
+    private boolean pause(long epochMs) {
+        return replayClock == null || replayClock.await(epochMs);
+    }
+
+    private void resetClock() {
+        if (replayClock != null) replayClock.reset();
+    }
+
+    // rough size of one NIFTY_100 snapshot (~100 x 186 bytes) used to size read-ahead
+    private static final int EST_SNAPSHOT_BYTES = 32 * 1024;
+
+    /** Snapshots per zip queue: 1/16 of max heap spread over a default window, clamped to [16, 1024]. */
+    private static int defaultQueueCapacity() {
+        long budget = Runtime.getRuntime().maxMemory() / 16;
+        int window = Runtime.getRuntime().availableProcessors() + 1;
+        long perQueue = budget / ((long) window * EST_SNAPSHOT_BYTES);
+        return (int) Math.max(16, Math.min(1024, perQueue));
+    }
+
+    /** One zip ahead of every worker, capped so buffered snapshots stay within 1/4 of max heap. */
+    private static int defaultWindow(int threads, int capacity) {
+        long budget = Runtime.getRuntime().maxMemory() / 4;
+        long byMemory = budget / ((long) capacity * EST_SNAPSHOT_BYTES);
+        return (int) Math.max(1, Math.min(threads + 1L, byMemory));
+    }
+
+    /**
+     * Blocking put that gives up once {@code stop} is set, so producers never
+     * hang on a queue the dispatcher abandoned. Time spent blocked is recorded.
+     *
+     * @return false if the stream was stopped
+     */
+    private static boolean putBounded(java.util.concurrent.BlockingQueue<Object> queue, Object item,
+            java.util.concurrent.atomic.AtomicBoolean stop, ParallelStreamStats stats) throws InterruptedException {
+        if (queue.offer(item))
+            return true;
+        long waitStart = System.nanoTime();
+        try {
+            while (!stop.get()) {
+                if (queue.offer(item, 50, java.util.concurrent.TimeUnit.MILLISECONDS))
+                    return true;
+            }
+            return false;
+        } finally {
+            stats.producerStalled(System.nanoTime() - waitStart);
+        }
+    }
+
+    /** Receives raw entries from {@link #readEntries}. */
+    private interface EntryConsumer {
+        void accept(long epochMs, ByteBuffer payload) throws IOException;
+    }
+
+    /** Every .bin entry of {@code zip} in timestamp order (via the sidecar index when possible). */
+    private void readEntries(Path zip, EntryConsumer consumer) throws IOException {
+        ZipEntryIndex index = loadZipIndex(zip);
+        if (index != null) {
+            try (ZipEntryIndex.Reader reader = index.openReader()) {
+                for (int i = 0; i < index.size(); i++)
+                    consumer.accept(index.timestamp(i), reader.read(i));
+            }
+            return;
+        }
+        try (ZipFile zf = new ZipFile(zip.toFile())) {
+            List<BinEntry> bins = new ArrayList<>();
+            Enumeration<? extends ZipEntry> en = zf.entries();
+            while (en.hasMoreElements()) {
+                ZipEntry ze = en.nextElement();
+                if (ze.isDirectory() || !ze.getName().toLowerCase(Locale.ROOT).endsWith(".bin")) continue;
+                bins.add(new BinEntry(ze, extractTimestampFromEntry(ze, zip)));
+            }
+            bins.sort(Comparator.comparingLong(b -> b.epochMs));
+            EntryBuffer buffer = new EntryBuffer();
+            for (BinEntry be : bins) {
+                try (InputStream is = zf.getInputStream(be.entry)) {
+                    consumer.accept(be.epochMs, buffer.read(is, be.entry.getSize()));
+                }
+            }
+        }
+    }
+
+    /** Sidecar entry index of {@code zip}, or null to use the ZipFile path. */
+    private ZipEntryIndex loadZipIndex(Path zip) {
+        if (!useZipIndex)
+            return null;
+        try {
+            return ZipEntryIndex.load(zip);
+        } catch (IOException | RuntimeException e) {
+            return null; // the ZipFile path reports real problems with the zip
+        }
+    }
+
+    /** Index positions inside the time-of-day window, ascending. */
+    private static int[] windowEntries(ZipEntryIndex index, LocalTime start, LocalTime end, ZoneId zone) {
+        int[] out = new int[index.size()];
+        int n = 0;
+        for (long[] range : windowRanges(index, start, end, zone)) {
+            int to = range[1] == Long.MAX_VALUE ? index.size() : index.lowerBound(range[1] + 1);
+            for (int i = index.lowerBound(range[0]); i < to; i++) out[n++] = i;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /** {@code entries} stamped after {@code after} (a resume cursor); the array itself when none is skipped. */
+    private static int[] entriesAfter(ZipEntryIndex index, int[] entries, long after) {
+        int from = 0;
+        while (from < entries.length && index.timestamp(entries[from]) <= after) from++;
+        return from == 0 ? entries : Arrays.copyOfRange(entries, from, entries.length);
+    }
+
+    /**
+     * Inclusive epoch-ms ranges covering the time-of-day window on every date
+     * the index spans, in ascending order ({@code [MIN, MAX]} when unfiltered).
+     * A window that wraps midnight becomes two ranges per date.
+     */
+    private static List<long[]> windowRanges(ZipEntryIndex index, LocalTime start, LocalTime end, ZoneId zone) {
+        List<long[]> ranges = new ArrayList<>();
+        if (start == null || end == null || index.size() == 0) {
+            ranges.add(new long[] { Long.MIN_VALUE, Long.MAX_VALUE });
+            return ranges;
+        }
+        LocalDate first = Instant.ofEpochMilli(index.timestamp(0)).atZone(zone).toLocalDate();
+        LocalDate last = Instant.ofEpochMilli(index.timestamp(index.size() - 1)).atZone(zone).toLocalDate();
+        for (LocalDate d = first; !d.isAfter(last); d = d.plusDays(1)) {
+            long dayStart = d.atStartOfDay(zone).toInstant().toEpochMilli();
+            long s = d.atTime(start).atZone(zone).toInstant().toEpochMilli();
+            long e = d.atTime(end).atZone(zone).toInstant().toEpochMilli();
+            if (!end.isBefore(start)) {
+                ranges.add(new long[] { s, e });
+            } else {
+                long nextDay = d.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+                ranges.add(new long[] { dayStart, e });
+                ranges.add(new long[] { s, nextDay - 1 });
+            }
+        }
+        return ranges;
+    }
+
+    /** What the ZIP loops feed: the {@link BlockCallback} or a {@link PacketVisitor}. */
+    private interface SnapshotSink {
+        /** @return true to continue streaming */
+        boolean onSnapshot(BlockView view);
+
+        void onError(Exception e, Path source);
+
+        void onEnd();
+    }
+
+    private BlockCallback requireCallback() {
+        if (callback == VISITOR_ONLY) {
+            throw new IllegalStateException("Constructed without a BlockCallback; use the PacketVisitor overloads");
+        }
+        return callback;
+    }
+
+    private SnapshotSink callbackSink() {
+        final BlockCallback cb = requireCallback();
+        return new SnapshotSink() {
+            @Override
+            public boolean onSnapshot(BlockView view) {
+                return cb.onBlockView(view);
+            }
+
+            @Override
+            public void onError(Exception e, Path source) {
+                cb.onError(e, source);
+            }
+
+            @Override
+            public void onEnd() {
+                cb.onEnd();
+            }
+        };
+    }
+
+    /** Advances {@link #checkpoint} after each delivered snapshot of {@code zip[0]}; saves a last time on end. */
+    private SnapshotSink checkpointing(SnapshotSink sink, String[] zip) {
+        final StreamCheckpoint cp = checkpoint;
+        return new SnapshotSink() {
+            @Override
+            public boolean onSnapshot(BlockView view) {
+                boolean keepGoing = sink.onSnapshot(view);
+                try {
+                    cp.advance(zip[0], view.getTimeStamp());
+                } catch (IOException e) {
+                    sink.onError(e, cp.getFile()); // keep streaming; the next save retries
+                }
+                return keepGoing;
+            }
+
+            @Override
+            public void onError(Exception e, Path source) {
+                sink.onError(e, source);
+            }
+
+            @Override
+            public void onEnd() {
+                try {
+                    cp.finish();
+                } catch (IOException e) {
+                    sink.onError(e, cp.getFile());
+                }
+                sink.onEnd();
+            }
+        };
+    }
+
+    private static SnapshotSink visitorSink(PacketVisitor visitor) {
+        Objects.requireNonNull(visitor, "visitor");
+        return new SnapshotSink() {
+            @Override
+            public boolean onSnapshot(BlockView view) {
+                return BlockUtils.visit(view, visitor);
+            }
+
+            @Override
+            public void onError(Exception e, Path source) {
+                visitor.onError(e, source);
+            }
+
+            @Override
+            public void onEnd() {
+                visitor.onEnd();
+            }
+        };
+    }
+
+    /** With a token filter set, a snapshot is only worth delivering if one packet matches. */
+    private boolean hasWantedPackets(BlockView view) {
+        if (tokenFilter == null)
+            return true;
+        boolean any = view.next();
+        view.rewind();
+        return any;
+    }
+
+    private List<Path> listCandidateZips(SnapshotSink sink) {
+        try {
+            return candidateZips();
+        } catch (IOException e) {
+            sink.onError(e, rootDir);
+            return new ArrayList<>();
+        }
+    }
+
+    /** Day zips of {@code fileCode} in the date range (unsorted); also used by rollups to detect changes. */
+    List<Path> candidateZips() throws IOException {
         if (!Files.isDirectory(rootDir))
-            return Collections.emptyList();
+            return new ArrayList<>();
 
         List<Path> out = new ArrayList<>();
         try (DirectoryStream<Path> ds = Files.newDirectoryStream(rootDir, "*.zip")) {
@@ -537,7 +1263,10 @@ public class StreamHistoricalData {
                 // must contain _<fileCode>_ before date tail
                 // e.g. ..._260617_NIFTY_100_25-08-25.zip
                 // ..._256265_NIFTY_29-08-25.zip
-                if (!fn.toUpperCase(Locale.ROOT).contains("_" + fileCode.toUpperCase(Locale.ROOT) + "_")) {
+                // (directly before it, so NIFTY does not also pick up NIFTY_100)
+                Matcher tail = ZIP_DATE_TAIL.matcher(fn);
+                if (!tail.find() || !fn.substring(0, tail.start()).toUpperCase(Locale.ROOT)
+                        .endsWith("_" + fileCode.toUpperCase(Locale.ROOT))) {
                     continue;
                 }
                 LocalDate d = extractDate(fn);
@@ -547,12 +1276,24 @@ public class StreamHistoricalData {
                     out.add(p);
                 }
             }
-        } catch (IOException e) {
-            callback.onError(e, rootDir);
         }
         return out;
     }
 
+    private List<Path> listColumnarFiles() {
+        List<Path> out = new ArrayList<>();
+        for (LocalDate d = startDate; !d.isAfter(endDate); d = d.plusDays(1)) {
+            Path p = rootDir.resolve(ColumnarDayFile.fileName(fileCode, d));
+            if (Files.isRegularFile(p)) out.add(p);
+        }
+        return out;
+    }
+
+    /** Trading day of a day zip from its {@code _dd-MM-yy.zip} tail; null if the name has none. */
+    static LocalDate zipDate(Path zip) {
+        return extractDate(zip.getFileName().toString());
+    }
+
     private static LocalDate extractDate(String filename) {
         Matcher m = ZIP_DATE_TAIL.matcher(filename);
         if (!m.find())
@@ -611,8 +1352,26 @@ public class StreamHistoricalData {
      * 2) Use the ZIP file's last modified time
      */
     private static long extractTimestampFromEntry(ZipEntry entry, Path zipPath) {
+        long strict = strictTimestamp(entry.getName());
+        if (strict >= 0)
+            return strict;
+
+        long t = entry.getTime();
+        if (t > 0)
+            return t;
+
+        try {
+            return Files.getLastModifiedTime(zipPath).toMillis();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot extract timestamp for entry: " + entry.getName() +
+                    " in zip: " + zipPath.getFileName(), e);
+        }
+    }
+
+    /** {@code <millis>} of an entry named {@code .../timestamp_<millis>.bin}, or -1. */
+    static long strictTimestamp(String entryName) {
         // get only the leaf name (entry may include folders)
-        String leaf = entry.getName();
+        String leaf = entryName;
         int slash = Math.max(leaf.lastIndexOf('/'), leaf.lastIndexOf('\\'));
         if (slash >= 0)
             leaf = leaf.substring(slash + 1);
@@ -624,17 +1383,7 @@ public class StreamHistoricalData {
             } catch (NumberFormatException ignore) {
             }
         }
-
-        long t = entry.getTime();
-        if (t > 0)
-            return t;
-
-        try {
-            return Files.getLastModifiedTime(zipPath).toMillis();
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Cannot extract timestamp for entry: " + entry.getName() +
-                    " in zip: " + zipPath.getFileName(), e);
-        }
+        return -1;
     }
 
     private static byte[] readAllBytes(InputStream in) throws IOException {
@@ -647,6 +1396,45 @@ public class StreamHistoricalData {
         return bos.toByteArray();
     }
 
+    /**
+     * Growable read buffer reused across ZIP entries, so the sequential stream
+     * modes don't allocate a fresh byte[] per snapshot.
+     */
+    private static final class EntryBuffer {
+        private byte[] bytes = new byte[64 * 1024];
+        private ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        /** Read the whole stream; the returned buffer is valid until the next call. */
+        ByteBuffer read(InputStream in, long sizeHint) throws IOException {
+            if (sizeHint > bytes.length) grow((int) sizeHint);
+            int n = 0;
+            int r;
+            while ((r = in.read(bytes, n, bytes.length - n)) != -1) {
+                n += r;
+                if (n == bytes.length) grow(bytes.length * 2);
+            }
+            buffer.clear();
+            buffer.limit(n);
+            return buffer;
+        }
+
+        private void grow(int minCapacity) {
+            bytes = Arrays.copyOf(bytes, Math.max(minCapacity, bytes.length * 2));
+            buffer = ByteBuffer.wrap(bytes);
+        }
+    }
+
+    /** Raw snapshot handed from a producer thread to the dispatcher. */
+    private static final class Snapshot {
+        final long epochMs;
+        final byte[] payload;
+
+        Snapshot(long epochMs, byte[] payload) {
+            this.epochMs = epochMs;
+            this.payload = payload;
+        }
+    }
+
     private static final class BinEntry {
         final ZipEntry entry;
         final long epochMs;
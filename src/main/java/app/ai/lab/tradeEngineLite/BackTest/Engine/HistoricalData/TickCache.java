@@ -0,0 +1,262 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local cache of inflated (and token-filtered) snapshots, one file per zip,
+ * so reruns over the same dates skip inflate and replay from a memory map.
+ *
+ * Files are content-addressed: {@code sha256(zip path, size, mtime, options)}
+ * where options is the token filter. A changed zip or filter therefore never
+ * hits a stale file. Layout (big-endian):
+ * <pre>
+ *   'TCCH', i32 version, then per snapshot { i64 timestamp, i32 length, snapshot bytes }
+ * </pre>
+ * Snapshot bytes are the normal wire format; with a filter only the matching
+ * packets are kept and snapshots without any are dropped.
+ *
+ * Size is capped LRU-style: a hit touches the file's mtime and every fill
+ * deletes the least recently used files until the directory fits.
+ */
+public final class TickCache {
+
+    public static final String EXTENSION = ".tcache";
+
+    private static final int MAGIC = 0x54434348; // "TCCH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Fills a cache file from the zip on a miss; snapshots must be passed in stream order. */
+    public interface Filler {
+        void fill(Writer writer) throws IOException;
+    }
+
+    public TickCache(Path dir, long maxBytes) {
+        Objects.requireNonNull(dir, "dir");
+        if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes must be > 0");
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    public Path getDir() { return dir; }
+    public long getMaxBytes() { return maxBytes; }
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    /**
+     * Open the cached snapshots of {@code zip} decoded with {@code filter},
+     * running {@code filler} first on a miss.
+     */
+    public Cursor open(Path zip, TokenFilter filter, Filler filler) throws IOException {
+        Path file = fileFor(zip, filter);
+        if (Files.isRegularFile(file)) {
+            hits.incrementAndGet();
+            try {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException ignore) {
+                // LRU order is best effort
+            }
+        } else {
+            misses.incrementAndGet();
+            fill(file, filter, filler);
+            evict(file);
+        }
+        return new Cursor(map(file));
+    }
+
+    /** Cache file that {@code zip} decoded with {@code filter} maps to. */
+    public Path fileFor(Path zip, TokenFilter filter) throws IOException {
+        String options = "v" + VERSION + "|" + (filter == null ? "*" : Arrays.toString(filter.tokens()));
+        String key = zip.toAbsolutePath().normalize() + "|" + Files.size(zip) + "|"
+                + Files.getLastModifiedTime(zip).toMillis() + "|" + options;
+        return dir.resolve(sha256Hex(key).substring(0, 32) + EXTENSION);
+    }
+
+    /** Total bytes of cache files currently on disk. */
+    public long sizeOnDisk() throws IOException {
+        long total = 0;
+        for (Path p : listFiles()) total += Files.size(p);
+        return total;
+    }
+
+    // ---------------- Writer / Cursor ----------------
+
+    /** Appends snapshots to a cache file being filled. */
+    public static final class Writer {
+        private final DataOutputStream out;
+        private final BlockView view = new BlockView();
+        private final TokenFilter filter;
+        private byte[] scratch = new byte[64 * 1024];
+
+        private Writer(DataOutputStream out, TokenFilter filter) {
+            this.out = out;
+            this.filter = filter;
+            view.setFilter(filter);
+        }
+
+        /** Add one raw snapshot; truncated ones (and, with a filter, empty ones) are dropped. */
+        public void add(long timeStamp, ByteBuffer payload) throws IOException {
+            if (!view.wrap(payload, timeStamp)) return;
+            if (filter == null) {
+                int len = payload.remaining();
+                ensure(len);
+                payload.duplicate().get(scratch, 0, len);
+                write(timeStamp, len);
+                return;
+            }
+
+            // rebuild the snapshot with the matching packets only
+            ByteBuffer b = view.buffer();
+            int count = 0;
+            int len = 2;
+            while (view.next()) {
+                int plen = view.isStock() ? StockPacketView.LENGTH : IndexPacketView.LENGTH;
+                ensure(len + 2 + plen);
+                scratch[len] = (byte) (plen >>> 8);
+                scratch[len + 1] = (byte) plen;
+                b.get(view.packetOffset(), scratch, len + 2, plen);
+                len += 2 + plen;
+                count++;
+            }
+            if (count == 0) return;
+            scratch[0] = (byte) (count >>> 8);
+            scratch[1] = (byte) count;
+            write(timeStamp, len);
+        }
+
+        private void write(long timeStamp, int len) throws IOException {
+            out.writeLong(timeStamp);
+            out.writeInt(len);
+            out.write(scratch, 0, len);
+        }
+
+        private void ensure(int capacity) {
+            if (capacity > scratch.length) scratch = Arrays.copyOf(scratch, Math.max(capacity, scratch.length * 2));
+        }
+    }
+
+    /**
+     * Iterates the snapshots of a mapped cache file. {@link #payload()} is a
+     * reused window into the map, valid until the next {@link #next()}.
+     */
+    public static final class Cursor {
+        private final ByteBuffer records;
+        private final ByteBuffer payload;
+        private long timeStamp;
+
+        private Cursor(ByteBuffer mapped) throws IOException {
+            if (mapped.remaining() < HEADER_BYTES || mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+                throw new IOException("Not a tick cache file");
+            }
+            this.records = mapped;
+            this.payload = mapped.duplicate();
+        }
+
+        public boolean next() throws IOException {
+            if (records.remaining() < 12) return false;
+            timeStamp = records.getLong();
+            int len = records.getInt();
+            int p = records.position();
+            if (len < 0 || len > records.remaining()) throw new IOException("Truncated tick cache file");
+            payload.limit(p + len).position(p);
+            records.position(p + len);
+            return true;
+        }
+
+        public long timestamp() { return timeStamp; }
+
+        public ByteBuffer payload() { return payload; }
+    }
+
+    // ---------------- Internals ----------------
+
+    private void fill(Path file, TokenFilter filter, Filler filler) throws IOException {
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "fill-", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tmp), 256 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                filler.fill(new Writer(out, filter));
+            }
+            // publish only complete files
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Delete least recently used files (never {@code keep}) until the cache fits. */
+    private void evict(Path keep) throws IOException {
+        List<Path> files = listFiles();
+        long total = 0;
+        List<long[]> meta = new ArrayList<>(); // {mtime, size, index}
+        for (int i = 0; i < files.size(); i++) {
+            Path p = files.get(i);
+            long size = Files.size(p);
+            total += size;
+            meta.add(new long[] { Files.getLastModifiedTime(p).toMillis(), size, i });
+        }
+        if (total <= maxBytes) return;
+
+        meta.sort(Comparator.comparingLong(m -> m[0]));
+        for (long[] m : meta) {
+            if (total <= maxBytes) break;
+            Path p = files.get((int) m[2]);
+            if (p.equals(keep)) continue;
+            if (Files.deleteIfExists(p)) total -= m[1];
+        }
+    }
+
+    private List<Path> listFiles() throws IOException {
+        List<Path> out = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path p : ds) out.add(p);
+        }
+        return out;
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("Tick cache file too large to map: " + file);
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    private static String sha256Hex(String s) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(d.length * 2);
+            for (byte b : d) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
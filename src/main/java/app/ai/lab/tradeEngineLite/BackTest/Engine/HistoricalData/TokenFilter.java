@@ -0,0 +1,63 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable set of instrument tokens used to skip packets while decoding.
+ *
+ * Backed by a sorted, de-duplicated {@code int[]}: a single token is a plain
+ * compare, small sets are scanned linearly and larger ones binary-searched.
+ * No boxing happens on the {@link #matches(int)} path.
+ */
+public final class TokenFilter {
+
+    private static final int LINEAR_SCAN_MAX = 8;
+
+    private final int[] tokens;
+
+    private TokenFilter(int[] sortedUnique) {
+        this.tokens = sortedUnique;
+    }
+
+    public static TokenFilter of(int... tokens) {
+        if (tokens == null || tokens.length == 0) {
+            throw new IllegalArgumentException("TokenFilter needs at least one token");
+        }
+        int[] sorted = Arrays.stream(tokens).sorted().distinct().toArray();
+        return new TokenFilter(sorted);
+    }
+
+    public static TokenFilter of(Collection<Integer> tokens) {
+        if (tokens == null) throw new IllegalArgumentException("tokens is null");
+        return of(tokens.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /** @return true when {@code token} is part of this filter */
+    public boolean matches(int token) {
+        final int[] t = tokens;
+        if (t.length == 1) return t[0] == token;
+        if (t.length <= LINEAR_SCAN_MAX) {
+            for (int v : t) {
+                if (v == token) return true;
+                if (v > token) return false;
+            }
+            return false;
+        }
+        return Arrays.binarySearch(t, token) >= 0;
+    }
+
+    public int size() {
+        return tokens.length;
+    }
+
+    /** Sorted copy of the tokens. */
+    public int[] tokens() {
+        return tokens.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "TokenFilter" + Arrays.toString(tokens);
+    }
+}
@@ -0,0 +1,261 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.Utils.IntIndexMap;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Per-token re-partitioned copy of the daily zip archives, so a single-symbol
+ * backtest only reads that symbol's bytes.
+ *
+ * Layout:
+ * <pre>
+ *   storeDir/manifest.csv                          token,fileCode,date,firstTs,lastTs,snapshots
+ *   storeDir/&lt;token&gt;/&lt;fileCode&gt;_&lt;dd-MM-yy&gt;.tcol  that token's packets only, time ordered
+ * </pre>
+ * Segments are {@link ColumnarDayFile}s, so a token directory is a valid
+ * {@link StreamHistoricalData} root for {@link StreamHistoricalData#stream_columnar()};
+ * {@link #streamer} builds one.
+ */
+public final class TokenPartitionStore {
+
+    public static final String MANIFEST = "manifest.csv";
+    private static final String MANIFEST_HEADER = "token,fileCode,date,firstTs,lastTs,snapshots";
+
+    /** One manifest row: one token's segment for one day of one fileCode. */
+    public static final class Segment {
+        private final int token;
+        private final String fileCode;
+        private final LocalDate date;
+        private final long firstTs;
+        private final long lastTs;
+        private final int snapshots;
+
+        Segment(int token, String fileCode, LocalDate date, long firstTs, long lastTs, int snapshots) {
+            this.token = token;
+            this.fileCode = fileCode;
+            this.date = date;
+            this.firstTs = firstTs;
+            this.lastTs = lastTs;
+            this.snapshots = snapshots;
+        }
+
+        public int getToken() { return token; }
+        public String getFileCode() { return fileCode; }
+        public LocalDate getDate() { return date; }
+        public long getFirstTs() { return firstTs; }
+        public long getLastTs() { return lastTs; }
+        public int getSnapshots() { return snapshots; }
+
+        String key() {
+            return token + "|" + fileCode + "|" + date;
+        }
+    }
+
+    private static final Comparator<Segment> SEGMENT_ORDER = Comparator
+            .comparingInt(Segment::getToken)
+            .thenComparing(Segment::getFileCode)
+            .thenComparing(Segment::getDate);
+
+    private final Path storeDir;
+    private final Map<String, Segment> segments = new HashMap<>(); // key() -> segment
+
+    private TokenPartitionStore(Path storeDir) {
+        this.storeDir = storeDir;
+    }
+
+    /** Open an existing store (an empty one if there is no manifest yet). */
+    public static TokenPartitionStore open(Path storeDir) throws IOException {
+        Objects.requireNonNull(storeDir, "storeDir");
+        TokenPartitionStore store = new TokenPartitionStore(storeDir);
+        Path manifest = storeDir.resolve(MANIFEST);
+        if (!Files.isRegularFile(manifest)) return store;
+
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        for (int i = 1; i < lines.size(); i++) { // skip header
+            String line = lines.get(i).trim();
+            if (line.isEmpty()) continue;
+            String[] f = line.split(",");
+            if (f.length != 6) throw new IOException("Bad manifest line " + (i + 1) + ": " + line);
+            Segment s = new Segment(Integer.parseInt(f[0]), f[1], LocalDate.parse(f[2], ColumnarDayFile.DAY),
+                    Long.parseLong(f[3]), Long.parseLong(f[4]), Integer.parseInt(f[5]));
+            store.segments.put(s.key(), s);
+        }
+        return store;
+    }
+
+    /**
+     * Split every day of {@code fileCode} zips under {@code rootDir} into one
+     * segment per token and day, then rewrite the manifest. Each day is read
+     * once; re-running a day replaces its segments.
+     *
+     * @param tokens only partition these tokens; {@code null} => every token
+     * @return the updated store
+     */
+    public static TokenPartitionStore repartition(Path rootDir, String fileCode, String startDate_dd_MM_yy,
+            String endDate_dd_MM_yy, Path storeDir, TokenFilter tokens, boolean withDepth) throws IOException {
+        TokenPartitionStore store = open(storeDir);
+        LocalDate start = LocalDate.parse(startDate_dd_MM_yy, ColumnarDayFile.DAY);
+        LocalDate end = LocalDate.parse(endDate_dd_MM_yy, ColumnarDayFile.DAY);
+
+        for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+            DaySplitter splitter = new DaySplitter(withDepth);
+            String day = d.format(ColumnarDayFile.DAY);
+            StreamHistoricalData streamer = new StreamHistoricalData(rootDir, day, day, fileCode, -1, splitter);
+            streamer.setTokenFilter(tokens);
+            streamer.stream();
+            if (splitter.failure != null) throw splitter.failure;
+
+            for (int i = 0; i < splitter.tokens.size(); i++) {
+                int token = splitter.tokens.keyAt(i);
+                ColumnarDayFile.Writer w = splitter.writers.get(i);
+                Path dir = store.tokenDir(token);
+                Files.createDirectories(dir);
+                w.writeTo(dir.resolve(ColumnarDayFile.fileName(fileCode, d)));
+                Segment s = new Segment(token, fileCode, d, w.getFirstTimestamp(), w.getLastTimestamp(),
+                        w.snapshotCount());
+                store.segments.put(s.key(), s);
+            }
+            // manifest after every day, so an interrupted job keeps the finished days
+            store.writeManifest();
+        }
+        return store;
+    }
+
+    public Path getStoreDir() {
+        return storeDir;
+    }
+
+    /** Directory holding the segments of {@code token}. */
+    public Path tokenDir(int token) {
+        return storeDir.resolve(Integer.toString(token));
+    }
+
+    /** Tokens with at least one segment, ascending. */
+    public SortedSet<Integer> tokens() {
+        SortedSet<Integer> out = new TreeSet<>();
+        for (Segment s : segments.values()) out.add(s.token);
+        return out;
+    }
+
+    /** Segments of {@code token} / {@code fileCode} within [from, to], in date order. */
+    public List<Segment> segments(int token, String fileCode, LocalDate from, LocalDate to) {
+        List<Segment> out = new ArrayList<>();
+        for (Segment s : segments.values()) {
+            if (s.token == token && s.fileCode.equalsIgnoreCase(fileCode)
+                    && !s.date.isBefore(from) && !s.date.isAfter(to)) {
+                out.add(s);
+            }
+        }
+        out.sort(Comparator.comparing(Segment::getDate));
+        return out;
+    }
+
+    /** All manifest rows, sorted by token, fileCode, date. */
+    public List<Segment> segments() {
+        List<Segment> out = new ArrayList<>(segments.values());
+        out.sort(SEGMENT_ORDER);
+        return Collections.unmodifiableList(out);
+    }
+
+    /**
+     * Streamer over {@code token}'s segments only; use
+     * {@link StreamHistoricalData#stream_columnar()} (or the visitor overloads)
+     * to replay. Days missing from the store are skipped.
+     */
+    public StreamHistoricalData streamer(int token, String fileCode, String startDate_dd_MM_yy,
+            String endDate_dd_MM_yy, long delayMs, StreamHistoricalData.BlockCallback callback) {
+        return new StreamHistoricalData(tokenDir(token), startDate_dd_MM_yy, endDate_dd_MM_yy, fileCode, delayMs,
+                callback);
+    }
+
+    /** Visitor-only {@link #streamer(int, String, String, String, long, StreamHistoricalData.BlockCallback)}. */
+    public StreamHistoricalData streamer(int token, String fileCode, String startDate_dd_MM_yy,
+            String endDate_dd_MM_yy, long delayMs) {
+        return new StreamHistoricalData(tokenDir(token), startDate_dd_MM_yy, endDate_dd_MM_yy, fileCode, delayMs);
+    }
+
+    // ---------------- Internals ----------------
+
+    private void writeManifest() throws IOException {
+        Files.createDirectories(storeDir);
+        Path manifest = storeDir.resolve(MANIFEST);
+        Path tmp = storeDir.resolve(MANIFEST + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(MANIFEST_HEADER);
+            w.newLine();
+            for (Segment s : segments()) {
+                w.write(s.token + "," + s.fileCode + "," + s.date.format(ColumnarDayFile.DAY) + ","
+                        + s.firstTs + "," + s.lastTs + "," + s.snapshots);
+                w.newLine();
+            }
+        }
+        Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Routes each packet of a snapshot to its token's writer. */
+    private static final class DaySplitter implements StreamHistoricalData.BlockCallback {
+        final boolean withDepth;
+        final IntIndexMap tokens = new IntIndexMap(256);
+        final List<ColumnarDayFile.Writer> writers = new ArrayList<>();
+        IOException failure;
+
+        // per slot: snapshot sequence it was last opened in
+        private long[] openedIn = new long[256];
+        private int[] touched = new int[256];
+        private long seq;
+
+        DaySplitter(boolean withDepth) {
+            this.withDepth = withDepth;
+        }
+
+        @Override
+        public boolean onBlock(Block block) {
+            throw new IllegalStateException("splitter reads views only");
+        }
+
+        @Override
+        public boolean onBlockView(BlockView view) {
+            seq++;
+            int touchedCount = 0;
+            while (view.next()) {
+                int slot = tokens.getOrAdd(view.token());
+                if (slot == writers.size()) {
+                    writers.add(new ColumnarDayFile.Writer(withDepth));
+                    if (slot == openedIn.length) openedIn = Arrays.copyOf(openedIn, slot * 2);
+                }
+                ColumnarDayFile.Writer w = writers.get(slot);
+                if (openedIn[slot] != seq) {
+                    openedIn[slot] = seq;
+                    w.beginSnapshot(view.getTimeStamp());
+                    if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = slot;
+                }
+                w.addPacket(view);
+            }
+            for (int i = 0; i < touchedCount; i++) writers.get(touched[i]).endSnapshot();
+            return true;
+        }
+
+        @Override
+        public void onError(Exception e, Path source) {
+            if (failure == null) failure = new IOException("Failed to read " + source, e);
+        }
+    }
+}
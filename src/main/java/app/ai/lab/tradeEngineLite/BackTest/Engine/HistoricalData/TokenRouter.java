@@ -0,0 +1,205 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.IndexPacket;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.PacketData;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.StockPacket;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.Utils.IntIndexMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Delivers each packet only to the consumers subscribed to its token and
+ * whose time window contains the snapshot, instead of broadcasting every
+ * {@link Block} to every consumer.
+ *
+ * Subscribers receive a single-packet {@link Block} (same timestamp as the
+ * snapshot) per matching packet, so their own token scan is one element.
+ * Packets without a subscriber are skipped on the view path without being
+ * materialized.
+ *
+ * Tokens map to lanes through an {@link IntIndexMap}. Each lane keeps its
+ * subscriptions sorted by window start and sweeps an active set forward with
+ * time; going back in time (a new stream) restarts the sweep. Delivery order
+ * within a token is subscription order. Override {@link #onError} /
+ * {@link #onEnd} for stream notifications. Not thread-safe: use it as the
+ * callback of one stream.
+ */
+public class TokenRouter implements StreamHistoricalData.BlockCallback {
+
+    /** Receives the packets of one token while its window is active. */
+    public interface Subscriber {
+        void onBlock(Block block);
+    }
+
+    /** A subscriber bound to one token and an inclusive epoch-ms window. */
+    public static final class Subscription {
+        private final int token;
+        private final long startEpochMs;
+        private final long endEpochMs;
+        private final Subscriber subscriber;
+        private final int seq;
+
+        private Subscription(int token, long startEpochMs, long endEpochMs, Subscriber subscriber, int seq) {
+            this.token = token;
+            this.startEpochMs = startEpochMs;
+            this.endEpochMs = endEpochMs;
+            this.subscriber = subscriber;
+            this.seq = seq;
+        }
+
+        public int getToken() { return token; }
+        public long getStartEpochMs() { return startEpochMs; }
+        public long getEndEpochMs() { return endEpochMs; }
+        public Subscriber getSubscriber() { return subscriber; }
+    }
+
+    private final IntIndexMap tokens = new IntIndexMap();
+    private final List<Lane> lanes = new ArrayList<>();
+    private int subscriptionCount;
+    private long delivered;
+    private long skipped;
+
+    /** Subscribe for {@code token} over its whole stream. */
+    public Subscription subscribe(int token, Subscriber subscriber) {
+        return subscribe(token, Long.MIN_VALUE, Long.MAX_VALUE, subscriber);
+    }
+
+    /** Subscribe for {@code token} while {@code startEpochMs <= ts <= endEpochMs}. */
+    public Subscription subscribe(int token, long startEpochMs, long endEpochMs, Subscriber subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (endEpochMs < startEpochMs) {
+            throw new IllegalArgumentException("endEpochMs < startEpochMs for token " + token);
+        }
+        int slot = tokens.getOrAdd(token);
+        if (slot == lanes.size()) lanes.add(new Lane());
+        Subscription s = new Subscription(token, startEpochMs, endEpochMs, subscriber, subscriptionCount++);
+        lanes.get(slot).add(s);
+        return s;
+    }
+
+    public int getSubscriptionCount() { return subscriptionCount; }
+
+    /** Single-packet blocks handed to subscribers so far. */
+    public long getDelivered() { return delivered; }
+
+    /** Packets that had no active subscriber. */
+    public long getSkipped() { return skipped; }
+
+    /** Filter of every subscribed token, for {@link StreamHistoricalData#setTokenFilter}. */
+    public TokenFilter tokenFilter() {
+        if (tokens.size() == 0) throw new IllegalStateException("no subscriptions");
+        int[] t = new int[tokens.size()];
+        for (int i = 0; i < t.length; i++) t[i] = tokens.keyAt(i);
+        return TokenFilter.of(t);
+    }
+
+    // ---------------- BlockCallback ----------------
+
+    @Override
+    public final boolean onBlockView(BlockView view) {
+        long ts = view.getTimeStamp();
+        while (view.next()) {
+            int slot = tokens.indexOf(view.token());
+            Lane lane = slot < 0 ? null : lanes.get(slot);
+            if (lane == null || lane.advance(ts) == 0) {
+                skipped++;
+                continue;
+            }
+            deliver(lane, new Block(ts, Collections.singletonList(view.toPacket())));
+        }
+        return true;
+    }
+
+    @Override
+    public final boolean onBlock(Block block) {
+        long ts = block.getTimeStamp();
+        for (PacketData p : block.getInfo()) {
+            int slot = tokens.indexOf(tokenOf(p));
+            Lane lane = slot < 0 ? null : lanes.get(slot);
+            if (lane == null || lane.advance(ts) == 0) {
+                skipped++;
+                continue;
+            }
+            deliver(lane, new Block(ts, Collections.singletonList(p)));
+        }
+        return true;
+    }
+
+    // ---------------- Internals ----------------
+
+    private void deliver(Lane lane, Block block) {
+        Subscription[] active = lane.active;
+        for (int i = 0, n = lane.activeCount; i < n; i++) {
+            active[i].subscriber.onBlock(block);
+        }
+        delivered += lane.activeCount;
+    }
+
+    private static int tokenOf(PacketData p) {
+        if (p instanceof StockPacket) return (int) ((StockPacket) p).getInstrumentToken();
+        if (p instanceof IndexPacket) return (int) ((IndexPacket) p).getToken();
+        return -1;
+    }
+
+    /** Subscriptions of one token: sorted by start, plus the set active at {@code lastTs}. */
+    private static final class Lane {
+        private Subscription[] byStart = new Subscription[2];
+        private int count;
+        private int next;
+        private Subscription[] active = new Subscription[2];
+        private int activeCount;
+        private long lastTs = Long.MIN_VALUE;
+
+        void add(Subscription s) {
+            if (count == byStart.length) byStart = Arrays.copyOf(byStart, count * 2);
+            int i = count++;
+            while (i > 0 && byStart[i - 1].startEpochMs > s.startEpochMs) {
+                byStart[i] = byStart[i - 1];
+                i--;
+            }
+            byStart[i] = s;
+            restart();
+        }
+
+        /** Move the sweep to {@code ts}; @return number of active subscriptions */
+        int advance(long ts) {
+            if (ts == lastTs) return activeCount;
+            if (ts < lastTs) restart();
+            lastTs = ts;
+
+            int w = 0;
+            for (int i = 0; i < activeCount; i++) {
+                if (active[i].endEpochMs >= ts) active[w++] = active[i];
+            }
+            Arrays.fill(active, w, activeCount, null);
+            activeCount = w;
+
+            while (next < count && byStart[next].startEpochMs <= ts) {
+                Subscription s = byStart[next++];
+                if (s.endEpochMs >= ts) activate(s);
+            }
+            return activeCount;
+        }
+
+        private void activate(Subscription s) {
+            if (activeCount == active.length) active = Arrays.copyOf(active, activeCount * 2);
+            int i = activeCount++;
+            while (i > 0 && active[i - 1].seq > s.seq) {
+                active[i] = active[i - 1];
+                i--;
+            }
+            active[i] = s;
+        }
+
+        private void restart() {
+            next = 0;
+            Arrays.fill(active, 0, activeCount, null);
+            activeCount = 0;
+            lastTs = Long.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Sorted index of the {@code timestamp_<ms>.bin} entries of one day zip,
+ * persisted as a sidecar ({@code <zip>.idx}) so later opens skip the
+ * directory scan, the name regex and the sort.
+ *
+ * Sidecar layout (big-endian):
+ * <pre>
+ *   'ZIDX', u16 version, u16 reserved, i64 zipSize, i64 zipMtimeMs, i32 count,
+ *   count x { i64 timestamp, i64 localHeaderOffset, i32 compressedSize, i32 size, u8 method }
+ * </pre>
+ * The sidecar is rebuilt when the zip's size or mtime differs. Zips that
+ * cannot be indexed (zip64, encryption, methods other than stored/deflate,
+ * or .bin names without a strict timestamp) yield {@code null} and the
+ * caller falls back to {@link java.util.zip.ZipFile}.
+ */
+public final class ZipEntryIndex {
+
+    public static final String SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x5A494458; // "ZIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 2 + 8 + 8 + 4;
+    private static final int ROW_BYTES = 8 + 8 + 4 + 4 + 1;
+
+    private static final int SIG_EOCD = 0x06054b50;
+    private static final int SIG_CEN = 0x02014b50;
+    private static final int SIG_LOC = 0x04034b50;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private final Path zip;
+    private final long[] timestamps;
+    private final long[] offsets;
+    private final int[] compressedSizes;
+    private final int[] sizes;
+    private final byte[] methods;
+
+    private ZipEntryIndex(Path zip, long[] timestamps, long[] offsets, int[] compressedSizes, int[] sizes,
+            byte[] methods) {
+        this.zip = zip;
+        this.timestamps = timestamps;
+        this.offsets = offsets;
+        this.compressedSizes = compressedSizes;
+        this.sizes = sizes;
+        this.methods = methods;
+    }
+
+    /** Sidecar location for {@code zip}. */
+    public static Path sidecarOf(Path zip) {
+        return zip.resolveSibling(zip.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Load the sidecar of {@code zip} if it is still valid, otherwise scan the
+     * zip's central directory and (best effort) write a fresh sidecar.
+     *
+     * @return the index, or null if this zip cannot be indexed
+     */
+    public static ZipEntryIndex load(Path zip) throws IOException {
+        long size = Files.size(zip);
+        long mtime = Files.getLastModifiedTime(zip).toMillis();
+
+        Path sidecar = sidecarOf(zip);
+        if (Files.isRegularFile(sidecar)) {
+            ZipEntryIndex cached = readSidecar(zip, sidecar, size, mtime);
+            if (cached != null) return cached;
+        }
+
+        ZipEntryIndex built = scan(zip, size);
+        if (built == null) return null;
+        try {
+            built.writeSidecar(sidecar, size, mtime);
+        } catch (IOException ignore) {
+            // read-only archive dir: the in-memory index still works for this run
+        }
+        return built;
+    }
+
+    public Path getZip() { return zip; }
+
+    public int size() { return timestamps.length; }
+
+    /** Timestamp of entry {@code i}; entries are sorted ascending. */
+    public long timestamp(int i) { return timestamps[i]; }
+
+    /** Uncompressed size of entry {@code i}. */
+    public int entrySize(int i) { return sizes[i]; }
+
+    /** First entry with timestamp {@code >= ts} ({@link #size()} if none). */
+    public int lowerBound(long ts) {
+        int lo = 0;
+        int hi = timestamps.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] < ts) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Positional reader over the raw zip; not thread-safe, one per thread. */
+    public Reader openReader() throws IOException {
+        return new Reader();
+    }
+
+    /**
+     * Reads entries straight from their local-header offsets and inflates
+     * them with a raw {@link Inflater}. CRCs are not verified.
+     */
+    public final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final Inflater inflater = new Inflater(true);
+        private ByteBuffer compressed = ByteBuffer.allocate(64 * 1024);
+        private byte[] out = new byte[64 * 1024];
+        private final ByteBuffer localHeader = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+
+        private Reader() throws IOException {
+            this.channel = FileChannel.open(zip, StandardOpenOption.READ);
+        }
+
+        /** Payload of entry {@code i}; the buffer is reused by the next call. */
+        public ByteBuffer read(int i) throws IOException {
+            localHeader.clear();
+            readFully(localHeader, offsets[i]);
+            if (localHeader.getInt(0) != SIG_LOC) {
+                throw new IOException("Bad local header at " + offsets[i] + " in " + zip.getFileName());
+            }
+            long dataStart = offsets[i] + 30 + u16(localHeader, 26) + u16(localHeader, 28);
+
+            int csize = compressedSizes[i];
+            if (compressed.capacity() < csize) compressed = ByteBuffer.allocate(Math.max(csize, compressed.capacity() * 2));
+            compressed.clear().limit(csize);
+            readFully(compressed, dataStart);
+
+            int usize = sizes[i];
+            if (methods[i] == METHOD_STORED) {
+                return ByteBuffer.wrap(compressed.array(), 0, usize);
+            }
+            if (out.length < usize) out = new byte[Math.max(usize, out.length * 2)];
+            inflater.reset();
+            inflater.setInput(compressed.array(), 0, csize);
+            int n = 0;
+            try {
+                while (n < usize && !inflater.finished()) {
+                    int r = inflater.inflate(out, n, usize - n);
+                    if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    n += r;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt entry " + i + " in " + zip.getFileName(), e);
+            }
+            if (n != usize) throw new IOException("Short entry " + i + " in " + zip.getFileName());
+            return ByteBuffer.wrap(out, 0, n);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            channel.close();
+        }
+
+        private void readFully(ByteBuffer dst, long position) throws IOException {
+            while (dst.hasRemaining()) {
+                int r = channel.read(dst, position);
+                if (r < 0) throw new IOException("Unexpected EOF in " + zip.getFileName());
+                position += r;
+            }
+        }
+    }
+
+    // ---------------- Build ----------------
+
+    private static ZipEntryIndex scan(Path zip, long size) throws IOException {
+        try (FileChannel ch = FileChannel.open(zip, StandardOpenOption.READ)) {
+            int tailLen = (int) Math.min(size, 22 + 0xFFFF);
+            ByteBuffer tail = read(ch, size - tailLen, tailLen).order(ByteOrder.LITTLE_ENDIAN);
+            int eocd = -1;
+            for (int p = tailLen - 22; p >= 0; p--) {
+                if (tail.getInt(p) == SIG_EOCD) {
+                    eocd = p;
+                    break;
+                }
+            }
+            if (eocd < 0) return null;
+
+            int total = u16(tail, eocd + 10);
+            long cenSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+            long cenOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+            if (total == 0xFFFF || cenOffset == 0xFFFFFFFFL || cenSize > Integer.MAX_VALUE) return null; // zip64
+
+            ByteBuffer cen = read(ch, cenOffset, (int) cenSize).order(ByteOrder.LITTLE_ENDIAN);
+            long[] ts = new long[total];
+            long[] off = new long[total];
+            int[] csz = new int[total];
+            int[] usz = new int[total];
+            byte[] mth = new byte[total];
+            int n = 0;
+            int p = 0;
+            for (int e = 0; e < total; e++) {
+                if (p + 46 > cen.limit() || cen.getInt(p) != SIG_CEN) return null;
+                int flags = u16(cen, p + 8);
+                int method = u16(cen, p + 10);
+                long compressedSize = cen.getInt(p + 20) & 0xFFFFFFFFL;
+                long uncompressedSize = cen.getInt(p + 24) & 0xFFFFFFFFL;
+                int nameLen = u16(cen, p + 28);
+                int extraLen = u16(cen, p + 30);
+                int commentLen = u16(cen, p + 32);
+                long localOffset = cen.getInt(p + 42) & 0xFFFFFFFFL;
+                String name = new String(cen.array(), p + 46, nameLen, StandardCharsets.ISO_8859_1);
+                p += 46 + nameLen + extraLen + commentLen;
+
+                if (name.endsWith("/") || !name.toLowerCase(Locale.ROOT).endsWith(".bin")) continue;
+                if ((flags & 1) != 0) return null; // encrypted
+                if (method != METHOD_STORED && method != METHOD_DEFLATED) return null;
+                if (compressedSize >= Integer.MAX_VALUE || uncompressedSize >= Integer.MAX_VALUE) return null;
+                long t = StreamHistoricalData.strictTimestamp(name);
+                if (t < 0) return null; // needs the ZipFile fallbacks (entry time / mtime)
+
+                ts[n] = t;
+                off[n] = localOffset;
+                csz[n] = (int) compressedSize;
+                usz[n] = (int) uncompressedSize;
+                mth[n] = (byte) method;
+                n++;
+            }
+            return sorted(zip, n, ts, off, csz, usz, mth);
+        }
+    }
+
+    private static ZipEntryIndex sorted(Path zip, int n, long[] ts, long[] off, int[] csz, int[] usz, byte[] mth) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(ts[a], ts[b])); // stable: ties keep directory order
+
+        long[] sTs = new long[n];
+        long[] sOff = new long[n];
+        int[] sCsz = new int[n];
+        int[] sUsz = new int[n];
+        byte[] sMth = new byte[n];
+        for (int i = 0; i < n; i++) {
+            int j = order[i];
+            sTs[i] = ts[j];
+            sOff[i] = off[j];
+            sCsz[i] = csz[j];
+            sUsz[i] = usz[j];
+            sMth[i] = mth[j];
+        }
+        return new ZipEntryIndex(zip, sTs, sOff, sCsz, sUsz, sMth);
+    }
+
+    // ---------------- Sidecar I/O ----------------
+
+    private void writeSidecar(Path sidecar, long zipSize, long zipMtime) throws IOException {
+        // unique temp name: two streams indexing the same zip must not write into one file
+        Path tmp = Files.createTempFile(sidecar.toAbsolutePath().getParent(), sidecar.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeLong(zipSize);
+            out.writeLong(zipMtime);
+            out.writeInt(size());
+            for (int i = 0; i < size(); i++) {
+                out.writeLong(timestamps[i]);
+                out.writeLong(offsets[i]);
+                out.writeInt(compressedSizes[i]);
+                out.writeInt(sizes[i]);
+                out.writeByte(methods[i]);
+            }
+        }
+        Files.move(tmp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** @return null if the sidecar is stale or unreadable */
+    private static ZipEntryIndex readSidecar(Path zip, Path sidecar, long zipSize, long zipMtime) {
+        try {
+            ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(sidecar));
+            if (b.remaining() < HEADER_BYTES || b.getInt() != MAGIC || (b.getShort() & 0xFFFF) != VERSION) return null;
+            b.getShort();
+            if (b.getLong() != zipSize || b.getLong() != zipMtime) return null;
+            int n = b.getInt();
+            if (n < 0 || b.remaining() != (long) n * ROW_BYTES) return null;
+
+            long[] ts = new long[n];
+            long[] off = new long[n];
+            int[] csz = new int[n];
+            int[] usz = new int[n];
+            byte[] mth = new byte[n];
+            for (int i = 0; i < n; i++) {
+                ts[i] = b.getLong();
+                off[i] = b.getLong();
+                csz[i] = b.getInt();
+                usz[i] = b.getInt();
+                mth[i] = b.get();
+            }
+            return new ZipEntryIndex(zip, ts, off, csz, usz, mth);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel ch, long position, int len) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(len);
+        while (b.hasRemaining()) {
+            int r = ch.read(b, position + b.position());
+            if (r < 0) throw new IOException("Unexpected EOF");
+        }
+        b.flip();
+        return b;
+    }
+
+    private static int u16(ByteBuffer b, int off) {
+        return b.getShort(off) & 0xFFFF;
+    }
+}
@@ -0,0 +1,271 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.Runner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs independent backtest units (one per symbol x quarter context, say)
+ * on virtual threads, so units that mostly wait on HTTP or disk overlap
+ * instead of running back to back.
+ *
+ * Every unit names the data source it uses; {@link #limit(String, int)} caps
+ * how many units of a source run at once (e.g. Groww requests), other
+ * units keep going. {@link #withPermit} takes a permit for a nested section.
+ *
+ * {@link #run()} is structured: it returns only after every unit finished
+ * or was cancelled, and an interrupted caller, {@link #cancel()}, the
+ * timeout or (with fail-fast) the first failure interrupts all units still
+ * running. The {@link Report} keeps one {@link Result} per unit in the
+ * order the units were added.
+ *
+ * @param <T> value produced by one unit
+ */
+public final class BacktestRunner<T> {
+
+    public enum Status { OK, FAILED, CANCELLED }
+
+    /** Outcome of one unit. */
+    public static final class Result<T> {
+        private final String name;
+        private final String source;
+        private final Status status;
+        private final T value;
+        private final Throwable error;
+        private final long elapsedNanos;
+
+        private Result(String name, String source, Status status, T value, Throwable error, long elapsedNanos) {
+            this.name = name;
+            this.source = source;
+            this.status = status;
+            this.value = value;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getName() { return name; }
+        public String getSource() { return source; }
+        public Status getStatus() { return status; }
+        public T getValue() { return value; }
+        public Throwable getError() { return error; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        @Override
+        public String toString() {
+            return name + "[" + source + "] " + status + (error != null ? " " + error : "");
+        }
+    }
+
+    /** Aggregated results of one {@link #run()}. */
+    public static final class Report<T> {
+        private final List<Result<T>> results;
+        private final long wallNanos;
+
+        private Report(List<Result<T>> results, long wallNanos) {
+            this.results = Collections.unmodifiableList(results);
+            this.wallNanos = wallNanos;
+        }
+
+        public List<Result<T>> getResults() { return results; }
+
+        /** Values of the units that completed normally, in add order. */
+        public List<T> values() {
+            List<T> out = new ArrayList<>();
+            for (Result<T> r : results) if (r.status == Status.OK) out.add(r.value);
+            return out;
+        }
+
+        public List<Result<T>> failures() {
+            List<Result<T>> out = new ArrayList<>();
+            for (Result<T> r : results) if (r.status == Status.FAILED) out.add(r);
+            return out;
+        }
+
+        public int count(Status status) {
+            int n = 0;
+            for (Result<T> r : results) if (r.status == status) n++;
+            return n;
+        }
+
+        public long getWallNanos() { return wallNanos; }
+
+        /** Sum of the unit run times; divided by the wall time it gives the effective overlap. */
+        public long getBusyNanos() {
+            long sum = 0;
+            for (Result<T> r : results) sum += r.elapsedNanos;
+            return sum;
+        }
+
+        @Override
+        public String toString() {
+            return "Report{units=" + results.size() + ", ok=" + count(Status.OK) + ", failed=" + count(Status.FAILED)
+                    + ", cancelled=" + count(Status.CANCELLED) + ", wallMs=" + wallNanos / 1_000_000L
+                    + ", busyMs=" + getBusyNanos() / 1_000_000L + '}';
+        }
+    }
+
+    private static final class Unit<T> {
+        final String name;
+        final String source;
+        final Callable<T> task;
+
+        Unit(String name, String source, Callable<T> task) {
+            this.name = name;
+            this.source = source;
+            this.task = task;
+        }
+    }
+
+    private final Map<String, Semaphore> limits = new ConcurrentHashMap<>();
+    private final List<Unit<T>> units = new ArrayList<>();
+    private final List<Future<?>> running = new ArrayList<>();
+    private boolean failFast;
+    private Duration timeout;
+    private volatile boolean cancelled;
+
+    /** At most {@code maxConcurrent} units (and {@link #withPermit} sections) of {@code source} at once. */
+    public BacktestRunner<T> limit(String source, int maxConcurrent) {
+        Objects.requireNonNull(source, "source");
+        if (maxConcurrent <= 0) throw new IllegalArgumentException("maxConcurrent must be > 0");
+        limits.put(source, new Semaphore(maxConcurrent, true));
+        return this;
+    }
+
+    /** Cancel the remaining units after the first failure (default: run them all). */
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    /** Cancel units still running after {@code timeout}; {@code null} waits indefinitely. */
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /** Add a unit that reads from {@code source} (may be null for unlimited). */
+    public BacktestRunner<T> add(String name, String source, Callable<T> task) {
+        Objects.requireNonNull(task, "task");
+        units.add(new Unit<>(name, source, task));
+        return this;
+    }
+
+    public int size() {
+        return units.size();
+    }
+
+    /**
+     * Run {@code section} holding a permit of {@code source}; for units that
+     * touch a second limited source (e.g. disk after HTTP).
+     */
+    public <R> R withPermit(String source, Callable<R> section) throws Exception {
+        Semaphore permits = source == null ? null : limits.get(source);
+        if (permits == null) return section.call();
+        permits.acquire();
+        try {
+            return section.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** Interrupt every running unit; units not started yet are reported as cancelled. */
+    public void cancel() {
+        cancelled = true;
+        synchronized (running) {
+            for (Future<?> f : running) f.cancel(true);
+        }
+    }
+
+    /**
+     * Run every added unit, one virtual thread each, and wait for all of them.
+     *
+     * @throws InterruptedException if the caller is interrupted (units are cancelled first)
+     */
+    public Report<T> run() throws InterruptedException {
+        cancelled = false;
+        final int n = units.size();
+        final List<Result<T>> results = new ArrayList<>(Collections.nCopies(n, null));
+        final long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            synchronized (running) {
+                running.clear();
+                for (int i = 0; i < n; i++) {
+                    final int idx = i;
+                    final Unit<T> unit = units.get(i);
+                    running.add(executor.submit(() -> {
+                        Result<T> r = execute(unit);
+                        results.set(idx, r);
+                        if (r.status == Status.FAILED && failFast) cancel();
+                    }));
+                }
+            }
+            awaitAll(start);
+        } // close() waits for cancelled units to unwind
+
+        for (int i = 0; i < n; i++) {
+            if (results.get(i) == null) {
+                Unit<T> unit = units.get(i);
+                results.set(i, new Result<>(unit.name, unit.source, Status.CANCELLED, null,
+                        new CancellationException("not started"), 0));
+            }
+        }
+        return new Report<>(results, System.nanoTime() - start);
+    }
+
+    // ---------------- Internals ----------------
+
+    private void awaitAll(long start) throws InterruptedException {
+        List<Future<?>> futures;
+        synchronized (running) {
+            futures = new ArrayList<>(running);
+        }
+        long deadline = timeout == null ? Long.MAX_VALUE : start + timeout.toNanos();
+        try {
+            for (Future<?> f : futures) {
+                try {
+                    if (deadline == Long.MAX_VALUE) f.get();
+                    else f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (CancellationException | ExecutionException ignore) {
+                    // recorded in the unit's Result
+                } catch (TimeoutException te) {
+                    cancel();
+                    return;
+                }
+            }
+        } catch (InterruptedException ie) {
+            cancel();
+            throw ie;
+        }
+    }
+
+    private Result<T> execute(Unit<T> unit) {
+        if (cancelled) {
+            return new Result<>(unit.name, unit.source, Status.CANCELLED, null,
+                    new CancellationException("not started"), 0);
+        }
+        long t0 = System.nanoTime();
+        try {
+            T value = withPermit(unit.source, unit.task);
+            return new Result<>(unit.name, unit.source, Status.OK, value, null, System.nanoTime() - t0);
+        } catch (InterruptedException | CancellationException e) {
+            return new Result<>(unit.name, unit.source, Status.CANCELLED, null, e, System.nanoTime() - t0);
+        } catch (Throwable e) {
+            // an I/O error raised by the interrupt of a cancelled run is not the unit's fault
+            Status status = cancelled ? Status.CANCELLED : Status.FAILED;
+            return new Result<>(unit.name, unit.source, status, null, e, System.nanoTime() - t0);
+        }
+    }
+}
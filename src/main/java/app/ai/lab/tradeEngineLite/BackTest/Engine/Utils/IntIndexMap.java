@@ -0,0 +1,106 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from an {@code int} key (typically an instrument token)
+ * to a dense index {@code 0..size()-1}, assigned in insertion order.
+ *
+ * Callers keep per-key state in parallel primitive arrays indexed by the value
+ * this map returns, which avoids {@code Map<Integer, ...>} boxing on hot paths.
+ * Keys are never removed. Not thread-safe.
+ */
+public final class IntIndexMap {
+
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] slots;     // hash slot -> dense index, EMPTY if free
+    private int[] byIndex;   // dense index -> key
+    private int size;
+    private int mask;
+
+    public IntIndexMap() {
+        this(16);
+    }
+
+    public IntIndexMap(int expectedSize) {
+        int cap = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
+        keys = new int[cap];
+        slots = new int[cap];
+        Arrays.fill(slots, EMPTY);
+        byIndex = new int[Math.max(4, expectedSize)];
+        mask = cap - 1;
+    }
+
+    /** @return the dense index of {@code key}, or -1 if absent */
+    public int indexOf(int key) {
+        int h = mix(key) & mask;
+        while (true) {
+            int idx = slots[h];
+            if (idx == EMPTY) return -1;
+            if (keys[h] == key) return idx;
+            h = (h + 1) & mask;
+        }
+    }
+
+    /** @return the dense index of {@code key}, adding it if absent */
+    public int getOrAdd(int key) {
+        int h = mix(key) & mask;
+        while (true) {
+            int idx = slots[h];
+            if (idx == EMPTY) break;
+            if (keys[h] == key) return idx;
+            h = (h + 1) & mask;
+        }
+        int idx = size++;
+        keys[h] = key;
+        slots[h] = idx;
+        if (idx == byIndex.length) byIndex = Arrays.copyOf(byIndex, idx * 2);
+        byIndex[idx] = key;
+        if (size * 2 > slots.length) rehash();
+        return idx;
+    }
+
+    public boolean contains(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /** Key that was assigned dense index {@code index}. */
+    public int keyAt(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index);
+        return byIndex[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash() {
+        int cap = slots.length * 2;
+        int[] newKeys = new int[cap];
+        int[] newSlots = new int[cap];
+        Arrays.fill(newSlots, EMPTY);
+        int newMask = cap - 1;
+        for (int i = 0; i < size; i++) {
+            int key = byIndex[i];
+            int h = mix(key) & newMask;
+            while (newSlots[h] != EMPTY) h = (h + 1) & newMask;
+            newKeys[h] = key;
+            newSlots[h] = i;
+        }
+        keys = newKeys;
+        slots = newSlots;
+        mask = newMask;
+    }
+
+    // murmur3 finalizer: tokens are often sequential, so spread them
+    private static int mix(int k) {
+        k ^= k >>> 16;
+        k *= 0x85ebca6b;
+        k ^= k >>> 13;
+        k *= 0xc2b2ae35;
+        k ^= k >>> 16;
+        return k;
+    }
+}
@@ -0,0 +1,140 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.Utils;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing map from a {@code long} key (typically an order ID) to an
+ * object. Linear probing with backward-shift deletion, so removals leave no
+ * tombstones and a map with heavy place / cancel churn does not degrade.
+ *
+ * {@link #get}, {@link #put} and {@link #remove} are O(1) without boxing the
+ * key. Values must not be null. Not thread-safe.
+ */
+public final class LongObjectMap<V> {
+
+    private long[] keys;
+    private Object[] values; // null = free slot
+    private int size;
+    private int mask;
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        int cap = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
+        keys = new long[cap];
+        values = new Object[cap];
+        mask = cap - 1;
+    }
+
+    /** @return the value of {@code key}, or null if absent */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int h = slot(key);
+        return h < 0 ? null : (V) values[h];
+    }
+
+    /** @return the previous value of {@code key}, or null if it was absent */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value, "value");
+        int h = mix(key) & mask;
+        while (values[h] != null) {
+            if (keys[h] == key) {
+                V old = (V) values[h];
+                values[h] = value;
+                return old;
+            }
+            h = (h + 1) & mask;
+        }
+        keys[h] = key;
+        values[h] = value;
+        if (++size * 2 > values.length) rehash();
+        return null;
+    }
+
+    /** @return the removed value, or null if {@code key} was absent */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = slot(key);
+        if (i < 0) return null;
+        V old = (V) values[i];
+        values[i] = null;
+        size--;
+        // pull later entries of the probe run back over the hole
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            boolean stays = i <= j ? (home > i && home <= j) : (home > i || home <= j);
+            if (!stays) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = null;
+                i = j;
+            }
+        }
+        return old;
+    }
+
+    public boolean containsKey(long key) {
+        return slot(key) >= 0;
+    }
+
+    /** Visit every value, in no particular order. The map must not change meanwhile. */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (Object v : values) {
+            if (v != null) action.accept((V) v);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        int h = mix(key) & mask;
+        while (values[h] != null) {
+            if (keys[h] == key) return h;
+            h = (h + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        int cap = oldValues.length * 2;
+        keys = new long[cap];
+        values = new Object[cap];
+        mask = cap - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            int h = mix(oldKeys[i]) & mask;
+            while (values[h] != null) h = (h + 1) & mask;
+            keys[h] = oldKeys[i];
+            values[h] = oldValues[i];
+        }
+    }
+
+    // murmur3 64-bit finalizer: order IDs are sequential, so spread them
+    private static int mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return (int) k;
+    }
+}
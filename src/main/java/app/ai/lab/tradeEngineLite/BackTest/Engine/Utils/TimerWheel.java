@@ -0,0 +1,150 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel over market time in epoch ms: four levels of 64
+ * slots (1 ms, 64 ms, ~4 s and ~4.4 min per slot, about 4.6 h in all) plus an
+ * overflow list for anything further out.
+ *
+ * Time only moves when the owner calls {@link #advance}, typically with the
+ * timestamp of each replayed block, so what fires is decided by the data and
+ * not by the wall clock. Scheduling is O(1); advancing jumps straight to the
+ * next occupied slot, so an overnight gap between two blocks costs a few
+ * bit scans rather than a walk over every millisecond. Not thread-safe.
+ */
+public final class TimerWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = 4;
+
+    private static final class Entry<T> {
+        final long at;
+        final T item;
+
+        Entry(long at, T item) {
+            this.at = at;
+            this.item = item;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final List<Entry<T>>[][] slots = new List[LEVELS][SLOTS];
+    private final long[] occupied = new long[LEVELS]; // bit i set = slot i non-empty
+    private final List<Entry<T>> overflow = new ArrayList<>();
+    private long now;
+    private int size;
+
+    /** @param now market time the wheel starts at */
+    public TimerWheel(long now) {
+        this.now = now;
+    }
+
+    public long now() {
+        return now;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Fire {@code item} once market time reaches {@code at}; a past {@code at} fires on the next advance. */
+    public void schedule(long at, T item) {
+        Objects.requireNonNull(item, "item");
+        add(new Entry<>(Math.max(at, now), item));
+        size++;
+    }
+
+    /**
+     * Move market time to {@code to} and hand every item due by then to
+     * {@code due}, earliest first; items of the same millisecond in the order
+     * they reached the slot. Items {@code due} schedules at or before
+     * {@code to} fire in the same call. A {@code to} in the past is ignored.
+     */
+    public void advance(long to, Consumer<? super T> due) {
+        if (to < now) return;
+        while (size > 0) {
+            long bits = occupied[0] & (-1L << digit(now, 0));
+            if (bits != 0) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                long at = (now & ~(SLOTS - 1L)) | slot;
+                if (at > to) break;
+                now = at;
+                List<Entry<T>> fired = take(0, slot);
+                size -= fired.size();
+                for (Entry<T> e : fired) due.accept(e.item);
+                continue;
+            }
+            int level = 1;
+            for (; level < LEVELS; level++) {
+                int d = digit(now, level);
+                bits = d == SLOTS - 1 ? 0 : occupied[level] & (-1L << (d + 1));
+                if (bits != 0) break;
+            }
+            long start;
+            if (level < LEVELS) {
+                // the next occupied slot above: jump to its first ms and spread it over the levels below
+                int slot = Long.numberOfTrailingZeros(bits);
+                int shift = BITS * level;
+                start = (now & ~((1L << (shift + BITS)) - 1)) | ((long) slot << shift);
+                if (start > to) break;
+                now = start;
+                for (Entry<T> e : take(level, slot)) add(e);
+            } else {
+                long min = Long.MAX_VALUE;
+                for (Entry<T> e : overflow) min = Math.min(min, e.at);
+                start = min & ~((1L << (BITS * LEVELS)) - 1);
+                if (start > to) break;
+                now = start;
+                List<Entry<T>> pending = new ArrayList<>(overflow);
+                overflow.clear();
+                for (Entry<T> e : pending) add(e);
+            }
+        }
+        now = to;
+    }
+
+    /** Drop every scheduled item and restart at {@code now}. */
+    public void clear(long now) {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) slots[level][slot] = null;
+            occupied[level] = 0;
+        }
+        overflow.clear();
+        size = 0;
+        this.now = now;
+    }
+
+    // ---------------- Internals ----------------
+
+    // an entry lives on the lowest level whose slot span still shares all higher digits with now
+    private void add(Entry<T> e) {
+        long diff = e.at ^ now;
+        for (int level = 0; level < LEVELS; level++) {
+            if ((diff >>> (BITS * (level + 1))) == 0) {
+                int slot = digit(e.at, level);
+                List<Entry<T>> list = slots[level][slot];
+                if (list == null) slots[level][slot] = list = new ArrayList<>();
+                list.add(e);
+                occupied[level] |= 1L << slot;
+                return;
+            }
+        }
+        overflow.add(e);
+    }
+
+    private List<Entry<T>> take(int level, int slot) {
+        List<Entry<T>> list = slots[level][slot];
+        slots[level][slot] = null;
+        occupied[level] &= ~(1L << slot);
+        return list;
+    }
+
+    private static int digit(long t, int level) {
+        return (int) (t >>> (BITS * level)) & (SLOTS - 1);
+    }
+}
@@ -0,0 +1,80 @@
+package app.ai.lab.tradeEngineLite.BackTest.Exchange;
+
+import app.ai.lab.tradeEngineLite.BackTest.Exchange.VirtualExchange.Order;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resting orders of one instrument. Market orders wait in arrival order for
+ * the next tick; limit orders sit in price levels, so a tick only visits the
+ * levels it crosses instead of every open order.
+ *
+ * Not thread-safe: {@link VirtualExchange} guards it with its lock.
+ */
+final class OrderBook {
+
+    private final ArrayDeque<Order> market = new ArrayDeque<>();
+    private final TreeMap<Double, ArrayDeque<Order>> buys = new TreeMap<>();  // BUY_L by limit price
+    private final TreeMap<Double, ArrayDeque<Order>> sells = new TreeMap<>(); // SELL_L by limit price
+    private int size;
+
+    void add(Order order) {
+        switch (order.getOrderType()) {
+            case BUY_M, SELL_M -> market.addLast(order);
+            case BUY_L -> buys.computeIfAbsent(order.getPrice(), p -> new ArrayDeque<>()).addLast(order);
+            case SELL_L -> sells.computeIfAbsent(order.getPrice(), p -> new ArrayDeque<>()).addLast(order);
+        }
+        size++;
+    }
+
+    /** Remove a resting order; its type and price must be the ones it was added with. */
+    boolean remove(Order order) {
+        boolean removed = switch (order.getOrderType()) {
+            case BUY_M, SELL_M -> market.remove(order);
+            case BUY_L -> remove(buys, order);
+            case SELL_L -> remove(sells, order);
+        };
+        if (removed) size--;
+        return removed;
+    }
+
+    /**
+     * Move every order a trade at {@code ltp} executes into {@code fills}:
+     * market orders (priced at {@code ltp}), then buy limits at or above
+     * {@code ltp} from the highest, then sell limits at or below it from the
+     * lowest. Each level keeps arrival order.
+     */
+    void match(double ltp, List<Order> fills) {
+        int before = fills.size();
+        for (Order o; (o = market.pollFirst()) != null; ) {
+            o.setPrice(ltp);
+            fills.add(o);
+        }
+        for (Map.Entry<Double, ArrayDeque<Order>> e; (e = buys.lastEntry()) != null && ltp <= e.getKey(); ) {
+            fills.addAll(buys.pollLastEntry().getValue());
+        }
+        for (Map.Entry<Double, ArrayDeque<Order>> e; (e = sells.firstEntry()) != null && ltp >= e.getKey(); ) {
+            fills.addAll(sells.pollFirstEntry().getValue());
+        }
+        size -= fills.size() - before;
+    }
+
+    int size() { return size; }
+
+    void clear() {
+        market.clear();
+        buys.clear();
+        sells.clear();
+        size = 0;
+    }
+
+    private static boolean remove(TreeMap<Double, ArrayDeque<Order>> side, Order order) {
+        ArrayDeque<Order> level = side.get(order.getPrice());
+        if (level == null || !level.remove(order)) return false;
+        if (level.isEmpty()) side.remove(order.getPrice());
+        return true;
+    }
+}
@@ -1,8 +1,12 @@
 package app.ai.lab.tradeEngineLite.BackTest.Exchange;
 
 import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamCheckpoint;
 import org.springframework.stereotype.Service;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -10,9 +14,10 @@ import java.util.function.Consumer;
  * Simple order management service (OMS) for back-testing that supports only
  * market orders. Internally it delegates order execution to {@link VirtualExchange}.
  * Clients can register callbacks to be notified when an order completes or fails.
+ * Checkpoints save the exchange's open orders.
  */
 @Service
-public class OrderManagementService {
+public class OrderManagementService implements StreamCheckpoint.Participant {
 
     /** Callback invoked when an order completes successfully. */
     private Consumer<VirtualExchange.OrderResponse> onOrderComplete;
@@ -74,4 +79,14 @@ public class OrderManagementService {
     public void onBlock(Block block) {
         exchange.onBlock(block);
     }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        exchange.writeState(out);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        exchange.readState(in);
+    }
 }
\ No newline at end of file
@@ -1,25 +1,38 @@
 package app.ai.lab.tradeEngineLite.BackTest.Exchange;
 
 import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamCheckpoint;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.Utils.IntIndexMap;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.Utils.LongObjectMap;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.Utils.TimerWheel;
 import org.springframework.stereotype.Service;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Objects;
-import java.util.Random;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 /**
  * Simple in-memory virtual exchange used for backtesting.
- * Orders are kept in a book and executed when incoming price
- * feeds satisfy their conditions. Optional callbacks can be
+ * Orders are kept in one {@link OrderBook} per instrument and
+ * executed when incoming price feeds satisfy their conditions. Optional callbacks can be
  * registered to receive order execution notifications.
+ *
+ * Order latency is simulated in market time: with a
+ * {@code virtualOrderDelay} of d ms an order placed at market time t
+ * reaches its book at t + d and fills at the first tick from then on.
+ * Market time is the timestamp of the last {@link #onBlock block} (or
+ * {@link #advanceTo}), and in-flight orders wait on a {@link TimerWheel}, so
+ * the replay never sleeps and the same data gives the same fills.
+ * The open orders are checkpointed with {@link StreamCheckpoint}.
  */
 @Service
-public class VirtualExchange {
+public class VirtualExchange implements StreamCheckpoint.Participant {
 
     /** Types of orders supported by the exchange. */
     public enum OrderType {
@@ -37,7 +50,8 @@ public class VirtualExchange {
 
     /** Representation of a single order in the exchange. */
     public static class Order {
-        private String orderId;
+        private long id; // 0 until placed
+        private long arrivesAt = RESTING; // market time it reaches the book while in flight
         private final int instrumentId;
         private OrderType orderType;
         private double price;
@@ -50,12 +64,18 @@ public class VirtualExchange {
             this.triggerPrice = triggerPrice;
         }
 
+        /** Exchange-assigned sequence number; 0 until placed. */
+        public long getId() {
+            return id;
+        }
+
+        /** String view of {@link #getId()} for string-keyed APIs; null until placed. */
         public String getOrderId() {
-            return orderId;
+            return id == 0 ? null : Long.toString(id);
         }
 
-        public void setOrderId(String orderId) {
-            this.orderId = orderId;
+        void setId(long id) {
+            this.id = id;
         }
 
         public int getInstrumentId() {
@@ -86,13 +106,13 @@ public class VirtualExchange {
     /** Response returned for executed or rejected orders. */
     public static class OrderResponse {
         private final ResponseType responseType;
-        private final String orderId;
+        private final long orderId;
         private final int instrumentId;
         private final double avgPrice;
         private final String rejectReason;
 
         public OrderResponse(ResponseType responseType,
-                             String orderId,
+                             long orderId,
                              int instrumentId,
                              double avgPrice,
                              String rejectReason) {
@@ -107,10 +127,15 @@ public class VirtualExchange {
             return responseType;
         }
 
-        public String getOrderId() {
+        public long getId() {
             return orderId;
         }
 
+        /** String view of {@link #getId()}. */
+        public String getOrderId() {
+            return Long.toString(orderId);
+        }
+
         public int getInstrumentId() {
             return instrumentId;
         }
@@ -124,16 +149,25 @@ public class VirtualExchange {
         }
     }
 
-    private final List<Order> orders = new CopyOnWriteArrayList<>();
-    private final Set<Integer> activeInstruments = new CopyOnWriteArraySet<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final IntIndexMap bookIndex = new IntIndexMap(); // token -> index into books
+    private final List<OrderBook> books = new ArrayList<>();
+    private final LongObjectMap<Order> openOrders = new LongObjectMap<>(); // by ID, resting or in flight
+    private long lastOrderId;
+    private TimerWheel<Order> inFlight; // null until the first market timestamp
+    private final List<Order> awaitingClock = new ArrayList<>(); // placed with a delay before any timestamp
     private Consumer<OrderResponse> feedOrderStatusCallback;
     private final long virtualOrderDelay;
-    private final Random random = new Random();
+
+    // Order.arrivesAt markers
+    private static final long RESTING = Long.MIN_VALUE;
+    private static final long UNCLOCKED = Long.MAX_VALUE;
 
     public VirtualExchange() {
         this(0L);
     }
 
+    /** @param virtualOrderDelay order latency in market-time ms; 0 = orders rest at once */
     public VirtualExchange(long virtualOrderDelay) {
         this.virtualOrderDelay = virtualOrderDelay;
     }
@@ -144,58 +178,35 @@ public class VirtualExchange {
     }
 
     /**
-     * Process incoming price feed and execute matching orders.
+     * Process incoming price feed and execute matching orders. Only the
+     * instrument's own book is consulted, and only its crossing price levels.
      */
     public void instrumentPriceFeed(int instrumentId,
                                     double priceLtp,
                                     double priceAsk,
                                     double priceBid) {
-        List<Order> executedOrders = new ArrayList<>();
-
-        for (Order order : orders) {
-            if (order.getInstrumentId() != instrumentId) {
-                continue;
+        List<Order> executedOrders;
+        lock.lock();
+        try {
+            OrderBook book = book(instrumentId);
+            if (book == null || book.size() == 0) {
+                return;
             }
-            switch (order.getOrderType()) {
-                case BUY_M:
-                    order.setPrice(priceLtp);
-                    executedOrders.add(order);
-                    break;
-                case SELL_M:
-                    order.setPrice(priceLtp);
-                    executedOrders.add(order);
-                    break;
-                case BUY_L:
-                    if (priceLtp <= order.getPrice()) {
-                        executedOrders.add(order);
-                    }
-                    break;
-                case SELL_L:
-                    if (priceLtp >= order.getPrice()) {
-                        executedOrders.add(order);
-                    }
-                    break;
+            executedOrders = new ArrayList<>();
+            book.match(priceLtp, executedOrders);
+            for (Order order : executedOrders) {
+                openOrders.remove(order.getId());
             }
+        } finally {
+            lock.unlock();
         }
 
-        orders.removeAll(executedOrders);
-
-        if (orders.stream().noneMatch(o -> o.getInstrumentId() == instrumentId)) {
-            activeInstruments.remove(instrumentId);
-        }
-
+        // outside the lock: callbacks may place or cancel orders
         if (feedOrderStatusCallback != null) {
             for (Order order : executedOrders) {
-                if (virtualOrderDelay > 0) {
-                    try {
-                        Thread.sleep(virtualOrderDelay);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }
                 OrderResponse response = new OrderResponse(
                         ResponseType.COMPLETED,
-                        order.getOrderId(),
+                        order.getId(),
                         order.getInstrumentId(),
                         order.getPrice(),
                         null
@@ -205,6 +216,30 @@ public class VirtualExchange {
         }
     }
 
+    /**
+     * Move market time to {@code timestampMs}: in-flight orders due by then
+     * reach their books. {@link #onBlock} does this with the block timestamp;
+     * call it before {@link #instrumentPriceFeed} when feeding prices directly
+     * with a delay configured. Earlier timestamps are ignored.
+     */
+    public void advanceTo(long timestampMs) {
+        lock.lock();
+        try {
+            if (inFlight == null) {
+                inFlight = new TimerWheel<>(timestampMs);
+                for (Order o : awaitingClock) {
+                    if (openOrders.get(o.getId()) == o) {
+                        send(o);
+                    }
+                }
+                awaitingClock.clear();
+            }
+            inFlight.advance(timestampMs, this::arrive);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Convenience method that processes a {@link Block} and forwards contained
      * price information to {@link #instrumentPriceFeed(int, double, double, double)}.
@@ -215,77 +250,258 @@ public class VirtualExchange {
             return;
         }
 
-        if (activeInstruments.isEmpty()) {
+        advanceTo(block.getTimeStamp());
+
+        if (!hasOpenOrders()) {
             return;
         }
 
         for (Block.PacketData pd : block.getInfo()) {
             if (pd instanceof Block.IndexPacket ip) {
                 int token = (int) ip.getToken();
-                if (!activeInstruments.contains(token)) continue;
+                if (!isActive(token)) continue;
                 double price = ip.getLastTradedPrice() / 100.0;
                 instrumentPriceFeed(token, price, price, price);
             } else if (pd instanceof Block.StockPacket sp) {
                 int token = (int) sp.getInstrumentToken();
-                if (!activeInstruments.contains(token)) continue;
+                if (!isActive(token)) continue;
                 double price = sp.getLastTradedPrice() / 100.0;
                 instrumentPriceFeed(token, price, price, price);
             }
         }
     }
 
-    /** Place a new order into the exchange and return its ID. */
+    /**
+     * Place a new order into the exchange and return its ID. IDs are
+     * increasing sequence numbers. With a delay the order is in flight
+     * until market time reaches its arrival. A resting order must not be changed in
+     * place; use {@link #modifyOrder(long, Order)}.
+     */
+    public long place(Order order) {
+        lock.lock();
+        try {
+            order.setId(++lastOrderId);
+            submit(order);
+            return order.getId();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** {@link #place} returning the string view of the ID. */
     public String placeOrder(Order order) {
-        String orderId = generateOrderId();
-        order.setOrderId(orderId);
-        orders.add(order);
-        trackInstrument(order.getInstrumentId());
-        return orderId;
+        return Long.toString(place(order));
+    }
+
+    /**
+     * Modify an existing order identified by {@code orderId}. The old order
+     * leaves its book at once; the new one travels with the order delay and
+     * queues behind its price level.
+     */
+    public boolean modifyOrder(long orderId, Order newOrder) {
+        lock.lock();
+        try {
+            Order existing = openOrders.get(orderId);
+            if (existing == null) {
+                return false;
+            }
+            unrest(existing);
+            newOrder.setId(orderId);
+            submit(newOrder);
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    /** Modify an existing order identified by {@code orderId}. */
+    /** {@link #modifyOrder(long, Order)} by the string view of the ID. */
     public boolean modifyOrder(String orderId, Order newOrder) {
-        for (int i = 0; i < orders.size(); i++) {
-            Order existing = orders.get(i);
-            if (Objects.equals(existing.getOrderId(), orderId)) {
-                newOrder.setOrderId(orderId);
-                orders.set(i, newOrder);
-                trackInstrument(newOrder.getInstrumentId());
-                return true;
+        long id = parseId(orderId);
+        return id > 0 && modifyOrder(id, newOrder);
+    }
+
+    /** Cancel an order from the exchange; takes effect at once, also for an order in flight. */
+    public boolean cancelOrder(long orderId) {
+        lock.lock();
+        try {
+            Order existing = openOrders.remove(orderId);
+            if (existing == null) {
+                return false;
             }
+            unrest(existing);
+            return true;
+        } finally {
+            lock.unlock();
         }
-        return false;
     }
 
-    /** Cancel an order from the exchange. */
+    /** {@link #cancelOrder(long)} by the string view of the ID. */
     public boolean cancelOrder(String orderId) {
-        Integer instrumentId = null;
-        for (Order o : orders) {
-            if (Objects.equals(o.getOrderId(), orderId)) {
-                instrumentId = o.getInstrumentId();
-                break;
+        long id = parseId(orderId);
+        return id > 0 && cancelOrder(id);
+    }
+
+    /**
+     * Write the open orders (checkpoint), then market time and each order's
+     * arrival time so orders in flight stay in flight after a resume.
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        lock.lock();
+        try {
+            List<Order> open = new ArrayList<>(openOrders.size());
+            openOrders.forEachValue(open::add);
+            open.sort(Comparator.comparingLong(Order::getId)); // placement order
+            out.writeInt(open.size());
+            for (Order o : open) {
+                out.writeUTF(o.getOrderId());
+                out.writeInt(o.getInstrumentId());
+                out.writeByte(o.getOrderType().ordinal());
+                out.writeDouble(o.getPrice());
+                out.writeDouble(o.getTriggerPrice());
+            }
+            out.writeLong(inFlight == null ? UNCLOCKED : inFlight.now());
+            for (Order o : open) {
+                out.writeLong(o.arrivesAt);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replace the open orders with the checkpointed ones. States written
+     * before latency was simulated have no arrival times; their orders rest.
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        List<Order> restored = new ArrayList<>();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            long orderId = parseId(in.readUTF());
+            if (orderId <= 0) {
+                throw new IOException("bad order id in checkpoint");
             }
+            Order o = new Order(in.readInt(), OrderType.values()[in.readByte()], in.readDouble(), in.readDouble());
+            o.setId(orderId);
+            restored.add(o);
         }
-        boolean removed = orders.removeIf(o -> Objects.equals(o.getOrderId(), orderId));
-        if (removed && instrumentId != null) {
-            final int id = instrumentId;
-            if (orders.stream().noneMatch(o -> o.getInstrumentId() == id)) {
-                activeInstruments.remove(id);
+        long marketTime = UNCLOCKED;
+        try {
+            marketTime = in.readLong();
+            for (Order o : restored) {
+                o.arrivesAt = in.readLong();
+            }
+        } catch (EOFException legacy) {
+            for (Order o : restored) {
+                o.arrivesAt = RESTING;
+            }
+        }
+        lock.lock();
+        try {
+            openOrders.clear();
+            for (OrderBook book : books) {
+                book.clear();
+            }
+            awaitingClock.clear();
+            inFlight = marketTime == UNCLOCKED ? null : new TimerWheel<>(marketTime);
+            for (Order o : restored) {
+                openOrders.put(o.getId(), o);
+                if (o.arrivesAt == RESTING) {
+                    rest(o);
+                } else if (o.arrivesAt == UNCLOCKED || inFlight == null) {
+                    o.arrivesAt = UNCLOCKED;
+                    awaitingClock.add(o);
+                } else {
+                    inFlight.schedule(o.arrivesAt, o);
+                }
+                lastOrderId = Math.max(lastOrderId, o.getId()); // never hand out a restored ID again
             }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The ID behind a string view, or -1 if {@code orderId} is not one. */
+    private static long parseId(String orderId) {
+        if (orderId == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(orderId);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean hasOpenOrders() {
+        lock.lock();
+        try {
+            return !openOrders.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** true if the instrument has open orders. */
+    private boolean isActive(int instrumentId) {
+        lock.lock();
+        try {
+            OrderBook book = book(instrumentId);
+            return book != null && book.size() > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Accept an order: into its book now, or in flight for the order delay. */
+    private void submit(Order order) {
+        openOrders.put(order.getId(), order);
+        if (virtualOrderDelay <= 0) {
+            rest(order);
+        } else if (inFlight == null) {
+            order.arrivesAt = UNCLOCKED;
+            awaitingClock.add(order);
+        } else {
+            send(order);
+        }
+    }
+
+    private void send(Order order) {
+        order.arrivesAt = inFlight.now() + virtualOrderDelay;
+        inFlight.schedule(order.arrivesAt, order);
+    }
+
+    /** Timer callback: the order reached the exchange, unless it was cancelled or replaced meanwhile. */
+    private void arrive(Order order) {
+        if (openOrders.get(order.getId()) == order) {
+            rest(order);
+        }
+    }
+
+    private void rest(Order order) {
+        order.arrivesAt = RESTING;
+        bookFor(order.getInstrumentId()).add(order);
+    }
+
+    /** Take an order out of its book if it got there; an in-flight one is dropped on arrival. */
+    private void unrest(Order order) {
+        if (order.arrivesAt == RESTING) {
+            book(order.getInstrumentId()).remove(order);
         }
-        return removed;
     }
 
-    private String generateOrderId() {
-        long id = Math.abs(random.nextLong()) % 1_000_000_000_000L;
-        return String.format("%012d", id);
+    private OrderBook book(int instrumentId) {
+        int i = bookIndex.indexOf(instrumentId);
+        return i < 0 ? null : books.get(i);
     }
 
-    /** Adds the instrument to active set if not already present */
-    private void trackInstrument(int instrumentId) {
-        if (!activeInstruments.contains(instrumentId)) {
-            activeInstruments.add(instrumentId);
+    private OrderBook bookFor(int instrumentId) {
+        int i = bookIndex.getOrAdd(instrumentId);
+        if (i == books.size()) {
+            books.add(new OrderBook());
         }
+        return books.get(i);
     }
 }
 
@@ -4,11 +4,14 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamCheckpoint;
 import app.ai.lab.tradeEngineLite.GraphUtils.RsiUtils.Config;
 
 import java.awt.*;
 import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.time.*;
@@ -38,8 +41,12 @@ import javax.imageio.ImageIO;
  * * Configurable periods and type (SIMPLE/EXPONENTIAL).
  * * Defaults to SIMPLE on [60, 30, 20, 5, 3].
  * * Waves are computed on the two LARGEST configured MA periods.
+ *
+ * - Checkpoints: candles, ticks, waves and RSI state can be saved and
+ * restored through {@link StreamCheckpoint}; configuration (MA periods,
+ * timeframe, styles) is not part of the state.
  */
-public class CandleGraphTracker {
+public class CandleGraphTracker implements StreamCheckpoint.Participant {
 
     // ===== Models =====
 
@@ -831,25 +838,128 @@ public class CandleGraphTracker {
         rsiState.onClose(prev.close); // appends null or RSI for this closed candle
 
         // If divergence enabled, recompute full set (cheap for typical sizes)
-        if (rsiDivergenceEnabled) {
-            final int n = candles.size();
+        if (rsiDivergenceEnabled)
+            recomputeDivergences();
+    }
 
-            // Collect OHLC arrays (index-aligned, closed candles only)
-            List<Double> closes = new ArrayList<>(n);
-            List<Double> highs  = new ArrayList<>(n);
-            List<Double> lows   = new ArrayList<>(n);
-            for (int i = 0; i < n; i++) {
-                var c = candles.get(i);
-                closes.add(c.close);
-                highs.add(c.high);
-                lows.add(c.low);
+    private void recomputeDivergences() {
+        final int n = candles.size();
+
+        // Collect OHLC arrays (index-aligned, closed candles only)
+        List<Double> closes = new ArrayList<>(n);
+        List<Double> highs  = new ArrayList<>(n);
+        List<Double> lows   = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            var c = candles.get(i);
+            closes.add(c.close);
+            highs.add(c.high);
+            lows.add(c.low);
+        }
+    
+        // Align RSI to candle count (early entries can be null until seeding completes)
+        List<Double> rsiAligned = RsiUtils.alignToLength(rsiState.getValues(), n);
+        // Zerodha-like: lookback=5, minLength=5
+        rsiDivergences = RsiUtils.detectDivergences(closes,highs,lows,rsiAligned,rsiDivConfig);
+    }
+
+    // ===== Checkpoint state =====
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(candles.size());
+        for (Candle c : candles) {
+            out.writeInt(c.tickCount);
+            out.writeLong(c.timestamp);
+            out.writeUTF(c.candleId);
+            out.writeDouble(c.open);
+            out.writeDouble(c.high);
+            out.writeDouble(c.low);
+            out.writeDouble(c.close);
+            out.writeByte(c.candleType.ordinal());
+            out.writeDouble(c.vix);
+            out.writeDouble(c.totalLength);
+            out.writeDouble(c.completePercent);
+            out.writeDouble(c.volatility);
+            out.writeDouble(c.volatilityIndex);
+            out.writeDouble(c.bollinger.middleBand);
+            out.writeDouble(c.bollinger.upperBand);
+            out.writeDouble(c.bollinger.lowerBand);
+            out.writeInt(c.maValues == null ? -1 : c.maValues.length);
+            if (c.maValues != null)
+                for (double v : c.maValues)
+                    out.writeDouble(v);
+        }
+        out.writeInt(marketGraph.size());
+        for (MarketPoint p : marketGraph) {
+            out.writeLong(p.time);
+            out.writeDouble(p.price);
+        }
+        writeWaves(out, wavesPrimary);
+        writeWaves(out, wavesSecondary);
+        out.writeBoolean(rsiState != null);
+        if (rsiState != null)
+            rsiState.writeState(out);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        candles.clear();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            int tickCount = in.readInt();
+            long timestamp = in.readLong();
+            String candleId = in.readUTF();
+            Candle c = new Candle(tickCount, timestamp, candleId, in.readDouble(), 0.0, 0.0, null);
+            c.high = in.readDouble();
+            c.low = in.readDouble();
+            c.close = in.readDouble();
+            c.candleType = CandleType.values()[in.readByte()];
+            c.vix = in.readDouble();
+            c.totalLength = in.readDouble();
+            c.completePercent = in.readDouble();
+            c.volatility = in.readDouble();
+            c.volatilityIndex = in.readDouble();
+            c.bollinger = new BollingerBands(in.readDouble(), in.readDouble(), in.readDouble());
+            int m = in.readInt();
+            if (m >= 0) {
+                c.maValues = new double[m];
+                for (int k = 0; k < m; k++)
+                    c.maValues[k] = in.readDouble();
             }
-        
-            // Align RSI to candle count (early entries can be null until seeding completes)
-            List<Double> rsiAligned = RsiUtils.alignToLength(rsiState.getValues(), n);
-            // Zerodha-like: lookback=5, minLength=5
-            rsiDivergences = RsiUtils.detectDivergences(closes,highs,lows,rsiAligned,rsiDivConfig);
+            candles.add(c);
         }
+        marketGraph.clear();
+        n = in.readInt();
+        for (int i = 0; i < n; i++)
+            marketGraph.add(new MarketPoint(in.readLong(), in.readDouble()));
+        readWaves(in, wavesPrimary);
+        readWaves(in, wavesSecondary);
+        if (in.readBoolean()) {
+            if (rsiState == null)
+                rsiState = new RsiUtils.RsiState(rsiPeriod);
+            rsiState.readState(in);
+        } else {
+            rsiState = null;
+        }
+        rsiDivergences = new ArrayList<>();
+        if (rsiEnabled && rsiDivergenceEnabled && rsiState != null)
+            recomputeDivergences();
+    }
+
+    private static void writeWaves(DataOutput out, List<Wave> waves) throws IOException {
+        out.writeInt(waves.size());
+        for (Wave w : waves) {
+            out.writeByte(w.waveType.ordinal());
+            out.writeLong(w.timestamp);
+            out.writeDouble(w.price);
+            out.writeLong(w.recordTimestamp);
+        }
+    }
+
+    private static void readWaves(DataInput in, List<Wave> waves) throws IOException {
+        waves.clear();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++)
+            waves.add(new Wave(WaveType.values()[in.readByte()], in.readLong(), in.readDouble(), in.readLong()));
     }
 
     // ===== Helper draw/math =====
@@ -1,6 +1,9 @@
 package app.ai.lab.tradeEngineLite.GraphUtils;
 
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -79,6 +82,41 @@ public final class RsiUtils {
         public List<Double> getValues() { return values; }
         public int getPeriod() { return period; }
 
+        /** Serialize the smoothing state and values (checkpoints). */
+        public void writeState(DataOutput out) throws IOException {
+            out.writeInt(period);
+            out.writeBoolean(prevClose != null);
+            out.writeDouble(prevClose == null ? 0.0 : prevClose);
+            out.writeDouble(avgGain);
+            out.writeDouble(avgLoss);
+            out.writeInt(initCount);
+            out.writeBoolean(initialized);
+            out.writeInt(values.size());
+            for (Double v : values) {
+                out.writeBoolean(v != null);
+                out.writeDouble(v == null ? 0.0 : v);
+            }
+        }
+
+        /** Replace this state with one written by {@link #writeState}. */
+        public void readState(DataInput in) throws IOException {
+            period = in.readInt();
+            boolean hasPrev = in.readBoolean();
+            double prev = in.readDouble();
+            prevClose = hasPrev ? prev : null;
+            avgGain = in.readDouble();
+            avgLoss = in.readDouble();
+            initCount = in.readInt();
+            initialized = in.readBoolean();
+            values.clear();
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                boolean present = in.readBoolean();
+                double v = in.readDouble();
+                values.add(present ? v : null);
+            }
+        }
+
         private static double compute(double avgGain, double avgLoss) {
             if (avgLoss == 0.0) return 100.0;
             double rs = avgGain / avgLoss;
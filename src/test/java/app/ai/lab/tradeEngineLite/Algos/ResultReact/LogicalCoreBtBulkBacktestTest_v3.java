@@ -1,7 +1,14 @@
 package app.ai.lab.tradeEngineLite.Algos.ResultReact;
 
 import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.CandleCache;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.ChunkFetchScheduler;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.FetchPlanner;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.HistoricalDataRouter;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.HistoricalDataSource;
 import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalData;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.TokenRouter;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.Runner.BacktestRunner;
 import app.ai.lab.tradeEngineLite.BackTest.Exchange.OrderManagementService;
 import app.ai.lab.tradeEngineLite.Utils.CompanyInfo;
 import org.junit.jupiter.api.Assumptions;
@@ -19,15 +26,15 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 class LogicalCoreBtBulkBacktestTest_v3 {
 
     // === CONFIG ===
-    //  - For dates <= CROSSOVER_DATE -> use Groww
-    //  - For dates  > CROSSOVER_DATE -> use ZIP-based Zerodha data (all 200+ stocks in one pass)
-    private static final String CROSSOVER_DATE_STR = "31-03-25"; // dd-MM-yy
+    //  Each quarter window is routed day by day (HistoricalDataRouter):
+    //  - days with a NIFTY_100 zip -> ZIP-based Zerodha data (all 200+ stocks in one pass)
+    //  - other days                -> Groww candles (from the candle cache when already fetched)
     private static final DateTimeFormatter DDMMYY =
             DateTimeFormatter.ofPattern("dd-MM-yy", Locale.ENGLISH);
-    private static final LocalDate GROWW_ZERODHA_CROSSOVER =
-            LocalDate.parse(CROSSOVER_DATE_STR, DDMMYY);
 
     private static final int GROWW_INTERVAL_MIN = 1440; // 1, 5, 15, 60, 1440
+    private static final int GROWW_MAX_CONCURRENT = 8;  // parallel Groww segments (virtual threads)
+    private static final double GROWW_CALLS_PER_SEC = 0.1; // shared by all segments (one call per 10s)
     private static final int ZERODHA_INTERVAL_MIN = 1;  // not used in ZIP mode but kept for reference
     private static final boolean IS_INDEX = false;
 
@@ -39,6 +46,8 @@ class LogicalCoreBtBulkBacktestTest_v3 {
     // Root folders
     private static final Path DATA_ROOT = Path.of("D:\\Node Project\\Trading\\IntraDay record\\ticker_historic_data");
     private static final String PERFORMANCE_JSON_DIR = "D:\\Node Project\\webscrap\\ms-events\\data\\analyser\\performance";
+    // Groww candles already fetched, per symbol x interval x day; a warm rerun makes no HTTP calls
+    private static final CandleCache GROWW_CACHE = new CandleCache(DATA_ROOT.resolve("candle_cache"));
 
     // Quarter filter:
     // - If empty => all quarters are allowed
@@ -128,6 +137,29 @@ class LogicalCoreBtBulkBacktestTest_v3 {
 
         // === STAGE 1: Build contexts + run GROWW segment per context ===
 
+        // Groww segments are independent per context: run them on virtual threads after the loop
+        BacktestRunner<Integer> growwRunner = new BacktestRunner<Integer>().limit("groww", GROWW_MAX_CONCURRENT);
+        // quarters of one symbol overlap: each coalesced range is fetched once and shared by its contexts
+        FetchPlanner growwPlanner = new FetchPlanner();
+        // one rate limit for every segment: per-stream throttles would multiply the call rate by the concurrency
+        ChunkFetchScheduler growwScheduler = new ChunkFetchScheduler().limit("groww", GROWW_CALLS_PER_SEC, 1);
+
+        // ticks beat candles: a day with a zip is replayed from it even when the Groww cache also has it
+        // (the default costs would prefer the cache); within the archive's span a weekday without a zip
+        // is a holiday, so it must not become a Groww call of its own
+        HistoricalDataSource.Zips zipTier = new HistoricalDataSource.Zips(DATA_ROOT, "NIFTY_100", "09:15 am", "03:30 pm");
+        zipTier.setCostPerDay(1);
+        Set<LocalDate> zipDays = zipTier.coverage(null, LocalDate.of(2000, 1, 1), LocalDate.now());
+        LocalDate firstZipDay = zipDays.isEmpty() ? LocalDate.MAX : Collections.min(zipDays);
+        HistoricalDataRouter router = new HistoricalDataRouter()
+                .add(zipTier)
+                .add(new HistoricalDataSource.Cached(GROWW_CACHE, "groww"))
+                .add(new HistoricalDataSource.Groww());
+        router.setTradingDays(d -> d.getDayOfWeek() != DayOfWeek.SATURDAY && d.getDayOfWeek() != DayOfWeek.SUNDAY
+                && (d.isBefore(firstZipDay) || zipDays.contains(d)));
+        System.out.println("Zip archive from " + (zipDays.isEmpty() ? "-" : firstZipDay.format(DDMMYY))
+                + " (" + zipDays.size() + " days)");
+
         int processedSymbols = 0;
         for (String nse : NSE_SYMBOLS) {
             processedSymbols++;
@@ -190,9 +222,9 @@ class LogicalCoreBtBulkBacktestTest_v3 {
                 }
 
                 System.out.printf(Locale.ROOT,
-                        "   [%s] %d/%d :: %s | dateRaw=%s | window=%s -> %s | crossover=%s%n",
+                        "   [%s] %d/%d :: %s | dateRaw=%s | window=%s -> %s%n",
                         nse, (i + 1), candidates.size(), q.getQuarter(), q.getDateTimeRaw(),
-                        startStr, endStr, CROSSOVER_DATE_STR);
+                        startStr, endStr);
 
                 OrderManagementService oms = new OrderManagementService();
                 LogicalCore_bt_v3 core;
@@ -206,35 +238,47 @@ class LogicalCoreBtBulkBacktestTest_v3 {
                 QuarterContext ctx = new QuarterContext(nse, token, q, oms, core, startDate, endDate);
                 ctxList.add(ctx);
 
-                // ==== GROWW SEGMENT FOR THIS CONTEXT (if any) ====
-                if (!startDate.isAfter(GROWW_ZERODHA_CROSSOVER)) {
-                    LocalDate growwEnd = endDate.isBefore(GROWW_ZERODHA_CROSSOVER)
-                            ? endDate
-                            : GROWW_ZERODHA_CROSSOVER;
-
-                    runGrowwSegment(ctx, startDate, growwEnd);
-                }
+                // ==== ROUTE THE WINDOW: GROWW SEGMENTS (runner) + ZIP SEGMENTS (shared stream) ====
+                List<HistoricalDataRouter.Segment> route = router.plan(
+                        new HistoricalDataSource.Request(nse, token, GROWW_INTERVAL_MIN, IS_INDEX), startDate, endDate);
+                System.out.println("      [ROUTE] " + nse + " " + route);
 
-                // ==== ZIP SEGMENT FOR THIS CONTEXT (if any) ====
-                if (endDate.isAfter(GROWW_ZERODHA_CROSSOVER)) {
-                    LocalDate zStart = startDate.isAfter(GROWW_ZERODHA_CROSSOVER)
-                            ? startDate
-                            : GROWW_ZERODHA_CROSSOVER.plusDays(1); // day after crossover
-
-                    if (!zStart.isAfter(endDate)) {
-                        // We will convert this (zStart..endDate) to epochMs range inside addZipSegment
-                        ZipSegment seg = addZipSegment(ctx, zStart, endDate);
-                        zipSegments.add(seg);
+                List<LocalDate[]> growwSegments = new ArrayList<>();
+                boolean zipSeen = false;
+                for (HistoricalDataRouter.Segment seg : route) {
+                    if ("zip".equals(seg.getSource())) {
+                        zipSeen = true;
+                        // We will convert this (from..to) to epochMs range inside addZipSegment
+                        zipSegments.add(addZipSegment(ctx, seg.getFrom(), seg.getTo()));
 
                         // Update global ZIP range
-                        if (globalZipStart == null || zStart.isBefore(globalZipStart)) {
-                            globalZipStart = zStart;
+                        if (globalZipStart == null || seg.getFrom().isBefore(globalZipStart)) {
+                            globalZipStart = seg.getFrom();
                         }
-                        if (globalZipEnd == null || endDate.isAfter(globalZipEnd)) {
-                            globalZipEnd = endDate;
+                        if (globalZipEnd == null || seg.getTo().isAfter(globalZipEnd)) {
+                            globalZipEnd = seg.getTo();
                         }
+                    } else if (seg.getSource() == null) {
+                        System.out.println("      [GAP] " + nse + " " + seg);
+                    } else if (zipSeen) {
+                        // the shared ZIP pass runs after every Groww segment, so a context cannot go back to Groww
+                        System.out.println("      [SKIP] " + nse + " " + seg + " (after the context's ZIP days)");
+                    } else {
+                        growwSegments.add(new LocalDate[] { seg.getFrom(), seg.getTo() });
                     }
                 }
+
+                if (!growwSegments.isEmpty()) {
+                    for (LocalDate[] g : growwSegments) {
+                        growwPlanner.plan("groww", nse, GROWW_INTERVAL_MIN, g[0], g[1]);
+                    }
+                    growwRunner.add(nse + " " + q.getQuarter(), "groww", () -> {
+                        for (LocalDate[] g : growwSegments) {
+                            runGrowwSegment(ctx, g[0], g[1], growwPlanner, growwScheduler);
+                        }
+                        return ctx.tickCounter.get();
+                    });
+                }
             }
 
             if (!ctxList.isEmpty()) {
@@ -246,6 +290,15 @@ class LogicalCoreBtBulkBacktestTest_v3 {
                     processedSymbols, NSE_SYMBOLS.length, nse, ctxList.size());
         }
 
+        if (growwRunner.size() > 0) {
+            System.out.println("\n=== RUNNING " + growwRunner.size() + " GROWW SEGMENTS ===");
+            BacktestRunner.Report<Integer> report = growwRunner.run();
+            System.out.println("Groww " + report + " loaderCalls=" + growwPlanner.getLoaderCalls()
+                    + " httpCalls=" + growwScheduler.getCalls());
+            report.failures().forEach(r -> System.err.println("   -> " + r));
+            growwPlanner.releaseAll(); // contexts that failed before streaming never release their days
+        }
+
         // === STAGE 2: SINGLE ZIP STREAM FOR ALL SYMBOLS/QUARTERS ===
         if (globalZipStart != null && globalZipEnd != null && !zipSegments.isEmpty()) {
             System.out.println("\n=== RUNNING SHARED ZIP STREAM ===");
@@ -254,7 +307,7 @@ class LogicalCoreBtBulkBacktestTest_v3 {
 
             runSharedZipStream(zipSegments, globalZipStart, globalZipEnd);
         } else {
-            System.out.println("\n=== NO ZIP SEGMENTS NEEDED (all windows <= crossover or filtered out) ===");
+            System.out.println("\n=== NO ZIP SEGMENTS NEEDED (no window reaches the zip archive or all filtered out) ===");
         }
 
         // === STAGE 3: AGGREGATE STATS (PER SYMBOL + GRAND TOTAL) ===
@@ -298,7 +351,8 @@ class LogicalCoreBtBulkBacktestTest_v3 {
     /**
      * Run the Groww segment for one QuarterContext in [startDate, endDate] (inclusive).
      */
-    private void runGrowwSegment(QuarterContext ctx, LocalDate startDate, LocalDate endDate) {
+    private void runGrowwSegment(QuarterContext ctx, LocalDate startDate, LocalDate endDate,
+            FetchPlanner planner, ChunkFetchScheduler scheduler) {
         String segStart = startDate.format(DDMMYY);
         String segEnd = endDate.format(DDMMYY);
 
@@ -337,6 +391,9 @@ class LogicalCoreBtBulkBacktestTest_v3 {
                     -1,
                     cb
             );
+            streamer.setCandleCache(GROWW_CACHE);
+            streamer.setFetchPlanner(planner);
+            streamer.setFetchScheduler(scheduler);
             streamer.stream_groww(ctx.nse, ctx.token, GROWW_INTERVAL_MIN, IS_INDEX);
         } catch (Exception e) {
             System.err.printf(Locale.ROOT,
@@ -369,7 +426,7 @@ class LogicalCoreBtBulkBacktestTest_v3 {
     /**
      * Single ZIP stream:
      *  - Stream NIFTY_100 ZIP data once from globalZipStart..globalZipEnd
-     *  - For each tick, route to all QuarterContexts whose:
+     *  - Route each packet (via TokenRouter) to the QuarterContexts whose:
      *      - token matches
      *      - epochMs is within that context's ZIP window
      */
@@ -377,47 +434,28 @@ class LogicalCoreBtBulkBacktestTest_v3 {
                                     LocalDate globalZipStart,
                                     LocalDate globalZipEnd) {
 
-        // Shared callback that broadcasts every block to all segments
-        StreamHistoricalData.BlockCallback cb = new StreamHistoricalData.BlockCallback() {
-            @Override
-            public boolean onBlock(Block block) {
-                try {
-                    long epochMs = block.getTimeStamp(); // your existing timestamp
-
-                    for (ZipSegment seg : zipSegments) {
-                        // still respect the quarter-specific ZIP window
-                        if (epochMs < seg.startEpochMs || epochMs > seg.endEpochMs) {
-                            continue;
-                        }
-
-                        QuarterContext ctx = seg.ctx;
-                        try {
-                            // every matching tick goes to this quarter's core + OMS
-                            ctx.core.onBlock(block);
-                            ctx.oms.onBlock(block);
-                            ctx.tickCounter.incrementAndGet();
-                        } catch (Exception ex) {
-                            System.err.println("   [ZIP onBlock error] " + ex +
-                                    " for " + ctx.nse +
-                                    " quarter=" + ctx.quarter.getQuarter());
-                        }
-                    }
-                } catch (Exception exOuter) {
-                    System.err.println("   [ZIP onBlock outer error] " + exOuter);
-                }
-                return true;
-            }
-
+        // Route each packet only to the contexts subscribed to its token and
+        // whose quarter-specific ZIP window contains the snapshot
+        TokenRouter router = new TokenRouter() {
             @Override
             public void onError(Exception e, Path source) {
                 System.err.println("   -> ZIP error: " + e + " at " + source);
             }
-
-            @Override
-            public void onEnd() {
-                // no-op
-            }
         };
+        for (ZipSegment seg : zipSegments) {
+            QuarterContext ctx = seg.ctx;
+            router.subscribe(ctx.token, seg.startEpochMs, seg.endEpochMs, block -> {
+                try {
+                    ctx.core.onBlock(block);
+                    ctx.oms.onBlock(block);
+                    ctx.tickCounter.incrementAndGet();
+                } catch (Exception ex) {
+                    System.err.println("   [ZIP onBlock error] " + ex +
+                            " for " + ctx.nse +
+                            " quarter=" + ctx.quarter.getQuarter());
+                }
+            });
+        }
 
         String segStart = globalZipStart.format(DDMMYY);
         String segEnd = globalZipEnd.format(DDMMYY);
@@ -429,8 +467,10 @@ class LogicalCoreBtBulkBacktestTest_v3 {
                     segEnd,
                     "NIFTY_100", // or whatever "combined" name you use
                     -1,
-                    cb
+                    router
             );
+            // only decode packets for the traded symbols; the rest are skipped by header peek
+            streamer.setTokenFilter(router.tokenFilter());
             System.out.println("      [ZIP STREAM] NIFTY_100 " + segStart + " -> " + segEnd);
             streamer.stream("09:15 am", "03:30 pm");
         } catch (Exception e) {
@@ -0,0 +1,145 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.writeDayZip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BarStoreTest {
+
+    private static final long T0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+    private static final LocalDate DAY = LocalDate.of(2025, 9, 5);
+
+    // stock ltp = ts % 100 000, volume = ts % 1 000 (see StreamHistoricalDataTest.snapshot)
+    private static final long[] TICKS = {
+            T0 + 1_007, T0 + 2_009,                                  // 09:00
+            T0 + 61_000, T0 + 99_500, T0 + 100_250, T0 + 110_040 };  // 09:01
+
+    @Test
+    void rollup_buildsBarsOfEveryResolution() throws Exception {
+        Path root = Files.createTempDirectory("bars_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", TICKS);
+        Path storeDir = root.resolve("bars");
+
+        BarStore store = BarStore.rollup(root, "NIFTY_100", "05-09-25", "05-09-25", storeDir, null);
+
+        List<BarStore.Bar> m1 = stock(store.bars(BarStore.Resolution.M1, "NIFTY_100", DAY));
+        assertEquals(2, m1.size());
+        assertBar(m1.get(0), T0, 1_007, 2_009, 1_007, 2_009, 9);
+        assertBar(m1.get(1), T0 + 60_000, 61_000, 99_500, 250, 10_040, 31);
+        assertEquals(4, m1.get(1).getTicks());
+        assertEquals(T0 + 110_040, m1.get(1).getLastTs());
+
+        List<BarStore.Bar> m5 = stock(store.bars(BarStore.Resolution.M5, "NIFTY_100", DAY));
+        assertEquals(1, m5.size());
+        assertBar(m5.get(0), T0, 1_007, 99_500, 250, 10_040, 40);
+
+        List<BarStore.Bar> d1 = store.bars(BarStore.Resolution.D1, "NIFTY_100", DAY);
+        assertEquals(2, d1.size()); // stock + index
+        assertEquals(T0 - 9 * 3_600_000L, d1.get(0).getStart()); // IST midnight
+        BarStore.Bar index = d1.get(0).isIndex() ? d1.get(0) : d1.get(1);
+        assertEquals(256265, index.getToken());
+        assertEquals(2_450_007, index.getOpen());
+        assertEquals(2_450_040, index.getClose());
+        assertEquals(2_450_500, index.getHigh());
+
+        BarStore reopened = BarStore.open(storeDir);
+        assertEquals(1, reopened.days().size());
+        assertEquals(2, reopened.days().get(0).getTokens());
+        assertEquals(T0 + 1_007, reopened.days().get(0).getFirstTs());
+    }
+
+    @Test
+    void rollup_skipsUnchangedDays_andRebuildsChangedOnes() throws Exception {
+        Path root = Files.createTempDirectory("bars_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", TICKS);
+        Path storeDir = root.resolve("bars");
+
+        BarStore first = BarStore.rollup(root, "NIFTY_100", "05-09-25", "06-09-25", storeDir, null);
+        assertEquals(1, first.getLastRolledUp());
+        Path m1 = first.file(BarStore.Resolution.M1, "NIFTY_100", DAY);
+        byte[] bytes = Files.readAllBytes(m1);
+
+        BarStore again = BarStore.rollup(root, "NIFTY_100", "05-09-25", "06-09-25", storeDir, null);
+        assertEquals(0, again.getLastRolledUp());
+        assertEquals(1, again.getLastSkipped());
+
+        // same zips => same bytes
+        Files.delete(storeDir.resolve(BarStore.MANIFEST));
+        assertEquals(1, BarStore.rollup(root, "NIFTY_100", "05-09-25", "06-09-25", storeDir, null).getLastRolledUp());
+        assertArrayEquals(bytes, Files.readAllBytes(m1));
+
+        long[] more = java.util.Arrays.copyOf(TICKS, TICKS.length + 1);
+        more[TICKS.length] = T0 + 125_000;
+        writeDayZip(root, "NIFTY_100", "05-09-25", more);
+        BarStore changed = BarStore.rollup(root, "NIFTY_100", "05-09-25", "06-09-25", storeDir, null);
+        assertEquals(1, changed.getLastRolledUp());
+        assertEquals(3, stock(changed.bars(BarStore.Resolution.M1, "NIFTY_100", DAY)).size());
+    }
+
+    @Test
+    void rollup_rebuildsADayWhenMoreTokensAreAsked() throws Exception {
+        Path root = Files.createTempDirectory("bars_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", TICKS);
+        Path storeDir = root.resolve("bars");
+
+        BarStore stockOnly = BarStore.rollup(root, "NIFTY_100", "05-09-25", "05-09-25", storeDir,
+                TokenFilter.of(408065));
+        assertEquals(1, stockOnly.getLastRolledUp());
+        assertEquals(1, stockOnly.bars(BarStore.Resolution.D1, "NIFTY_100", DAY).size());
+
+        BarStore index = BarStore.rollup(root, "NIFTY_100", "05-09-25", "05-09-25", storeDir,
+                TokenFilter.of(256265));
+        assertEquals(1, index.getLastRolledUp());
+        assertEquals(2, index.bars(BarStore.Resolution.D1, "NIFTY_100", DAY).size()); // keeps the stock
+        assertEquals("256265;408065", BarStore.open(storeDir).days().get(0).getFilter());
+
+        assertEquals(1, BarStore.rollup(root, "NIFTY_100", "05-09-25", "05-09-25", storeDir,
+                TokenFilter.of(408065)).getLastSkipped());
+        assertEquals(1, BarStore.rollup(root, "NIFTY_100", "05-09-25", "05-09-25", storeDir, null)
+                .getLastRolledUp());
+        assertEquals(1, BarStore.rollup(root, "NIFTY_100", "05-09-25", "05-09-25", storeDir,
+                TokenFilter.of(999)).getLastSkipped());
+    }
+
+    @Test
+    void streamBars_replaysTheIntrabarPath() throws Exception {
+        Path root = Files.createTempDirectory("bars_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", TICKS);
+        BarStore store = BarStore.rollup(root, "NIFTY_100", "05-09-25", "05-09-25", root.resolve("bars"), null);
+
+        List<Long> ts = new ArrayList<>();
+        List<Long> ltp = new ArrayList<>();
+        StreamHistoricalData streamer = store.streamer("NIFTY_100", "05-09-25", "05-09-25", -1, block -> {
+            assertEquals(1, block.getInfo().size());
+            ts.add(block.getTimeStamp());
+            ltp.add(((Block.StockPacket) block.getInfo().get(0)).getLastTradedPrice());
+            return true;
+        });
+        streamer.setTokenFilter(TokenFilter.of(408065));
+        streamer.stream_bars(BarStore.Resolution.M1, BarStore.IntrabarPath.OLHC);
+
+        assertEquals(List.of(T0 + 1_007, T0 + 1_341, T0 + 1_675, T0 + 2_009,
+                T0 + 61_000, T0 + 77_346, T0 + 93_693, T0 + 110_040), ts);
+        assertEquals(List.of(1_007L, 1_007L, 2_009L, 2_009L, 61_000L, 250L, 99_500L, 10_040L), ltp);
+    }
+
+    private static List<BarStore.Bar> stock(List<BarStore.Bar> bars) {
+        List<BarStore.Bar> out = new ArrayList<>();
+        for (BarStore.Bar b : bars) if (!b.isIndex()) out.add(b);
+        return out;
+    }
+
+    private static void assertBar(BarStore.Bar b, long start, int o, int h, int l, int c, long volume) {
+        assertEquals(408065, b.getToken());
+        assertEquals(start, b.getStart());
+        assertEquals(List.of(o, h, l, c), List.of(b.getOpen(), b.getHigh(), b.getLow(), b.getClose()), b.toString());
+        assertEquals(volume, b.getVolume());
+    }
+}
@@ -0,0 +1,123 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.snapshot;
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.writeDayZip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockPublisherTest {
+
+    private static final long T0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+
+    @Test
+    void zipPublisher_emitsOnlyWhatWasRequested_thenCompletes() throws Exception {
+        Path root = Files.createTempDirectory("publisher_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000, T0 + 2_000, T0 + 3_000, T0 + 4_000);
+        BlockPublisher publisher = StreamHistoricalData.publisher(root, "05-09-25", "05-09-25", "NIFTY_100",
+                StreamHistoricalData::stream);
+
+        BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        publisher.subscribe(new Flow.Subscriber<Block>() {
+            @Override public void onSubscribe(Flow.Subscription s) { subscription[0] = s; }
+            @Override public void onNext(Block block) { signals.add(block.getTimeStamp()); }
+            @Override public void onError(Throwable t) { signals.add(t); }
+            @Override public void onComplete() { signals.add("complete"); }
+        });
+
+        subscription[0].request(2);
+        assertEquals(T0, signals.poll(5, TimeUnit.SECONDS));
+        assertEquals(T0 + 1_000, signals.poll(5, TimeUnit.SECONDS));
+        assertNull(signals.poll(100, TimeUnit.MILLISECONDS), "producer must wait for demand");
+
+        subscription[0].request(Long.MAX_VALUE);
+        assertEquals(T0 + 2_000, signals.poll(5, TimeUnit.SECONDS));
+        assertEquals(T0 + 3_000, signals.poll(5, TimeUnit.SECONDS));
+        assertEquals(T0 + 4_000, signals.poll(5, TimeUnit.SECONDS));
+        assertEquals("complete", signals.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancelStopsTheProducer_andBadRequestSignalsError() throws Exception {
+        AtomicInteger produced = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(1);
+        BlockPublisher publisher = new BlockPublisher(cb -> {
+            try {
+                for (long t = 0; t < 1_000; t++) {
+                    if (!cb.onBlock(snapshot(T0 + t))) return;
+                    produced.incrementAndGet();
+                }
+            } finally {
+                finished.countDown();
+            }
+        });
+
+        List<Object> signals = new ArrayList<>();
+        publisher.subscribe(new Flow.Subscriber<Block>() {
+            private Flow.Subscription s;
+            @Override public void onSubscribe(Flow.Subscription s) { this.s = s; s.request(3); }
+            @Override public void onNext(Block block) {
+                signals.add(block.getTimeStamp());
+                if (signals.size() == 3) s.cancel();
+            }
+            @Override public void onError(Throwable t) { signals.add(t); }
+            @Override public void onComplete() { signals.add("complete"); }
+        });
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(T0, T0 + 1, T0 + 2), signals);
+        assertEquals(3, produced.get());
+
+        BlockingQueue<Object> errors = new LinkedBlockingQueue<>();
+        publisher.subscribe(new Flow.Subscriber<Block>() {
+            @Override public void onSubscribe(Flow.Subscription s) { s.request(0); }
+            @Override public void onNext(Block block) { errors.add(block); }
+            @Override public void onError(Throwable t) { errors.add(t); }
+            @Override public void onComplete() { errors.add("complete"); }
+        });
+        assertInstanceOf(IllegalArgumentException.class, errors.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void callbackAdapter_pullsInBatches_andCallsOnEndOnce() throws Exception {
+        BlockPublisher publisher = new BlockPublisher(cb -> {
+            for (long t = 0; t < 10; t++) {
+                if (!cb.onBlock(snapshot(T0 + t))) return;
+            }
+            cb.onError(new IOException("bad zip"), null);
+        });
+        List<Exception> nonFatal = new ArrayList<>();
+        publisher.setErrorHandler((e, source) -> nonFatal.add(e));
+
+        List<Long> seen = new ArrayList<>();
+        CountDownLatch ended = new CountDownLatch(1);
+        publisher.subscribe(new StreamHistoricalData.BlockCallback() {
+            @Override
+            public boolean onBlock(Block block) {
+                seen.add(block.getTimeStamp() - T0);
+                return true;
+            }
+
+            @Override
+            public void onEnd() {
+                ended.countDown();
+            }
+        }, 3);
+
+        assertTrue(ended.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), seen);
+        assertEquals(1, nonFatal.size());
+    }
+}
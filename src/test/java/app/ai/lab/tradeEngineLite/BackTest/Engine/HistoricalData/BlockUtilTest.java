@@ -11,8 +11,11 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -120,8 +123,94 @@ public class BlockUtilTest {
         assertTrue(Files.exists(outZip), "Output ZIP not found: " + outZip);
     }
 
+    @Test
+    void blockView_readsSameFieldsAsMaterializedBlock() {
+        byte[] bin = BlockUtils.parseBlockToBin(syntheticBlock());
+
+        // direct buffer too, to make sure nothing relies on array()
+        ByteBuffer direct = ByteBuffer.allocateDirect(bin.length);
+        direct.put(bin).flip();
+
+        BlockView view = BlockUtils.viewBin(direct, 42L, null);
+        assertNotNull(view, "view should wrap a well-formed snapshot");
+        assertEquals(42L, view.getTimeStamp());
+        assertEquals(2, view.getPacketCount());
+
+        assertTrue(view.next());
+        assertTrue(view.isStock());
+        assertEquals(408065, view.token());
+        StockPacketView sp = view.stock();
+        assertEquals(152_035L, sp.getLastTradedPrice());
+        assertEquals(77L, sp.getVolumeTraded());
+        assertEquals(1_700_000_000L, sp.getExchangeTimestamp());
+        assertEquals(152_030L, sp.getDepthPrice(3));
+        assertEquals(3L, sp.getDepthQuantity(3));
+        assertEquals(4, sp.getDepthOrders(3));
+
+        assertTrue(view.next());
+        assertTrue(view.isIndex());
+        IndexPacketView ip = view.index();
+        assertEquals(256265L, ip.getToken());
+        assertEquals(2_450_010L, ip.getLastTradedPrice());
+        assertFalse(view.next());
+
+        // opt-in materialization matches the classic decoder
+        Block fromView = view.toBlock();
+        Block classic = BlockUtils.parseBinToBlock(bin, 42L).orElseThrow();
+        assertEquals(MAPPER.valueToTree(classic), MAPPER.valueToTree(fromView));
+    }
+
+    @Test
+    void blockView_rejectsTruncatedSnapshot() {
+        byte[] bin = BlockUtils.parseBlockToBin(syntheticBlock());
+        byte[] truncated = java.util.Arrays.copyOf(bin, bin.length - 5);
+
+        assertNull(BlockUtils.viewBin(ByteBuffer.wrap(truncated), 1L, new BlockView()));
+        assertTrue(BlockUtils.parseBinToBlock(truncated, 1L).isEmpty());
+    }
+
+    @Test
+    void tokenFilter_decodesOnlyMatchingPackets() {
+        byte[] bin = BlockUtils.parseBlockToBin(syntheticBlock());
+
+        Block onlyIndex = BlockUtils.parseBinToBlock(bin, 7L, TokenFilter.of(256265)).orElseThrow();
+        assertEquals(1, onlyIndex.getInfo().size());
+        assertTrue(onlyIndex.getInfo().get(0) instanceof Block.IndexPacket);
+
+        Block none = BlockUtils.parseBinToBlock(bin, 7L, TokenFilter.of(1, 2, 3)).orElseThrow();
+        assertTrue(none.getInfo().isEmpty());
+
+        Block all = BlockUtils.parseBinToBlock(bin, 7L, null).orElseThrow();
+        assertEquals(2, all.getInfo().size());
+
+        // larger sets take the binary-search path
+        TokenFilter wide = TokenFilter.of(9, 8, 7, 6, 5, 4, 3, 2, 1, 408065);
+        assertTrue(wide.matches(408065));
+        assertFalse(wide.matches(256265));
+        assertEquals(10, wide.size());
+    }
+
     // -------- helpers --------
 
+    static Block syntheticBlock() {
+        Block.StockPacket sp = new Block.StockPacket();
+        sp.setInstrumentToken(408065);
+        sp.setLastTradedPrice(152_035);
+        sp.setVolumeTraded(77);
+        sp.setExchangeTimestamp(1_700_000_000L);
+        List<Block.MarketDepthEntry> depth = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            depth.add(new Block.MarketDepthEntry(i, 152_000 + i * 10, i + 1));
+        }
+        sp.setMarketDepth(depth);
+
+        Block.IndexPacket ip = new Block.IndexPacket();
+        ip.setToken(256265);
+        ip.setLastTradedPrice(2_450_010);
+
+        return new Block(42L, new ArrayList<>(List.of(sp, ip)));
+    }
+
     private static long extractTimestamp(Path binPath) {
         String name = binPath.getFileName().toString();
         // matches: timestamp_(digits).bin
@@ -0,0 +1,109 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CandleCacheTest {
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    /** Fake API: one 09:15 candle per weekday, close = day of month; records every call. */
+    static final class FakeApi implements CandleCache.Loader {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public CandleSeries load(LocalDate from, LocalDate to) {
+            calls.add(from + ".." + to);
+            CandleSeries out = new CandleSeries();
+            for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+                if (d.getDayOfWeek() == DayOfWeek.SATURDAY || d.getDayOfWeek() == DayOfWeek.SUNDAY) continue;
+                long ms = ZonedDateTime.of(d, LocalTime.of(9, 15), IST).toInstant().toEpochMilli();
+                out.add(ms, 100.5, 101.25, 99.75, d.getDayOfMonth(), 1_000L * d.getDayOfMonth(), 0);
+            }
+            return out;
+        }
+    }
+
+    @Test
+    void onlyMissingDaysAreFetched_andAWarmRerunMakesNoCalls() throws Exception {
+        CandleCache cache = cache(Files.createTempDirectory("candles_"), "2025-10-01T12:00");
+        FakeApi api = new FakeApi();
+
+        CandleSeries first = cache.candles("groww", "INFY", 1440, day(9, 1), day(9, 10), 4, api);
+        assertEquals(List.of("2025-09-01..2025-09-04", "2025-09-05..2025-09-08", "2025-09-09..2025-09-10"), api.calls);
+        assertEquals(8, first.size()); // the weekend of 6/7 Sep is cached as empty days
+
+        api.calls.clear();
+        CandleSeries wider = cache.candles("groww", "INFY", 1440, LocalDate.of(2025, 8, 28), day(9, 12), 4, api);
+        assertEquals(List.of("2025-08-28..2025-08-31", "2025-09-11..2025-09-12"), api.calls);
+        List<Double> closes = new ArrayList<>();
+        for (int i = 0; i < wider.size(); i++) closes.add(wider.close(i));
+        assertEquals(List.of(28.0, 29.0, 1.0, 2.0, 3.0, 4.0, 5.0, 8.0, 9.0, 10.0, 11.0, 12.0), closes);
+
+        api.calls.clear();
+        long before = cache.getNetworkCalls();
+        CandleSeries warm = cache.candles("groww", "INFY", 1440, LocalDate.of(2025, 8, 28), day(9, 12), 4, api);
+        assertTrue(api.calls.isEmpty());
+        assertEquals(before, cache.getNetworkCalls());
+        assertEquals(wider.size(), warm.size());
+        assertEquals(List.of(wider.epochMs(5), wider.open(5), wider.high(5), wider.low(5), wider.close(5), wider.volume(5)),
+                List.of(warm.epochMs(5), warm.open(5), warm.high(5), warm.low(5), warm.close(5), warm.volume(5)));
+        assertEquals("2025-09-04T09:15:00+0530", warm.timestamp(5));
+
+        // other keys and intervals are separate entries
+        assertEquals(1, cache.missingRanges("groww", "TCS", 1440, day(9, 1), day(9, 10)).size());
+        assertEquals(1, cache.missingRanges("groww", "INFY", 15, day(9, 1), day(9, 10)).size());
+    }
+
+    @Test
+    void todayIsFetchedButNotCached() throws Exception {
+        CandleCache cache = cache(Files.createTempDirectory("candles_"), "2025-09-10T11:00");
+        FakeApi api = new FakeApi();
+
+        assertEquals(2, cache.candles("zerodha", "408065", 1, day(9, 9), day(9, 10), 60, api).size());
+        assertEquals(2, cache.candles("zerodha", "408065", 1, day(9, 9), day(9, 10), 60, api).size());
+        assertEquals(List.of("2025-09-09..2025-09-10", "2025-09-10..2025-09-10"), api.calls);
+    }
+
+    @Test
+    void throttleAppliesOnlyToNetworkCalls() throws Exception {
+        CandleCache cache = cache(Files.createTempDirectory("candles_"), "2025-10-01T12:00");
+        cache.setThrottleMs(200);
+        FakeApi api = new FakeApi();
+
+        long t0 = System.nanoTime();
+        cache.candles("groww", "INFY", 1440, day(9, 1), day(9, 9), 3, api); // 3 calls, 2 waits
+        long coldMs = (System.nanoTime() - t0) / 1_000_000L;
+        assertTrue(coldMs >= 390, "cold run took " + coldMs + " ms");
+
+        t0 = System.nanoTime();
+        cache.candles("groww", "INFY", 1440, day(9, 1), day(9, 9), 3, api);
+        long warmMs = (System.nanoTime() - t0) / 1_000_000L;
+        assertTrue(warmMs < 150, "warm run took " + warmMs + " ms");
+        assertEquals(3, api.calls.size());
+    }
+
+    private static CandleCache cache(Path dir, String nowIst) {
+        CandleCache cache = new CandleCache(dir);
+        cache.setThrottleMs(0);
+        ZonedDateTime now = ZonedDateTime.of(java.time.LocalDateTime.parse(nowIst), IST);
+        cache.setClock(Clock.fixed(now.toInstant(), IST));
+        return cache;
+    }
+
+    private static LocalDate day(int month, int dayOfMonth) {
+        return LocalDate.of(2025, month, dayOfMonth);
+    }
+}
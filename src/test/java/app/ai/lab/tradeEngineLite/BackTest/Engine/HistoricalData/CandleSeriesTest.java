@@ -0,0 +1,95 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CandleSeriesTest {
+
+    @Test
+    void zerodhaPayload_matchesThePojoDeserializer() throws Exception {
+        StringBuilder json = new StringBuilder("{\"data\":{\"extra\":{\"a\":[1,2]},\"candles\":[");
+        for (int i = 0; i < 500; i++) {
+            if (i > 0) json.append(',');
+            int minute = 15 + i;
+            json.append("[\"2025-09-05T").append(String.format("%02d:%02d", 9 + minute / 60, minute % 60))
+                    .append(":00+0530\",").append(2450.5 + i).append(',').append(2452 + i).append(',')
+                    .append(2449.25 + i).append(',').append(2451 + i).append(',').append(1000 + i).append(',')
+                    .append(i * 7).append(']');
+        }
+        json.append("]},\"status\":\"success\"}"); // status after data
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        CandleSeries series = CandleSeries.parseZerodha(in(bytes));
+        HistoricalCandleFetcherZerodha.ZerodhaResponse pojo =
+                new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false) // as in Spring
+                        .readValue(bytes, HistoricalCandleFetcherZerodha.ZerodhaResponse.class);
+
+        assertEquals(500, series.size());
+        DateTimeFormatter f = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+        for (int i = 0; i < 500; i++) {
+            HistoricalCandleFetcherZerodha.Candle c = pojo.data.candles.get(i);
+            assertEquals(OffsetDateTime.parse(c.timestamp, f).toInstant().toEpochMilli(), series.epochMs(i));
+            assertEquals(c.timestamp, series.timestamp(i));
+            assertEquals(List.of(c.open, c.high, c.low, c.close),
+                    List.of(series.open(i), series.high(i), series.low(i), series.close(i)));
+            assertEquals(List.of(c.volume, c.oi), List.of(series.volume(i), series.oi(i)));
+        }
+        assertEquals(1_757_043_900_000L, series.epochMs(0)); // 05-09-25 09:15 IST
+    }
+
+    @Test
+    void zerodhaErrors_areReported() {
+        assertThrows(IOException.class,
+                () -> CandleSeries.parseZerodha(in("{\"status\":\"error\",\"message\":\"Invalid token\"}")));
+        assertThrows(IOException.class, () -> CandleSeries.parseZerodha(
+                in("{\"status\":\"success\",\"data\":{\"candles\":[[\"2025-09-05T09:15:00+0530\",1,2,0.5,1.5]]}}")));
+    }
+
+    @Test
+    void growwPayload_skipsIncompleteRows() throws Exception {
+        String json = "{\"candles\":[[1757043900,100.5,101,99.5,100.75,12345],"
+                + "[null,1,1,1,1,1],[1757044800,1,2],"
+                + "[\"1757044800\",101,102,100,101.5,null,\"ignored\"]],"
+                + "\"changeValue\":1.5,\"closingPrice\":{\"v\":1}}";
+        CandleSeries s = CandleSeries.parseGroww(in(json));
+
+        assertEquals(2, s.size());
+        assertEquals(1_757_043_900_000L, s.epochMs(0));
+        assertEquals(List.of(100.5, 101.0, 99.5, 100.75), List.of(s.open(0), s.high(0), s.low(0), s.close(0)));
+        assertEquals(List.of(12_345L, 0L), List.of(s.volume(0), s.oi(0)));
+        assertEquals(1_757_044_800_000L, s.epochMs(1));
+        assertEquals(0L, s.volume(1));
+        assertEquals(0, CandleSeries.parseGroww(in("{\"candles\":null}")).size());
+    }
+
+    @Test
+    void timestampParser_handlesOffsetsAndRejectsOtherShapes() {
+        for (String ts : new String[] { "2025-09-05T09:15:00+0530", "2024-02-29T23:59:59+05:30",
+                "1999-12-31T18:30:00Z", "2025-01-01T00:00:00-0400" }) {
+            long expected = OffsetDateTime.parse(ts.endsWith("Z") || ts.charAt(ts.length() - 3) == ':' ? ts
+                    : ts.substring(0, 22) + ":" + ts.substring(22)).toInstant().toEpochMilli();
+            assertEquals(expected, CandleSeries.parseTimestamp(ts.toCharArray(), 0, ts.length()), ts);
+        }
+        String bad = "2025-09-05 09:15:00";
+        assertEquals(Long.MIN_VALUE, CandleSeries.parseTimestamp(bad.toCharArray(), 0, bad.length()));
+    }
+
+    private static InputStream in(String s) {
+        return in(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream in(byte[] b) {
+        return new ByteArrayInputStream(b);
+    }
+}
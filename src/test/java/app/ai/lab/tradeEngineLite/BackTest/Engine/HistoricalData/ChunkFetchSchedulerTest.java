@@ -0,0 +1,200 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChunkFetchSchedulerTest {
+
+    @Test
+    void chunksRunConcurrently_butAreDeliveredInOrder_afterRetries() throws Exception {
+        ChunkFetchScheduler scheduler = new ChunkFetchScheduler();
+        scheduler.setMaxInFlight(4);
+        scheduler.setBackoff(5, 50);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        AtomicInteger flaky = new AtomicInteger();
+
+        List<Callable<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            final int id = i;
+            chunks.add(() -> scheduler.call("stub", () -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(40 - 3L * (id % 4)); // later chunks of a window finish first
+                    if (id == 5 && flaky.getAndIncrement() < 2) throw new IOException("HTTP 429");
+                    if (id == 9) throw new IllegalStateException("bad chunk");
+                    return id;
+                } finally {
+                    active.decrementAndGet();
+                }
+            }));
+        }
+
+        List<Integer> delivered = new ArrayList<>();
+        List<Integer> failed = new ArrayList<>();
+        boolean completed = scheduler.run(chunks, new ChunkFetchScheduler.Sink<Integer>() {
+            @Override
+            public boolean onResult(int chunk, Integer value) {
+                assertEquals(Integer.valueOf(chunk), value);
+                delivered.add(value);
+                return true;
+            }
+
+            @Override
+            public boolean onFailure(int chunk, Exception error) {
+                assertInstanceOf(IllegalStateException.class, error);
+                failed.add(chunk);
+                return true;
+            }
+        });
+
+        assertTrue(completed);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 10, 11), delivered);
+        assertEquals(List.of(9), failed);
+        assertTrue(maxActive.get() > 1 && maxActive.get() <= 4, "maxActive=" + maxActive.get());
+        assertEquals(4, scheduler.getRetries()); // 2 for chunk 5, 2 for chunk 9
+        assertEquals(16, scheduler.getCalls());
+    }
+
+    @Test
+    void stoppingTheSink_cancelsChunksStillRunning() throws Exception {
+        ChunkFetchScheduler scheduler = new ChunkFetchScheduler();
+        List<Callable<Integer>> chunks = new ArrayList<>();
+        chunks.add(() -> 0);
+        for (int i = 1; i < 4; i++) {
+            chunks.add(() -> {
+                Thread.sleep(10_000);
+                return -1;
+            });
+        }
+        long t0 = System.nanoTime();
+        boolean completed = scheduler.run(chunks, new ChunkFetchScheduler.Sink<Integer>() {
+            @Override
+            public boolean onResult(int chunk, Integer value) {
+                return false;
+            }
+
+            @Override
+            public boolean onFailure(int chunk, Exception error) {
+                return true;
+            }
+        });
+        assertFalse(completed);
+        assertTrue(System.nanoTime() - t0 < 5_000_000_000L);
+    }
+
+    @Test
+    void tokenBucket_capsTheCallRate() throws Exception {
+        ChunkFetchScheduler.TokenBucket bucket = new ChunkFetchScheduler.TokenBucket(20, 2);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 12; i++) bucket.acquire(); // 2 at once, then 10 at 20/s
+        long ms = (System.nanoTime() - t0) / 1_000_000L;
+        assertTrue(ms >= 450 && ms < 1_500, "took " + ms + " ms");
+    }
+
+    @Test
+    void streamZerodha_fetchesChunksConcurrently_fromAStubServer() throws Exception {
+        Set<String> rejectedOnce = ConcurrentHashMap.newKeySet();
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/oms/instruments/historical/408065/minute", ex -> {
+            requests.incrementAndGet();
+            String from = query(ex, "from");
+            String to = query(ex, "to");
+            if (from.equals("2025-03-02") && rejectedOnce.add(from)) {
+                respond(ex, 429, "{\"status\":\"error\"}");
+                return;
+            }
+            try {
+                Thread.sleep(from.equals("2025-01-01") ? 300 : 50); // the first chunk answers last
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(ex, 200, candlesJson(LocalDate.parse(from), LocalDate.parse(to)));
+        });
+        server.start();
+        try {
+            List<Long> ts = new ArrayList<>();
+            List<Long> ltp = new ArrayList<>();
+            List<Exception> errors = new ArrayList<>();
+            StreamHistoricalData streamer = new StreamHistoricalData(Files.createTempDirectory("zerodha_"),
+                    "01-01-25", "31-05-25", "NIFTY_100", -1, new StreamHistoricalData.BlockCallback() {
+                        @Override
+                        public boolean onBlock(Block block) {
+                            ts.add(block.getTimeStamp());
+                            ltp.add(((Block.StockPacket) block.getInfo().get(0)).getLastTradedPrice());
+                            return true;
+                        }
+
+                        @Override
+                        public void onError(Exception e, java.nio.file.Path source) {
+                            errors.add(e);
+                        }
+                    });
+            ChunkFetchScheduler scheduler = new ChunkFetchScheduler().limit("zerodha", 50, 3);
+            scheduler.setBackoff(10, 100);
+            streamer.setFetchScheduler(scheduler);
+            streamer.setZerodhaBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+
+            long t0 = System.nanoTime();
+            streamer.stream_zerodha("stub", 408065, 1, false);
+            long ms = (System.nanoTime() - t0) / 1_000_000L;
+
+            assertTrue(errors.isEmpty(), errors.toString());
+            assertEquals(151 * 4, ts.size()); // 3 chunks: 60 + 60 + 31 days
+            for (int i = 1; i < ts.size(); i++) assertTrue(ts.get(i) > ts.get(i - 1), "out of order at " + i);
+            assertEquals(List.of(10_000L, 9_900L, 10_100L, 10_050L), ltp.subList(0, 4)); // O, L, H, C of 1 Jan
+            assertEquals(4, requests.get()); // one 429 retried
+            assertEquals(1, scheduler.getRetries());
+            assertTrue(ms < 5_000, "took " + ms + " ms"); // serially: 2 x 10 s chunk pauses
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /** One 09:15 candle per day: open 100 + day-of-year, low -1, high +1, close +0.5. */
+    private static String candlesJson(LocalDate from, LocalDate to) {
+        StringBuilder sb = new StringBuilder("{\"status\":\"success\",\"data\":{\"candles\":[");
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            double open = 99 + d.getDayOfYear();
+            if (d.isAfter(from)) sb.append(',');
+            sb.append("[\"").append(d).append("T09:15:00+0530\",").append(open).append(',').append(open + 1)
+                    .append(',').append(open - 1).append(',').append(open + 0.5).append(",1000,0]");
+        }
+        return sb.append("]}}").toString();
+    }
+
+    private static String query(HttpExchange ex, String name) {
+        for (String kv : ex.getRequestURI().getRawQuery().split("&")) {
+            if (kv.startsWith(name + "=")) return kv.substring(name.length() + 1);
+        }
+        throw new IllegalArgumentException("missing " + name);
+    }
+
+    private static void respond(HttpExchange ex, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.IndexPacket;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block.StockPacket;
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.ColumnarDayFile.Column;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.writeDayZip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarDayFileTest {
+
+    private static final long T0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+
+    @Test
+    void convertedDays_replaySameTicksAsZips() throws IOException {
+        Path root = Files.createTempDirectory("tcol_rt_");
+        long d2 = T0 + 86_400_000L;
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000, T0 + 2_000);
+        writeDayZip(root, "NIFTY_100", "06-09-25", d2, d2 + 1_000);
+
+        List<Path> files = ColumnarDayFile.convert(root, "NIFTY_100", "04-09-25", "06-09-25", root, false);
+        assertEquals(List.of(root.resolve("NIFTY_100_05-09-25.tcol"), root.resolve("NIFTY_100_06-09-25.tcol")), files);
+
+        StreamHistoricalData streamer = new StreamHistoricalData(root, "05-09-25", "06-09-25", "NIFTY_100", -1);
+        List<String> fromZips = new ArrayList<>();
+        streamer.stream(ticks(fromZips));
+        List<String> fromColumns = new ArrayList<>();
+        streamer.stream_columnar(ticks(fromColumns));
+
+        assertEquals(10, fromZips.size()); // 5 snapshots x (stock + index)
+        assertEquals(fromZips, fromColumns);
+
+        try (ColumnarDayFile.Reader reader = ColumnarDayFile.Reader.open(files.get(0))) {
+            assertEquals(3, reader.getSnapshotCount());
+            assertEquals(6, reader.getTickCount());
+            assertEquals(T0, reader.getFirstTimestamp());
+            assertEquals(T0 + 2_000, reader.getLastTimestamp());
+            assertFalse(reader.hasDepth());
+        }
+    }
+
+    @Test
+    void ltpOnlyReplay_mapsFewerBytesAndZeroesOtherFields() throws IOException {
+        Path root = Files.createTempDirectory("tcol_ltp_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000);
+        Path file = ColumnarDayFile.convert(root, "NIFTY_100", "05-09-25", "05-09-25", root, true).get(0);
+
+        try (ColumnarDayFile.Reader reader = ColumnarDayFile.Reader.open(file)) {
+            assertTrue(reader.bytesFor(EnumSet.of(Column.LTP)) < reader.bytesFor(EnumSet.allOf(Column.class)));
+        }
+
+        List<String> seen = new ArrayList<>();
+        StreamHistoricalData streamer = new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1);
+        streamer.setTokenFilter(TokenFilter.of(408065));
+        streamer.stream_columnar(EnumSet.of(Column.LTP), ticks(seen));
+        assertEquals(List.of(
+                "S " + T0 + " 408065 " + (T0 % 100_000) + " 0 0 0 0",
+                "S " + (T0 + 1_000) + " 408065 " + ((T0 + 1_000) % 100_000) + " 0 0 0 0"), seen);
+    }
+
+    @Test
+    void depthColumn_roundTripsThroughBlocks() throws IOException {
+        Block original = BlockUtilTest.syntheticBlock();
+        BlockView view = new BlockView();
+        assertTrue(view.wrap(BlockUtils.parseBlockToBin(original), 42L));
+
+        Path file = Files.createTempDirectory("tcol_depth_").resolve("X_05-09-25.tcol");
+        ColumnarDayFile.Writer writer = new ColumnarDayFile.Writer(true);
+        writer.add(view);
+        writer.writeTo(file);
+
+        List<Block> blocks = new ArrayList<>();
+        try (ColumnarDayFile.Reader reader = ColumnarDayFile.Reader.open(file)) {
+            assertTrue(reader.hasDepth());
+            assertTrue(reader.replay(null, block -> blocks.add(block)));
+        }
+        assertEquals(1, blocks.size());
+        assertEquals(42L, blocks.get(0).getTimeStamp());
+
+        StockPacket want = (StockPacket) original.getInfo().get(0);
+        StockPacket got = (StockPacket) blocks.get(0).getInfo().get(0);
+        assertEquals(want.getLastTradedPrice(), got.getLastTradedPrice());
+        assertEquals(want.getVolumeTraded(), got.getVolumeTraded());
+        assertEquals(want.getExchangeTimestamp(), got.getExchangeTimestamp());
+        assertEquals(10, got.getMarketDepth().size());
+        for (int l = 0; l < 10; l++) {
+            assertEquals(want.getMarketDepth().get(l).getQuantity(), got.getMarketDepth().get(l).getQuantity());
+            assertEquals(want.getMarketDepth().get(l).getPrice(), got.getMarketDepth().get(l).getPrice());
+            assertEquals(want.getMarketDepth().get(l).getOrders(), got.getMarketDepth().get(l).getOrders());
+        }
+        IndexPacket ip = (IndexPacket) blocks.get(0).getInfo().get(1);
+        assertEquals(((IndexPacket) original.getInfo().get(1)).getLastTradedPrice(), ip.getLastTradedPrice());
+    }
+
+    /** Flattens every tick into a comparable line. */
+    private static StreamHistoricalData.PacketVisitor ticks(List<String> out) {
+        return new StreamHistoricalData.PacketVisitor() {
+            @Override
+            public void onStockTick(long ts, int token, int ltpPaise, int ltq, long volume,
+                    long openInterest, long exchangeTs) {
+                out.add("S " + ts + " " + token + " " + ltpPaise + " " + ltq + " " + volume + " "
+                        + openInterest + " " + exchangeTs);
+            }
+
+            @Override
+            public void onIndexTick(long ts, int token, int ltpPaise, int openPaise, int highPaise,
+                    int lowPaise, int closePaise, long exchangeTs) {
+                out.add("I " + ts + " " + token + " " + ltpPaise + " " + exchangeTs);
+            }
+        };
+    }
+}
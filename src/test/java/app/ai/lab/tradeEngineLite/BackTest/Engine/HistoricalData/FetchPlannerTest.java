@@ -0,0 +1,263 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FetchPlannerTest {
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    @Test
+    void overlappingRanges_areFetchedOnce_andSlicedPerRequest() throws Exception {
+        FetchPlanner planner = new FetchPlanner();
+        // four 4-month windows one quarter apart, plus a disjoint one
+        planner.plan("groww", "INFY", 1440, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 4, 30));
+        planner.plan("groww", "INFY", 1440, LocalDate.of(2024, 4, 1), LocalDate.of(2024, 7, 31));
+        planner.plan("groww", "INFY", 1440, LocalDate.of(2024, 7, 1), LocalDate.of(2024, 10, 31));
+        planner.plan("groww", "INFY", 1440, LocalDate.of(2024, 11, 1), LocalDate.of(2024, 12, 31)); // adjacent
+        planner.plan("groww", "INFY", 1440, LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 30));
+
+        List<LocalDate[]> ranges = planner.ranges("groww", "INFY", 1440);
+        assertEquals(2, ranges.size());
+        assertEquals(LocalDate.of(2024, 1, 1), ranges.get(0)[0]);
+        assertEquals(LocalDate.of(2024, 12, 31), ranges.get(0)[1]);
+        assertEquals(LocalDate.of(2025, 6, 1), ranges.get(1)[0]);
+        assertEquals(3 + 1, planner.plannedCalls("groww", "INFY", 1440, 180)); // 366 days in 180-day calls + June
+
+        List<LocalDate[]> calls = new ArrayList<>();
+        CandleCache.Loader loader = (f, t) -> {
+            calls.add(new LocalDate[] { f, t });
+            return daily(f, t);
+        };
+
+        CandleSeries q2 = planner.candles("groww", "INFY", 1440,
+                LocalDate.of(2024, 4, 1), LocalDate.of(2024, 7, 31), 180, loader);
+        assertEquals(3, calls.size()); // the whole of 2024, once
+        assertEquals(122, q2.size());
+        assertEquals(LocalDate.of(2024, 4, 1), day(q2, 0));
+        assertEquals(LocalDate.of(2024, 7, 31), day(q2, q2.size() - 1));
+
+        CandleSeries q1 = planner.candles("groww", "INFY", 1440,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 4, 30), 180, loader);
+        CandleSeries q3 = planner.candles("groww", "INFY", 1440,
+                LocalDate.of(2024, 7, 1), LocalDate.of(2024, 10, 31), 180, loader);
+        assertEquals(3, calls.size());
+        assertEquals(121, q1.size());
+        assertEquals(123, q3.size());
+        for (int i = 1; i < q3.size(); i++) assertTrue(q3.epochMs(i) > q3.epochMs(i - 1));
+
+        planner.candles("groww", "INFY", 1440, LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 30), 180, loader);
+        planner.candles("groww", "INFY", 1440, LocalDate.of(2023, 6, 1), LocalDate.of(2023, 6, 30), 180, loader);
+        assertEquals(4, planner.getLoaderCalls());
+        assertEquals(1, planner.getUnplannedCalls());
+        assertEquals(5, calls.size());
+
+        assertThrows(IllegalStateException.class, () -> planner.plan("groww", "INFY", 1440,
+                LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 31)));
+    }
+
+    @Test
+    void aFailedWindow_failsOnlyTheRequestsOverlappingIt() throws Exception {
+        FetchPlanner planner = new FetchPlanner();
+        planner.plan("zerodha", "408065", 1, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 31));
+        planner.plan("zerodha", "408065", 1, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 5, 31));
+        CandleCache.Loader loader = (f, t) -> {
+            if (f.equals(LocalDate.of(2025, 3, 2))) throw new IOException("HTTP 500");
+            return daily(f, t);
+        };
+
+        CandleSeries jan = planner.candles("zerodha", "408065", 1,
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), 60, loader);
+        assertEquals(31, jan.size());
+        IOException e = assertThrows(IOException.class, () -> planner.candles("zerodha", "408065", 1,
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 30), 60, loader));
+        assertEquals("HTTP 500", e.getMessage());
+        CandleSeries may = planner.candles("zerodha", "408065", 1,
+                LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 31), 60, loader);
+        assertEquals(31, may.size());
+        assertEquals(3, planner.getLoaderCalls());
+    }
+
+    @Test
+    void streamsOfOverlappingContexts_shareOneFetch() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/oms/instruments/historical/408065/minute", ex -> {
+            requests.incrementAndGet();
+            respond(ex, candlesJson(LocalDate.parse(query(ex, "from")), LocalDate.parse(query(ex, "to"))));
+        });
+        server.start();
+        try {
+            String[][] windows = {
+                    { "01-01-25", "30-04-25" }, { "01-04-25", "31-07-25" },
+                    { "01-07-25", "31-10-25" }, { "15-02-25", "15-03-25" } };
+            FetchPlanner planner = new FetchPlanner();
+            for (String[] w : windows) {
+                planner.plan("zerodha", "408065", 1, date(w[0]), date(w[1]));
+            }
+            ChunkFetchScheduler scheduler = new ChunkFetchScheduler();
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+            List<List<Long>> received = new ArrayList<>();
+            List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+            try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (String[] w : windows) {
+                    List<Long> ts = new ArrayList<>();
+                    received.add(ts);
+                    StreamHistoricalData streamer = new StreamHistoricalData(Files.createTempDirectory("planner_"),
+                            w[0], w[1], "NIFTY_100", -1, new StreamHistoricalData.BlockCallback() {
+                                @Override
+                                public boolean onBlock(Block block) {
+                                    ts.add(block.getTimeStamp());
+                                    return true;
+                                }
+
+                                @Override
+                                public void onError(Exception e, java.nio.file.Path source) {
+                                    errors.add(e);
+                                }
+                            });
+                    streamer.setFetchPlanner(planner);
+                    streamer.setFetchScheduler(scheduler);
+                    streamer.setZerodhaBaseUrl(base);
+                    pool.submit(() -> streamer.stream_zerodha("stub", 408065, 1, false));
+                }
+            }
+
+            assertTrue(errors.isEmpty(), errors.toString());
+            for (int i = 0; i < windows.length; i++) {
+                long days = date(windows[i][1]).toEpochDay() - date(windows[i][0]).toEpochDay() + 1;
+                List<Long> ts = received.get(i);
+                assertEquals(days * 4, ts.size(), "context " + i);
+                assertEquals(date(windows[i][0]), LocalDate.ofInstant(java.time.Instant.ofEpochMilli(ts.get(0)), IST));
+                for (int k = 1; k < ts.size(); k++) assertTrue(ts.get(k) > ts.get(k - 1), "out of order at " + k);
+            }
+            // Jan..Oct in 60-day calls instead of 2 + 3 + 3 + 1 per-context calls
+            assertEquals(planner.plannedCalls("zerodha", "408065", 1, 60), requests.get());
+            assertEquals(6, requests.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void streamsThatStopEarly_releaseTheirDays_soTheGroupIsDropped() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/oms/instruments/historical/408065/minute", ex ->
+                respond(ex, candlesJson(LocalDate.parse(query(ex, "from")), LocalDate.parse(query(ex, "to")))));
+        server.start();
+        try {
+            FetchPlanner planner = new FetchPlanner();
+            planner.plan("zerodha", "408065", 1, date("01-01-25"), date("31-03-25"));
+            planner.plan("zerodha", "408065", 1, date("01-03-25"), date("31-05-25"));
+            planner.plan("zerodha", "408065", 1, date("01-08-25"), date("31-08-25")); // never streamed
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+            // reads one block of its first 60-day chunk, then stops
+            List<Long> ts = new ArrayList<>();
+            StreamHistoricalData early = new StreamHistoricalData(Files.createTempDirectory("planner_"),
+                    "01-01-25", "31-03-25", "NIFTY_100", -1, block -> ts.add(block.getTimeStamp()) && false);
+            early.setFetchPlanner(planner);
+            early.setZerodhaBaseUrl(base);
+            early.stream_zerodha("stub", 408065, 1, false);
+            assertEquals(1, ts.size());
+            assertTrue(planner.getHeldCandles() > 0); // the second context still needs the group
+
+            List<Long> rest = new ArrayList<>();
+            StreamHistoricalData full = new StreamHistoricalData(Files.createTempDirectory("planner_"),
+                    "01-03-25", "31-05-25", "NIFTY_100", -1, block -> rest.add(block.getTimeStamp()));
+            full.setFetchPlanner(planner);
+            full.setZerodhaBaseUrl(base);
+            full.setFetchScheduler(new ChunkFetchScheduler());
+            full.stream_zerodha("stub", 408065, 1, false);
+            assertEquals(92 * 4, rest.size());
+            assertEquals(0, planner.getHeldCandles());
+
+            // a group whose only context never ran: released explicitly, or by releaseAll at the end of the run
+            planner.candles("zerodha", "408065", 1, date("01-08-25"), date("10-08-25"), 60, (f, t) -> daily(f, t));
+            assertEquals(31, planner.getHeldCandles());
+            planner.release("zerodha", "408065", 1, date("11-08-25"), date("31-08-25"));
+            assertEquals(0, planner.getHeldCandles());
+            planner.candles("zerodha", "408065", 1, date("01-08-25"), date("10-08-25"), 60, (f, t) -> daily(f, t));
+            assertEquals(0, planner.getHeldCandles()); // fully served already: refetched, then dropped again
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void releaseAll_dropsEveryGroup() throws Exception {
+        FetchPlanner planner = new FetchPlanner();
+        planner.plan("groww", "INFY", 1440, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        planner.candles("groww", "INFY", 1440, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 180,
+                FetchPlannerTest::daily);
+        assertEquals(366, planner.getHeldCandles());
+        planner.releaseAll();
+        assertEquals(0, planner.getHeldCandles());
+    }
+
+    /** One 09:15 IST candle per day, open 100 + day-of-year. */
+    private static CandleSeries daily(LocalDate from, LocalDate to) {
+        CandleSeries s = new CandleSeries();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            double open = 99 + d.getDayOfYear();
+            s.add(d.atTime(9, 15).atZone(IST).toInstant().toEpochMilli(), open, open + 1, open - 1, open + 0.5, 1000, 0);
+        }
+        return s;
+    }
+
+    private static LocalDate day(CandleSeries s, int i) {
+        return LocalDate.ofInstant(java.time.Instant.ofEpochMilli(s.epochMs(i)), IST);
+    }
+
+    private static LocalDate date(String ddMMyy) {
+        String[] p = ddMMyy.split("-");
+        return LocalDate.of(2000 + Integer.parseInt(p[2]), Integer.parseInt(p[1]), Integer.parseInt(p[0]));
+    }
+
+    private static String candlesJson(LocalDate from, LocalDate to) {
+        StringBuilder sb = new StringBuilder("{\"status\":\"success\",\"data\":{\"candles\":[");
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            double open = 99 + d.getDayOfYear();
+            if (d.isAfter(from)) sb.append(',');
+            sb.append("[\"").append(d).append("T09:15:00+0530\",").append(open).append(',').append(open + 1)
+                    .append(',').append(open - 1).append(',').append(open + 0.5).append(",1000,0]");
+        }
+        return sb.append("]}}").toString();
+    }
+
+    private static String query(HttpExchange ex, String name) {
+        for (String kv : ex.getRequestURI().getRawQuery().split("&")) {
+            if (kv.startsWith(name + "=")) return kv.substring(name.length() + 1);
+        }
+        throw new IllegalArgumentException("missing " + name);
+    }
+
+    private static void respond(HttpExchange ex, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
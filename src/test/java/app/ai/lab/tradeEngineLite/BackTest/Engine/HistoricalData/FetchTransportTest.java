@@ -0,0 +1,188 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FetchTransportTest {
+
+    private static final String BODY = "{\"candles\":[[1725508800,100.0,101.0,99.0,100.5,1000]]}";
+
+    @Test
+    void gzipIsNegotiatedAndDecoded_andErrorsCarryTheStatus() throws Exception {
+        HttpServer server = server(0);
+        try {
+            FetchTransport transport = new FetchTransport();
+            byte[] bytes = transport.get(base(server) + "/candles", Map.of("Accept", "application/json"));
+            assertEquals(BODY, new String(bytes, StandardCharsets.UTF_8));
+            assertEquals(1, transport.getGzipResponses());
+
+            FetchTransport.HttpStatusException e = assertThrows(FetchTransport.HttpStatusException.class,
+                    () -> transport.get(base(server) + "/missing", null));
+            assertEquals(404, e.getStatus());
+            assertEquals(2, transport.getRequests());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void requestsPerHostAreCapped() throws Exception {
+        HttpServer server = server(50);
+        try {
+            FetchTransport transport = new FetchTransport().limitHost("127.0.0.1", 2);
+            List<Future<byte[]>> results = new ArrayList<>();
+            try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 8; i++) {
+                    results.add(pool.submit(() -> transport.get(base(server) + "/candles", null)));
+                }
+            }
+            for (Future<byte[]> f : results) assertEquals(BODY, new String(f.get(), StandardCharsets.UTF_8));
+            assertTrue(maxActive.get() <= 2, "maxActive=" + maxActive.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void sharedTransportReusesOneConnection_whereAClientPerRequestOpensOneEach() throws Exception {
+        try (ServerSocket server = keepAliveServer()) {
+            String url = "http://127.0.0.1:" + server.getLocalPort() + "/candles";
+            int n = 20;
+
+            // a new client per request, as with a fetcher per stream call
+            for (int i = 0; i < n; i++) {
+                new FetchTransport(HttpClient.newHttpClient()).get(url, null);
+            }
+            assertEquals(n, ports.size());
+
+            ports.clear();
+            FetchTransport transport = new FetchTransport();
+            for (int i = 0; i < n; i++) {
+                assertEquals(BODY, new String(transport.get(url, null), StandardCharsets.UTF_8));
+            }
+            assertEquals(1, ports.size()); // keep-alive: every request reused one connection
+            assertEquals(n, transport.getRequests());
+            assertSame(FetchTransport.shared(), FetchTransport.shared());
+        }
+    }
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final Set<Integer> ports = ConcurrentHashMap.newKeySet();
+
+    /** Serves {@link #BODY} on /candles (gzip when asked), 404 elsewhere; records client ports and concurrency. */
+    private HttpServer server(long delayMs) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", ex -> {
+            ports.add(ex.getRemoteAddress().getPort());
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                if (delayMs > 0) Thread.sleep(delayMs);
+                if (!ex.getRequestURI().getPath().equals("/candles")) {
+                    respond(ex, 404, "not found".getBytes(StandardCharsets.UTF_8), false);
+                    return;
+                }
+                String accept = ex.getRequestHeaders().getFirst("Accept-Encoding");
+                boolean gzip = accept != null && accept.contains("gzip");
+                respond(ex, 200, gzip ? gzip(BODY) : BODY.getBytes(StandardCharsets.UTF_8), gzip);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    /** Minimal HTTP/1.1 keep-alive server that records the client port of every connection it accepts. */
+    private ServerSocket keepAliveServer() throws IOException {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+        byte[] response = concat(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: "
+                + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII), body);
+        Thread.ofVirtual().start(() -> {
+            while (!server.isClosed()) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                ports.add(socket.getPort());
+                Thread.ofVirtual().start(() -> {
+                    try (Socket s = socket;
+                         BufferedReader in = new BufferedReader(
+                                 new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII))) {
+                        s.setTcpNoDelay(true);
+                        OutputStream out = s.getOutputStream();
+                        String line;
+                        while ((line = in.readLine()) != null) {
+                            if (line.isEmpty()) { // end of a request's headers (GETs have no body)
+                                out.write(response);
+                                out.flush();
+                            }
+                        }
+                    } catch (IOException ignored) {
+                        // client went away
+                    }
+                });
+            }
+        });
+        return server;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    private static String base(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static void respond(HttpExchange ex, int status, byte[] body, boolean gzip) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        if (gzip) ex.getResponseHeaders().set("Content-Encoding", "gzip");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
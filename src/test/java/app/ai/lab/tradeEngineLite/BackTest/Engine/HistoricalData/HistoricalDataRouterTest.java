@@ -0,0 +1,307 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.HistoricalDataSource.Request;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoricalDataRouterTest {
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+    private static final Request INFY = new Request("INFY", 408065, 1440, false);
+
+    @Test
+    void eachDayGoesToTheCheapestCoveringTier_andWeekendsDoNotSplitRanges() throws Exception {
+        // Mon 3 Mar .. Fri 28 Mar 2025; bars have the 1st week, zips the 2nd and 4th, the API everything
+        Fake bars = new Fake("bars", 1, true, range("2025-03-03", "2025-03-07"));
+        Fake zips = new Fake("zip", 10, true, range("2025-03-10", "2025-03-14"), range("2025-03-24", "2025-03-28"));
+        Fake groww = new Fake("groww", 100, true, range("2025-01-01", "2025-12-31"));
+        Fake ticksOnly = new Fake("ticks", 0, false, range("2025-01-01", "2025-12-31"));
+        HistoricalDataRouter router = new HistoricalDataRouter().add(groww).add(ticksOnly).add(zips).add(bars);
+
+        List<HistoricalDataRouter.Segment> plan = router.plan(INFY, LocalDate.parse("2025-03-01"),
+                LocalDate.parse("2025-03-30"));
+        assertEquals(List.of(
+                "2025-03-01..2025-03-09 <- bars",
+                "2025-03-10..2025-03-16 <- zip",
+                "2025-03-17..2025-03-23 <- groww",
+                "2025-03-24..2025-03-30 <- zip"), strings(plan));
+
+        List<Long> ts = new ArrayList<>();
+        AtomicInteger ends = new AtomicInteger();
+        List<HistoricalDataRouter.Segment> served = router.stream(INFY, LocalDate.parse("2025-03-01"),
+                LocalDate.parse("2025-03-30"), new StreamHistoricalData.BlockCallback() {
+                    @Override
+                    public boolean onBlock(Block block) {
+                        ts.add(block.getTimeStamp());
+                        return true;
+                    }
+
+                    @Override
+                    public void onEnd() {
+                        ends.incrementAndGet();
+                    }
+                });
+        assertEquals(strings(plan), strings(served));
+        assertEquals(30, ts.size()); // one block per day of each segment
+        for (int i = 1; i < ts.size(); i++) assertTrue(ts.get(i) > ts.get(i - 1), "out of order at " + i);
+        assertEquals(1, ends.get());
+        assertEquals(0, ticksOnly.streamed);
+        assertEquals(2, zips.streamed);
+    }
+
+    @Test
+    void gapsAreReported_andStoppingEndsTheWholeStream() throws Exception {
+        Fake zips = new Fake("zip", 10, true, range("2025-03-03", "2025-03-04"), range("2025-03-07", "2025-03-07"));
+        HistoricalDataRouter router = new HistoricalDataRouter().add(zips);
+        assertEquals(List.of(
+                "2025-03-03..2025-03-04 <- zip",
+                "2025-03-05..2025-03-06 <- (none)",
+                "2025-03-07..2025-03-07 <- zip"),
+                strings(router.plan(INFY, LocalDate.parse("2025-03-03"), LocalDate.parse("2025-03-07"))));
+
+        List<Exception> errors = new ArrayList<>();
+        List<Long> ts = new ArrayList<>();
+        router.stream(INFY, LocalDate.parse("2025-03-03"), LocalDate.parse("2025-03-07"),
+                new StreamHistoricalData.BlockCallback() {
+                    @Override
+                    public boolean onBlock(Block block) {
+                        ts.add(block.getTimeStamp());
+                        return ts.size() < 1;
+                    }
+
+                    @Override
+                    public void onError(Exception e, Path source) {
+                        errors.add(e);
+                    }
+                });
+        assertEquals(1, ts.size());
+        assertTrue(errors.isEmpty(), errors.toString()); // stopped before reaching the gap
+        assertEquals(1, zips.streamed);
+    }
+
+    @Test
+    void zipAndBarTiers_coverTheDaysOnDisk() throws Exception {
+        Path root = Files.createTempDirectory("router_zips_");
+        Files.createFile(root.resolve("ticks_408065_NIFTY_100_03-03-25.zip"));
+        Files.createFile(root.resolve("ticks_408065_NIFTY_100_05-03-25.zip"));
+        Files.createFile(root.resolve("ticks_256265_NIFTY_05-03-25.zip"));
+        HistoricalDataSource.Zips zips = new HistoricalDataSource.Zips(root, "NIFTY_100", "09:15 am", "03:30 pm");
+        assertEquals(Set.of(LocalDate.parse("2025-03-03"), LocalDate.parse("2025-03-05")),
+                zips.coverage(INFY, LocalDate.parse("2025-03-01"), LocalDate.parse("2025-03-31")));
+
+        // a day rolled up for the index only does not cover INFY
+        Path ticks = Files.createTempDirectory("router_ticks_");
+        StreamHistoricalDataTest.writeDayZip(ticks, "NIFTY_100", "05-09-25", 1_757_043_001_007L);
+        Path storeDir = ticks.resolve("bars");
+        BarStore indexOnly = BarStore.rollup(ticks, "NIFTY_100", "05-09-25", "05-09-25", storeDir,
+                TokenFilter.of(256265));
+        HistoricalDataSource.Bars bars = new HistoricalDataSource.Bars(indexOnly, "NIFTY_100", BarStore.IntrabarPath.OLHC);
+        assertTrue(bars.coverage(INFY, LocalDate.parse("2025-09-01"), LocalDate.parse("2025-09-30")).isEmpty());
+
+        BarStore store = BarStore.rollup(ticks, "NIFTY_100", "05-09-25", "05-09-25", storeDir, null);
+        bars = new HistoricalDataSource.Bars(store, "NIFTY_100", BarStore.IntrabarPath.OLHC);
+        assertEquals(Set.of(LocalDate.parse("2025-09-05")),
+                bars.coverage(INFY, LocalDate.parse("2025-09-01"), LocalDate.parse("2025-09-30")));
+        assertFalse(bars.supports(0));
+        assertTrue(zips.supports(0));
+    }
+
+    @Test
+    void cachedDaysComeFromTheCache_andTheRestFromZerodha() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/oms/instruments/historical/408065/1440minute", ex -> {
+            requests.incrementAndGet();
+            respond(ex, candlesJson(LocalDate.parse(query(ex, "from")), LocalDate.parse(query(ex, "to"))));
+        });
+        server.start();
+        try {
+            CandleCache cache = new CandleCache(Files.createTempDirectory("router_cache_"));
+            cache.setThrottleMs(0);
+            cache.candles("zerodha", "408065", 1440, LocalDate.parse("2025-01-01"), LocalDate.parse("2025-01-15"), 60,
+                    (f, t) -> CandleSeries.parseZerodha(new java.io.ByteArrayInputStream(
+                            candlesJson(f, t).getBytes(StandardCharsets.UTF_8))));
+
+            HistoricalDataSource.Zerodha zerodha = new HistoricalDataSource.Zerodha("stub");
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            zerodha.setStreamSetup(s -> {
+                s.setZerodhaBaseUrl(base);
+                s.setCandleCache(cache); // what the API serves is cached for next time
+            });
+            HistoricalDataRouter router = new HistoricalDataRouter()
+                    .add(zerodha)
+                    .add(new HistoricalDataSource.Cached(cache, "zerodha"));
+            router.setTradingDays(d -> true);
+
+            List<Long> ts = new ArrayList<>();
+            List<HistoricalDataRouter.Segment> served = router.stream(INFY, LocalDate.parse("2025-01-01"),
+                    LocalDate.parse("2025-01-31"), block -> ts.add(block.getTimeStamp()));
+            assertEquals(List.of(
+                    "2025-01-01..2025-01-15 <- cache:zerodha",
+                    "2025-01-16..2025-01-31 <- zerodha"), strings(served));
+            assertEquals(31 * 4, ts.size());
+            for (int i = 1; i < ts.size(); i++) assertTrue(ts.get(i) > ts.get(i - 1), "out of order at " + i);
+            assertEquals(1, requests.get());
+
+            assertEquals(List.of("2025-01-01..2025-01-31 <- cache:zerodha"),
+                    strings(router.plan(INFY, LocalDate.parse("2025-01-01"), LocalDate.parse("2025-01-31"))));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void weekendsFoldedIntoACacheSegment_areNotFetched() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/oms/instruments/historical/408065/1440minute", ex -> {
+            requests.incrementAndGet();
+            respond(ex, candlesJson(LocalDate.parse(query(ex, "from")), LocalDate.parse(query(ex, "to"))));
+        });
+        server.start();
+        try {
+            // Mon 6 .. Fri 10 Jan 2025 cached; the weekends on either side are not
+            CandleCache cache = new CandleCache(Files.createTempDirectory("router_cache_"));
+            cache.setThrottleMs(0);
+            cache.candles("zerodha", "408065", 1440, LocalDate.parse("2025-01-06"), LocalDate.parse("2025-01-10"), 60,
+                    (f, t) -> CandleSeries.parseZerodha(new java.io.ByteArrayInputStream(
+                            candlesJson(f, t).getBytes(StandardCharsets.UTF_8))));
+
+            HistoricalDataSource.Zerodha zerodha = new HistoricalDataSource.Zerodha("stub");
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            zerodha.setStreamSetup(s -> s.setZerodhaBaseUrl(base));
+            HistoricalDataRouter router = new HistoricalDataRouter()
+                    .add(zerodha)
+                    .add(new HistoricalDataSource.Cached(cache, "zerodha")); // default Mon..Fri trading days
+
+            List<Long> ts = new ArrayList<>();
+            List<Exception> errors = new ArrayList<>();
+            AtomicInteger ends = new AtomicInteger();
+            List<HistoricalDataRouter.Segment> served = router.stream(INFY, LocalDate.parse("2025-01-04"),
+                    LocalDate.parse("2025-01-12"), new StreamHistoricalData.BlockCallback() {
+                        @Override
+                        public boolean onBlock(Block block) {
+                            ts.add(block.getTimeStamp());
+                            return true;
+                        }
+
+                        @Override
+                        public void onError(Exception e, Path source) {
+                            errors.add(e);
+                        }
+
+                        @Override
+                        public void onEnd() {
+                            ends.incrementAndGet();
+                        }
+                    });
+            assertEquals(List.of("2025-01-04..2025-01-12 <- cache:zerodha"), strings(served));
+            assertEquals(0, requests.get());
+            assertTrue(errors.isEmpty(), errors.toString());
+            assertEquals(5 * 4, ts.size());
+            assertEquals(1, ends.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /** Tier over a fixed day set that emits one block per day at 09:15 IST. */
+    private static final class Fake implements HistoricalDataSource {
+        final String name;
+        final double cost;
+        final boolean candles;
+        final Set<LocalDate> days = new TreeSet<>();
+        int streamed;
+
+        @SafeVarargs
+        Fake(String name, double cost, boolean candles, List<LocalDate>... ranges) {
+            this.name = name;
+            this.cost = cost;
+            this.candles = candles;
+            for (List<LocalDate> r : ranges) days.addAll(r);
+        }
+
+        @Override public String name() { return name; }
+        @Override public double costPerDay() { return cost; }
+        @Override public boolean supports(int intervalMinutes) { return candles || intervalMinutes == 0; }
+
+        @Override
+        public Set<LocalDate> coverage(Request request, LocalDate from, LocalDate to) {
+            Set<LocalDate> out = new TreeSet<>();
+            for (LocalDate d : days) if (!d.isBefore(from) && !d.isAfter(to)) out.add(d);
+            return out;
+        }
+
+        @Override
+        public void stream(Request request, LocalDate from, LocalDate to, StreamHistoricalData.BlockCallback cb) {
+            streamed++;
+            try {
+                for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+                    long ts = d.atTime(9, 15).atZone(IST).toInstant().toEpochMilli();
+                    if (!cb.onBlock(new Block(ts, List.of()))) return;
+                }
+            } finally {
+                cb.onEnd();
+            }
+        }
+    }
+
+    private static List<LocalDate> range(String from, String to) {
+        List<LocalDate> out = new ArrayList<>();
+        for (LocalDate d = LocalDate.parse(from); !d.isAfter(LocalDate.parse(to)); d = d.plusDays(1)) out.add(d);
+        return out;
+    }
+
+    private static List<String> strings(List<HistoricalDataRouter.Segment> segments) {
+        List<String> out = new ArrayList<>();
+        for (HistoricalDataRouter.Segment s : segments) out.add(s.toString());
+        return out;
+    }
+
+    private static String candlesJson(LocalDate from, LocalDate to) {
+        StringBuilder sb = new StringBuilder("{\"status\":\"success\",\"data\":{\"candles\":[");
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            double open = 99 + d.getDayOfYear();
+            if (d.isAfter(from)) sb.append(',');
+            sb.append("[\"").append(d).append("T09:15:00+0530\",").append(open).append(',').append(open + 1)
+                    .append(',').append(open - 1).append(',').append(open + 0.5).append(",1000,0]");
+        }
+        return sb.append("]}}").toString();
+    }
+
+    private static String query(HttpExchange ex, String name) {
+        for (String kv : ex.getRequestURI().getRawQuery().split("&")) {
+            if (kv.startsWith(name + "=")) return kv.substring(name.length() + 1);
+        }
+        throw new IllegalArgumentException("missing " + name);
+    }
+
+    private static void respond(HttpExchange ex, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.snapshot;
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.writeDayZip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MergedHistoricalStreamTest {
+
+    private static final long T0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+
+    @Test
+    void mergesFileCodesAndBlockSources_byTimestamp_withStableTies() throws IOException {
+        Path root = Files.createTempDirectory("merge_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 2_000, T0 + 4_000);
+        writeDayZip(root, "NIFTY", "05-09-25", T0 + 1_000, T0 + 2_000, T0 + 3_000);
+
+        List<String> seen = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        int[] ends = { 0 };
+        MergedHistoricalStream merged = new MergedHistoricalStream(new StreamHistoricalData.BlockCallback() {
+            @Override
+            public boolean onBlock(Block block) {
+                seen.add("B" + (block.getTimeStamp() - T0));
+                return true;
+            }
+
+            @Override
+            public boolean onBlockView(BlockView view) {
+                int packets = 0;
+                while (view.next()) packets++;
+                seen.add("V" + (view.getTimeStamp() - T0) + "x" + packets);
+                return true;
+            }
+
+            @Override
+            public void onError(Exception e, Path source) {
+                errors.add(e.getMessage());
+            }
+
+            @Override
+            public void onEnd() {
+                ends[0]++;
+            }
+        });
+        merged.setReadAhead(1);
+        merged.addZips(root, "05-09-25", "05-09-25", "NIFTY_100", null, null, null);
+        merged.addZips(root, "05-09-25", "05-09-25", "NIFTY", TokenFilter.of(256265), null, null);
+        merged.add("candles", cb -> {
+            for (long t : new long[] { 0, 2_000, 5_000 }) {
+                if (!cb.onBlock(snapshot(T0 + t))) return;
+            }
+            cb.onError(new IOException("late"), null);
+        });
+        merged.stream();
+
+        assertEquals(List.of("V0x2", "B0", "V1000x1", "V2000x2", "V2000x1", "B2000", "V3000x1", "V4000x2", "B5000"),
+                seen);
+        assertEquals(List.of("late"), errors);
+        assertEquals(1, ends[0]);
+    }
+
+    @Test
+    void earlyStop_endsAllSources() {
+        List<Long> seen = new ArrayList<>();
+        MergedHistoricalStream merged = new MergedHistoricalStream(block -> {
+            seen.add(block.getTimeStamp());
+            return seen.size() < 3;
+        });
+        merged.setReadAhead(2);
+        for (int s = 0; s < 3; s++) {
+            final int offset = s;
+            merged.add("s" + s, cb -> {
+                for (long t = offset; t < 1_000_000; t += 3) {
+                    if (!cb.onBlock(snapshot(t))) return;
+                }
+                fail("source should have been stopped");
+            });
+        }
+        merged.stream();
+        assertEquals(List.of(0L, 1L, 2L), seen);
+    }
+}
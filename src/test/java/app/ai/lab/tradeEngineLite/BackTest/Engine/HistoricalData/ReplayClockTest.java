@@ -0,0 +1,80 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.writeDayZip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayClockTest {
+
+    private static final long T0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+
+    @Test
+    void eventTime_isScaledBySpeed_withoutAccumulatingOvershoot() {
+        ReplayClock clock = ReplayClock.atSpeed(10);
+        long start = System.nanoTime();
+        for (int i = 0; i <= 100; i++) assertTrue(clock.await(T0 + i * 10L)); // 1 s of event time
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        assertTrue(elapsedMs >= 99, "too fast: " + elapsedMs);
+        assertEquals(101, clock.getEvents());
+        assertEquals(0, clock.getRebases());
+    }
+
+    @Test
+    void gapsAndBackwardsTime_rebase_andLateEventsCatchUp() throws InterruptedException {
+        ReplayClock clock = ReplayClock.atSpeed(1);
+        clock.setMaxGapMs(1_000);
+        clock.await(T0);
+        clock.await(T0 + 3_600_000L); // an hour later: skipped, not waited for
+        clock.await(T0);              // new run
+        assertEquals(2, clock.getRebases());
+
+        // consumer stalls 50 ms; the next two 10 ms-spaced events are released at once
+        clock.await(T0 + 10);
+        Thread.sleep(50);
+        clock.await(T0 + 20);
+        clock.await(T0 + 30);
+        assertTrue(clock.getLastLagNanos() > 0);
+        assertTrue(clock.getMaxLagNanos() >= 30_000_000L, clock.toString());
+        assertTrue(clock.getLateEvents() >= 2, clock.toString());
+
+        Thread.currentThread().interrupt();
+        assertFalse(clock.await(T0 + 500));
+        assertTrue(Thread.interrupted());
+    }
+
+    @Test
+    void streamer_pacesZipSnapshotsFromTheirTimestamps() throws IOException {
+        Path root = Files.createTempDirectory("replay_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000, T0 + 2_000, T0 + 3_000);
+
+        StreamHistoricalData streamer = new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1);
+        streamer.setReplayClock(ReplayClock.atSpeed(20)); // 3 s of data in ~150 ms
+        List<Long> seen = new ArrayList<>();
+        long start = System.nanoTime();
+        streamer.stream(new StreamHistoricalData.PacketVisitor() {
+            @Override
+            public void onStockTick(long blockTs, int token, int ltpPaise, int ltq, long volume,
+                    long openInterest, long exchangeTs) {
+            }
+
+            @Override
+            public boolean onBlockEnd(long blockTs) {
+                seen.add((System.nanoTime() - start) / 1_000_000L);
+                return true;
+            }
+        });
+
+        assertEquals(4, seen.size());
+        assertTrue(seen.get(3) >= 149, seen.toString());
+        assertTrue(seen.get(3) - seen.get(2) >= 40, seen.toString());
+        assertEquals(4, streamer.getReplayClock().getEvents());
+    }
+}
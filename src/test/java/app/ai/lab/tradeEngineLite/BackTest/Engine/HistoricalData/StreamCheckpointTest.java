@@ -0,0 +1,131 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.writeDayZip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamCheckpointTest {
+
+    private static final long T0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+    private static final long DAY = 86_400_000L;
+
+    /** Sums the stock ltp of every block it sees; the sum and count are its checkpointed state. */
+    static final class Summer implements StreamHistoricalData.BlockCallback, StreamCheckpoint.Participant {
+        final List<Long> seen = new ArrayList<>();
+        long sum;
+        int count;
+        int stopAfter = Integer.MAX_VALUE;
+        Runnable onEach = () -> {};
+
+        @Override
+        public boolean onBlock(Block block) {
+            seen.add(block.getTimeStamp());
+            sum += ((Block.StockPacket) block.getInfo().get(0)).getLastTradedPrice();
+            count++;
+            onEach.run();
+            return count < stopAfter;
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            out.writeLong(sum);
+            out.writeInt(count);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            sum = in.readLong();
+            count = in.readInt();
+        }
+    }
+
+    @Test
+    void stoppedStream_resumesAfterLastDeliveredEntry_withRestoredState() throws Exception {
+        Path root = Files.createTempDirectory("checkpoint_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000, T0 + 2_000, T0 + 3_000);
+        writeDayZip(root, "NIFTY_100", "06-09-25", T0 + DAY, T0 + DAY + 1_000, T0 + DAY + 2_000);
+
+        for (boolean useIndex : new boolean[] { true, false }) {
+            Path file = root.resolve("run-" + useIndex + ".ckpt");
+            Summer full = new Summer();
+            stream(root, null, full, useIndex);
+
+            Summer first = new Summer();
+            first.stopAfter = 3;
+            StreamCheckpoint cp1 = new StreamCheckpoint(file).register("summer", first);
+            assertNull(cp1.resume());
+            stream(root, cp1, first, useIndex);
+            assertEquals(List.of(T0, T0 + 1_000, T0 + 2_000), first.seen);
+            assertEquals(1, cp1.getSaves()); // the final one
+
+            Summer second = new Summer();
+            StreamCheckpoint cp2 = new StreamCheckpoint(file).register("summer", second);
+            StreamCheckpoint.Cursor cursor = cp2.resume();
+            assertEquals(T0 + 2_000, cursor.getTimestamp());
+            assertEquals(2, cursor.getEntry());
+            assertEquals(3, second.count);
+            stream(root, cp2, second, useIndex);
+
+            assertEquals(List.of(T0 + 3_000, T0 + DAY, T0 + DAY + 1_000, T0 + DAY + 2_000), second.seen);
+            assertEquals(full.sum, second.sum, "useIndex=" + useIndex);
+            assertEquals(7, cp2.getCursor().getBlocks());
+            assertEquals(2, cp2.getCursor().getEntry());
+        }
+    }
+
+    @Test
+    void periodicCheckpoint_survivesAKilledRun() throws Exception {
+        Path root = Files.createTempDirectory("checkpoint_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000, T0 + 2_000);
+        writeDayZip(root, "NIFTY_100", "06-09-25", T0 + DAY, T0 + DAY + 1_000, T0 + DAY + 2_000);
+        Path file = root.resolve("run.ckpt");
+        Path killed = root.resolve("killed.ckpt");
+
+        Summer run = new Summer();
+        StreamCheckpoint cp = new StreamCheckpoint(file).register("summer", run);
+        cp.setEveryBlocks(4);
+        run.onEach = () -> {
+            // what a crash after the 5th block would leave on disk
+            if (run.count == 5) copy(file, killed);
+        };
+        stream(root, cp, run, true);
+        assertEquals(2, cp.getSaves()); // block 4 and the end
+
+        Summer resumed = new Summer();
+        StreamCheckpoint again = new StreamCheckpoint(killed).register("summer", resumed);
+        assertEquals(T0 + DAY, again.resume().getTimestamp());
+        assertEquals(4, resumed.count);
+        stream(root, again, resumed, true);
+        assertEquals(List.of(T0 + DAY + 1_000, T0 + DAY + 2_000), resumed.seen);
+        assertEquals(run.sum, resumed.sum);
+
+        StreamCheckpoint missing = new StreamCheckpoint(killed).register("summer", new Summer())
+                .register("tracker", new Summer());
+        assertThrows(IOException.class, missing::resume);
+    }
+
+    private static void stream(Path root, StreamCheckpoint cp, Summer cb, boolean useIndex) {
+        StreamHistoricalData streamer = new StreamHistoricalData(root, "05-09-25", "06-09-25", "NIFTY_100", -1, cb);
+        streamer.setUseZipIndex(useIndex);
+        streamer.setCheckpoint(cp);
+        streamer.stream();
+    }
+
+    private static void copy(Path from, Path to) {
+        try {
+            Files.copy(from, to, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -13,8 +13,13 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class StreamHistoricalDataTest {
@@ -298,4 +303,236 @@ class StreamHistoricalDataTest {
         assertTrue(Files.exists(outDir.resolve(token + "_" + name + ".png")));
     }
 
+
+    @Test
+    void syntheticZip_defaultCallbackMaterializes_viewCallbackReadsInPlace() throws IOException {
+        Path root = Files.createTempDirectory("shd_view_");
+        long t0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+        writeDayZip(root, "NIFTY_100", "05-09-25", t0 + 2_000, t0, t0 + 1_000);
+
+        List<Long> blockTs = new ArrayList<>();
+        new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1,
+                block -> blockTs.add(block.getTimeStamp())).stream();
+        assertEquals(List.of(t0, t0 + 1_000, t0 + 2_000), blockTs);
+
+        List<Long> ltps = new ArrayList<>();
+        new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1,
+                new StreamHistoricalData.BlockCallback() {
+                    @Override
+                    public boolean onBlock(Block block) {
+                        throw new AssertionError("view callback should not materialize");
+                    }
+
+                    @Override
+                    public boolean onBlockView(BlockView view) {
+                        while (view.next()) {
+                            if (view.isStock()) ltps.add(view.stock().getLastTradedPrice());
+                        }
+                        return true;
+                    }
+                }).stream();
+        assertEquals(List.of(t0 % 100_000, (t0 + 1_000) % 100_000, (t0 + 2_000) % 100_000), ltps);
+    }
+
+    @Test
+    void syntheticZip_tokenFilterSkipsSnapshotsWithoutWantedTokens() throws IOException {
+        Path root = Files.createTempDirectory("shd_filter_");
+        long t0 = 1_757_043_000_000L;
+        writeDayZip(root, "NIFTY_100", "05-09-25", t0, t0 + 1_000);
+
+        List<Integer> sizes = new ArrayList<>();
+        StreamHistoricalData streamer = new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1,
+                block -> sizes.add(block.getInfo().size()));
+        streamer.setTokenFilter(TokenFilter.of(408065));
+        streamer.stream();
+        assertEquals(List.of(1, 1), sizes);
+
+        sizes.clear();
+        streamer.setTokenFilter(TokenFilter.of(12345));
+        streamer.stream();
+        assertTrue(sizes.isEmpty(), "no snapshot carries token 12345");
+    }
+
+    @Test
+    void syntheticZips_packetVisitorSeesPrimitivesInOrder_sequentialAndParallel() throws IOException {
+        Path root = Files.createTempDirectory("shd_visitor_");
+        long d1 = 1_757_043_000_000L; // 05-09-25
+        long d2 = d1 + 86_400_000L;   // 06-09-25
+        writeDayZip(root, "NIFTY_100", "05-09-25", d1, d1 + 1_000);
+        writeDayZip(root, "NIFTY_100", "06-09-25", d2, d2 + 1_000);
+
+        List<Long> expected = List.of(d1, d1 + 1_000, d2, d2 + 1_000);
+        StreamHistoricalData streamer = new StreamHistoricalData(root, "05-09-25", "06-09-25", "NIFTY_100", -1);
+
+        List<Long> seq = new ArrayList<>();
+        streamer.stream(recordingVisitor(seq));
+        assertEquals(expected, seq);
+
+        List<Long> par = new ArrayList<>();
+        streamer.streamParallelAcrossZips(2, recordingVisitor(par));
+        assertEquals(expected, par);
+
+        // early stop from onBlockEnd
+        AtomicInteger blocks = new AtomicInteger();
+        streamer.stream(new StreamHistoricalData.PacketVisitor() {
+            @Override
+            public void onStockTick(long blockTs, int token, int ltpPaise, int ltq, long volume,
+                    long openInterest, long exchangeTs) {
+            }
+
+            @Override
+            public boolean onBlockEnd(long blockTs) {
+                return blocks.incrementAndGet() < 3;
+            }
+        });
+        assertEquals(3, blocks.get());
+    }
+
+    @Test
+    void syntheticZips_boundedParallelStream_keepsOrderAndAppliesBackpressure() throws IOException {
+        Path root = Files.createTempDirectory("shd_bounded_");
+        List<Long> expected = new ArrayList<>();
+        long d1 = 1_757_043_000_000L; // 05-09-25
+        for (int day = 0; day < 6; day++) {
+            long base = d1 + day * 86_400_000L;
+            String ddMMyy = String.format("%02d-09-25", 5 + day);
+            writeDayZip(root, "NIFTY_100", ddMMyy, base, base + 1_000, base + 2_000, base + 3_000);
+            for (int k = 0; k < 4; k++) expected.add(base + k * 1_000L);
+        }
+
+        StreamHistoricalData streamer = new StreamHistoricalData(root, "05-09-25", "10-09-25", "NIFTY_100", -1);
+        streamer.setParallelWindow(2);
+        streamer.setParallelQueueCapacity(1);
+
+        List<Long> seen = new ArrayList<>();
+        StreamHistoricalData.PacketVisitor recording = recordingVisitor(seen);
+        streamer.streamParallelAcrossZips(4, new StreamHistoricalData.PacketVisitor() {
+            @Override
+            public void onStockTick(long ts, int token, int ltpPaise, int ltq, long volume,
+                    long openInterest, long exchangeTs) {
+                recording.onStockTick(ts, token, ltpPaise, ltq, volume, openInterest, exchangeTs);
+            }
+
+            @Override
+            public boolean onBlockEnd(long ts) {
+                try {
+                    Thread.sleep(5); // slow consumer => producers must block, not buffer
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return recording.onBlockEnd(ts);
+            }
+        });
+        assertEquals(expected, seen);
+
+        ParallelStreamStats stats = streamer.getLastParallelStats();
+        assertEquals(2, stats.getWindow());
+        assertEquals(1, stats.getQueueCapacity());
+        assertEquals(6, stats.getZipsRead());
+        assertTrue(stats.getMaxQueueDepth() <= 1, stats.toString());
+        assertTrue(stats.getProducerStalls() > 0, stats.toString());
+    }
+
+    @Test
+    void syntheticZip_entryWorkersInflateInParallel_butDeliverInTimestampOrder() throws IOException {
+        Path root = Files.createTempDirectory("shd_entries_");
+        long t0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+        long[] ts = new long[300];
+        for (int i = 0; i < ts.length; i++) ts[i] = t0 + (ts.length - 1 - i) * 60_000L; // written newest first
+        writeDayZip(root, "NIFTY_100", "05-09-25", ts);
+
+        for (boolean useIndex : new boolean[] { true, false }) {
+            StreamHistoricalData sequential = new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1);
+            sequential.setUseZipIndex(useIndex);
+            List<Long> expected = new ArrayList<>();
+            sequential.stream("09:30", "12:00", recordingVisitor(expected));
+            assertEquals(151, expected.size());
+
+            StreamHistoricalData parallel = new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1);
+            parallel.setUseZipIndex(useIndex);
+            parallel.setEntryWorkers(4);
+            parallel.setEntryReorderCapacity(3);
+            List<Long> seen = new ArrayList<>();
+            parallel.stream("09:30", "12:00", recordingVisitor(seen));
+            assertEquals(expected, seen, "useIndex=" + useIndex);
+
+            // early stop hands control back without draining the zip
+            List<Long> firstFive = new ArrayList<>();
+            StreamHistoricalData.PacketVisitor recording = recordingVisitor(firstFive);
+            parallel.stream(new StreamHistoricalData.PacketVisitor() {
+                @Override
+                public void onStockTick(long blockTs, int token, int ltpPaise, int ltq, long volume,
+                        long openInterest, long exchangeTs) {
+                    recording.onStockTick(blockTs, token, ltpPaise, ltq, volume, openInterest, exchangeTs);
+                }
+
+                @Override
+                public boolean onBlockEnd(long blockTs) {
+                    recording.onBlockEnd(blockTs);
+                    return firstFive.size() < 5;
+                }
+            });
+            assertEquals(List.of(t0, t0 + 60_000L, t0 + 120_000L, t0 + 180_000L, t0 + 240_000L), firstFive);
+        }
+    }
+
+    /** Records block timestamps and checks the primitive fields against {@link #snapshot(long)}. */
+    private static StreamHistoricalData.PacketVisitor recordingVisitor(List<Long> blockTs) {
+        return new StreamHistoricalData.PacketVisitor() {
+            @Override
+            public void onStockTick(long ts, int token, int ltpPaise, int ltq, long volume,
+                    long openInterest, long exchangeTs) {
+                assertEquals(408065, token);
+                assertEquals(ts % 100_000, ltpPaise);
+                assertEquals(ts % 1_000, volume);
+                assertEquals(ts / 1000, exchangeTs);
+            }
+
+            @Override
+            public void onIndexTick(long ts, int token, int ltpPaise, int openPaise, int highPaise,
+                    int lowPaise, int closePaise, long exchangeTs) {
+                assertEquals(256265, token);
+                assertEquals(2_450_000 + ts % 1_000, ltpPaise);
+            }
+
+            @Override
+            public boolean onBlockEnd(long ts) {
+                blockTs.add(ts);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Write a day archive the way the recorder does:
+     * {@code <ms>_260617_<fileCode>_<dd-MM-yy>.zip} holding {@code <folder>/timestamp_<ms>.bin}.
+     * Each snapshot carries stock 408065 (ltp = ts % 100000) and index 256265.
+     */
+    static Path writeDayZip(Path dir, String fileCode, String ddMMyy, long... timestamps) throws IOException {
+        Path zip = dir.resolve(timestamps[0] + "_260617_" + fileCode + "_" + ddMMyy + ".zip");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (long ts : timestamps) {
+                zos.putNextEntry(new ZipEntry("day/timestamp_" + ts + ".bin"));
+                zos.write(BlockUtils.parseBlockToBin(snapshot(ts)));
+                zos.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    static Block snapshot(long ts) {
+        Block.StockPacket sp = new Block.StockPacket();
+        sp.setInstrumentToken(408065);
+        sp.setLastTradedPrice(ts % 100_000);
+        sp.setVolumeTraded(ts % 1_000);
+        sp.setExchangeTimestamp(ts / 1000);
+
+        Block.IndexPacket ip = new Block.IndexPacket();
+        ip.setToken(256265);
+        ip.setLastTradedPrice(2_450_000 + ts % 1_000);
+        ip.setExchangeTimestamp(ts / 1000);
+
+        return new Block(ts, new ArrayList<>(List.of(sp, ip)));
+    }
+
 }
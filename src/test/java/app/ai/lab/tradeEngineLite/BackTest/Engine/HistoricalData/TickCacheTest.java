@@ -0,0 +1,114 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.writeDayZip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TickCacheTest {
+
+    private static final long T0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+
+    @Test
+    void secondRun_hitsCache_andReplaysSameTicks() throws IOException {
+        Path root = Files.createTempDirectory("tcache_zips_");
+        long d2 = T0 + 86_400_000L;
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000, T0 + 2_000);
+        writeDayZip(root, "NIFTY_100", "06-09-25", d2, d2 + 1_000);
+        TickCache cache = new TickCache(Files.createTempDirectory("tcache_"), 64L << 20);
+
+        StreamHistoricalData plain = new StreamHistoricalData(root, "05-09-25", "06-09-25", "NIFTY_100", -1);
+        List<String> expected = new ArrayList<>();
+        plain.stream(ticks(expected));
+
+        StreamHistoricalData cached = new StreamHistoricalData(root, "05-09-25", "06-09-25", "NIFTY_100", -1);
+        cached.setTickCache(cache);
+        List<String> first = new ArrayList<>();
+        cached.stream(ticks(first));
+        List<String> second = new ArrayList<>();
+        cached.stream(ticks(second));
+        List<String> parallel = new ArrayList<>();
+        cached.streamParallelAcrossZips(2, ticks(parallel));
+
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+        assertEquals(expected, parallel);
+        assertEquals(2, cache.getMisses());
+        assertEquals(4, cache.getHits());
+
+        // time window is applied on read, so it reuses the same files
+        List<String> windowed = new ArrayList<>();
+        cached.stream("09:00", "09:00", ticks(windowed));
+        assertEquals(List.of("S " + T0 + " 408065 " + T0 % 100_000, "I " + T0 + " 256265", "S " + d2 + " 408065 "
+                + d2 % 100_000, "I " + d2 + " 256265"), windowed);
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void tokenFilter_isPartOfTheKey_andStoresOnlyMatchingPackets() throws IOException {
+        Path root = Files.createTempDirectory("tcache_zips_");
+        Path zip = writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000);
+        TickCache cache = new TickCache(Files.createTempDirectory("tcache_"), 64L << 20);
+
+        StreamHistoricalData streamer = new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1);
+        streamer.setTickCache(cache);
+        streamer.stream(ticks(new ArrayList<>()));
+
+        streamer.setTokenFilter(TokenFilter.of(256265));
+        List<String> onlyIndex = new ArrayList<>();
+        streamer.stream(ticks(onlyIndex));
+        assertEquals(List.of("I " + T0 + " 256265", "I " + (T0 + 1_000) + " 256265"), onlyIndex);
+        assertEquals(2, cache.getMisses());
+
+        Path full = cache.fileFor(zip, null);
+        Path filtered = cache.fileFor(zip, TokenFilter.of(256265));
+        assertNotEquals(full, filtered);
+        assertTrue(Files.size(filtered) < Files.size(full));
+    }
+
+    @Test
+    void sizeCap_evictsLeastRecentlyUsedFiles() throws IOException {
+        Path root = Files.createTempDirectory("tcache_zips_");
+        Path z1 = writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000);
+        Path z2 = writeDayZip(root, "NIFTY_100", "06-09-25", T0 + 86_400_000L);
+        Path dir = Files.createTempDirectory("tcache_");
+
+        // room for roughly one file
+        TickCache sizing = new TickCache(dir, Long.MAX_VALUE);
+        StreamHistoricalData day1 = new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1);
+        day1.setTickCache(sizing);
+        day1.stream(ticks(new ArrayList<>()));
+        long oneFile = sizing.sizeOnDisk();
+
+        TickCache cache = new TickCache(dir, oneFile + 10);
+        StreamHistoricalData day2 = new StreamHistoricalData(root, "06-09-25", "06-09-25", "NIFTY_100", -1);
+        day2.setTickCache(cache);
+        day2.stream(ticks(new ArrayList<>()));
+
+        assertFalse(Files.exists(cache.fileFor(z1, null)), "older file should be evicted");
+        assertTrue(Files.exists(cache.fileFor(z2, null)));
+        assertTrue(cache.sizeOnDisk() <= oneFile + 10);
+    }
+
+    private static StreamHistoricalData.PacketVisitor ticks(List<String> out) {
+        return new StreamHistoricalData.PacketVisitor() {
+            @Override
+            public void onStockTick(long ts, int token, int ltpPaise, int ltq, long volume,
+                    long openInterest, long exchangeTs) {
+                out.add("S " + ts + " " + token + " " + ltpPaise);
+            }
+
+            @Override
+            public void onIndexTick(long ts, int token, int ltpPaise, int openPaise, int highPaise,
+                    int lowPaise, int closePaise, long exchangeTs) {
+                out.add("I " + ts + " " + token);
+            }
+        };
+    }
+}
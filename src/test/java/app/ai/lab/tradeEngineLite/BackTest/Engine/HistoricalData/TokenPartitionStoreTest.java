@@ -0,0 +1,66 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.writeDayZip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenPartitionStoreTest {
+
+    private static final long T0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+
+    @Test
+    void repartition_writesOneSegmentPerTokenAndDay_andReplaysOnlyThatToken() throws IOException {
+        Path root = Files.createTempDirectory("tps_zips_");
+        Path store = Files.createTempDirectory("tps_store_");
+        long d2 = T0 + 86_400_000L;
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000);
+        writeDayZip(root, "NIFTY_100", "06-09-25", d2, d2 + 1_000, d2 + 2_000);
+
+        TokenPartitionStore.repartition(root, "NIFTY_100", "05-09-25", "06-09-25", store, null, false);
+
+        // reopen from the manifest
+        TokenPartitionStore tps = TokenPartitionStore.open(store);
+        assertEquals(List.of(256265, 408065), new ArrayList<>(tps.tokens()));
+        assertEquals(4, tps.segments().size());
+
+        List<TokenPartitionStore.Segment> stock = tps.segments(408065, "NIFTY_100",
+                LocalDate.of(2025, 9, 5), LocalDate.of(2025, 9, 6));
+        assertEquals(2, stock.size());
+        assertEquals(d2, stock.get(1).getFirstTs());
+        assertEquals(d2 + 2_000, stock.get(1).getLastTs());
+        assertEquals(3, stock.get(1).getSnapshots());
+        assertTrue(Files.isRegularFile(tps.tokenDir(408065).resolve("NIFTY_100_06-09-25.tcol")));
+
+        List<Long> ltps = new ArrayList<>();
+        List<Long> blockTs = new ArrayList<>();
+        tps.streamer(408065, "NIFTY_100", "05-09-25", "06-09-25", -1, block -> {
+            blockTs.add(block.getTimeStamp());
+            assertEquals(1, block.getInfo().size());
+            ltps.add(((Block.StockPacket) block.getInfo().get(0)).getLastTradedPrice());
+            return true;
+        }).stream_columnar();
+        assertEquals(List.of(T0, T0 + 1_000, d2, d2 + 1_000, d2 + 2_000), blockTs);
+        assertEquals(List.of(T0 % 100_000, (T0 + 1_000) % 100_000, d2 % 100_000,
+                (d2 + 1_000) % 100_000, (d2 + 2_000) % 100_000), ltps);
+    }
+
+    @Test
+    void repartition_withTokenFilter_onlyStoresRequestedTokens() throws IOException {
+        Path root = Files.createTempDirectory("tps_zips_");
+        Path store = Files.createTempDirectory("tps_store_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000);
+
+        TokenPartitionStore tps = TokenPartitionStore.repartition(root, "NIFTY_100", "05-09-25", "05-09-25",
+                store, TokenFilter.of(256265), false);
+        assertEquals(List.of(256265), new ArrayList<>(tps.tokens()));
+        assertFalse(Files.exists(tps.tokenDir(408065)));
+    }
+}
@@ -0,0 +1,81 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.snapshot;
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.writeDayZip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenRouterTest {
+
+    private static final long T0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+    private static final int STOCK = 408065;
+    private static final int INDEX = 256265;
+
+    @Test
+    void zipStream_deliversOnlyOwnTokenInsideWindow() throws IOException {
+        Path root = Files.createTempDirectory("router_");
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0, T0 + 1_000, T0 + 2_000, T0 + 3_000);
+
+        TokenRouter router = new TokenRouter();
+        List<String> early = new ArrayList<>();
+        List<String> late = new ArrayList<>();
+        List<String> index = new ArrayList<>();
+        router.subscribe(STOCK, T0, T0 + 1_000, record("early", early));
+        router.subscribe(STOCK, T0 + 1_000, T0 + 3_000, record("late", late));
+        router.subscribe(INDEX, record("index", index));
+        router.subscribe(999, record("absent", new ArrayList<>()));
+
+        StreamHistoricalData streamer = new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1, router);
+        streamer.setTokenFilter(router.tokenFilter());
+        streamer.stream();
+
+        assertEquals(List.of("early " + T0 + " " + STOCK, "early " + (T0 + 1_000) + " " + STOCK), early);
+        assertEquals(List.of("late " + (T0 + 1_000) + " " + STOCK, "late " + (T0 + 2_000) + " " + STOCK,
+                "late " + (T0 + 3_000) + " " + STOCK), late);
+        assertEquals(4, index.size());
+        assertEquals(9, router.getDelivered());
+        assertEquals(0, router.getSkipped());
+    }
+
+    @Test
+    void blockPath_ordersBySubscription_andRestartsWhenTimeGoesBack() {
+        TokenRouter router = new TokenRouter();
+        List<String> seen = new ArrayList<>();
+        router.subscribe(STOCK, T0 + 5_000, Long.MAX_VALUE, record("b", seen));
+        router.subscribe(STOCK, T0, T0 + 5_000, record("a", seen));
+        router.subscribe(STOCK, T0, T0, record("c", seen));
+
+        router.onBlock(snapshot(T0));
+        router.onBlock(snapshot(T0 + 5_000));
+        router.onBlock(snapshot(T0 + 9_000));
+        assertEquals(List.of("a " + T0 + " " + STOCK, "c " + T0 + " " + STOCK,
+                "b " + (T0 + 5_000) + " " + STOCK, "a " + (T0 + 5_000) + " " + STOCK,
+                "b " + (T0 + 9_000) + " " + STOCK), seen);
+        assertEquals(3, router.getSkipped()); // index packets
+
+        // a second run over the same dates starts the sweep again
+        seen.clear();
+        router.onBlock(snapshot(T0));
+        assertEquals(List.of("a " + T0 + " " + STOCK, "c " + T0 + " " + STOCK), seen);
+
+        assertThrows(IllegalArgumentException.class, () -> router.subscribe(STOCK, T0 + 1, T0, b -> {}));
+    }
+
+    private static TokenRouter.Subscriber record(String name, List<String> out) {
+        return block -> {
+            assertEquals(1, block.getInfo().size());
+            Block.PacketData p = block.getInfo().get(0);
+            long token = p instanceof Block.StockPacket
+                    ? ((Block.StockPacket) p).getInstrumentToken()
+                    : ((Block.IndexPacket) p).getToken();
+            out.add(name + " " + block.getTimeStamp() + " " + token);
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.snapshot;
+import static app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.StreamHistoricalDataTest.writeDayZip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipEntryIndexTest {
+
+    private static final long T0 = 1_757_043_000_000L; // 05-09-25 09:00 IST
+
+    @Test
+    void load_buildsSortedSidecar_readsRawEntries_andRebuildsWhenStale() throws IOException {
+        Path root = Files.createTempDirectory("zidx_");
+        Path zip = writeDayZip(root, "NIFTY_100", "05-09-25", T0 + 2_000, T0, T0 + 1_000);
+
+        ZipEntryIndex index = ZipEntryIndex.load(zip);
+        assertNotNull(index);
+        assertTrue(Files.isRegularFile(ZipEntryIndex.sidecarOf(zip)));
+        assertEquals(3, index.size());
+        assertEquals(T0, index.timestamp(0));
+        assertEquals(T0 + 2_000, index.timestamp(2));
+        assertEquals(1, index.lowerBound(T0 + 1));
+        assertEquals(3, index.lowerBound(T0 + 2_001));
+
+        try (ZipEntryIndex.Reader reader = index.openReader()) {
+            for (int i = 0; i < index.size(); i++) {
+                ByteBuffer payload = reader.read(i);
+                byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                assertArrayEquals(BlockUtils.parseBlockToBin(snapshot(index.timestamp(i))), bytes);
+            }
+        }
+
+        // second open comes from the sidecar
+        FileTime sidecarTime = Files.getLastModifiedTime(ZipEntryIndex.sidecarOf(zip));
+        assertEquals(3, ZipEntryIndex.load(zip).size());
+        assertEquals(sidecarTime, Files.getLastModifiedTime(ZipEntryIndex.sidecarOf(zip)));
+
+        // rewritten zip => stale sidecar is rebuilt
+        Files.delete(zip);
+        writeDayZip(root, "NIFTY_100", "05-09-25", T0 + 2_000, T0 + 3_000);
+        Files.move(root.resolve((T0 + 2_000) + "_260617_NIFTY_100_05-09-25.zip"), zip);
+        Files.setLastModifiedTime(zip, FileTime.fromMillis(sidecarTime.toMillis() + 5_000));
+        ZipEntryIndex rebuilt = ZipEntryIndex.load(zip);
+        assertEquals(2, rebuilt.size());
+        assertEquals(T0 + 3_000, rebuilt.timestamp(1));
+    }
+
+    @Test
+    void storedEntries_areReadWithoutInflating() throws IOException {
+        Path zip = Files.createTempDirectory("zidx_stored_").resolve("1_260617_NIFTY_100_05-09-25.zip");
+        byte[] bin = BlockUtils.parseBlockToBin(snapshot(T0));
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+            ZipEntry e = new ZipEntry("day/timestamp_" + T0 + ".bin");
+            e.setMethod(ZipEntry.STORED);
+            e.setSize(bin.length);
+            CRC32 crc = new CRC32();
+            crc.update(bin);
+            e.setCrc(crc.getValue());
+            zos.putNextEntry(e);
+            zos.write(bin);
+            zos.closeEntry();
+        }
+
+        ZipEntryIndex index = ZipEntryIndex.load(zip);
+        try (ZipEntryIndex.Reader reader = index.openReader()) {
+            ByteBuffer payload = reader.read(0);
+            assertEquals(bin.length, payload.remaining());
+            assertEquals(ByteBuffer.wrap(bin), payload);
+        }
+    }
+
+    @Test
+    void timeWindowStream_matchesZipFilePath_includingWrapAround() throws IOException {
+        Path root = Files.createTempDirectory("zidx_window_");
+        long[] ts = new long[12];
+        for (int i = 0; i < ts.length; i++) ts[i] = T0 + i * 30 * 60_000L; // 09:00 .. 14:30 every 30 min
+        writeDayZip(root, "NIFTY_100", "05-09-25", ts);
+
+        for (String[] window : new String[][] { { "10:00", "12:00" }, { "13:00", "09:30" }, { "9:15 am", "3:30 pm" } }) {
+            StreamHistoricalData withIndex = new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1);
+            List<Long> indexed = new ArrayList<>();
+            withIndex.stream(window[0], window[1], blockEnds(indexed));
+
+            StreamHistoricalData plain = new StreamHistoricalData(root, "05-09-25", "05-09-25", "NIFTY_100", -1);
+            plain.setUseZipIndex(false);
+            List<Long> scanned = new ArrayList<>();
+            plain.stream(window[0], window[1], blockEnds(scanned));
+
+            assertFalse(scanned.isEmpty(), window[0] + "-" + window[1]);
+            assertEquals(scanned, indexed, window[0] + "-" + window[1]);
+        }
+        assertTrue(Files.isRegularFile(ZipEntryIndex.sidecarOf(root.resolve(ts[0] + "_260617_NIFTY_100_05-09-25.zip"))));
+    }
+
+    private static StreamHistoricalData.PacketVisitor blockEnds(List<Long> out) {
+        return new StreamHistoricalData.PacketVisitor() {
+            @Override
+            public void onStockTick(long blockTs, int token, int ltpPaise, int ltq, long volume,
+                    long openInterest, long exchangeTs) {
+                assertEquals(blockTs % 100_000, ltpPaise);
+            }
+
+            @Override
+            public boolean onBlockEnd(long blockTs) {
+                out.add(blockTs);
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.Runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BacktestRunnerTest {
+
+    @Test
+    void units_overlapOnVirtualThreads_withinPerSourceLimit() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        BacktestRunner<Integer> runner = new BacktestRunner<Integer>().limit("groww", 4);
+        for (int i = 0; i < 20; i++) {
+            final int id = i;
+            runner.add("unit-" + i, "groww", () -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } finally {
+                    active.decrementAndGet();
+                }
+                return id;
+            });
+        }
+        runner.add("local", null, () -> -1);
+
+        BacktestRunner.Report<Integer> report = runner.run();
+
+        assertEquals(21, report.count(BacktestRunner.Status.OK));
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) expected.add(i);
+        expected.add(-1);
+        assertEquals(expected, report.values()); // add order, not completion order
+        assertEquals(4, maxActive.get());
+        long wallMs = report.getWallNanos() / 1_000_000L;
+        // 20 x 50 ms, 4 at a time => ~250 ms, not 1 s
+        assertTrue(wallMs >= 245 && wallMs < 700, report.toString());
+        assertTrue(report.getBusyNanos() > report.getWallNanos(), report.toString());
+    }
+
+    @Test
+    void failFast_cancelsTheRest_andFailuresAreReported() throws Exception {
+        BacktestRunner<String> runner = new BacktestRunner<String>().limit("zip", 1);
+        runner.setFailFast(true);
+        runner.add("bad", null, () -> {
+            Thread.sleep(20);
+            throw new IOException("corrupt zip");
+        });
+        runner.add("slow", null, () -> {
+            Thread.sleep(10_000);
+            return "slow";
+        });
+        for (int i = 0; i < 3; i++) runner.add("queued-" + i, "zip", () -> {
+            Thread.sleep(10_000);
+            return "queued";
+        });
+
+        BacktestRunner.Report<String> report = runner.run();
+
+        assertTrue(report.getWallNanos() < 5_000_000_000L, report.toString());
+        List<BacktestRunner.Result<String>> failures = report.failures();
+        assertEquals(1, failures.size());
+        assertEquals("bad", failures.get(0).getName());
+        assertInstanceOf(IOException.class, failures.get(0).getError());
+        assertEquals(4, report.count(BacktestRunner.Status.CANCELLED));
+        assertTrue(report.values().isEmpty());
+    }
+
+    @Test
+    void timeout_cancelsUnitsStillRunning() throws Exception {
+        BacktestRunner<String> runner = new BacktestRunner<>();
+        runner.setTimeout(Duration.ofMillis(100));
+        runner.add("fast", null, () -> "done");
+        runner.add("stuck", null, () -> {
+            Thread.sleep(10_000);
+            return "never";
+        });
+        runner.add("failing", null, () -> {
+            throw new IllegalStateException("no data");
+        });
+
+        BacktestRunner.Report<String> report = runner.run();
+
+        assertTrue(report.getWallNanos() < 5_000_000_000L, report.toString());
+        List<BacktestRunner.Result<String>> results = report.getResults();
+        assertEquals(BacktestRunner.Status.OK, results.get(0).getStatus());
+        assertEquals("done", results.get(0).getValue());
+        assertEquals(BacktestRunner.Status.CANCELLED, results.get(1).getStatus());
+        assertEquals(BacktestRunner.Status.FAILED, results.get(2).getStatus()); // no fail-fast: the rest ran
+        assertEquals(List.of("done"), report.values());
+    }
+}
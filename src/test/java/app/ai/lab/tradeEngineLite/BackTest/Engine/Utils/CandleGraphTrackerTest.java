@@ -4,6 +4,10 @@ import org.junit.jupiter.api.Test;
 
 import app.ai.lab.tradeEngineLite.GraphUtils.CandleGraphTracker;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -61,5 +65,36 @@ class CandleGraphTrackerTest {
                     c.candleId, c.open, c.high, c.low, c.close);
         }
     }
-}
 
+    @Test
+    void restoredStateContinuesLikeTheOriginal() throws IOException {
+        CandleGraphTracker original = new CandleGraphTracker(1, "TEST", 60, new int[] { 20, 5, 3 },
+                CandleGraphTracker.MAType.EXPONENTIAL);
+        original.enableRSI(14);
+        RandomTickGenerator gen = new RandomTickGenerator(1757166616450L, 1757166616450L + 3_600_000L, 1_000L,
+                -1, 100.0, 1.0, 1.0);
+        List<RandomTickGenerator.TickData> ticks = gen.generateAll();
+        int half = ticks.size() / 2;
+        for (int i = 0; i < half; i++) original.addMarketData(ticks.get(i).timestamp, ticks.get(i).price);
+
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        original.writeState(new DataOutputStream(state));
+        CandleGraphTracker restored = new CandleGraphTracker(1, "TEST", 60, new int[] { 20, 5, 3 },
+                CandleGraphTracker.MAType.EXPONENTIAL);
+        restored.enableRSI(14);
+        restored.readState(new DataInputStream(new ByteArrayInputStream(state.toByteArray())));
+
+        for (int i = half; i < ticks.size(); i++) {
+            original.addMarketData(ticks.get(i).timestamp, ticks.get(i).price);
+            restored.addMarketData(ticks.get(i).timestamp, ticks.get(i).price);
+        }
+        assertEquals(original.candles.size(), restored.candles.size());
+        assertEquals(original.marketGraph.size(), restored.marketGraph.size());
+        CandleGraphTracker.Candle a = original.candles.get(original.candles.size() - 1);
+        CandleGraphTracker.Candle b = restored.candles.get(restored.candles.size() - 1);
+        assertEquals(a.close, b.close);
+        assertEquals(a.maValues[0], b.maValues[0]);
+        assertEquals(a.bollinger.upperBand, b.bollinger.upperBand);
+        assertEquals(original.getRSIValues(), restored.getRSIValues());
+    }
+}
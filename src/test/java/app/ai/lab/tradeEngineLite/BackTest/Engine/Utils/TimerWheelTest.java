@@ -0,0 +1,77 @@
+package app.ai.lab.tradeEngineLite.BackTest.Engine.Utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimerWheelTest {
+
+    @Test
+    void firesEveryItemAtItsTime_acrossLevelsAndOverflow() {
+        Random rnd = new Random(42);
+        long start = 1_735_700_000_000L; // arbitrary epoch ms
+        TimerWheel<long[]> wheel = new TimerWheel<>(start);
+        List<long[]> expected = new ArrayList<>(); // {at, seq}
+        List<long[]> fired = new ArrayList<>();
+        long now = start;
+        long seq = 0;
+        for (int step = 0; step < 2_000; step++) {
+            for (int k = rnd.nextInt(4); k > 0; k--) {
+                // mostly short delays, some minutes and days out, a few already due
+                long delay = switch (rnd.nextInt(5)) {
+                    case 0 -> rnd.nextInt(64);
+                    case 1 -> rnd.nextInt(10_000);
+                    case 2 -> rnd.nextInt(3_600_000);
+                    case 3 -> rnd.nextInt(3 * 86_400_000);
+                    default -> -rnd.nextInt(100);
+                };
+                long[] item = { Math.max(now, now + delay), seq++ };
+                wheel.schedule(now + delay, item);
+                expected.add(item);
+            }
+            now += rnd.nextInt(3) == 0 ? rnd.nextInt(200) : rnd.nextInt(20_000_000);
+            long to = now;
+            wheel.advance(to, item -> {
+                assertTrue(item[0] <= to, "fired early");
+                fired.add(item);
+            });
+            assertEquals(to, wheel.now());
+        }
+        wheel.advance(Long.MAX_VALUE / 2, fired::add);
+
+        assertEquals(expected.size(), fired.size());
+        assertEquals(0, wheel.size());
+        for (int i = 1; i < fired.size(); i++) {
+            assertTrue(fired.get(i)[0] >= fired.get(i - 1)[0], "out of order at " + i);
+        }
+        expected.sort(Comparator.comparingLong((long[] a) -> a[0]).thenComparingLong(a -> a[1]));
+        List<long[]> sorted = new ArrayList<>(fired);
+        sorted.sort(Comparator.comparingLong((long[] a) -> a[0]).thenComparingLong(a -> a[1]));
+        for (int i = 0; i < expected.size(); i++) assertEquals(expected.get(i)[1], sorted.get(i)[1]);
+    }
+
+    @Test
+    void itemsScheduledWhileFiring_fireInTheSameAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(0);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(10, "a");
+        wheel.advance(500, s -> {
+            fired.add(s + "@" + wheel.now());
+            if (s.equals("a")) {
+                wheel.schedule(wheel.now() + 90, "b");
+                wheel.schedule(wheel.now() + 1_000, "c");
+            }
+        });
+        assertEquals(List.of("a@10", "b@100"), fired);
+        assertEquals(1, wheel.size());
+        wheel.advance(400, s -> fired.add(s)); // the past: ignored
+        wheel.advance(1_010, s -> fired.add(s + "@" + wheel.now()));
+        assertEquals(List.of("a@10", "b@100", "c@1010"), fired);
+    }
+}
@@ -3,10 +3,16 @@ package app.ai.lab.tradeEngineLite.BackTest.Exchange;
 import app.ai.lab.tradeEngineLite.BackTest.Engine.HistoricalData.Block;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class VirtualExchangeTest {
 
@@ -44,4 +50,137 @@ public class VirtualExchangeTest {
 
         assertEquals(List.of(1), exchange.processedTokens);
     }
+
+    @Test
+    void checkpointedOrdersStayActiveAfterRestore() throws Exception {
+        VirtualExchange exchange = new VirtualExchange();
+        String limitId = exchange.placeOrder(new VirtualExchange.Order(7, VirtualExchange.OrderType.BUY_L, 95.0, 0.0));
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        exchange.writeState(new DataOutputStream(state));
+
+        TestVirtualExchange restored = new TestVirtualExchange();
+        restored.readState(new DataInputStream(new ByteArrayInputStream(state.toByteArray())));
+        List<VirtualExchange.OrderResponse> fills = new ArrayList<>();
+        restored.setOrderStatusCallback(fills::add);
+
+        Block block = new Block();
+        block.setTimeStamp(0L);
+        Block.IndexPacket p = new Block.IndexPacket();
+        p.setToken(7);
+        p.setLastTradedPrice(9400); // 94.00 <= limit
+        block.setInfo(new ArrayList<>(List.of(p)));
+        restored.onBlock(block);
+
+        assertEquals(List.of(7), restored.processedTokens);
+        assertEquals(1, fills.size());
+        assertEquals(limitId, fills.get(0).getOrderId());
+    }
+
+    @Test
+    void ticksFillOnlyTheCrossingLevelsOfTheirOwnInstrument() {
+        VirtualExchange exchange = new VirtualExchange();
+        List<String> filled = new ArrayList<>();
+        exchange.setOrderStatusCallback(r -> filled.add(r.getInstrumentId() + "@" + r.getAvgPrice()));
+
+        exchange.placeOrder(new VirtualExchange.Order(1, VirtualExchange.OrderType.BUY_L, 99.0, 0.0));
+        exchange.placeOrder(new VirtualExchange.Order(1, VirtualExchange.OrderType.BUY_L, 97.0, 0.0));
+        String cancelled = exchange.placeOrder(new VirtualExchange.Order(1, VirtualExchange.OrderType.BUY_L, 98.0, 0.0));
+        exchange.placeOrder(new VirtualExchange.Order(1, VirtualExchange.OrderType.SELL_L, 101.0, 0.0));
+        String moved = exchange.placeOrder(new VirtualExchange.Order(1, VirtualExchange.OrderType.SELL_L, 103.0, 0.0));
+        exchange.placeOrder(new VirtualExchange.Order(2, VirtualExchange.OrderType.BUY_L, 500.0, 0.0));
+
+        exchange.instrumentPriceFeed(1, 100.0, 100.0, 100.0);
+        assertEquals(List.of(), filled);
+
+        assertTrue(exchange.cancelOrder(cancelled));
+        assertFalse(exchange.cancelOrder(cancelled));
+        assertTrue(exchange.modifyOrder(moved, new VirtualExchange.Order(1, VirtualExchange.OrderType.SELL_L, 102.0, 0.0)));
+
+        exchange.instrumentPriceFeed(1, 97.5, 97.5, 97.5);   // crosses the 99 bid only
+        exchange.instrumentPriceFeed(1, 102.0, 102.0, 102.0); // both asks, lowest first
+        assertEquals(List.of("1@99.0", "1@101.0", "1@102.0"), filled);
+
+        exchange.instrumentPriceFeed(1, 90.0, 90.0, 90.0);
+        exchange.instrumentPriceFeed(1, 90.0, 90.0, 90.0);
+        assertEquals(List.of("1@99.0", "1@101.0", "1@102.0", "1@97.0"), filled);
+        assertFalse(exchange.cancelOrder(moved));
+    }
+
+    @Test
+    void orderIdsAreSequential_andCancelAndModifyFindOrdersById() {
+        VirtualExchange exchange = new VirtualExchange();
+        List<Long> filled = new ArrayList<>();
+        exchange.setOrderStatusCallback(r -> filled.add(r.getId()));
+
+        long[] ids = new long[10_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = exchange.place(new VirtualExchange.Order(i % 7, VirtualExchange.OrderType.BUY_L, 50.0 + i % 13, 0.0));
+            assertEquals(i + 1, ids[i]);
+        }
+        for (int i = 0; i < ids.length; i += 2) {
+            assertTrue(exchange.cancelOrder(ids[i]));
+        }
+        for (int i = 1; i < ids.length; i += 2) {
+            if (i % 7 != 3) assertTrue(exchange.cancelOrder(Long.toString(ids[i])));
+        }
+        assertTrue(exchange.modifyOrder(ids[3], new VirtualExchange.Order(3, VirtualExchange.OrderType.SELL_L, 200.0, 0.0)));
+        assertFalse(exchange.cancelOrder(ids[0]));
+        assertFalse(exchange.cancelOrder("not-an-id"));
+        assertEquals(ids.length + 1, exchange.place(new VirtualExchange.Order(9, VirtualExchange.OrderType.BUY_M, 0.0, 0.0)));
+
+        exchange.instrumentPriceFeed(3, 40.0, 40.0, 40.0); // every remaining instrument-3 bid crosses; the ask does not
+        long expected = 0;
+        for (int i = 1; i < ids.length; i += 2) {
+            if (i % 7 == 3 && i != 3) expected++;
+        }
+        assertEquals(expected, filled.size());
+        assertFalse(filled.contains(ids[3]));
+        exchange.instrumentPriceFeed(3, 200.0, 200.0, 200.0);
+        assertEquals(ids[3], (long) filled.get(filled.size() - 1));
+    }
+
+    @Test
+    void orderDelay_isMarketTime_andFillsAtTheFirstTickAfterArrival() throws Exception {
+        // 10 s of market time: a real sleep per order would stand out at once
+        VirtualExchange exchange = new VirtualExchange(10_000);
+        List<String> fills = new ArrayList<>();
+        exchange.setOrderStatusCallback(r -> fills.add(r.getId() + "@" + r.getAvgPrice()));
+
+        long market = exchange.place(new VirtualExchange.Order(5, VirtualExchange.OrderType.BUY_M, 0.0, 0.0));
+        exchange.onBlock(tick(1_000, 5, 10000));
+        exchange.onBlock(tick(10_999, 5, 10050));
+        assertEquals(List.of(), fills); // still in flight
+        exchange.onBlock(tick(11_000, 5, 10100));
+        assertEquals(List.of(market + "@101.0"), fills);
+
+        long limit = exchange.place(new VirtualExchange.Order(5, VirtualExchange.OrderType.SELL_L, 102.0, 0.0));
+        long cancelled = exchange.place(new VirtualExchange.Order(5, VirtualExchange.OrderType.BUY_M, 0.0, 0.0));
+        assertTrue(exchange.cancelOrder(cancelled));
+        exchange.onBlock(tick(11_500, 5, 10300)); // crosses, but the order arrives at 21 000
+
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        exchange.writeState(new DataOutputStream(state));
+        VirtualExchange restored = new VirtualExchange(10_000);
+        restored.readState(new DataInputStream(new ByteArrayInputStream(state.toByteArray())));
+        List<String> restoredFills = new ArrayList<>();
+        restored.setOrderStatusCallback(r -> restoredFills.add(r.getId() + "@" + r.getAvgPrice()));
+
+        for (VirtualExchange ex : List.of(exchange, restored)) {
+            ex.onBlock(tick(20_999, 5, 10300));
+            ex.onBlock(tick(5 * 3_600_000L, 5, 10100)); // hours later, below the limit
+            ex.onBlock(tick(5 * 3_600_000L + 1, 5, 10200));
+        }
+        assertEquals(List.of(market + "@101.0", limit + "@102.0"), fills);
+        assertEquals(List.of(limit + "@102.0"), restoredFills);
+    }
+
+    private static Block tick(long ts, int token, int ltpPaise) {
+        Block block = new Block();
+        block.setTimeStamp(ts);
+        Block.IndexPacket p = new Block.IndexPacket();
+        p.setToken(token);
+        p.setLastTradedPrice(ltpPaise);
+        block.setInfo(new ArrayList<>(List.of(p)));
+        return block;
+    }
 }